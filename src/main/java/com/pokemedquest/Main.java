@@ -1,14 +1,40 @@
 package com.pokemedquest; // Base package
 
+import com.pokemedquest.dao.AchievementDao;
 import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.DatabaseManager;
+import com.pokemedquest.dao.RetentionDao;
+import com.pokemedquest.dao.SnapshotReader;
+import com.pokemedquest.dao.SqlTracer;
+import com.pokemedquest.dao.StreakDao;
 import com.pokemedquest.dao.TestProgressDao;
 import com.pokemedquest.dao.UserDao;
+import com.pokemedquest.events.EventBus;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.service.AchievementService;
 import com.pokemedquest.service.AuthService;
 import com.pokemedquest.service.AvatarService;
+import com.pokemedquest.service.DashboardService;
+import com.pokemedquest.service.LeaderboardService;
 import com.pokemedquest.service.ProgressService;
+import com.pokemedquest.service.RetentionJob;
+import com.pokemedquest.service.SessionRegistry;
+import com.pokemedquest.service.StreakService;
+import com.pokemedquest.audit.Audit;
+import com.pokemedquest.audit.AuditLog;
+import com.pokemedquest.backup.BackupJob;
+import com.pokemedquest.backup.OnlineBackup;
+import com.pokemedquest.model.ProgressRollup;
+import com.pokemedquest.reminder.FileReminderSink;
+import com.pokemedquest.reminder.ReminderScheduler;
 import com.pokemedquest.cli.CliHandler; // Assuming CliHandler is in 'cli' subpackage
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main entry point for the PokeMed_Quest application.
@@ -19,6 +45,36 @@ public class Main {
     public static void main(String[] args) {
         System.out.println("Welcome to PokeMed Quest!");
 
+        // Operation timers are always available over JMX; also dump them to a file periodically
+        Path metricsFile = Paths.get(System.getProperty("pokemedquest.metrics.file", "data/metrics.txt"));
+        long metricsPeriod = Long.getLong("pokemedquest.metrics.periodSeconds", 60);
+        Metrics.startSnapshotWriter(metricsFile, metricsPeriod);
+
+        // Who read or changed which patient's data, written off the request path with group commit
+        Path auditDir = Paths.get(System.getProperty("pokemedquest.audit.dir", "data/audit"));
+        long auditFsyncMillis = Long.getLong("pokemedquest.audit.fsyncMillis", AuditLog.DEFAULT_FSYNC_INTERVAL_MILLIS);
+        try {
+            Audit.install(new AuditLog(auditDir, auditFsyncMillis, AuditLog.DEFAULT_SEGMENT_BYTES));
+        } catch (IOException e) {
+            System.err.println("Error opening audit log, continuing without auditing: " + e.getMessage());
+        }
+
+        // Create any tables added since the database file was made (all CREATE TABLE IF NOT EXISTS)
+        try {
+            DatabaseManager.initializeSchema();
+        } catch (SQLException e) {
+            System.err.println("Error initializing database schema: " + e.getMessage());
+        }
+
+        // Online backups while the CLI runs, only if a backup directory is configured
+        BackupJob backupJob = null;
+        String backupDir = System.getProperty("pokemedquest.backup.dir");
+        if (backupDir != null) {
+            OnlineBackup backup = new OnlineBackup(null, Paths.get(backupDir), OnlineBackup.DEFAULT_CHUNK_ROWS, OnlineBackup.DEFAULT_PAUSE_MILLIS);
+            backupJob = new BackupJob(backup, Integer.getInteger("pokemedquest.backup.fullEvery", 24));
+            backupJob.start(Long.getLong("pokemedquest.backup.periodMinutes", 60));
+        }
+
         // --- Dependency Initialization ---
         // Ideally, use a dependency injection framework, but manual setup for now.
 
@@ -26,17 +82,65 @@ public class Main {
         UserDao userDao = new UserDao();
         AvatarDao avatarDao = new AvatarDao();
         TestProgressDao testProgressDao = new TestProgressDao();
+        AchievementDao achievementDao = new AchievementDao();
+        StreakDao streakDao = new StreakDao();
+        RetentionDao retentionDao = new RetentionDao();
+        SnapshotReader snapshotReader = new SnapshotReader(); // Dedicated connection for admin reports
 
         // 2. Create Service instances, injecting DAOs
-        AuthService authService = new AuthService(userDao);
-        AvatarService avatarService = new AvatarService(avatarDao);
-        ProgressService progressService = new ProgressService(testProgressDao);
+        EventBus eventBus = new EventBus(); // Domain events, consumed off the request thread
+        SessionRegistry sessionRegistry = new SessionRegistry(); // Shared by everything that logs users in
+        AuthService authService = new AuthService(userDao, avatarDao, sessionRegistry, eventBus);
+        AvatarService avatarService = new AvatarService(avatarDao, eventBus);
+        ProgressService progressService = new ProgressService(testProgressDao, retentionDao, eventBus);
+        AchievementService achievementService = new AchievementService(achievementDao, avatarDao, testProgressDao, eventBus);
+        StreakService streakService = new StreakService(streakDao, testProgressDao);
+        LeaderboardService leaderboardService = new LeaderboardService(avatarDao, testProgressDao);
+        leaderboardService.load(); // Kept current by its subscription from here on
+        DashboardService dashboardService = new DashboardService(snapshotReader);
+
+        // Reactions to domain events, each on its own consumer thread
+        eventBus.subscribe("achievements", achievementService);
+        eventBus.subscribe("streaks", streakService);
+        eventBus.subscribe("leaderboard", leaderboardService);
+        eventBus.subscribe("sessions", sessionRegistry); // Refreshes the avatar cached in each session
+
+        // Testing reminders for patients, only if a reminder file is configured
+        ReminderScheduler reminderScheduler = null;
+        FileReminderSink reminderSink = null;
+        String reminderFile = System.getProperty("pokemedquest.reminders.file");
+        if (reminderFile != null) {
+            try {
+                reminderSink = new FileReminderSink(Paths.get(reminderFile));
+                reminderScheduler = new ReminderScheduler(userDao, testProgressDao, reminderSink,
+                        TimeUnit.DAYS.toMillis(Long.getLong("pokemedquest.reminders.cadenceDays", 7)),
+                        TimeUnit.HOURS.toMillis(Long.getLong("pokemedquest.reminders.repeatHours", 24)),
+                        ReminderScheduler.DEFAULT_BATCH_SIZE);
+                eventBus.subscribe("reminders", reminderScheduler); // Moves a patient's reminder when they test
+                reminderScheduler.load();
+                reminderScheduler.start();
+            } catch (IOException e) {
+                System.err.println("Error opening reminder file, continuing without reminders: " + e.getMessage());
+            }
+        }
+        eventBus.start();
+
+        // Roll up old test results, only if a retention age is configured (it deletes raw rows)
+        RetentionJob retentionJob = null;
+        Integer retentionDays = Integer.getInteger("pokemedquest.retention.rawDays");
+        if (retentionDays != null) {
+            ProgressRollup.Granularity granularity = ProgressRollup.Granularity.valueOf(
+                    System.getProperty("pokemedquest.retention.bucket", "WEEK").toUpperCase());
+            retentionJob = new RetentionJob(retentionDao, retentionDays, granularity,
+                    RetentionJob.DEFAULT_BATCH_SIZE, RetentionJob.DEFAULT_PAUSE_MILLIS);
+            retentionJob.start(24);
+        }
 
         // 3. Create Scanner for user input
         Scanner scanner = new Scanner(System.in);
 
         // 4. Create CLI Handler, injecting Services and Scanner
-        CliHandler cliHandler = new CliHandler(scanner, authService, avatarService, progressService);
+        CliHandler cliHandler = new CliHandler(scanner, authService, avatarService, progressService, achievementService, streakService, leaderboardService, dashboardService, eventBus);
 
         // --- Start the Application ---
         try {
@@ -47,6 +151,26 @@ public class Main {
         } finally {
             // Close the scanner when the application loop finishes
             scanner.close();
+            sessionRegistry.shutdown();
+            eventBus.shutdown(); // Lets subscribers finish what was already published
+            if (reminderScheduler != null) {
+                reminderScheduler.shutdown();
+                reminderSink.close();
+            }
+            achievementService.shutdown(); // Writes any achievements still queued
+            if (retentionJob != null) {
+                retentionJob.shutdown(); // Stops after the current batch
+            }
+            snapshotReader.close();
+            if (backupJob != null) {
+                backupJob.shutdown(); // Lets a backup in progress finish
+            }
+            Metrics.stopSnapshotWriter(metricsFile);
+            SqlTracer.disable(); // Flushes the slow-query log if tracing was on
+            AuditLog auditLog = Audit.uninstall();
+            if (auditLog != null) {
+                auditLog.close(); // Commits the last group, after everything above that may still read data
+            }
             System.out.println("Exiting PokeMed Quest. Goodbye!");
         }
     }
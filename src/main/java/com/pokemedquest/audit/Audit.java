@@ -0,0 +1,76 @@
+package com.pokemedquest.audit;
+
+/**
+ * Static entry point the DAOs use to write audit records, in the spirit of Metrics.
+ *
+ * The actor (who is doing something) is taken from a thread-local that the CLI sets on
+ * login; work on background threads (event subscribers, flushers) is recorded as SYSTEM.
+ * Until a log is installed, {@link #record} is a single volatile read.
+ */
+public final class Audit {
+
+    public static final int SYSTEM = -1;     // Actor of background work and of not-yet-logged-in requests
+    public static final int ALL_USERS = -2;  // Subject of bulk reads across all users
+    public static final int UNKNOWN_USER = 0; // Subject of a failed login for a username that does not exist
+
+    private static volatile AuditLog log;
+    private static final ThreadLocal<Integer> ACTOR = ThreadLocal.withInitial(() -> SYSTEM);
+
+    // Private constructor to prevent instantiation of this utility class.
+    private Audit() { }
+
+    /**
+     * Starts sending audit records to the given log.
+     */
+    public static void install(AuditLog auditLog) {
+        log = auditLog;
+    }
+
+    /**
+     * Stops auditing.
+     * @return The log that was installed (for closing), or null.
+     */
+    public static AuditLog uninstall() {
+        AuditLog previous = log;
+        log = null;
+        return previous;
+    }
+
+    /**
+     * Sets the user on whose behalf the current thread is acting.
+     */
+    public static void setActor(int userId) {
+        ACTOR.set(userId);
+    }
+
+    /**
+     * Resets the current thread's actor to SYSTEM.
+     */
+    public static void clearActor() {
+        ACTOR.remove();
+    }
+
+    /**
+     * Records an operation by the current thread's actor.
+     *
+     * @param operation What was done.
+     * @param subjectUserId Whose data it was done to.
+     * @param detail Entity ID for single-row operations, row count for multi-row reads.
+     */
+    public static void record(AuditOperation operation, int subjectUserId, int detail) {
+        AuditLog current = log;
+        if (current != null) {
+            current.append(operation, ACTOR.get(), subjectUserId, detail);
+        }
+    }
+
+    /**
+     * Records an operation by an explicit actor, e.g. a login before the thread's actor is set.
+     */
+    public static void recordAs(int actorUserId, AuditOperation operation, int subjectUserId, int detail) {
+        AuditLog current = log;
+        if (current != null) {
+            current.append(operation, actorUserId, subjectUserId, detail);
+        }
+    }
+}
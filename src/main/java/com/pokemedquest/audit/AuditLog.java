@@ -0,0 +1,331 @@
+package com.pokemedquest.audit;
+
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, segmented binary audit log with group commit.
+ *
+ * Callers encode a fixed-size record into an in-memory buffer and return; they never touch
+ * the disk. A single writer thread swaps that buffer for an empty one every fsync interval
+ * (or as soon as it is half full), writes the whole batch and fsyncs once, so the cost of
+ * an fsync is shared by every record that arrived during the interval. If the writer falls
+ * so far behind that the buffer fills up, callers wait for it rather than lose records.
+ *
+ * On disk the log is a directory of segments named audit-{first timestamp}.log. Each starts
+ * with a header (magic "PMQA", format version, record size) followed by records:
+ *
+ *   timestamp millis (8) | actor user ID (4) | subject user ID (4) | detail (4) | operation (1) | CRC32C (4)
+ *
+ * A crash can leave at most a torn last record, which the CRC lets AuditLogReader detect and skip.
+ *
+ * If writing a batch fails, its records are lost: they are counted (getLostCount), sync()
+ * reports false from then on, and the segment is abandoned where it is. The next batch
+ * starts a new segment, so it never lands behind a partly written record, which would hide
+ * it from AuditLogReader.
+ */
+public class AuditLog implements AutoCloseable {
+
+    static final int MAGIC = 0x504D5141; // "PMQA"
+    static final short FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 25;
+    static final int CHECKSUMMED_SIZE = RECORD_SIZE - 4;
+    static final String SEGMENT_PREFIX = "audit-";
+    static final String SEGMENT_SUFFIX = ".log";
+
+    public static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 100;
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final int BUFFER_RECORDS = 16 * 1024;
+
+    private static final Timer GROUP_COMMIT_TIMER = Metrics.timer("AuditLog.groupCommit");
+    private static final Timer APPEND_WAIT_TIMER = Metrics.timer("AuditLog.appendWait");
+
+    private final Path directory;
+    private final long fsyncIntervalMillis;
+    private final long segmentBytes;
+
+    // Guarded by lock: callers fill 'active', the writer drains 'flushing'
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition writerWakeup = lock.newCondition();
+    private final Condition spaceAvailable = lock.newCondition();
+    private final Condition committed = lock.newCondition();
+    private ByteBuffer active = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+    private ByteBuffer flushing = ByteBuffer.allocate(BUFFER_RECORDS * RECORD_SIZE);
+    private long appendedCount = 0;   // Records handed to append()
+    private long handledCount = 0;    // Records written and fsynced, or lost
+    private long firstLost = 0;       // Number (1-based) of the first record that could not be written; 0 if none
+    private long lostCount = 0;
+    private boolean flushRequested = false; // A caller is waiting on the writer; skip the interval
+    private boolean closed = false;
+
+    private final CRC32C crc = new CRC32C(); // Guarded by lock
+    private final Thread writer;
+
+    // Writer thread only
+    private FileChannel segment;
+    private long segmentSize;
+
+    /**
+     * Opens a log with the default fsync interval and segment size.
+     * @param directory The directory that holds the segments; created if missing.
+     * @throws IOException If the directory cannot be created.
+     */
+    public AuditLog(Path directory) throws IOException {
+        this(directory, DEFAULT_FSYNC_INTERVAL_MILLIS, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens a log and starts its writer thread.
+     *
+     * @param directory The directory that holds the segments; created if missing.
+     * @param fsyncIntervalMillis How long records may sit in memory before they are written and fsynced.
+     *                            This is the most that can be lost in a crash.
+     * @param segmentBytes The size after which a new segment file is started.
+     * @throws IOException If the directory cannot be created.
+     */
+    public AuditLog(Path directory, long fsyncIntervalMillis, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.fsyncIntervalMillis = Math.max(1, fsyncIntervalMillis);
+        this.segmentBytes = Math.max(HEADER_SIZE + RECORD_SIZE, segmentBytes);
+        Files.createDirectories(directory);
+        this.writer = new Thread(this::writeLoop, "audit-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Adds a record, timestamped now. Returns as soon as it is buffered; it reaches the disk
+     * with the next group commit. Records appended after close() are dropped.
+     */
+    public void append(AuditOperation operation, int actorUserId, int subjectUserId, int detail) {
+        long timestamp = System.currentTimeMillis();
+        lock.lock();
+        try {
+            if (active.remaining() < RECORD_SIZE && !closed) {
+                long start = System.nanoTime();
+                flushRequested = true;
+                writerWakeup.signal();
+                while (active.remaining() < RECORD_SIZE && !closed) {
+                    spaceAvailable.awaitUninterruptibly();
+                }
+                APPEND_WAIT_TIMER.recordSince(start);
+            }
+            if (closed) {
+                return;
+            }
+            int offset = active.position();
+            active.putLong(timestamp)
+                  .putInt(actorUserId)
+                  .putInt(subjectUserId)
+                  .putInt(detail)
+                  .put(operation.getCode());
+            crc.reset();
+            crc.update(active.array(), offset, CHECKSUMMED_SIZE);
+            active.putInt((int) crc.getValue());
+            appendedCount++;
+            if (active.position() >= active.capacity() / 2) {
+                writerWakeup.signal(); // Don't wait for the interval when traffic is heavy
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record appended so far has been written and fsynced.
+     * @param timeoutMillis The longest to wait.
+     * @return true if everything was committed in time; false on timeout, or if any record
+     * appended so far could not be written.
+     */
+    public boolean sync(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        lock.lock();
+        try {
+            long target = appendedCount;
+            flushRequested = true;
+            writerWakeup.signal();
+            while (handledCount < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !writer.isAlive()) {
+                    return false;
+                }
+                committed.awaitNanos(remaining);
+            }
+            return firstLost == 0 || firstLost > target;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long batchCount;
+                boolean stopping;
+                lock.lock();
+                try {
+                    if (!closed && !flushRequested && active.position() < active.capacity() / 2) {
+                        writerWakeup.await(fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+                    }
+                    flushRequested = false;
+                    stopping = closed;
+                    batch = active;
+                    active = flushing;
+                    flushing = batch;
+                    batchCount = appendedCount;
+                    spaceAvailable.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+
+                boolean written = true;
+                if (batch.position() > 0) {
+                    long start = System.nanoTime();
+                    try {
+                        batch.flip();
+                        writeBatch(batch);
+                    } catch (IOException e) {
+                        written = false;
+                        GROUP_COMMIT_TIMER.markError();
+                        System.err.println("Error writing audit log, " + (batch.limit() / RECORD_SIZE)
+                                + " records lost: " + e.getMessage());
+                        closeSegment(); // It may end in a partial record; the next batch starts a new one
+                    } finally {
+                        batch.clear();
+                        GROUP_COMMIT_TIMER.recordSince(start);
+                    }
+                }
+                lock.lock();
+                try {
+                    if (!written) {
+                        if (firstLost == 0) {
+                            firstLost = handledCount + 1;
+                        }
+                        lostCount += batchCount - handledCount;
+                    }
+                    handledCount = batchCount;
+                    committed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                if (stopping) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeSegment();
+        }
+    }
+
+    /**
+     * Writes whole records, starting new segments as needed, then fsyncs.
+     */
+    private void writeBatch(ByteBuffer batch) throws IOException {
+        while (batch.hasRemaining()) {
+            if (segment == null || segmentSize + RECORD_SIZE > segmentBytes) {
+                openNextSegment(batch.getLong(batch.position()));
+            }
+            long roomRecords = (segmentBytes - segmentSize) / RECORD_SIZE;
+            int chunk = (int) Math.min(batch.remaining(), roomRecords * RECORD_SIZE);
+            ByteBuffer slice = batch.duplicate();
+            slice.limit(batch.position() + chunk);
+            while (slice.hasRemaining()) {
+                segment.write(slice);
+            }
+            batch.position(batch.position() + chunk);
+            segmentSize += chunk;
+            if (batch.hasRemaining()) {
+                segment.force(false); // The finished segment is complete before the next one starts
+            }
+        }
+        segment.force(false); // One fsync for the whole group
+    }
+
+    private void openNextSegment(long firstTimestamp) throws IOException {
+        closeSegment();
+        Path file = directory.resolve(segmentName(firstTimestamp));
+        int suffix = 1;
+        while (Files.exists(file)) { // Two segments started within the same millisecond
+            file = directory.resolve(segmentName(firstTimestamp) + "." + suffix++);
+        }
+        segment = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putShort(FORMAT_VERSION)
+                .putShort((short) RECORD_SIZE);
+        header.flip();
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        segmentSize = HEADER_SIZE;
+    }
+
+    /**
+     * @return The number of records that could not be written.
+     */
+    public long getLostCount() {
+        lock.lock();
+        try {
+            return lostCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static String segmentName(long firstTimestamp) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, firstTimestamp, SEGMENT_SUFFIX);
+    }
+
+    private void closeSegment() {
+        if (segment != null) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                System.err.println("Error closing audit log segment: " + e.getMessage());
+            }
+            segment = null;
+        }
+    }
+
+    /**
+     * Commits everything already appended and stops the writer.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            writerWakeup.signal();
+            spaceAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.pokemedquest.audit;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the segments written by AuditLog and filters them by user and time range.
+ *
+ * Segments whose first timestamp is after the end of the range are not opened at all.
+ * A record that fails its checksum (a torn write at the tail after a crash) ends that segment.
+ *
+ * Command line:
+ *   java com.pokemedquest.audit.AuditLogReader [--dir=data/audit] [--user=42]
+ *        [--from=2024-05-01[T08:00]] [--to=2024-05-31[T18:00]]
+ *
+ * --user matches records where the user is either the actor or the subject.
+ * --to is exclusive; a bare date means midnight at the start of that day, local time.
+ */
+public class AuditLogReader {
+
+    public static final int ANY_USER = Integer.MIN_VALUE;
+
+    private final Path directory;
+
+    public AuditLogReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Collects the matching records in the order they were written.
+     *
+     * @param userId Only records where this user is actor or subject, or ANY_USER.
+     * @param fromMillis Inclusive lower bound (epoch millis), or Long.MIN_VALUE.
+     * @param toMillis Exclusive upper bound (epoch millis), or Long.MAX_VALUE.
+     * @return The matching records.
+     * @throws IOException If the directory or a segment cannot be read.
+     */
+    public List<AuditRecord> read(int userId, long fromMillis, long toMillis) throws IOException {
+        List<AuditRecord> records = new ArrayList<>();
+        scan(userId, fromMillis, toMillis, records::add);
+        return records;
+    }
+
+    /**
+     * Streams the matching records, in the order they were written, to a consumer.
+     * Same filters as {@link #read}.
+     */
+    public void scan(int userId, long fromMillis, long toMillis, Consumer<AuditRecord> consumer) throws IOException {
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            if (firstTimestamp(segment) >= toMillis) {
+                break; // This and every later segment start after the range
+            }
+            if (i + 1 < segments.size() && firstTimestamp(segments.get(i + 1)) < fromMillis) {
+                continue; // The next segment starts before the range, so this one ends before it
+            }
+            scanSegment(segment, userId, fromMillis, toMillis, consumer);
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, AuditLog.SEGMENT_PREFIX + "*")) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        // Zero-padded timestamps sort by name; segments started in the same millisecond get a
+        // numeric suffix (".log.1", ".log.2", ...), which has to be compared as a number
+        segments.sort(Comparator.comparingLong(AuditLogReader::firstTimestamp)
+                .thenComparingLong(AuditLogReader::sameMillisecondSuffix)
+                .thenComparing(Comparator.naturalOrder()));
+        return segments;
+    }
+
+    private static long sameMillisecondSuffix(Path segment) {
+        String name = segment.getFileName().toString();
+        int end = name.lastIndexOf(AuditLog.SEGMENT_SUFFIX) + AuditLog.SEGMENT_SUFFIX.length();
+        if (end < AuditLog.SEGMENT_SUFFIX.length() || end + 1 >= name.length() || name.charAt(end) != '.') {
+            return 0;
+        }
+        try {
+            return Long.parseLong(name.substring(end + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long firstTimestamp(Path segment) {
+        String name = segment.getFileName().toString();
+        int start = AuditLog.SEGMENT_PREFIX.length();
+        try {
+            return Long.parseLong(name.substring(start, start + 20));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return Long.MIN_VALUE; // Unknown name: always scanned
+        }
+    }
+
+    private void scanSegment(Path segment, int userId, long fromMillis, long toMillis,
+                             Consumer<AuditRecord> consumer) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(segment), 64 * 1024)) {
+            DataInputStream data = new DataInputStream(in);
+            int magic;
+            int recordSize;
+            try {
+                magic = data.readInt();
+                data.readShort(); // Format version; only version 1 exists so far
+                recordSize = data.readShort();
+            } catch (EOFException e) {
+                return; // Created but never written to
+            }
+            if (magic != AuditLog.MAGIC || recordSize != AuditLog.RECORD_SIZE) {
+                System.err.println("Skipping " + segment + ": not an audit log segment.");
+                return;
+            }
+
+            byte[] record = new byte[AuditLog.RECORD_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            CRC32C crc = new CRC32C();
+            while (true) {
+                try {
+                    data.readFully(record);
+                } catch (EOFException e) {
+                    return; // End of segment, or a torn last record
+                }
+                crc.reset();
+                crc.update(record, 0, AuditLog.CHECKSUMMED_SIZE);
+                if ((int) crc.getValue() != buffer.getInt(AuditLog.CHECKSUMMED_SIZE)) {
+                    System.err.println("Stopping at corrupt record in " + segment + ".");
+                    return;
+                }
+                long timestamp = buffer.getLong(0);
+                int actor = buffer.getInt(8);
+                int subject = buffer.getInt(12);
+                if (timestamp < fromMillis || timestamp >= toMillis) {
+                    continue;
+                }
+                if (userId != ANY_USER && actor != userId && subject != userId) {
+                    continue;
+                }
+                consumer.accept(new AuditRecord(timestamp, actor, subject,
+                        AuditOperation.fromCode(buffer.get(20)), buffer.getInt(16)));
+            }
+        }
+    }
+
+    /**
+     * Parses "2024-05-01" or "2024-05-01T08:00" as local time.
+     */
+    private static long parseTime(String value) {
+        try {
+            LocalDateTime time = value.contains("T") ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date/time '" + value + "'", e);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        Path directory = Paths.get(options.getOrDefault("dir", System.getProperty("pokemedquest.audit.dir", "data/audit")));
+        int userId = options.containsKey("user") ? Integer.parseInt(options.get("user")) : ANY_USER;
+        long from = options.containsKey("from") ? parseTime(options.get("from")) : Long.MIN_VALUE;
+        long to = options.containsKey("to") ? parseTime(options.get("to")) : Long.MAX_VALUE;
+
+        long[] count = {0};
+        new AuditLogReader(directory).scan(userId, from, to, record -> {
+            System.out.println(record);
+            count[0]++;
+        });
+        System.out.println(count[0] + " record(s) from " + directory
+                + (from != Long.MIN_VALUE ? " since " + Instant.ofEpochMilli(from) : "")
+                + (to != Long.MAX_VALUE ? " before " + Instant.ofEpochMilli(to) : ""));
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else {
+                System.err.println("Ignoring argument '" + arg + "' (expected --key=value)");
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,46 @@
+package com.pokemedquest.audit;
+
+/**
+ * What an audit record describes. The codes are stored on disk and must never change;
+ * add new operations with new codes.
+ */
+public enum AuditOperation {
+    USER_CREATE(1),
+    USER_READ(2),
+    USER_READ_ALL(3),          // A list of users read at once (subject: Audit.ALL_USERS)
+    USER_UPDATE(4),
+    AVATAR_CREATE(10),
+    AVATAR_READ(11),
+    AVATAR_UPDATE(12),
+    AVATAR_READ_ALL(13),       // Every avatar read at once (subject: Audit.ALL_USERS)
+    PROGRESS_CREATE(20),
+    PROGRESS_READ(21),
+    PROGRESS_READ_ALL(22),     // Every user's progress read at once (subject: Audit.ALL_USERS)
+    LOGIN(30),
+    LOGIN_FAILED(31);
+
+    private static final AuditOperation[] BY_CODE = new AuditOperation[256];
+
+    static {
+        for (AuditOperation operation : values()) {
+            BY_CODE[operation.code] = operation;
+        }
+    }
+
+    private final int code;
+
+    AuditOperation(int code) {
+        this.code = code;
+    }
+
+    public byte getCode() {
+        return (byte) code;
+    }
+
+    /**
+     * @return The operation with the given on-disk code, or null if unknown.
+     */
+    public static AuditOperation fromCode(byte code) {
+        return BY_CODE[code & 0xFF];
+    }
+}
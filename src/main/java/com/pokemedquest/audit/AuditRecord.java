@@ -0,0 +1,58 @@
+package com.pokemedquest.audit;
+
+import java.time.Instant;
+
+/**
+ * One decoded audit log record: at some time, an actor performed an operation on a
+ * subject's (patient's) data.
+ */
+public class AuditRecord {
+
+    // --- Fields ---
+    private final long timestampMillis;     // When it happened (epoch milliseconds)
+    private final int actorUserId;          // Who did it (Audit.SYSTEM for background work)
+    private final int subjectUserId;        // Whose data (Audit.ALL_USERS for bulk reads)
+    private final AuditOperation operation; // What was done
+    private final int detail;               // Entity ID for single-row operations, row count for multi-row reads
+
+    // --- Constructor ---
+
+    public AuditRecord(long timestampMillis, int actorUserId, int subjectUserId, AuditOperation operation, int detail) {
+        this.timestampMillis = timestampMillis;
+        this.actorUserId = actorUserId;
+        this.subjectUserId = subjectUserId;
+        this.operation = operation;
+        this.detail = detail;
+    }
+
+    // --- Getters ---
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public int getActorUserId() {
+        return actorUserId;
+    }
+
+    public int getSubjectUserId() {
+        return subjectUserId;
+    }
+
+    public AuditOperation getOperation() {
+        return operation;
+    }
+
+    public int getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        return Instant.ofEpochMilli(timestampMillis) +
+               " actor=" + actorUserId +
+               " subject=" + subjectUserId +
+               " " + operation +
+               " detail=" + detail;
+    }
+}
@@ -0,0 +1,80 @@
+package com.pokemedquest.backup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes backups on a schedule while the application runs: a full backup when the directory
+ * has none, then incremental backups, and a new full backup after every fullEvery
+ * incrementals so a restore never has to replay a long chain.
+ */
+public class BackupJob {
+
+    private final OnlineBackup backup;
+    private final int fullEvery;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param backup The backup to run.
+     * @param fullEvery Incremental backups between two full backups.
+     */
+    public BackupJob(OnlineBackup backup, int fullEvery) {
+        this.backup = backup;
+        this.fullEvery = fullEvery;
+    }
+
+    /**
+     * Starts taking a backup every periodMinutes, the first one after one period.
+     */
+    public synchronized void start(long periodMinutes) {
+        if (scheduler != null) {
+            return; // Already running
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "backup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runOnce, periodMinutes, periodMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Takes one backup, full or incremental as the chain requires.
+     * @return An Optional containing the manifest entry of the backup, or empty on error.
+     */
+    public Optional<BackupManifest.Entry> runOnce() {
+        List<BackupManifest.Entry> chain;
+        try {
+            chain = backup.getManifest().latestChain();
+        } catch (IOException e) {
+            System.err.println("Error reading backup manifest, taking a full backup: " + e.getMessage());
+            return backup.backupFull();
+        }
+        if (chain.isEmpty() || chain.size() > fullEvery) {
+            return backup.backupFull();
+        }
+        return backup.backupIncremental();
+    }
+
+    /**
+     * Stops the schedule, waiting for a backup in progress to finish.
+     */
+    public synchronized void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.err.println("Backup still running at shutdown; an unfinished backup is never added to the manifest.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+}
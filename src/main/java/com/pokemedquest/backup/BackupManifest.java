@@ -0,0 +1,179 @@
+package com.pokemedquest.backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The list of backups in a backup directory, kept in manifest.txt (one tab-separated line
+ * per backup, oldest first). A backup file is only added after it is complete and its
+ * checksum is known, so a backup that was interrupted never shows up here.
+ *
+ * A chain is one full backup followed by the incremental backups taken after it; each
+ * incremental covers the change_log sequence numbers (fromSeq, toSeq].
+ */
+public class BackupManifest {
+
+    public static final String FILE_NAME = "manifest.txt";
+
+    public enum Kind { FULL, INCREMENTAL }
+
+    /**
+     * One backup file and what it covers.
+     */
+    public static class Entry {
+        private final Kind kind;
+        private final String fileName;
+        private final long fromSeq;
+        private final long toSeq;
+        private final String sha256;
+        private final LocalDateTime createdAt;
+
+        public Entry(Kind kind, String fileName, long fromSeq, long toSeq, String sha256, LocalDateTime createdAt) {
+            this.kind = kind;
+            this.fileName = fileName;
+            this.fromSeq = fromSeq;
+            this.toSeq = toSeq;
+            this.sha256 = sha256;
+            this.createdAt = createdAt;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getFromSeq() {
+            return fromSeq;
+        }
+
+        public long getToSeq() {
+            return toSeq;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                   "kind=" + kind +
+                   ", fileName='" + fileName + '\'' +
+                   ", fromSeq=" + fromSeq +
+                   ", toSeq=" + toSeq +
+                   ", createdAt=" + createdAt +
+                   '}';
+        }
+    }
+
+    private final Path directory;
+
+    public BackupManifest(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return All backups, oldest first; empty if there is no manifest yet.
+     * @throws IOException if the manifest cannot be read or a line is malformed.
+     */
+    public List<Entry> read() throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields.length != 6) {
+                throw new IOException("Malformed manifest line: " + line);
+            }
+            try {
+                entries.add(new Entry(Kind.valueOf(fields[0]), fields[1], Long.parseLong(fields[2]),
+                        Long.parseLong(fields[3]), fields[4], LocalDateTime.parse(fields[5])));
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed manifest line: " + line, e);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return The latest full backup and the incrementals after it, oldest first; empty if there is no full backup.
+     * @throws IOException if the manifest cannot be read.
+     */
+    public List<Entry> latestChain() throws IOException {
+        List<Entry> entries = read();
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (entries.get(i).getKind() == Kind.FULL) {
+                return entries.subList(i, entries.size());
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Appends a backup to the manifest.
+     * @throws IOException if the manifest cannot be written.
+     */
+    public void append(Entry entry) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        StringBuilder line = new StringBuilder();
+        if (!Files.exists(file)) {
+            line.append("# kind\tfile\tfromSeq\ttoSeq\tsha256\tcreatedAt\n");
+        }
+        line.append(entry.getKind()).append('\t').append(entry.getFileName()).append('\t')
+            .append(entry.getFromSeq()).append('\t').append(entry.getToSeq()).append('\t')
+            .append(entry.getSha256()).append('\t').append(entry.getCreatedAt()).append('\n');
+        Files.write(file, line.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    /**
+     * @return The SHA-256 of a file, as lowercase hex.
+     * @throws IOException if the file cannot be read.
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.pokemedquest.backup;
+
+import com.pokemedquest.dao.DatabaseManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command-line backups of the application database, safe to run while the CLI is in use.
+ *
+ *   BackupTool full [--dir=data/backups]                   full backup, starts a new chain
+ *   BackupTool incremental [--dir=data/backups]            changes since the latest backup
+ *   BackupTool verify [--dir=data/backups]                 checksums and integrity of the latest chain
+ *   BackupTool restore --to=FILE [--dir=data/backups]      rebuilds the database into a new file
+ *
+ * Optional: --chunk-rows=N (rows per copy step, default 5000) and --pause-ms=N (pause after
+ * each step, default 5). Use -Dpokemedquest.db.url=jdbc:sqlite:... (or POKEMEDQUEST_DB_URL) to pick the database.
+ */
+public class BackupTool {
+
+    public static final String DEFAULT_DIR = "data/backups";
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length == 0) {
+            System.err.println("Usage: BackupTool full | incremental | verify | restore --to=FILE  [--dir=DIR]");
+            System.exit(2);
+        }
+        Map<String, String> options = parseOptions(args);
+        OnlineBackup backup = new OnlineBackup(null, Paths.get(options.getOrDefault("dir", DEFAULT_DIR)),
+                Integer.parseInt(options.getOrDefault("chunk-rows", String.valueOf(OnlineBackup.DEFAULT_CHUNK_ROWS))),
+                Long.parseLong(options.getOrDefault("pause-ms", String.valueOf(OnlineBackup.DEFAULT_PAUSE_MILLIS))));
+        long start = System.nanoTime();
+
+        switch (args[0]) {
+            case "full":
+            case "incremental": {
+                DatabaseManager.initializeSchema(); // Adds change_log to older databases
+                Optional<BackupManifest.Entry> entry = args[0].equals("full") ? backup.backupFull() : backup.backupIncremental();
+                if (!entry.isPresent()) {
+                    System.exit(1);
+                }
+                System.out.println("Wrote " + entry.get().getFileName() + " (changes " + entry.get().getFromSeq() + ".."
+                        + entry.get().getToSeq() + ", " + size(backup, entry.get()) + " bytes) in " + elapsedMillis(start) + " ms.");
+                return;
+            }
+            case "verify":
+                if (!backup.verify()) {
+                    System.exit(1);
+                }
+                System.out.println("Latest backup chain verified in " + elapsedMillis(start) + " ms.");
+                return;
+            case "restore": {
+                String to = options.get("to");
+                if (to == null) {
+                    System.err.println("restore needs --to=FILE (a new file; move it into place while the application is stopped)");
+                    System.exit(2);
+                }
+                if (!backup.restore(Paths.get(to))) {
+                    System.exit(1);
+                }
+                System.out.println("Restored into " + to + " in " + elapsedMillis(start) + " ms.");
+                return;
+            }
+            default:
+                System.err.println("Unknown command '" + args[0] + "'");
+                System.exit(2);
+        }
+    }
+
+    private static long size(OnlineBackup backup, BackupManifest.Entry entry) {
+        Path file = backup.getManifest().getDirectory().resolve(entry.getFileName());
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else {
+                System.err.println("Ignoring argument '" + arg + "' (expected --key=value)");
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,479 @@
+package com.pokemedquest.backup;
+
+import com.pokemedquest.dao.DatabaseManager;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Backs up the live database into a backup directory while the application keeps running.
+ *
+ * A backup is a plain SQLite file. It is written on its own connection, which attaches the
+ * backup file and copies rows into it inside one read transaction on the live database. In
+ * WAL mode (see DatabaseManager.initializeSchema) that transaction is a consistent snapshot
+ * that never blocks writers. Rows are copied in chunks of chunkRows with a pause after each
+ * chunk, so a backup only takes a bounded share of the disk and CPU from the writers.
+ *
+ * The pauses happen inside that one transaction, so it stays open for the whole backup. Until
+ * it ends, no checkpoint can copy WAL frames written after its snapshot back into the database
+ * file, and the -wal file grows by everything written during the backup (the first checkpoint
+ * afterwards reclaims it). That is the price of a consistent backup: a transaction per chunk
+ * would let a test and its user land in different snapshots. Longer pauses therefore mean a
+ * larger WAL, not just a slower backup.
+ *
+ * Full backups copy every table. Incremental backups copy only the rows listed in change_log
+ * since the previous backup, plus the new change_log rows: users, avatars, test results, archived
+ * results and exercise sessions by key, rollups per user (all of a changed user's buckets). A
+ * logged row that no longer exists is deleted on restore. The other tables hold a few rows per
+ * user (achievements, streaks, sync state) and are copied whole.
+ * Changes applied by SyncTool import are not in change_log, so take a full backup after an import.
+ *
+ * restore() rebuilds a database file from the latest full backup and its incrementals,
+ * after verifying their checksums.
+ */
+public class OnlineBackup {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer BACKUP_FULL_TIMER = Metrics.timer("OnlineBackup.backupFull");
+    private static final Timer BACKUP_INCREMENTAL_TIMER = Metrics.timer("OnlineBackup.backupIncremental");
+    private static final Timer VERIFY_TIMER = Metrics.timer("OnlineBackup.verify");
+    private static final Timer RESTORE_TIMER = Metrics.timer("OnlineBackup.restore");
+
+    public static final int DEFAULT_CHUNK_ROWS = 5000;
+    public static final long DEFAULT_PAUSE_MILLIS = 5;
+
+    // Tables whose changes are in change_log, with the column change_log.row_id refers to
+    private static final Map<String, String> LOGGED_TABLES = new LinkedHashMap<>();
+    static {
+        LOGGED_TABLES.put("users", "id");
+        LOGGED_TABLES.put("avatars", "user_id");
+        LOGGED_TABLES.put("test_progress", "progress_id");
+        LOGGED_TABLES.put("test_progress_archive", "archive_id");
+        LOGGED_TABLES.put("test_progress_rollup", "user_id");
+        LOGGED_TABLES.put("exercise_sessions", "session_id");
+    }
+    // Logged tables whose key column is not unique: change_log names a user, whose rows are replaced together
+    private static final Set<String> PER_USER_TABLES = Set.of("test_progress_rollup");
+    private static final String CHANGE_LOG_TABLE = "change_log";
+
+    private static final String ATTACH_SQL = "ATTACH DATABASE ? AS %s";
+    private static final String SELECT_TABLES_SQL = "SELECT name FROM %s.sqlite_master WHERE type = 'table' AND name NOT LIKE 'sqlite_%%' ORDER BY name";
+    private static final String SELECT_LAST_SEQ_SQL = "SELECT COALESCE(MAX(seq), 0) FROM main.change_log";
+    private static final String SELECT_CHUNK_END_SQL = "SELECT rowid FROM main.%s WHERE rowid > ? ORDER BY rowid LIMIT 1 OFFSET ?";
+    private static final String COPY_ROWID_RANGE_SQL = "INSERT INTO backup.%1$s (%2$s) SELECT %2$s FROM main.%1$s WHERE rowid > ? AND rowid <= ?";
+    private static final String COPY_CHANGED_ROWS_SQL = "INSERT OR REPLACE INTO backup.%1$s (%2$s) SELECT %2$s FROM main.%1$s "
+            + "WHERE %3$s IN (SELECT row_id FROM main.change_log WHERE entity = ? AND seq > ? AND seq <= ?)";
+    private static final String COPY_CHANGE_LOG_SQL = "INSERT INTO backup.change_log (%1$s) SELECT %1$s FROM main.change_log WHERE seq > ? AND seq <= ?";
+
+    // Restore: logged tables and change_log are merged by key, the other tables replaced
+    private static final String UPSERT_SQL = "INSERT INTO main.%1$s (%2$s) SELECT %2$s FROM increment.%1$s WHERE true "
+            + "ON CONFLICT (%3$s) DO UPDATE SET %4$s";
+    private static final String DELETE_REMOVED_SQL = "DELETE FROM main.%1$s WHERE %2$s IN "
+            + "(SELECT row_id FROM increment.change_log WHERE entity = '%1$s') AND %2$s NOT IN (SELECT %2$s FROM increment.%1$s)";
+    private static final String MERGE_CHANGE_LOG_SQL = "INSERT OR IGNORE INTO main.change_log (%1$s) SELECT %1$s FROM increment.change_log";
+    private static final String DELETE_USERS_ROWS_SQL = "DELETE FROM main.%1$s WHERE user_id IN "
+            + "(SELECT row_id FROM increment.change_log WHERE entity = '%1$s')";
+    private static final String INSERT_OR_REPLACE_ALL_SQL = "INSERT OR REPLACE INTO main.%1$s (%2$s) SELECT %2$s FROM increment.%1$s";
+    private static final String DELETE_ALL_SQL = "DELETE FROM main.%s";
+    private static final String REPLACE_ALL_SQL = "INSERT INTO main.%1$s (%2$s) SELECT %2$s FROM increment.%1$s";
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final String databaseUrl; // null: whatever DatabaseManager currently points at
+    private final BackupManifest manifest;
+    private final int chunkRows;
+    private final long pauseMillis;
+
+    /**
+     * @param databaseUrl JDBC URL of the database to back up, or null for the application database.
+     * @param directory The backup directory (created if needed).
+     * @param chunkRows Rows copied per step.
+     * @param pauseMillis Pause after each step, leaving the disk to the writers.
+     */
+    public OnlineBackup(String databaseUrl, Path directory, int chunkRows, long pauseMillis) {
+        this.databaseUrl = databaseUrl;
+        this.manifest = new BackupManifest(directory);
+        this.chunkRows = chunkRows;
+        this.pauseMillis = pauseMillis;
+    }
+
+    public BackupManifest getManifest() {
+        return manifest;
+    }
+
+    /**
+     * Takes a full backup, which starts a new chain.
+     * @return An Optional containing the manifest entry of the backup, or empty on error.
+     */
+    public Optional<BackupManifest.Entry> backupFull() {
+        long start = System.nanoTime();
+        try {
+            Optional<BackupManifest.Entry> entry = backup(BackupManifest.Kind.FULL, 0);
+            if (!entry.isPresent()) {
+                BACKUP_FULL_TIMER.markError();
+            }
+            return entry;
+        } finally {
+            BACKUP_FULL_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Takes an incremental backup on top of the latest backup in the directory.
+     * @return An Optional containing the manifest entry of the backup, or empty if there is
+     *         no full backup yet or on error.
+     */
+    public Optional<BackupManifest.Entry> backupIncremental() {
+        long start = System.nanoTime();
+        try {
+            List<BackupManifest.Entry> chain = manifest.latestChain();
+            if (chain.isEmpty()) {
+                BACKUP_INCREMENTAL_TIMER.markError();
+                System.err.println("No full backup in " + manifest.getDirectory() + "; take a full backup first.");
+                return Optional.empty();
+            }
+            Optional<BackupManifest.Entry> entry = backup(BackupManifest.Kind.INCREMENTAL, chain.get(chain.size() - 1).getToSeq());
+            if (!entry.isPresent()) {
+                BACKUP_INCREMENTAL_TIMER.markError();
+            }
+            return entry;
+        } catch (IOException e) {
+            BACKUP_INCREMENTAL_TIMER.markError();
+            System.err.println("Error reading backup manifest: " + e.getMessage());
+            return Optional.empty();
+        } finally {
+            BACKUP_INCREMENTAL_TIMER.recordSince(start);
+        }
+    }
+
+    private Optional<BackupManifest.Entry> backup(BackupManifest.Kind kind, long fromSeq) {
+        LocalDateTime createdAt = LocalDateTime.now();
+        String fileName = (kind == BackupManifest.Kind.FULL ? "full-" : "incr-") + createdAt.format(FILE_TIME) + ".db";
+        Path file = manifest.getDirectory().resolve(fileName);
+        Path partial = manifest.getDirectory().resolve(fileName + ".partial");
+        try {
+            Files.createDirectories(manifest.getDirectory());
+            if (Files.exists(file)) {
+                System.err.println("Backup " + file + " already exists.");
+                return Optional.empty();
+            }
+            Files.deleteIfExists(partial);
+            DatabaseManager.initializeSchema("jdbc:sqlite:" + partial.toAbsolutePath());
+
+            long toSeq;
+            try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+                attach(connection, partial, "backup");
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA backup.journal_mode = DELETE"); // A backup is one self-contained file
+                }
+                connection.setAutoCommit(false);
+                try {
+                    toSeq = queryLong(connection, SELECT_LAST_SEQ_SQL); // First read: pins the snapshot
+                    List<String> backupTables = tables(connection, "backup");
+                    for (String table : tables(connection, "main")) {
+                        if (!backupTables.contains(table)) {
+                            continue; // No longer in schema.sql, e.g. user_directory in databases from before directory-schema.sql
+                        } else if (kind == BackupManifest.Kind.INCREMENTAL && LOGGED_TABLES.containsKey(table)) {
+                            copyChangedRows(connection, table, LOGGED_TABLES.get(table), fromSeq, toSeq);
+                        } else if (kind == BackupManifest.Kind.INCREMENTAL && table.equals(CHANGE_LOG_TABLE)) {
+                            copyChangeLog(connection, fromSeq, toSeq);
+                        } else {
+                            copyTable(connection, table);
+                        }
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    rollbackQuietly(connection);
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DETACH DATABASE backup");
+                }
+            }
+
+            String sha256 = BackupManifest.sha256(partial);
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+            BackupManifest.Entry entry = new BackupManifest.Entry(kind, fileName, fromSeq, toSeq, sha256, createdAt);
+            manifest.append(entry);
+            return Optional.of(entry);
+        } catch (SQLException | IOException e) {
+            System.err.println("Error taking " + kind.name().toLowerCase() + " backup " + fileName + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException cleanup) {
+                System.err.println("Error deleting partial backup " + partial + ": " + cleanup.getMessage());
+            }
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Copies a whole table in rowid order, chunkRows rows per step.
+     */
+    private void copyTable(Connection connection, String table) throws SQLException {
+        String columns = String.join(", ", columns(connection, "main", table));
+        try (PreparedStatement chunkEnd = connection.prepareStatement(String.format(SELECT_CHUNK_END_SQL, table));
+             PreparedStatement copy = connection.prepareStatement(String.format(COPY_ROWID_RANGE_SQL, table, columns))) {
+            long lastRowId = Long.MIN_VALUE;
+            while (true) {
+                chunkEnd.setLong(1, lastRowId);
+                chunkEnd.setInt(2, chunkRows - 1);
+                Long end = null;
+                try (ResultSet rs = chunkEnd.executeQuery()) {
+                    if (rs.next()) {
+                        end = rs.getLong(1);
+                    }
+                }
+                copy.setLong(1, lastRowId);
+                copy.setLong(2, end != null ? end : Long.MAX_VALUE);
+                copy.executeUpdate();
+                if (end == null) {
+                    return; // That was the last, partial chunk
+                }
+                lastRowId = end;
+                pause();
+            }
+        }
+    }
+
+    /**
+     * Copies the current state of the rows of a logged table that changed in (fromSeq, toSeq].
+     */
+    private void copyChangedRows(Connection connection, String table, String keyColumn, long fromSeq, long toSeq) throws SQLException {
+        String columns = String.join(", ", columns(connection, "main", table));
+        try (PreparedStatement copy = connection.prepareStatement(String.format(COPY_CHANGED_ROWS_SQL, table, columns, keyColumn))) {
+            for (long seq = fromSeq; seq < toSeq; seq += chunkRows) {
+                copy.setString(1, table);
+                copy.setLong(2, seq);
+                copy.setLong(3, Math.min(seq + chunkRows, toSeq));
+                copy.executeUpdate();
+                pause();
+            }
+        }
+    }
+
+    private void copyChangeLog(Connection connection, long fromSeq, long toSeq) throws SQLException {
+        String columns = String.join(", ", columns(connection, "main", CHANGE_LOG_TABLE));
+        try (PreparedStatement copy = connection.prepareStatement(String.format(COPY_CHANGE_LOG_SQL, columns))) {
+            for (long seq = fromSeq; seq < toSeq; seq += chunkRows) {
+                copy.setLong(1, seq);
+                copy.setLong(2, Math.min(seq + chunkRows, toSeq));
+                copy.executeUpdate();
+                pause();
+            }
+        }
+    }
+
+    /**
+     * Checks every backup of the latest chain: the file's SHA-256 against the manifest,
+     * SQLite's integrity check, and that each incremental starts where the previous backup ended.
+     *
+     * @return true if the chain is complete and intact, false otherwise (problems are printed).
+     */
+    public boolean verify() {
+        long start = System.nanoTime();
+        try {
+            List<BackupManifest.Entry> chain = manifest.latestChain();
+            if (chain.isEmpty()) {
+                System.err.println("No full backup in " + manifest.getDirectory());
+                VERIFY_TIMER.markError();
+                return false;
+            }
+            boolean ok = true;
+            long expectedFromSeq = 0;
+            for (BackupManifest.Entry entry : chain) {
+                Path file = manifest.getDirectory().resolve(entry.getFileName());
+                if (!Files.exists(file)) {
+                    System.err.println(entry.getFileName() + ": missing");
+                    ok = false;
+                    continue;
+                }
+                if (!BackupManifest.sha256(file).equals(entry.getSha256())) {
+                    System.err.println(entry.getFileName() + ": checksum mismatch");
+                    ok = false;
+                    continue;
+                }
+                if (entry.getKind() == BackupManifest.Kind.INCREMENTAL && entry.getFromSeq() != expectedFromSeq) {
+                    System.err.println(entry.getFileName() + ": starts at change " + entry.getFromSeq()
+                            + " but the previous backup ended at " + expectedFromSeq);
+                    ok = false;
+                }
+                expectedFromSeq = entry.getToSeq();
+                try (Connection connection = DatabaseManager.getConnection("jdbc:sqlite:" + file.toAbsolutePath());
+                     Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("PRAGMA integrity_check")) {
+                    String result = rs.next() ? rs.getString(1) : "no result";
+                    if (!"ok".equals(result)) {
+                        System.err.println(entry.getFileName() + ": integrity check failed: " + result);
+                        ok = false;
+                    }
+                }
+            }
+            if (!ok) {
+                VERIFY_TIMER.markError();
+            }
+            return ok;
+        } catch (IOException | SQLException e) {
+            VERIFY_TIMER.markError();
+            System.err.println("Error verifying backups: " + e.getMessage());
+            return false;
+        } finally {
+            VERIFY_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Rebuilds the database as of the latest backup into a new file: verifies the chain,
+     * copies the full backup and applies each incremental in its own transaction.
+     * Stop the application before moving the result over data/application.db.
+     *
+     * @param target The file to create; must not exist yet.
+     * @return true if the database was restored, false otherwise.
+     */
+    public boolean restore(Path target) {
+        long start = System.nanoTime();
+        try {
+            if (Files.exists(target)) {
+                System.err.println("Restore target " + target + " already exists; restore into a new file.");
+                RESTORE_TIMER.markError();
+                return false;
+            }
+            if (!verify()) {
+                RESTORE_TIMER.markError();
+                return false;
+            }
+            List<BackupManifest.Entry> chain = manifest.latestChain();
+            Files.copy(manifest.getDirectory().resolve(chain.get(0).getFileName()), target);
+            try (Connection connection = DatabaseManager.getConnection("jdbc:sqlite:" + target.toAbsolutePath())) {
+                for (BackupManifest.Entry entry : chain.subList(1, chain.size())) {
+                    applyIncrement(connection, manifest.getDirectory().resolve(entry.getFileName()));
+                }
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA journal_mode = WAL"); // As DatabaseManager.initializeSchema leaves it
+                }
+            }
+            return true;
+        } catch (IOException | SQLException e) {
+            RESTORE_TIMER.markError();
+            System.err.println("Error restoring into " + target + ": " + e.getMessage());
+            return false;
+        } finally {
+            RESTORE_TIMER.recordSince(start);
+        }
+    }
+
+    private void applyIncrement(Connection connection, Path file) throws SQLException {
+        attach(connection, file, "increment");
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            for (String table : tables(connection, "increment")) {
+                List<String> columnList = columns(connection, "increment", table);
+                String columns = String.join(", ", columnList);
+                if (PER_USER_TABLES.contains(table)) {
+                    // The increment holds every current row of each logged user, so replacing them is exact
+                    statement.executeUpdate(String.format(DELETE_USERS_ROWS_SQL, table));
+                    statement.executeUpdate(String.format(INSERT_OR_REPLACE_ALL_SQL, table, columns));
+                } else if (LOGGED_TABLES.containsKey(table)) {
+                    String keyColumn = LOGGED_TABLES.get(table);
+                    List<String> assignments = new ArrayList<>();
+                    for (String column : columnList) {
+                        if (!column.equals(keyColumn)) {
+                            assignments.add(column + " = excluded." + column);
+                        }
+                    }
+                    // Logged rows missing from the increment were deleted, e.g. compacted by RetentionJob
+                    statement.executeUpdate(String.format(DELETE_REMOVED_SQL, table, keyColumn));
+                    statement.executeUpdate(String.format(UPSERT_SQL, table, columns, keyColumn, String.join(", ", assignments)));
+                } else if (table.equals(CHANGE_LOG_TABLE)) {
+                    statement.executeUpdate(String.format(MERGE_CHANGE_LOG_SQL, columns));
+                } else {
+                    statement.executeUpdate(String.format(DELETE_ALL_SQL, table));
+                    statement.executeUpdate(String.format(REPLACE_ALL_SQL, table, columns));
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollbackQuietly(connection);
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DETACH DATABASE increment");
+        }
+    }
+
+    private static void attach(Connection connection, Path file, String schema) throws SQLException {
+        try (PreparedStatement attach = connection.prepareStatement(String.format(ATTACH_SQL, schema))) {
+            attach.setString(1, file.toAbsolutePath().toString());
+            attach.execute();
+        }
+    }
+
+    private static List<String> tables(Connection connection, String schema) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(String.format(SELECT_TABLES_SQL, schema))) {
+            while (rs.next()) {
+                tables.add(rs.getString(1));
+            }
+        }
+        return tables;
+    }
+
+    private static List<String> columns(Connection connection, String schema, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA " + schema + ".table_info(" + table + ")")) {
+            while (rs.next()) {
+                columns.add(rs.getString("name"));
+            }
+        }
+        return columns;
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back backup transaction: " + e.getMessage());
+        }
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Finish the backup without pauses
+        }
+    }
+}
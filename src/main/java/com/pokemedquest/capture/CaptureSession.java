@@ -0,0 +1,88 @@
+package com.pokemedquest.capture;
+
+import com.pokemedquest.model.CmasItem;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * One exercise session being captured, obtained from SessionCapture.start().
+ *
+ * record() is called from a single thread (the one receiving the sensor or timer callbacks)
+ * and only stores the sample in the session's ring buffer; SessionCapture's drain thread
+ * encodes it in the background. Stop recording before calling SessionCapture.finish().
+ */
+public final class CaptureSession {
+
+    private final int userId;
+    private final LocalDateTime startedAt;
+    private final long startNanos;
+    private final SampleRingBuffer ring;
+    private final SampleStreamWriter writer = new SampleStreamWriter(); // Guarded by this, see drain()
+    private volatile long dropped = 0;  // Written by the recording thread only
+    private volatile boolean closed = false;
+
+    CaptureSession(int userId, int ringCapacity) {
+        this.userId = userId;
+        this.startedAt = LocalDateTime.now();
+        this.startNanos = System.nanoTime();
+        this.ring = new SampleRingBuffer(ringCapacity);
+    }
+
+    /**
+     * Records a sample taken now.
+     * @param item The CMAS item being performed.
+     * @param value The measured value, e.g. hold time in milliseconds or a repetition count.
+     * @return false if the sample was lost (buffer full or session finished).
+     */
+    public boolean record(CmasItem item, int value) {
+        return record((System.nanoTime() - startNanos) / 1000, item, value);
+    }
+
+    /**
+     * Records a sample with its own time stamp, e.g. from a device clock.
+     * @param offsetMicros Time of the sample since the session started.
+     * @return false if the sample was lost (buffer full or session finished).
+     */
+    public boolean record(long offsetMicros, CmasItem item, int value) {
+        if (closed || !ring.offer(offsetMicros, item.ordinal(), value)) {
+            dropped++; // Single writer, so the non-atomic increment is safe
+            return false;
+        }
+        return true;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * @return Samples lost so far because the ring buffer was full.
+     */
+    public long getDroppedSamples() {
+        return dropped;
+    }
+
+    /**
+     * Encodes whatever is in the ring buffer. Called by the drain thread, and once more by finish().
+     * @return The number of samples encoded.
+     */
+    synchronized int drain() throws IOException {
+        return ring.drainTo(writer);
+    }
+
+    /**
+     * Stops accepting samples and encodes the rest.
+     * @return The finished writer.
+     */
+    synchronized SampleStreamWriter close() throws IOException {
+        closed = true;
+        ring.drainTo(writer);
+        writer.finish();
+        return writer;
+    }
+}
@@ -0,0 +1,81 @@
+package com.pokemedquest.capture;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded single-producer, single-consumer ring of samples, stored in parallel primitive
+ * arrays so neither side allocates.
+ *
+ * The producer (the thread recording a session) writes a slot and then advances head with
+ * a lazySet; the consumer (SessionCapture's drain thread) reads up to head and then
+ * advances tail the same way. Each side only writes its own counter, so no CAS is needed.
+ * The producer caches the last tail it saw and only re-reads it when the ring looks full.
+ * A full ring rejects the sample instead of waiting: a sensor callback must never block.
+ */
+final class SampleRingBuffer {
+
+    private final long[] offsets;
+    private final int[] items;
+    private final int[] values;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong(); // Next slot to write, producer only
+    private final AtomicLong tail = new AtomicLong(); // Next slot to read, consumer only
+    private long cachedTail = 0;                      // Producer's last view of tail
+
+    /**
+     * @param capacity Number of samples the ring holds; must be a power of two.
+     */
+    SampleRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.offsets = new long[capacity];
+        this.items = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Producer side.
+     * @return false if the ring is full (the sample is not stored).
+     */
+    boolean offer(long offsetMicros, int item, int value) {
+        long h = head.get();
+        if (h - cachedTail > mask) {
+            cachedTail = tail.get();
+            if (h - cachedTail > mask) {
+                return false;
+            }
+        }
+        int slot = (int) (h & mask);
+        offsets[slot] = offsetMicros;
+        items[slot] = item;
+        values[slot] = value;
+        head.lazySet(h + 1); // Publishes the slot
+        return true;
+    }
+
+    /**
+     * Consumer side: hands every available sample to the writer.
+     * @return The number of samples drained.
+     */
+    int drainTo(SampleStreamWriter writer) throws IOException {
+        long t = tail.get();
+        long h = head.get();
+        for (long s = t; s < h; s++) {
+            int slot = (int) (s & mask);
+            writer.write(offsets[slot], items[slot], values[slot]);
+        }
+        tail.lazySet(h); // Frees the slots
+        return (int) (h - t);
+    }
+
+    /**
+     * @return true if nothing is waiting to be drained.
+     */
+    boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+}
@@ -0,0 +1,96 @@
+package com.pokemedquest.capture;
+
+import com.pokemedquest.model.CmasItem;
+import com.pokemedquest.util.VarInt;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Replays the samples of a session blob written by SampleStreamWriter, one at a time and
+ * without materializing them, so a long session can be analyzed in constant memory:
+ *
+ *   try (SampleStreamReader reader = new SampleStreamReader(blob)) {
+ *       while (reader.next()) {
+ *           ... reader.getOffsetMicros(), reader.getItem(), reader.getValue() ...
+ *       }
+ *   }
+ */
+public final class SampleStreamReader implements AutoCloseable {
+
+    private static final CmasItem[] ITEMS = CmasItem.values();
+
+    private final InputStream in;
+    private final int[] previousValues = new int[ITEMS.length];
+    private long offsetMicros = 0;
+    private int item = -1;
+    private int value = 0;
+    private boolean ended = false;
+
+    /**
+     * @param blob An encoded session, see SampleStreamWriter.
+     * @throws IOException If the blob has an unknown format version.
+     */
+    public SampleStreamReader(byte[] blob) throws IOException {
+        this(new ByteArrayInputStream(blob));
+    }
+
+    /**
+     * @param encoded A stream over an encoded session; closed by close().
+     * @throws IOException If the stream cannot be read or has an unknown format version.
+     */
+    public SampleStreamReader(InputStream encoded) throws IOException {
+        this.in = new BufferedInputStream(new InflaterInputStream(encoded), 8192);
+        long version = VarInt.readUnsigned(in);
+        if (version != SampleStreamWriter.FORMAT_VERSION) {
+            throw new IOException("Unknown sample format version " + version);
+        }
+    }
+
+    /**
+     * Advances to the next sample.
+     * @return false at the end of the samples.
+     * @throws java.io.EOFException If the blob is truncated.
+     */
+    public boolean next() throws IOException {
+        if (ended) {
+            return false;
+        }
+        long tag = VarInt.readUnsigned(in);
+        if (tag == SampleStreamWriter.END_OF_SAMPLES) {
+            ended = true;
+            return false;
+        }
+        if (tag > ITEMS.length) {
+            throw new IOException("Corrupt sample stream: unknown item " + (tag - 1));
+        }
+        item = (int) tag - 1;
+        offsetMicros += VarInt.readSigned(in);
+        value = (int) (previousValues[item] + VarInt.readSigned(in));
+        previousValues[item] = value;
+        return true;
+    }
+
+    /**
+     * @return Time of the current sample since the session started.
+     */
+    public long getOffsetMicros() {
+        return offsetMicros;
+    }
+
+    public CmasItem getItem() {
+        return ITEMS[item];
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
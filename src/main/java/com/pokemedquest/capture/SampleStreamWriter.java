@@ -0,0 +1,96 @@
+package com.pokemedquest.capture;
+
+import com.pokemedquest.model.CmasItem;
+import com.pokemedquest.util.VarInt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Encodes a session's samples as they arrive, into the blob stored in exercise_sessions.
+ *
+ *   version | sample* | 0
+ *   sample = item ordinal + 1 | time delta (signed) | value delta (signed)
+ *
+ * All fields are varints (see VarInt). The time delta is against the previous sample, the
+ * value delta against the previous sample of the same item, so a steady stream of samples
+ * a few milliseconds apart takes 3-4 bytes each before compression. The whole stream is
+ * deflated on the fly, so memory grows with the compressed size, not the sample count.
+ * The trailing 0 lets SampleStreamReader tell a complete blob from a truncated one.
+ *
+ * Samples are encoded into a small buffer that is handed to the deflater when nearly
+ * full, so the per-sample cost is a few array stores rather than a stream call per byte.
+ */
+public final class SampleStreamWriter {
+
+    static final int FORMAT_VERSION = 1;
+    static final int END_OF_SAMPLES = 0;
+    private static final int SAMPLE_MAX_BYTES = 3 * VarInt.MAX_BYTES;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+    private final Deflater deflater = new Deflater();
+    private final OutputStream out = new DeflaterOutputStream(bytes, deflater, 8192);
+    private final byte[] buffer = new byte[8192];
+    private int position = 0;
+    private final int[] previousValues = new int[CmasItem.values().length];
+    private long previousOffset = 0;
+    private long lastOffset = 0;
+    private long sampleCount = 0;
+    private boolean finished = false;
+
+    public SampleStreamWriter() {
+        position = VarInt.putUnsigned(buffer, position, FORMAT_VERSION);
+    }
+
+    /**
+     * @param offsetMicros Time of the sample since the session started.
+     * @param item The ordinal of the CmasItem the sample belongs to.
+     * @param value The measured value, e.g. hold time in milliseconds or a repetition count.
+     */
+    public void write(long offsetMicros, int item, int value) throws IOException {
+        if (position > buffer.length - SAMPLE_MAX_BYTES) {
+            flushBuffer();
+        }
+        position = VarInt.putUnsigned(buffer, position, item + 1);
+        position = VarInt.putSigned(buffer, position, offsetMicros - previousOffset);
+        position = VarInt.putSigned(buffer, position, (long) value - previousValues[item]);
+        previousOffset = offsetMicros;
+        previousValues[item] = value;
+        lastOffset = Math.max(lastOffset, offsetMicros);
+        sampleCount++;
+    }
+
+    /**
+     * Ends the stream.
+     * @return The encoded blob.
+     */
+    public byte[] finish() throws IOException {
+        if (!finished) {
+            position = VarInt.putUnsigned(buffer, position, END_OF_SAMPLES);
+            flushBuffer();
+            out.close();
+            deflater.end(); // Not done by close() for a deflater passed in
+            finished = true;
+        }
+        return bytes.toByteArray();
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return The offset of the latest sample written.
+     */
+    public long getLastOffsetMicros() {
+        return lastOffset;
+    }
+}
@@ -0,0 +1,200 @@
+package com.pokemedquest.capture;
+
+import com.pokemedquest.dao.ExerciseSessionDao;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.ExerciseSession;
+import com.pokemedquest.model.TestProgress;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Captures the raw timing and repetition samples of timed exercise sessions, next to the
+ * final score that ProgressService.recordTestResult stores.
+ *
+ * Recording a sample only writes it into the session's lock-free ring buffer (see
+ * CaptureSession). One drain thread empties the buffers of all open sessions every few
+ * milliseconds and encodes the samples with SampleStreamWriter, so each session keeps only
+ * its compressed stream in memory. finish() encodes the rest and stores the blob, linked
+ * to the session's TestProgress row; openSamples() replays it.
+ *
+ * The ring must hold the samples of one drain interval: the default 8192 samples every
+ * 5 ms leaves room for well over a million samples per second per session.
+ */
+public class SessionCapture {
+
+    public static final int DEFAULT_RING_CAPACITY = 8192;
+    public static final long DEFAULT_DRAIN_INTERVAL_MILLIS = 5;
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer START_TIMER = Metrics.timer("SessionCapture.start");
+    private static final Timer FINISH_TIMER = Metrics.timer("SessionCapture.finish");
+    private static final Timer OPEN_SAMPLES_TIMER = Metrics.timer("SessionCapture.openSamples");
+    private static final Timer DRAIN_TIMER = Metrics.timer("SessionCapture.drain");
+
+    private final ExerciseSessionDao exerciseSessionDao;
+    private final int ringCapacity;
+    private final long drainIntervalNanos;
+    private final Set<CaptureSession> active = ConcurrentHashMap.newKeySet();
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a capture with the default ring capacity and drain interval, and starts its drain thread.
+     * @param exerciseSessionDao The ExerciseSessionDao instance.
+     */
+    public SessionCapture(ExerciseSessionDao exerciseSessionDao) {
+        this(exerciseSessionDao, DEFAULT_RING_CAPACITY, DEFAULT_DRAIN_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param exerciseSessionDao The ExerciseSessionDao instance.
+     * @param ringCapacity Samples buffered per session between drains; must be a power of two.
+     * @param drainIntervalMillis Pause between drains.
+     */
+    public SessionCapture(ExerciseSessionDao exerciseSessionDao, int ringCapacity, long drainIntervalMillis) {
+        if (ringCapacity <= 0 || Integer.bitCount(ringCapacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + ringCapacity);
+        }
+        this.exerciseSessionDao = exerciseSessionDao;
+        this.ringCapacity = ringCapacity;
+        this.drainIntervalNanos = TimeUnit.MILLISECONDS.toNanos(drainIntervalMillis);
+        this.drainer = new Thread(this::drainLoop, "sample-capture");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Opens a session for a user; samples can be recorded right away.
+     * @param userId The ID of the user doing the exercises.
+     * @return The session.
+     */
+    public CaptureSession start(int userId) {
+        long start = System.nanoTime();
+        try {
+            CaptureSession session = new CaptureSession(userId, ringCapacity);
+            active.add(session);
+            return session;
+        } finally {
+            START_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Ends a session and stores its samples with the test result it produced.
+     * @param session A session from start(); no more samples may be recorded on it.
+     * @param progress The saved test result (its progressId is set).
+     * @return An Optional containing the stored session, or empty on error.
+     */
+    public Optional<ExerciseSession> finish(CaptureSession session, TestProgress progress) {
+        long start = System.nanoTime();
+        active.remove(session);
+        try {
+            SampleStreamWriter writer = session.close();
+            byte[] blob = writer.finish();
+            ExerciseSession stored = new ExerciseSession(0, progress.getProgressId(), session.getUserId(),
+                    session.getStartedAt(), writer.getLastOffsetMicros(), writer.getSampleCount(),
+                    session.getDroppedSamples(), blob.length);
+            FINISH_TIMER.addRows(writer.getSampleCount());
+            if (session.getDroppedSamples() > 0) {
+                System.err.println("Exercise session of user " + session.getUserId() + " lost "
+                        + session.getDroppedSamples() + " samples to a full capture buffer.");
+            }
+            if (exerciseSessionDao.createSession(stored, blob)) {
+                return Optional.of(stored);
+            }
+            FINISH_TIMER.markError();
+        } catch (IOException e) {
+            FINISH_TIMER.markError();
+            System.err.println("Error encoding exercise session samples: " + e.getMessage());
+        } finally {
+            FINISH_TIMER.recordSince(start);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Ends a session without storing it, e.g. when the test was cancelled.
+     */
+    public void discard(CaptureSession session) {
+        active.remove(session);
+        try {
+            session.close();
+        } catch (IOException e) {
+            // Nothing is stored, so there is nothing to report
+        }
+    }
+
+    /**
+     * Opens a stored session for replay.
+     * @param sessionId The session's ID.
+     * @return An Optional containing a reader positioned before the first sample, or empty
+     * if the session does not exist or cannot be decoded. The caller closes the reader.
+     */
+    public Optional<SampleStreamReader> openSamples(int sessionId) {
+        long start = System.nanoTime();
+        try {
+            Optional<byte[]> blob = exerciseSessionDao.findSamples(sessionId);
+            if (blob.isPresent()) {
+                return Optional.of(new SampleStreamReader(blob.get()));
+            }
+        } catch (IOException e) {
+            OPEN_SAMPLES_TIMER.markError();
+            System.err.println("Error decoding exercise session " + sessionId + ": " + e.getMessage());
+        } finally {
+            OPEN_SAMPLES_TIMER.recordSince(start);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return The number of sessions started and not yet finished or discarded.
+     */
+    public int getActiveSessionCount() {
+        return active.size();
+    }
+
+    /**
+     * Stops the drain thread. Open sessions keep their buffered samples and can still be
+     * finished, which encodes them on the calling thread.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            drainAll();
+            LockSupport.parkNanos(drainIntervalNanos);
+        }
+        drainAll();
+    }
+
+    private void drainAll() {
+        long start = System.nanoTime();
+        long samples = 0;
+        for (CaptureSession session : active) {
+            try {
+                samples += session.drain();
+            } catch (IOException e) {
+                DRAIN_TIMER.markError();
+                System.err.println("Error encoding samples of user " + session.getUserId() + ": " + e.getMessage());
+            }
+        }
+        if (samples > 0) { // Idle passes would only dilute the latency figures
+            DRAIN_TIMER.addRows(samples);
+            DRAIN_TIMER.recordSince(start);
+        }
+    }
+}
@@ -1,12 +1,33 @@
 package com.pokemedquest.cli;
 
+import com.pokemedquest.audit.Audit;
+import com.pokemedquest.events.EventBus;
+import com.pokemedquest.jfr.CliActionEvent;
 import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.CmasItem;
+import com.pokemedquest.model.CmasItemScores;
+import com.pokemedquest.model.CmasItemTrend;
+import com.pokemedquest.model.CohortStats;
+import com.pokemedquest.model.DashboardReport;
+import com.pokemedquest.model.LeaderboardEntry;
+import com.pokemedquest.model.PatientSummary;
+import com.pokemedquest.model.ProgressHistory;
+import com.pokemedquest.model.ProgressRollup;
+import com.pokemedquest.model.Session;
+import com.pokemedquest.model.StreakState;
 import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.TrendSeries;
 import com.pokemedquest.model.User;
+import com.pokemedquest.model.UserAchievement;
+import com.pokemedquest.service.AchievementService;
 import com.pokemedquest.service.AuthService;
 import com.pokemedquest.service.AvatarService;
+import com.pokemedquest.service.DashboardService;
+import com.pokemedquest.service.LeaderboardService;
 import com.pokemedquest.service.ProgressService;
+import com.pokemedquest.service.StreakService;
 
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.InputMismatchException;
 import java.util.List;
@@ -22,18 +43,41 @@ public class CliHandler {
     private final AuthService authService;
     private final AvatarService avatarService;
     private final ProgressService progressService;
+    private final AchievementService achievementService;
+    private final StreakService streakService;
+    private final LeaderboardService leaderboardService;
+    private final DashboardService dashboardService;
+    private final EventBus eventBus;
 
-    private User currentUser = null; // Stores the currently logged-in user
+    private Session currentSession = null; // Session of the currently logged-in user
+    private User currentUser = null; // Stores the currently logged-in user (from the session)
+
+    // Buffered table output for the long listings (history, dashboard)
+    private final TableRenderer renderer = TableRenderer.forConsole();
+    private final TrendChart trendChart = new TrendChart();
 
     // Formatter for displaying dates/times nicely
     private static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
+    // Number of entries shown per leaderboard
+    private static final int LEADERBOARD_SIZE = 10;
+
+    // How long to wait for event subscribers before showing their results (achievements, streaks)
+    private static final long REACTION_WAIT_MILLIS = 500;
+
 
-    public CliHandler(Scanner scanner, AuthService authService, AvatarService avatarService, ProgressService progressService) {
+    public CliHandler(Scanner scanner, AuthService authService, AvatarService avatarService, ProgressService progressService,
+                      AchievementService achievementService, StreakService streakService,
+                      LeaderboardService leaderboardService, DashboardService dashboardService, EventBus eventBus) {
         this.scanner = scanner;
         this.authService = authService;
         this.avatarService = avatarService;
         this.progressService = progressService;
+        this.achievementService = achievementService;
+        this.streakService = streakService;
+        this.leaderboardService = leaderboardService;
+        this.dashboardService = dashboardService;
+        this.eventBus = eventBus;
     }
 
     /**
@@ -42,15 +86,22 @@ public class CliHandler {
     public void run() {
         boolean running = true;
         while (running) {
+            // Drop back to the main menu if the session timed out while idle
+            if (currentSession != null && !authService.getSession(currentSession.getToken()).isPresent()) {
+                System.out.println("Your session has expired. Please log in again.");
+                currentSession = null;
+                currentUser = null;
+                Audit.clearActor();
+            }
             if (currentUser == null) {
                 showMainMenu();
                 int choice = promptForInt("Enter choice: ");
                 switch (choice) {
                     case 1:
-                        handleLogin();
+                        runAction("login", this::handleLogin);
                         break;
                     case 2:
-                        handleRegister();
+                        runAction("register", this::handleRegister);
                         break;
                     case 0:
                         running = false;
@@ -91,13 +142,18 @@ public class CliHandler {
         System.out.println("3. Record CMAS Score");
         System.out.println("4. View My Progress History");
         System.out.println("5. Level Up Avatar (Test)"); // Example action
+        System.out.println("6. View My Achievements");
+        System.out.println("7. View Leaderboard");
+        System.out.println("8. View Item Trends");
+        System.out.println("9. View Progress Chart");
         System.out.println("0. Logout");
     }
 
      private void showAdminMenu() {
         System.out.println("--- Admin/Doctor Menu ---");
         // Add admin specific options later
-        System.out.println("1. View Patient Progress (Example - Requires selecting patient)");
+        System.out.println("1. View Patient Progress Chart");
+        System.out.println("2. Patient Dashboard");
         System.out.println("0. Logout");
      }
 
@@ -125,6 +181,24 @@ public class CliHandler {
 
     // --- Action Handler Methods ---
 
+    /**
+     * Runs one menu action inside a CliActionEvent, so Flight Recorder shows the full
+     * user-facing duration (prompts and output included) next to the service events.
+     */
+    private void runAction(String action, Runnable handler) {
+        CliActionEvent event = new CliActionEvent(action);
+        event.begin();
+        try {
+            handler.run();
+            event.setSuccess(true);
+        } finally {
+            if (currentUser != null) {
+                event.setUserId(currentUser.getId());
+            }
+            event.commit();
+        }
+    }
+
     private void handleRegister() {
         System.out.println("--- Register New User ---");
         String username = promptForString("Enter username: ");
@@ -159,39 +233,57 @@ public class CliHandler {
         String password = promptForString("Enter password: ");
 
         // !!! REMEMBER: Password should be VERIFIED AGAINST HASH by the service !!!
-        Optional<User> userOptional = authService.loginUser(username, password);
+        Optional<Session> sessionOptional = authService.startSession(username, password);
 
-        if (userOptional.isPresent()) {
-            currentUser = userOptional.get(); // Set the logged-in user
+        if (sessionOptional.isPresent()) {
+            currentSession = sessionOptional.get();
+            currentUser = currentSession.getUser(); // Set the logged-in user
+            Audit.setActor(currentUser.getId()); // Everything read or changed from here on is on their behalf
             System.out.println("Login successful! Welcome, " + currentUser.getUsername() + "!");
         } else {
             System.out.println("Login failed. Invalid username or password.");
+            currentSession = null;
             currentUser = null;
         }
     }
 
     private void handleLogout() {
         System.out.println("Logging out " + currentUser.getUsername() + "...");
+        authService.logout(currentSession.getToken());
+        currentSession = null;
         currentUser = null; // Clear the current user
+        Audit.clearActor();
     }
 
 
     private boolean handleChildChoice(int choice) {
         switch (choice) {
             case 1:
-                handleViewAvatar();
+                runAction("viewAvatar", this::handleViewAvatar);
                 break;
             case 2:
-                handleCustomizeAvatar();
+                runAction("customizeAvatar", this::handleCustomizeAvatar);
                 break;
             case 3:
-                handleRecordProgress();
+                runAction("recordProgress", this::handleRecordProgress);
                 break;
             case 4:
-                handleViewHistory();
+                runAction("viewHistory", this::handleViewHistory);
                 break;
             case 5:
-                handleLevelUp(); // Example action
+                runAction("levelUp", this::handleLevelUp); // Example action
+                break;
+            case 6:
+                runAction("viewAchievements", this::handleViewAchievements);
+                break;
+            case 7:
+                runAction("viewLeaderboard", this::handleViewLeaderboard);
+                break;
+            case 8:
+                runAction("viewItemTrends", this::handleViewItemTrends);
+                break;
+            case 9:
+                runAction("viewProgressChart", this::handleViewProgressChart);
                 break;
             case 0:
                 handleLogout();
@@ -205,8 +297,10 @@ public class CliHandler {
      private boolean handleAdminChoice(int choice) {
          switch(choice) {
              case 1:
-                 System.out.println("Viewing Patient Progress (Not fully implemented)...");
-                 // TODO: Add logic to list patients, select one, view progress
+                 runAction("patientChart", this::handlePatientChart);
+                 break;
+             case 2:
+                 runAction("dashboard", this::handleDashboard);
                  break;
              case 0:
                  handleLogout();
@@ -220,7 +314,7 @@ public class CliHandler {
 
     // Child Action Handlers
     private void handleViewAvatar() {
-        Optional<Avatar> avatarOpt = avatarService.getAvatarForUser(currentUser.getId());
+        Optional<Avatar> avatarOpt = currentAvatar();
         if(avatarOpt.isPresent()){
             System.out.println("--- Your Avatar ---");
             System.out.println(avatarOpt.get()); // Uses Avatar's toString() method
@@ -234,7 +328,7 @@ public class CliHandler {
 
     private void handleCustomizeAvatar() {
         System.out.println("--- Customize Avatar ---");
-        Optional<Avatar> avatarOpt = avatarService.getAvatarForUser(currentUser.getId());
+        Optional<Avatar> avatarOpt = currentAvatar();
         if(!avatarOpt.isPresent()){
             System.out.println("You need an avatar first!");
             return;
@@ -244,50 +338,224 @@ public class CliHandler {
         String newColor = promptForString("Enter new color (" + avatarOpt.get().getColor() + "): ");
         String newAccessory = promptForString("Enter new accessory (" + avatarOpt.get().getAccessory() + "): ");
 
-        boolean success = avatarService.updateAvatarCustomization(currentUser.getId(), newName, newColor, newAccessory);
+        // Passing the avatar as shown keeps changes made elsewhere meanwhile to the fields left as they were
+        boolean success = avatarService.updateAvatarCustomization(avatarOpt.get(), newName, newColor, newAccessory);
         if (success) {
             System.out.println("Avatar updated successfully!");
+            eventBus.awaitDrained(REACTION_WAIT_MILLIS); // Lets the session pick up the new avatar
         } else {
             System.out.println("Failed to update avatar.");
         }
     }
 
+    /**
+     * The avatar cached in the session, kept current from AvatarUpdated events; read from
+     * the database only if the session has none (e.g. it was created after login).
+     */
+    private Optional<Avatar> currentAvatar() {
+        Avatar cached = currentSession != null ? currentSession.getAvatar() : null;
+        return cached != null ? Optional.of(cached) : avatarService.getAvatarForUser(currentUser.getId());
+    }
+
     private void handleRecordProgress() {
         System.out.println("--- Record CMAS Score ---");
-        int score = promptForInt("Enter the CMAS score achieved: ");
-        // Add validation if score has specific range
-
-        Optional<TestProgress> recordedProgress = progressService.recordTestResult(currentUser.getId(), score);
+        Optional<TestProgress> recordedProgress;
+        String byItem = promptForString("Score each item separately? (y/n): ");
+        if (byItem.trim().equalsIgnoreCase("y")) {
+            recordedProgress = progressService.recordTestResult(currentUser.getId(), promptForItemScores());
+        } else {
+            int score = promptForInt("Enter the CMAS score achieved: ");
+            // Add validation if score has specific range
+            recordedProgress = progressService.recordTestResult(currentUser.getId(), score);
+        }
         if(recordedProgress.isPresent()){
             System.out.println("Progress recorded successfully!");
             System.out.println("New Record: " + recordedProgress.get()); // Uses TestProgress toString()
-             // Maybe trigger avatar level up?
-             // avatarService.levelUpAvatar(currentUser.getId());
+            // Rewards and streaks are updated by event subscribers; give them a moment to catch up
+            eventBus.awaitDrained(REACTION_WAIT_MILLIS);
+            for (UserAchievement achievement : achievementService.takeRecentAchievements(currentUser.getId())) {
+                System.out.println("Achievement unlocked: " + achievement.getAchievementCode()
+                        + " (+" + achievement.getLevelsAwarded() + " avatar level)");
+            }
+            printStreaks();
         } else {
             System.out.println("Failed to record progress.");
         }
     }
 
+    /**
+     * Asks for the score of every CMAS item; a blank answer leaves the item unscored.
+     */
+    private CmasItemScores promptForItemScores() {
+        int[] scores = new int[CmasItem.values().length];
+        for (CmasItem item : CmasItem.values()) {
+            while (true) {
+                String answer = promptForString(item.getLabel() + " (0-" + item.getMaxScore() + ", blank to skip): ").trim();
+                if (answer.isEmpty()) {
+                    scores[item.ordinal()] = CmasItemScores.NOT_SCORED;
+                    break;
+                }
+                try {
+                    int score = Integer.parseInt(answer);
+                    if (score >= 0 && score <= item.getMaxScore()) {
+                        scores[item.ordinal()] = score;
+                        break;
+                    }
+                } catch (NumberFormatException e) {
+                    // Fall through to the message below
+                }
+                System.out.println("Invalid input. Please enter a number from 0 to " + item.getMaxScore() + ".");
+            }
+        }
+        return CmasItemScores.of(scores);
+    }
+
     private void handleViewHistory() {
         System.out.println("--- Your Progress History ---");
-        List<TestProgress> history = progressService.getProgressHistoryForUser(currentUser.getId());
+        ProgressHistory history = progressService.getFullHistory(currentUser.getId());
         if (history.isEmpty()) {
             System.out.println("No progress history found.");
         } else {
-            System.out.println("Date & Time        | Score");
-            System.out.println("-------------------|-------");
-            for (TestProgress progress : history) {
-                // Use the formatter defined earlier
-                System.out.printf("%-19s| %d%n",
-                        progress.getTestTimestamp().format(DTF),
-                        progress.getCmasScore());
+            renderer.line("Date & Time        | Score");
+            renderer.line("-------------------|-------");
+            for (TestProgress progress : history.getRecent()) {
+                renderer.dateTime(progress.getTestTimestamp()).column(19)
+                        .number(progress.getCmasScore()).endRow();
+            }
+            // Older results are kept as weekly or monthly summaries
+            for (ProgressRollup rollup : history.getRollups()) {
+                renderer.text(rollup.getGranularity() == ProgressRollup.Granularity.WEEK ? "Week of " : "Month of ")
+                        .date(rollup.getBucketStart().toLocalDate()).column(19)
+                        .text("avg ").decimal(rollup.getMeanScore())
+                        .text(" (").number(rollup.getTests()).text(" tests, ")
+                        .number(rollup.getMinScore()).text("-").number(rollup.getMaxScore())
+                        .text(", last ").number(rollup.getLastScore()).text(")").endRow();
+            }
+            renderer.line("---------------------------");
+            renderer.flush();
+            printStreaks();
+        }
+    }
+
+    private void printStreaks() {
+        StreakState streaks = streakService.getStreakForUser(currentUser.getId());
+        LocalDate today = LocalDate.now();
+        System.out.println("Testing streak: " + streakService.getCurrentDayStreak(streaks, today) + " day(s), "
+                + streakService.getCurrentWeekStreak(streaks, today) + " week(s)"
+                + " (best: " + streaks.getDaily().getBestRun() + " day(s), " + streaks.getWeekly().getBestRun() + " week(s))");
+    }
+
+    private void handleViewItemTrends() {
+        System.out.println("--- Your CMAS Item Trends ---");
+        List<CmasItemTrend> trends = progressService.getItemTrends(currentUser.getId());
+        if (trends.isEmpty()) {
+            System.out.println("No item scores yet. Score each item when recording a CMAS test to see them here.");
+            return;
+        }
+        System.out.printf("%-25s| %-5s| %-5s| %-5s| %-6s| %s%n", "Item", "Tests", "First", "Best", "Latest", "Change");
+        for (CmasItemTrend trend : trends) {
+            System.out.printf("%-25s| %-5d| %-5d| %-5d| %-6d| %+d%s%n",
+                    trend.getItem().getLabel(), trend.getTests(), trend.getFirstScore(), trend.getBestScore(),
+                    trend.getLatestScore(), trend.getChange(), trend.isBelowBest() ? "  (below best)" : "");
+        }
+    }
+
+    private void handleViewProgressChart() {
+        System.out.println("--- Your CMAS Progress Chart ---");
+        printTrendChart(currentUser.getId());
+    }
+
+    private void printTrendChart(int userId) {
+        TrendSeries series = progressService.getTrendSeries(userId, trendChart.getWidth());
+        if (series.isEmpty()) {
+            System.out.println("No progress recorded yet.");
+            return;
+        }
+        trendChart.render(series, renderer);
+        renderer.flush();
+    }
+
+    private void handleViewAchievements() {
+        System.out.println("--- Your Achievements ---");
+        List<UserAchievement> achievements = achievementService.getAchievementsForUser(currentUser.getId());
+        if (achievements.isEmpty()) {
+            System.out.println("No achievements yet. Record a CMAS score to earn your first one!");
+        } else {
+            for (UserAchievement achievement : achievements) {
+                System.out.printf("%-19s| %s%n",
+                        achievement.getUnlockedAt().format(DTF),
+                        achievement.getAchievementCode());
+            }
+        }
+    }
+
+    private void handleViewLeaderboard() {
+        printLeaderboard("Top Avatars by Level", LeaderboardService.Board.LEVEL, "Level");
+        printLeaderboard("Top Avatars by Tests Completed", LeaderboardService.Board.TESTS_COMPLETED, "Tests");
+    }
+
+    private void printLeaderboard(String title, LeaderboardService.Board board, String scoreLabel) {
+        System.out.println("--- " + title + " ---");
+        List<LeaderboardEntry> top = leaderboardService.getTopEntries(board, LEADERBOARD_SIZE);
+        if (top.isEmpty()) {
+            System.out.println("No avatars yet.");
+            return;
+        }
+        System.out.printf("%-5s| %-20s| %s%n", "Rank", "Avatar", scoreLabel);
+        for (LeaderboardEntry entry : top) {
+            System.out.printf("%-5d| %-20s| %d%n", entry.getRank(), entry.getAvatarName(), entry.getScore());
+        }
+        Optional<LeaderboardEntry> mine = leaderboardService.getEntryForUser(board, currentUser.getId());
+        if (mine.isPresent() && mine.get().getRank() > LEADERBOARD_SIZE) {
+            System.out.println("...");
+            System.out.printf("%-5d| %-20s| %d%n", mine.get().getRank(), mine.get().getAvatarName(), mine.get().getScore());
+        }
+    }
+
+    // Admin Action Handlers
+    private void handlePatientChart() {
+        String username = promptForString("Enter patient username: ");
+        Optional<User> patient = authService.findUserByUsername(username);
+        if (!patient.isPresent() || !"child".equals(patient.get().getRole())) {
+            System.out.println("No patient named '" + username + "'.");
+            return;
+        }
+        System.out.println("--- CMAS Progress Chart for " + username + " ---");
+        printTrendChart(patient.get().getId());
+    }
+
+    private void handleDashboard() {
+        Optional<DashboardReport> reportOpt = dashboardService.getDashboard();
+        if (!reportOpt.isPresent()) {
+            System.out.println("Could not load the dashboard.");
+            return;
+        }
+        DashboardReport report = reportOpt.get();
+        System.out.println("--- Patient Dashboard (as of " + report.getGeneratedAt().format(DTF) + ") ---");
+        renderer.text("Patient").column(20).text("Avatar").column(15).text("Level").column(6)
+                .text("Tests").column(6).text("Avg CMAS").column(8).text("Last Test").endRow();
+        for (PatientSummary patient : report.getPatients()) {
+            renderer.text(patient.getUsername()).column(20)
+                    .text(patient.getAvatarName() != null ? patient.getAvatarName() : "-").column(15)
+                    .number(patient.getLevel()).column(6)
+                    .number(patient.getTests()).column(6)
+                    .decimal(patient.getAverageScore()).column(8);
+            if (patient.getLastTestAt() != null) {
+                renderer.dateTime(patient.getLastTestAt());
+            } else {
+                renderer.text("-");
             }
-            System.out.println("---------------------------");
+            renderer.endRow();
         }
+        renderer.flush();
+        CohortStats stats = report.getCohortStats();
+        System.out.printf("%d patients tested, %d tests, average CMAS %.1f%n",
+                stats.getPatients(), stats.getTests(), stats.getAverageScore());
     }
 
      private void handleLevelUp() {
         System.out.println("--- Attempting Level Up ---");
         avatarService.levelUpAvatar(currentUser.getId()); // Service method prints success/failure
+        eventBus.awaitDrained(REACTION_WAIT_MILLIS); // Lets the session pick up the new level
      }
 }
\ No newline at end of file
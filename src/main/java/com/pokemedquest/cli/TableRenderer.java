@@ -0,0 +1,180 @@
+package com.pokemedquest.cli;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Renders text tables into a reusable buffer and writes the buffer out once per page,
+ * instead of one formatted println per row.
+ *
+ * A row is built from appenders and ends with endRow(); column(width) pads the current
+ * cell to its width and adds the "| " separator, matching the printf("%-Ns| ") layout
+ * used elsewhere in the CLI:
+ *
+ *   renderer.dateTime(progress.getTestTimestamp()).column(19).number(progress.getCmasScore()).endRow();
+ *
+ * Nothing on the row path allocates: numbers are appended digit by digit, and dates are
+ * formatted once per day (yyyy-MM-dd) in a small cache, with only HH:mm added per row.
+ * Call flush() at the end of a report; the renderer can be reused afterwards.
+ */
+public final class TableRenderer {
+
+    public static final int DEFAULT_PAGE_ROWS = 1000;
+
+    private static final int DAY_CACHE_SIZE = 64; // Direct-mapped by epoch day
+    private static final String SEPARATOR = "| ";
+
+    private final Writer out;
+    private final int pageRows;
+    private final StringBuilder buffer = new StringBuilder(16 * 1024);
+    private char[] chars = new char[16 * 1024];
+    private int cellStart = 0;
+    private int rowsInPage = 0;
+
+    private final long[] cachedDays = new long[DAY_CACHE_SIZE];
+    private final char[][] cachedDates = new char[DAY_CACHE_SIZE][10];
+
+    /**
+     * @param out Where pages are written; flushed after every page.
+     * @param pageRows Rows buffered before a page is written.
+     */
+    public TableRenderer(Writer out, int pageRows) {
+        this.out = out;
+        this.pageRows = pageRows;
+        Arrays.fill(cachedDays, Long.MIN_VALUE);
+    }
+
+    /**
+     * @return A renderer that writes to System.out (without ever closing it).
+     */
+    public static TableRenderer forConsole() {
+        return new TableRenderer(new OutputStreamWriter(System.out, Charset.defaultCharset()), DEFAULT_PAGE_ROWS);
+    }
+
+    public TableRenderer text(CharSequence value) {
+        buffer.append(value);
+        return this;
+    }
+
+    public TableRenderer number(long value) {
+        buffer.append(value); // Writes the digits straight into the builder
+        return this;
+    }
+
+    /**
+     * Appends a value with one decimal, like "%.1f" (rounded half up).
+     */
+    public TableRenderer decimal(double value) {
+        long tenths = Math.round(value * 10);
+        if (tenths < 0) {
+            buffer.append('-');
+            tenths = -tenths;
+        }
+        buffer.append(tenths / 10).append('.').append((char) ('0' + tenths % 10));
+        return this;
+    }
+
+    /**
+     * Appends a date as yyyy-MM-dd.
+     */
+    public TableRenderer date(LocalDate value) {
+        buffer.append(formattedDay(value), 0, 10);
+        return this;
+    }
+
+    /**
+     * Appends a date and time as yyyy-MM-dd HH:mm.
+     */
+    public TableRenderer dateTime(LocalDateTime value) {
+        buffer.append(formattedDay(value.toLocalDate()), 0, 10).append(' ');
+        twoDigits(value.getHour()).append(':');
+        twoDigits(value.getMinute());
+        return this;
+    }
+
+    /**
+     * Ends the current cell: pads it to the width and appends the column separator.
+     */
+    public TableRenderer column(int width) {
+        for (int length = buffer.length() - cellStart; length < width; length++) {
+            buffer.append(' ');
+        }
+        buffer.append(SEPARATOR);
+        cellStart = buffer.length();
+        return this;
+    }
+
+    /**
+     * Ends the row; writes the page out once it is full.
+     */
+    public TableRenderer endRow() {
+        buffer.append(System.lineSeparator());
+        cellStart = buffer.length();
+        if (++rowsInPage >= pageRows) {
+            writePage();
+        }
+        return this;
+    }
+
+    /**
+     * Appends a whole line of text as one row.
+     */
+    public TableRenderer line(CharSequence value) {
+        return text(value).endRow();
+    }
+
+    /**
+     * Writes out whatever is buffered.
+     */
+    public void flush() {
+        writePage();
+    }
+
+    private void writePage() {
+        int length = buffer.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        buffer.getChars(0, length, chars, 0);
+        try {
+            out.write(chars, 0, length);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write report", e);
+        }
+        buffer.setLength(0);
+        cellStart = 0;
+        rowsInPage = 0;
+    }
+
+    private char[] formattedDay(LocalDate day) {
+        long epochDay = day.toEpochDay();
+        int slot = (int) (epochDay & (DAY_CACHE_SIZE - 1));
+        char[] formatted = cachedDates[slot];
+        if (cachedDays[slot] != epochDay) {
+            int year = day.getYear();
+            for (int i = 3; i >= 0; i--) {
+                formatted[i] = (char) ('0' + year % 10);
+                year /= 10;
+            }
+            formatted[4] = '-';
+            formatted[5] = (char) ('0' + day.getMonthValue() / 10);
+            formatted[6] = (char) ('0' + day.getMonthValue() % 10);
+            formatted[7] = '-';
+            formatted[8] = (char) ('0' + day.getDayOfMonth() / 10);
+            formatted[9] = (char) ('0' + day.getDayOfMonth() % 10);
+            cachedDays[slot] = epochDay;
+        }
+        return formatted;
+    }
+
+    private StringBuilder twoDigits(int value) {
+        return buffer.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
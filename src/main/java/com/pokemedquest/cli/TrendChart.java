@@ -0,0 +1,155 @@
+package com.pokemedquest.cli;
+
+import com.pokemedquest.model.CmasItem;
+import com.pokemedquest.model.TrendSeries;
+
+import java.nio.CharBuffer;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Draws a TrendSeries as a fixed-size ASCII line chart of CMAS scores:
+ *
+ *    52 |
+ *       |            *..
+ *       |      :*...:   ...*
+ *    26 |   ...*:            ...*
+ *       | *.
+ *     0 |
+ *       +------------------------------------
+ *        2024-01-08                2025-06-01
+ *
+ * '*' marks a kept point, ':' the range of scores it stands for, and '.' joins the points.
+ * Time runs left to right in proportion, so gaps between tests show as gaps. The grid has
+ * a fixed size, so the cost of drawing depends only on the series (see
+ * ProgressService.getTrendSeries), not on the history or the terminal.
+ */
+public final class TrendChart {
+
+    public static final int DEFAULT_WIDTH = 60;
+    public static final int DEFAULT_HEIGHT = 14;
+
+    private static final int MAX_SCORE = Arrays.stream(CmasItem.values()).mapToInt(CmasItem::getMaxScore).sum();
+    private static final int AXIS_WIDTH = 6; // "  52 |"
+
+    private final int width;
+    private final int height;
+    private final char[][] grid;
+    private final String[] labels; // Axis label per row, or null
+
+    /**
+     * @param width Columns of the plot area, at least 2.
+     * @param height Rows of the plot area, at least 2.
+     */
+    public TrendChart(int width, int height) {
+        if (width < 2 || height < 2) {
+            throw new IllegalArgumentException("Chart must be at least 2x2: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.grid = new char[height][width];
+        this.labels = new String[height];
+        for (int score : new int[] {0, MAX_SCORE / 2, MAX_SCORE}) {
+            labels[row(score)] = Integer.toString(score);
+        }
+    }
+
+    public TrendChart() {
+        this(DEFAULT_WIDTH, DEFAULT_HEIGHT);
+    }
+
+    /**
+     * @return The number of points worth asking getTrendSeries for: one per column.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Draws the series; the caller flushes the renderer.
+     */
+    public void render(TrendSeries series, TableRenderer out) {
+        for (char[] row : grid) {
+            Arrays.fill(row, ' ');
+        }
+        int points = series.size();
+        if (points == 0) {
+            out.line("(no results)");
+            return;
+        }
+        long firstTime = epochSecond(series, 0);
+        long span = epochSecond(series, points - 1) - firstTime;
+
+        int previousColumn = -1;
+        double previousScore = 0;
+        for (int i = 0; i < points; i++) {
+            int column = column(series, i, firstTime, span);
+            double score = series.getScore(i);
+            for (int row = row(series.getHigh(i)); row <= row(series.getLow(i)); row++) {
+                grid[row][column] = ':';
+            }
+            // Join to the previous point, one mark per column in between
+            for (int c = previousColumn + 1; previousColumn >= 0 && c < column; c++) {
+                double fraction = (double) (c - previousColumn) / (column - previousColumn);
+                plot(row(previousScore + (score - previousScore) * fraction), c, '.');
+            }
+            previousColumn = column;
+            previousScore = score;
+        }
+        // Points last, so nothing hides them
+        for (int i = 0; i < points; i++) {
+            int column = column(series, i, firstTime, span);
+            grid[row(series.getScore(i))][column] = '*';
+        }
+
+        for (int row = 0; row < height; row++) {
+            String label = labels[row] != null ? labels[row] : "";
+            pad(out, AXIS_WIDTH - 2 - label.length()).text(label).text(" |").text(CharBuffer.wrap(grid[row])).endRow();
+        }
+        pad(out, AXIS_WIDTH - 1).text("+");
+        for (int c = 0; c < width; c++) {
+            out.text("-");
+        }
+        out.endRow();
+        pad(out, AXIS_WIDTH).date(series.getTime(0).toLocalDate());
+        if (points > 1 && width >= 20) {
+            pad(out, width - 20).date(series.getTime(points - 1).toLocalDate());
+        }
+        out.endRow();
+        out.text("* score   : range   (")
+                .number(series.getSourcePoints()).text(series.getSourcePoints() == 1 ? " result" : " results")
+                .text(" shown as ").number(points).text(points == 1 ? " point)" : " points)").endRow();
+    }
+
+    private void plot(int row, int column, char mark) {
+        if (grid[row][column] == ' ') {
+            grid[row][column] = mark;
+        }
+    }
+
+    /**
+     * @return The grid row of a score; row 0 is the top (MAX_SCORE).
+     */
+    private int row(double score) {
+        double clamped = Math.max(0, Math.min(MAX_SCORE, score));
+        return (int) Math.round((MAX_SCORE - clamped) / MAX_SCORE * (height - 1));
+    }
+
+    /**
+     * @return The grid column of point i, in proportion to its time within the series.
+     */
+    private int column(TrendSeries series, int i, long firstTime, long span) {
+        return span == 0 ? 0 : (int) Math.round((double) (epochSecond(series, i) - firstTime) / span * (width - 1));
+    }
+
+    private static TableRenderer pad(TableRenderer out, int spaces) {
+        for (int i = 0; i < spaces; i++) {
+            out.text(" ");
+        }
+        return out;
+    }
+
+    private static long epochSecond(TrendSeries series, int i) {
+        return series.getTime(i).toEpochSecond(ZoneOffset.UTC);
+    }
+}
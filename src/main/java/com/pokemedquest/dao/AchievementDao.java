@@ -0,0 +1,166 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.AchievementCounters;
+import com.pokemedquest.model.UserAchievement;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * AchievementDao (Data Access Object) for unlocked achievements and the per-user
+ * achievement counters. Writes are always batched, see {@link #saveBatch}.
+ */
+public class AchievementDao {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer FIND_COUNTERS_BY_USER_ID_TIMER = Metrics.timer("AchievementDao.findCountersByUserId");
+    private static final Timer FIND_ACHIEVEMENTS_BY_USER_ID_TIMER = Metrics.timer("AchievementDao.findAchievementsByUserId");
+    private static final Timer SAVE_BATCH_TIMER = Metrics.timer("AchievementDao.saveBatch");
+
+    // SQL query strings
+    private static final String SELECT_COUNTERS_SQL = "SELECT total_tests, current_month, tests_this_month, best_score, last_score, improvement_streak, last_progress_id FROM achievement_counters WHERE user_id = ?";
+    private static final String SELECT_CODES_SQL = "SELECT achievement_code FROM user_achievements WHERE user_id = ?";
+    private static final String SELECT_ACHIEVEMENTS_SQL = "SELECT achievement_code, unlocked_at, levels_awarded FROM user_achievements WHERE user_id = ? ORDER BY unlocked_at DESC";
+    private static final String INSERT_ACHIEVEMENT_SQL = "INSERT OR IGNORE INTO user_achievements (user_id, achievement_code, unlocked_at, levels_awarded) VALUES (?, ?, ?, ?)";
+    private static final String UPSERT_COUNTERS_SQL = "INSERT OR REPLACE INTO achievement_counters (user_id, total_tests, current_month, tests_this_month, best_score, last_score, improvement_streak, last_progress_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Loads a user's achievement counters, including the codes they have already unlocked.
+     *
+     * @param userId The ID of the user.
+     * @return An Optional containing the counters, or empty if none were saved yet.
+     */
+    public Optional<AchievementCounters> findCountersByUserId(int userId) {
+        long start = System.nanoTime();
+        AchievementCounters counters = null;
+        try (Connection connection = DatabaseManager.getConnection();
+             PreparedStatement countersStatement = connection.prepareStatement(SELECT_COUNTERS_SQL);
+             PreparedStatement codesStatement = connection.prepareStatement(SELECT_CODES_SQL)) {
+
+            countersStatement.setInt(1, userId);
+            try (ResultSet rs = countersStatement.executeQuery()) {
+                if (rs.next()) {
+                    counters = new AchievementCounters(userId);
+                    counters.setTotalTests(rs.getInt("total_tests"));
+                    counters.setCurrentMonth(rs.getString("current_month"));
+                    counters.setTestsThisMonth(rs.getInt("tests_this_month"));
+                    counters.setBestScore(rs.getInt("best_score"));
+                    counters.setLastScore(rs.getInt("last_score"));
+                    counters.setImprovementStreak(rs.getInt("improvement_streak"));
+                    counters.setLastProgressId(rs.getInt("last_progress_id"));
+                }
+            }
+            if (counters != null) {
+                codesStatement.setInt(1, userId);
+                try (ResultSet rs = codesStatement.executeQuery()) {
+                    while (rs.next()) {
+                        counters.getUnlockedCodes().add(rs.getString("achievement_code"));
+                    }
+                }
+                FIND_COUNTERS_BY_USER_ID_TIMER.addRows(1 + counters.getUnlockedCodes().size());
+            }
+        } catch (SQLException e) {
+            FIND_COUNTERS_BY_USER_ID_TIMER.markError();
+            System.err.println("Error finding achievement counters by user ID: " + e.getMessage());
+        } finally {
+            FIND_COUNTERS_BY_USER_ID_TIMER.recordSince(start);
+        }
+        return Optional.ofNullable(counters);
+    }
+
+    /**
+     * Finds all achievements a user has unlocked, most recent first.
+     *
+     * @param userId The ID of the user.
+     * @return A List of UserAchievement objects (potentially empty).
+     */
+    public List<UserAchievement> findAchievementsByUserId(int userId) {
+        long start = System.nanoTime();
+        List<UserAchievement> achievements = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ACHIEVEMENTS_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    achievements.add(new UserAchievement(userId, rs.getString("achievement_code"),
+                            rs.getTimestamp("unlocked_at").toLocalDateTime(), rs.getInt("levels_awarded")));
+                }
+                FIND_ACHIEVEMENTS_BY_USER_ID_TIMER.addRows(achievements.size());
+            }
+        } catch (SQLException e) {
+            FIND_ACHIEVEMENTS_BY_USER_ID_TIMER.markError();
+            System.err.println("Error finding achievements by user ID: " + e.getMessage());
+        } finally {
+            FIND_ACHIEVEMENTS_BY_USER_ID_TIMER.recordSince(start);
+        }
+        return achievements;
+    }
+
+    /**
+     * Saves newly unlocked achievements and the latest counters of the affected users
+     * in a single transaction, using one JDBC batch per table.
+     * Achievements that are already saved are skipped.
+     *
+     * @param achievements The newly unlocked achievements.
+     * @param counters Snapshots of the counters to save (replacing the saved ones).
+     * @return true if everything was saved, false otherwise (nothing is saved in that case).
+     */
+    public boolean saveBatch(Collection<UserAchievement> achievements, Collection<AchievementCounters> counters) {
+        if (achievements.isEmpty() && counters.isEmpty()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement achievementStatement = connection.prepareStatement(INSERT_ACHIEVEMENT_SQL);
+                 PreparedStatement countersStatement = connection.prepareStatement(UPSERT_COUNTERS_SQL)) {
+                for (UserAchievement achievement : achievements) {
+                    achievementStatement.setInt(1, achievement.getUserId());
+                    achievementStatement.setString(2, achievement.getAchievementCode());
+                    achievementStatement.setTimestamp(3, Timestamp.valueOf(achievement.getUnlockedAt()));
+                    achievementStatement.setInt(4, achievement.getLevelsAwarded());
+                    achievementStatement.addBatch();
+                }
+                for (AchievementCounters counter : counters) {
+                    countersStatement.setInt(1, counter.getUserId());
+                    countersStatement.setInt(2, counter.getTotalTests());
+                    countersStatement.setString(3, counter.getCurrentMonth());
+                    countersStatement.setInt(4, counter.getTestsThisMonth());
+                    countersStatement.setInt(5, counter.getBestScore());
+                    countersStatement.setInt(6, counter.getLastScore());
+                    countersStatement.setInt(7, counter.getImprovementStreak());
+                    countersStatement.setInt(8, counter.getLastProgressId());
+                    countersStatement.addBatch();
+                }
+                if (!achievements.isEmpty()) {
+                    achievementStatement.executeBatch();
+                }
+                if (!counters.isEmpty()) {
+                    countersStatement.executeBatch();
+                }
+                connection.commit();
+                SAVE_BATCH_TIMER.addRows(achievements.size() + counters.size());
+                return true;
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            SAVE_BATCH_TIMER.markError();
+            System.err.println("Error saving achievements in batch: " + e.getMessage());
+        } finally {
+            SAVE_BATCH_TIMER.recordSince(start);
+        }
+        return false;
+    }
+}
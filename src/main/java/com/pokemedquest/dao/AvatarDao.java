@@ -1,5 +1,9 @@
 package com.pokemedquest.dao;
 
+import com.pokemedquest.audit.Audit;
+import com.pokemedquest.audit.AuditOperation;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
 import com.pokemedquest.model.Avatar; // Import the Avatar model
 
 import java.sql.Connection;
@@ -7,6 +11,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -16,13 +23,43 @@ import java.util.Optional;
  */
 public class AvatarDao {
 
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer CREATE_AVATAR_TIMER = Metrics.timer("AvatarDao.createAvatar");
+    private static final Timer FIND_AVATAR_BY_USER_ID_TIMER = Metrics.timer("AvatarDao.findAvatarByUserId");
+    private static final Timer UPDATE_AVATAR_BY_USER_ID_TIMER = Metrics.timer("AvatarDao.updateAvatarByUserId");
+    private static final Timer UPDATE_AVATAR_IF_VERSION_TIMER = Metrics.timer("AvatarDao.updateAvatarIfVersion");
+    private static final Timer CREATE_AVATARS_TIMER = Metrics.timer("AvatarDao.createAvatars");
+    private static final Timer ADD_LEVELS_TIMER = Metrics.timer("AvatarDao.addLevels");
+    private static final Timer FIND_ALL_AVATARS_TIMER = Metrics.timer("AvatarDao.findAllAvatars");
+
     // SQL query strings - Adjust table/column names as needed
     private static final String INSERT_AVATAR_SQL = "INSERT INTO avatars (user_id, avatar_name, color, accessory, level) VALUES (?, ?, ?, ?, ?)";
-    private static final String SELECT_AVATAR_BY_USER_SQL = "SELECT avatar_id, user_id, avatar_name, color, accessory, level FROM avatars WHERE user_id = ?";
-    private static final String UPDATE_AVATAR_BY_USER_SQL = "UPDATE avatars SET avatar_name = ?, color = ?, accessory = ?, level = ? WHERE user_id = ?";
+    private static final String SELECT_AVATAR_BY_USER_SQL = "SELECT avatar_id, user_id, avatar_name, color, accessory, level, version FROM avatars WHERE user_id = ?";
+    private static final String UPDATE_AVATAR_BY_USER_SQL = "UPDATE avatars SET avatar_name = ?, color = ?, accessory = ?, level = ?, version = version + 1 WHERE user_id = ?";
+    // Only applies if nobody updated the row since it was read (optimistic concurrency)
+    private static final String UPDATE_AVATAR_IF_VERSION_SQL = "UPDATE avatars SET avatar_name = ?, color = ?, accessory = ?, level = ?, version = version + 1 "
+            + "WHERE user_id = ? AND version = ?";
+    private static final String SELECT_ALL_AVATARS_SQL = "SELECT avatar_id, user_id, avatar_name, color, accessory, level, version FROM avatars";
+    private static final String ADD_LEVELS_BY_USER_SQL = "UPDATE avatars SET level = level + ?, version = version + 1 WHERE user_id = ?";
     // Add DELETE statement if needed
     // private static final String DELETE_AVATAR_BY_USER_SQL = "DELETE FROM avatars WHERE user_id = ?";
 
+    private final String databaseUrl; // null: whatever DatabaseManager currently points at
+
+    /**
+     * Creates an AvatarDao for the application database.
+     */
+    public AvatarDao() {
+        this(null);
+    }
+
+    /**
+     * Creates an AvatarDao for a specific database, e.g. one shard (see com.pokemedquest.shard).
+     * @param databaseUrl The JDBC URL of the database that holds the avatars.
+     */
+    public AvatarDao(String databaseUrl) {
+        this.databaseUrl = databaseUrl;
+    }
 
     /**
      * Creates a new avatar record in the database.
@@ -32,27 +69,42 @@ public class AvatarDao {
      * @return true if the avatar was created successfully, false otherwise.
      */
     public boolean createAvatar(Avatar avatar) {
-        try (Connection connection = DatabaseManager.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_AVATAR_SQL, Statement.RETURN_GENERATED_KEYS)) {
-
-            preparedStatement.setInt(1, avatar.getUserId());
-            preparedStatement.setString(2, avatar.getAvatarName());
-            preparedStatement.setString(3, avatar.getColor());
-            preparedStatement.setString(4, avatar.getAccessory());
-            preparedStatement.setInt(5, avatar.getLevel());
-
-            int affectedRows = preparedStatement.executeUpdate();
-
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        avatar.setAvatarId(generatedKeys.getInt(1)); // Set the generated ID
-                        return true;
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false); // The row and its change_log entry commit together
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_AVATAR_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+                preparedStatement.setInt(1, avatar.getUserId());
+                preparedStatement.setString(2, avatar.getAvatarName());
+                preparedStatement.setString(3, avatar.getColor());
+                preparedStatement.setString(4, avatar.getAccessory());
+                preparedStatement.setInt(5, avatar.getLevel());
+
+                int affectedRows = preparedStatement.executeUpdate();
+                CREATE_AVATAR_TIMER.addRows(affectedRows);
+
+                if (affectedRows > 0) {
+                    try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            int avatarId = generatedKeys.getInt(1);
+                            ChangeLog.record(connection, ChangeLog.AVATARS, avatar.getUserId());
+                            connection.commit();
+                            avatar.setAvatarId(avatarId); // Set the generated ID
+                            Audit.record(AuditOperation.AVATAR_CREATE, avatar.getUserId(), avatarId);
+                            return true;
+                        }
                     }
                 }
+                DatabaseManager.rollbackQuietly(connection);
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
             }
         } catch (SQLException e) {
+            CREATE_AVATAR_TIMER.markError();
             System.err.println("Error creating avatar: " + e.getMessage());
+        } finally {
+            CREATE_AVATAR_TIMER.recordSince(start);
         }
         return false;
     }
@@ -65,8 +117,9 @@ public class AvatarDao {
      * @return An Optional containing the Avatar if found, otherwise an empty Optional.
      */
     public Optional<Avatar> findAvatarByUserId(int userId) {
+        long start = System.nanoTime();
         Avatar avatar = null;
-        try (Connection connection = DatabaseManager.getConnection();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_AVATAR_BY_USER_SQL)) {
 
             preparedStatement.setInt(1, userId);
@@ -80,40 +133,243 @@ public class AvatarDao {
                     String accessory = rs.getString("accessory");
                     int level = rs.getInt("level");
                     avatar = new Avatar(avatarId, userId, avatarName, color, accessory, level);
+                    avatar.setVersion(rs.getInt("version"));
+                    FIND_AVATAR_BY_USER_ID_TIMER.addRows(1);
+                    Audit.record(AuditOperation.AVATAR_READ, userId, avatarId);
                 }
             }
         } catch (SQLException e) {
+            FIND_AVATAR_BY_USER_ID_TIMER.markError();
             System.err.println("Error finding avatar by user ID: " + e.getMessage());
+        } finally {
+            FIND_AVATAR_BY_USER_ID_TIMER.recordSince(start);
         }
         return Optional.ofNullable(avatar);
     }
 
      /**
-     * Updates the details of an existing avatar based on the user ID.
+     * Updates the details of an existing avatar based on the user ID, whatever it was
+     * changed to in the meantime (last writer wins; see updateAvatarIfVersion).
      * Assumes a user has at most one avatar.
      *
      * @param avatar The Avatar object containing the updated information (userId must be set).
      * @return true if the update was successful (at least one row affected), false otherwise.
      */
     public boolean updateAvatarByUserId(Avatar avatar) {
-        try (Connection connection = DatabaseManager.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_AVATAR_BY_USER_SQL)) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false); // The row and its change_log entry commit together
+            try (PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_AVATAR_BY_USER_SQL)) {
 
-            preparedStatement.setString(1, avatar.getAvatarName());
-            preparedStatement.setString(2, avatar.getColor());
-            preparedStatement.setString(3, avatar.getAccessory());
-            preparedStatement.setInt(4, avatar.getLevel());
-            preparedStatement.setInt(5, avatar.getUserId()); // Use userId in WHERE clause
-
-            int affectedRows = preparedStatement.executeUpdate();
-            return affectedRows > 0; // Return true if at least one row was updated
+                preparedStatement.setString(1, avatar.getAvatarName());
+                preparedStatement.setString(2, avatar.getColor());
+                preparedStatement.setString(3, avatar.getAccessory());
+                preparedStatement.setInt(4, avatar.getLevel());
+                preparedStatement.setInt(5, avatar.getUserId()); // Use userId in WHERE clause
 
+                int affectedRows = preparedStatement.executeUpdate();
+                UPDATE_AVATAR_BY_USER_ID_TIMER.addRows(affectedRows);
+                if (affectedRows > 0) {
+                    ChangeLog.record(connection, ChangeLog.AVATARS, avatar.getUserId());
+                }
+                connection.commit();
+                if (affectedRows > 0) {
+                    Audit.record(AuditOperation.AVATAR_UPDATE, avatar.getUserId(), avatar.getAvatarId());
+                }
+                return affectedRows > 0; // Return true if at least one row was updated
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
         } catch (SQLException e) {
+            UPDATE_AVATAR_BY_USER_ID_TIMER.markError();
             System.err.println("Error updating avatar by user ID: " + e.getMessage());
+        } finally {
+            UPDATE_AVATAR_BY_USER_ID_TIMER.recordSince(start);
         }
         return false;
     }
 
+    /**
+     * Saves an avatar's name, color, accessory and level, but only if the row still has the
+     * version the Avatar was read with, so concurrent changes are never silently overwritten.
+     * On success the Avatar carries the new version.
+     *
+     * @param avatar The Avatar to save (userId and version as read).
+     * @return UPDATED, STALE if the row changed (or went away) since it was read, or FAILED.
+     */
+    public UpdateResult updateAvatarIfVersion(Avatar avatar) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false); // The row and its change_log entry commit together
+            try (PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_AVATAR_IF_VERSION_SQL)) {
+                preparedStatement.setString(1, avatar.getAvatarName());
+                preparedStatement.setString(2, avatar.getColor());
+                preparedStatement.setString(3, avatar.getAccessory());
+                preparedStatement.setInt(4, avatar.getLevel());
+                preparedStatement.setInt(5, avatar.getUserId());
+                preparedStatement.setInt(6, avatar.getVersion());
+
+                int affectedRows = preparedStatement.executeUpdate();
+                UPDATE_AVATAR_IF_VERSION_TIMER.addRows(affectedRows);
+                if (affectedRows == 0) {
+                    DatabaseManager.rollbackQuietly(connection);
+                    return UpdateResult.STALE;
+                }
+                ChangeLog.record(connection, ChangeLog.AVATARS, avatar.getUserId());
+                connection.commit();
+                avatar.setVersion(avatar.getVersion() + 1);
+                Audit.record(AuditOperation.AVATAR_UPDATE, avatar.getUserId(), avatar.getAvatarId());
+                return UpdateResult.UPDATED;
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            UPDATE_AVATAR_IF_VERSION_TIMER.markError();
+            System.err.println("Error updating avatar by version: " + e.getMessage());
+        } finally {
+            UPDATE_AVATAR_IF_VERSION_TIMER.recordSince(start);
+        }
+        return UpdateResult.FAILED;
+    }
+
+    /**
+     * Creates many avatar records in a single transaction using a JDBC batch.
+     * On success every Avatar gets its generated ID.
+     *
+     * @param avatars The avatars to save (userId must be set).
+     * @return true if all avatars were created, false otherwise (nothing is saved in that case).
+     */
+    public boolean createAvatars(List<Avatar> avatars) {
+        if (avatars.isEmpty()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_AVATAR_SQL)) {
+                for (Avatar avatar : avatars) {
+                    preparedStatement.setInt(1, avatar.getUserId());
+                    preparedStatement.setString(2, avatar.getAvatarName());
+                    preparedStatement.setString(3, avatar.getColor());
+                    preparedStatement.setString(4, avatar.getAccessory());
+                    preparedStatement.setInt(5, avatar.getLevel());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                int id = DatabaseManager.lastInsertRowId(connection) - avatars.size() + 1;
+                List<Integer> userIds = new ArrayList<>(avatars.size());
+                for (Avatar avatar : avatars) {
+                    userIds.add(avatar.getUserId());
+                }
+                ChangeLog.recordAll(connection, ChangeLog.AVATARS, userIds);
+                connection.commit();
+                for (Avatar avatar : avatars) {
+                    avatar.setAvatarId(id++);
+                    Audit.record(AuditOperation.AVATAR_CREATE, avatar.getUserId(), avatar.getAvatarId());
+                }
+                CREATE_AVATARS_TIMER.addRows(avatars.size());
+                return true;
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            CREATE_AVATARS_TIMER.markError();
+            System.err.println("Error creating avatars in batch: " + e.getMessage());
+        } finally {
+            CREATE_AVATARS_TIMER.recordSince(start);
+        }
+        return false;
+    }
+
+    /**
+     * Finds all avatars, e.g. to build the leaderboard at startup.
+     *
+     * @return A List of all Avatar objects (potentially empty).
+     */
+    public List<Avatar> findAllAvatars() {
+        long start = System.nanoTime();
+        List<Avatar> avatars = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ALL_AVATARS_SQL);
+             ResultSet rs = preparedStatement.executeQuery()) {
+
+            while (rs.next()) {
+                Avatar avatar = new Avatar(rs.getInt("avatar_id"), rs.getInt("user_id"), rs.getString("avatar_name"),
+                        rs.getString("color"), rs.getString("accessory"), rs.getInt("level"));
+                avatar.setVersion(rs.getInt("version"));
+                avatars.add(avatar);
+            }
+            FIND_ALL_AVATARS_TIMER.addRows(avatars.size());
+            Audit.record(AuditOperation.AVATAR_READ_ALL, Audit.ALL_USERS, avatars.size());
+        } catch (SQLException e) {
+            FIND_ALL_AVATARS_TIMER.markError();
+            System.err.println("Error finding all avatars: " + e.getMessage());
+        } finally {
+            FIND_ALL_AVATARS_TIMER.recordSince(start);
+        }
+        return avatars;
+    }
+
+    /**
+     * Adds levels to many avatars in a single transaction using a JDBC batch.
+     * The increment is applied in SQL, so it does not overwrite concurrent level changes.
+     * The updated avatars are read back in the same transaction, so each one carries the level
+     * and version this increment produced (for events that must not be applied out of order).
+     *
+     * @param levelsByUserId Levels to add, keyed by user ID. Users without an avatar are skipped.
+     * @return An Optional containing the updated avatars (possibly empty), or empty on error
+     *         (nothing is changed in that case).
+     */
+    public Optional<List<Avatar>> addLevels(Map<Integer, Integer> levelsByUserId) {
+        List<Avatar> updated = new ArrayList<>(levelsByUserId.size());
+        if (levelsByUserId.isEmpty()) {
+            return Optional.of(updated);
+        }
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(ADD_LEVELS_BY_USER_SQL);
+                 PreparedStatement select = connection.prepareStatement(SELECT_AVATAR_BY_USER_SQL)) {
+                for (Map.Entry<Integer, Integer> entry : levelsByUserId.entrySet()) {
+                    preparedStatement.setInt(1, entry.getValue());
+                    preparedStatement.setInt(2, entry.getKey());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                for (Integer userId : levelsByUserId.keySet()) {
+                    select.setInt(1, userId);
+                    try (ResultSet rs = select.executeQuery()) {
+                        if (rs.next()) {
+                            Avatar avatar = new Avatar(rs.getInt("avatar_id"), rs.getInt("user_id"), rs.getString("avatar_name"),
+                                    rs.getString("color"), rs.getString("accessory"), rs.getInt("level"));
+                            avatar.setVersion(rs.getInt("version"));
+                            updated.add(avatar);
+                        }
+                    }
+                }
+                ChangeLog.recordAll(connection, ChangeLog.AVATARS, levelsByUserId.keySet());
+                connection.commit();
+                ADD_LEVELS_TIMER.addRows(levelsByUserId.size());
+                for (Avatar avatar : updated) {
+                    Audit.record(AuditOperation.AVATAR_UPDATE, avatar.getUserId(), avatar.getAvatarId());
+                }
+                return Optional.of(updated);
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            ADD_LEVELS_TIMER.markError();
+            System.err.println("Error adding avatar levels in batch: " + e.getMessage());
+        } finally {
+            ADD_LEVELS_TIMER.recordSince(start);
+        }
+        return Optional.empty();
+    }
+
     // --- TODO: Implement delete method if required ---
     /*
     public boolean deleteAvatarByUserId(int userId) {
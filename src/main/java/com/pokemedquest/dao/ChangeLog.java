@@ -0,0 +1,80 @@
+package com.pokemedquest.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Change data capture for delta sync (see com.pokemedquest.sync.SyncTool).
+ *
+ * Every DAO write to users, avatars or test_progress also inserts a row into change_log,
+ * on the same connection and inside the same transaction, so a change is captured if and
+ * only if it is committed. Only the key of the changed row is logged; an export reads the
+ * row's current state, so a row changed many times since the last sync is shipped once.
+ *
+ * Writes to the rollup, archive and exercise session tables are logged the same way for
+ * incremental backups (see com.pokemedquest.backup.OnlineBackup); sync ignores them.
+ */
+final class ChangeLog {
+
+    // Entity names, which double as table names
+    static final String USERS = "users";
+    static final String AVATARS = "avatars";             // row_id is avatars.user_id
+    static final String TEST_PROGRESS = "test_progress";
+    static final String TEST_PROGRESS_ROLLUP = "test_progress_rollup"; // row_id is user_id: all of the user's rollups
+    static final String TEST_PROGRESS_ARCHIVE = "test_progress_archive";
+    static final String EXERCISE_SESSIONS = "exercise_sessions";
+
+    private static final String INSERT_CHANGE_SQL = "INSERT INTO change_log (entity, row_id, changed_at) VALUES (?, ?, ?)";
+
+    // Private constructor to prevent instantiation of this utility class.
+    private ChangeLog() { }
+
+    /**
+     * Logs a change to one row. Must be called inside the transaction that made the change,
+     * after any generated keys have been read (this insert moves last_insert_rowid()).
+     */
+    static void record(Connection connection, String entity, int rowId) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_CHANGE_SQL)) {
+            preparedStatement.setString(1, entity);
+            preparedStatement.setInt(2, rowId);
+            preparedStatement.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    /**
+     * Logs a change to the rows with IDs firstId .. firstId + count - 1, e.g. a batch insert.
+     * Same rules as {@link #record}.
+     */
+    static void recordRange(Connection connection, String entity, int firstId, int count) throws SQLException {
+        List<Integer> rowIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rowIds.add(firstId + i);
+        }
+        recordAll(connection, entity, rowIds);
+    }
+
+    /**
+     * Logs a change to many rows of the same entity as one JDBC batch. Same rules as {@link #record}.
+     */
+    static void recordAll(Connection connection, String entity, Collection<Integer> rowIds) throws SQLException {
+        if (rowIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_CHANGE_SQL)) {
+            for (int rowId : rowIds) {
+                preparedStatement.setString(1, entity);
+                preparedStatement.setInt(2, rowId);
+                preparedStatement.setTimestamp(3, now);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+}
@@ -1,8 +1,26 @@
 package com.pokemedquest.dao;
 
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages the connection to the SQLite database.
@@ -16,9 +34,74 @@ public class DatabaseManager {
     // it will look for the db file in the 'data' subfolder.
     private static final String DB_URL = "jdbc:sqlite:data/application.db";
 
+    // Where the database URL comes from, first match wins: the system property
+    // (-Dpokemedquest.db.url=jdbc:sqlite:/tmp/bench.db), the environment variable, the same
+    // key in the config file, then DB_URL
+    public static final String DB_URL_PROPERTY = "pokemedquest.db.url";
+    public static final String DB_URL_ENV = "POKEMEDQUEST_DB_URL";
+
+    // The config file (Java properties): this system property, this environment variable,
+    // or pokemedquest.properties in the working directory if it exists
+    public static final String CONFIG_PROPERTY = "pokemedquest.config";
+    public static final String CONFIG_ENV = "POKEMEDQUEST_CONFIG";
+    private static final String DEFAULT_CONFIG_FILE = "pokemedquest.properties";
+
+    // "memory:NAME" is a named in-memory database, shared by all connections in the process.
+    // SQLite drops such a database when its last connection closes, so one is kept open.
+    public static final String MEMORY_PREFIX = "memory:";
+    private static final ConcurrentHashMap<String, Connection> MEMORY_KEEPERS = new ConcurrentHashMap<>();
+
+    // Classpath location of the schema, with a fallback for running straight from the source tree
+    private static final String SCHEMA_RESOURCE = "/schema.sql";
+    private static final String SCHEMA_FILE = "src/main/resources/schema.sql";
+    // The shard directory database has a schema of its own, see com.pokemedquest.shard.ShardedStore
+    private static final String DIRECTORY_SCHEMA_RESOURCE = "/directory-schema.sql";
+    private static final String DIRECTORY_SCHEMA_FILE = "src/main/resources/directory-schema.sql";
+
+    // Columns added to existing tables after their first release: {table, column, type}.
+    // "CREATE TABLE IF NOT EXISTS" leaves an older table as it is, so these are added by initializeSchema.
+    private static final String[][] ADDED_COLUMNS = {
+        {"test_progress", "cmas_items", "INTEGER"},
+        {"users", "version", "INTEGER NOT NULL DEFAULT 0"},
+        {"avatars", "version", "INTEGER NOT NULL DEFAULT 0"},
+    };
+
+    // Write-ahead logging: readers and the writer no longer block each other
+    private static final String ENABLE_WAL_SQL = "PRAGMA journal_mode = WAL";
+
+    // sqlite_sequence holds the last AUTOINCREMENT ID handed out per table
+    private static final String[] AUTOINCREMENT_TABLES = {"users", "avatars", "test_progress"};
+    private static final String INSERT_SEQUENCE_SQL = "INSERT INTO sqlite_sequence (name, seq) SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM sqlite_sequence WHERE name = ?)";
+    private static final String RAISE_SEQUENCE_SQL = "UPDATE sqlite_sequence SET seq = ? WHERE name = ? AND seq < ?";
+
+    // The URL actually used; benchmarks and tools point this at their own database file
+    private static volatile String databaseUrl = configuredUrl();
+
+    private static volatile List<String> schemaStatements; // See schemaStatements()
+
+    // Time spent opening connections (driver lookup + file open), see com.pokemedquest.metrics.Metrics
+    private static final Timer GET_CONNECTION_TIMER = Metrics.timer("DatabaseManager.getConnection");
+
     // Private constructor to prevent instantiation of this utility class.
     private DatabaseManager() { }
 
+    /**
+     * Points all future connections at a different database.
+     * Existing connections are not affected.
+     *
+     * @param url A JDBC URL, e.g. "jdbc:sqlite:/tmp/bench.db", or "memory:NAME".
+     */
+    public static void setDatabaseUrl(String url) {
+        databaseUrl = url;
+    }
+
+    /**
+     * @return The JDBC URL that new connections are opened against.
+     */
+    public static String getDatabaseUrl() {
+        return databaseUrl;
+    }
+
     /**
      * Establishes and returns a connection to the SQLite database.
      *
@@ -29,6 +112,19 @@ public class DatabaseManager {
      * @throws SQLException if a database access error occurs or the url is null.
      */
     public static Connection getConnection() throws SQLException {
+        return getConnection(databaseUrl);
+    }
+
+    /**
+     * Establishes and returns a connection to a specific database, e.g. one shard.
+     * Same rules as {@link #getConnection()}.
+     *
+     * @param url A JDBC URL or "memory:NAME", or null for the current database URL.
+     * @return A Connection object to the database.
+     * @throws SQLException if a database access error occurs.
+     */
+    public static Connection getConnection(String url) throws SQLException {
+        long start = System.nanoTime();
         /*
          * Optional: Explicitly load the SQLite JDBC driver.
          * Modern JDBC drivers (Type 4) often register themselves automatically
@@ -38,6 +134,7 @@ public class DatabaseManager {
         try {
             Class.forName("org.sqlite.JDBC");
         } catch (ClassNotFoundException e) {
+            GET_CONNECTION_TIMER.markError();
             System.err.println("SQLite JDBC driver not found. Make sure the JAR is in the classpath.");
             // Wrap the ClassNotFoundException in an SQLException or a RuntimeException
             // to avoid forcing callers to catch ClassNotFoundException specifically.
@@ -45,7 +142,261 @@ public class DatabaseManager {
         }
 
         // Attempt to establish the connection using the DB URL
-        return DriverManager.getConnection(DB_URL);
+        try {
+            String configured = url != null ? url : databaseUrl;
+            String jdbcUrl = toJdbcUrl(configured);
+            if (configured.startsWith(MEMORY_PREFIX) && !MEMORY_KEEPERS.containsKey(jdbcUrl)) {
+                keepInMemoryDatabase(jdbcUrl);
+            }
+            Connection connection = DriverManager.getConnection(jdbcUrl);
+            // Tracing proxies are only created when SqlTracer is switched on
+            return SqlTracer.isEnabled() ? SqlTracer.wrap(connection) : connection;
+        } catch (SQLException e) {
+            GET_CONNECTION_TIMER.markError();
+            throw e;
+        } finally {
+            GET_CONNECTION_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Turns "memory:NAME" into the JDBC URL of a named, shared-cache in-memory SQLite
+     * database; other URLs are returned as they are.
+     *
+     * @param url A JDBC URL or "memory:NAME".
+     * @return The JDBC URL to open.
+     */
+    public static String toJdbcUrl(String url) {
+        if (url.startsWith(MEMORY_PREFIX)) {
+            return "jdbc:sqlite:file:" + url.substring(MEMORY_PREFIX.length()) + "?mode=memory&cache=shared";
+        }
+        return url;
+    }
+
+    /**
+     * Drops a named in-memory database by closing the connection that kept it alive.
+     * Connections still open keep it until they close; a later connection gets a new, empty one.
+     *
+     * @param url The "memory:NAME" URL of the database.
+     */
+    public static void closeInMemoryDatabase(String url) {
+        Connection keeper = MEMORY_KEEPERS.remove(toJdbcUrl(url));
+        if (keeper != null) {
+            try {
+                keeper.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing in-memory database " + url + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static synchronized void keepInMemoryDatabase(String jdbcUrl) throws SQLException {
+        if (!MEMORY_KEEPERS.containsKey(jdbcUrl)) {
+            MEMORY_KEEPERS.put(jdbcUrl, DriverManager.getConnection(jdbcUrl));
+        }
+    }
+
+    /**
+     * @return The database URL from the system property, the environment, the config file, or DB_URL.
+     */
+    private static String configuredUrl() {
+        String url = System.getProperty(DB_URL_PROPERTY);
+        if (url == null) {
+            url = System.getenv(DB_URL_ENV);
+        }
+        if (url == null) {
+            url = readConfigFile().getProperty(DB_URL_PROPERTY);
+        }
+        return url != null && !url.isBlank() ? url.trim() : DB_URL;
+    }
+
+    private static Properties readConfigFile() {
+        Properties properties = new Properties();
+        String configured = System.getProperty(CONFIG_PROPERTY, System.getenv(CONFIG_ENV));
+        Path file = Paths.get(configured != null ? configured : DEFAULT_CONFIG_FILE);
+        if (configured == null && !Files.exists(file)) {
+            return properties; // The default file is optional
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            System.err.println("Could not read config file " + file + ": " + e.getMessage());
+        }
+        return properties;
+    }
+
+    /**
+     * Creates any missing tables by running schema.sql against the current database.
+     * The schema only uses "CREATE ... IF NOT EXISTS", so this is safe on an existing database.
+     * Also switches the database to WAL journaling (a persistent setting of the file), so
+     * readers see a stable snapshot without blocking writers, see SnapshotReader.
+     *
+     * @throws SQLException if the schema cannot be read or a statement fails.
+     */
+    public static void initializeSchema() throws SQLException {
+        initializeSchema(databaseUrl);
+    }
+
+    /**
+     * Creates any missing tables in a specific database, e.g. a new shard.
+     *
+     * @param url A JDBC URL, or null for the current database URL.
+     * @throws SQLException if the schema cannot be read or a statement fails.
+     */
+    public static void initializeSchema(String url) throws SQLException {
+        List<String> statements = schemaStatements();
+        try (Connection connection = getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute(ENABLE_WAL_SQL);
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+            for (String[] column : ADDED_COLUMNS) {
+                addColumnIfMissing(connection, column[0], column[1], column[2]);
+            }
+        }
+    }
+
+    /**
+     * Creates the tables of a shard directory database (only user_directory) if missing.
+     *
+     * @param url A JDBC URL, or null for the current database URL.
+     * @throws SQLException if the schema cannot be read or a statement fails.
+     */
+    public static void initializeDirectorySchema(String url) throws SQLException {
+        List<String> statements = splitStatements(readSchema(DIRECTORY_SCHEMA_RESOURCE, DIRECTORY_SCHEMA_FILE));
+        try (Connection connection = getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute(ENABLE_WAL_SQL);
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * Adds a column to an existing table unless it is already there.
+     * SQLite adds the column without rewriting the table; existing rows read it as NULL.
+     */
+    private static void addColumnIfMissing(Connection connection, String table, String column, String type) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("PRAGMA table_info(" + table + ")")) {
+                while (rs.next()) {
+                    if (column.equalsIgnoreCase(rs.getString("name"))) {
+                        return;
+                    }
+                }
+            }
+            statement.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+    }
+
+    /**
+     * Makes the AUTOINCREMENT IDs of users, avatars and test_progress in a database start
+     * after the given ID (unless they already have). Shards use this to hand out disjoint IDs.
+     *
+     * @param url A JDBC URL, or null for the current database URL.
+     * @param lastId IDs handed out from now on are greater than this.
+     * @throws SQLException if the sequences cannot be updated.
+     */
+    public static void startIdsAfter(String url, long lastId) throws SQLException {
+        try (Connection connection = getConnection(url)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_SEQUENCE_SQL);
+                 PreparedStatement update = connection.prepareStatement(RAISE_SEQUENCE_SQL)) {
+                for (String table : AUTOINCREMENT_TABLES) {
+                    insert.setString(1, table);
+                    insert.setLong(2, lastId);
+                    insert.setString(3, table);
+                    insert.executeUpdate();
+                    update.setLong(1, lastId);
+                    update.setString(2, table);
+                    update.setLong(3, lastId);
+                    update.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                rollbackQuietly(connection);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns the rowid of the last row inserted on this connection.
+     * Used by the batch inserts: inside one transaction SQLite hands out consecutive
+     * rowids to rows inserted without an explicit id, so the IDs of a whole batch
+     * can be derived from the last one.
+     *
+     * @param connection The connection the rows were inserted on.
+     * @return The last inserted rowid.
+     * @throws SQLException if the query fails.
+     */
+    static int lastInsertRowId(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT last_insert_rowid()")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Rolls back the current transaction, reporting (but not throwing) any failure.
+     * Used in catch blocks where the original exception is the one worth reporting.
+     *
+     * @param connection The connection to roll back.
+     */
+    static void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back transaction: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The statements of schema.sql, read and split once per process (a fresh
+     * isolated database per test class would otherwise re-read the file every time).
+     */
+    private static List<String> schemaStatements() throws SQLException {
+        List<String> statements = schemaStatements;
+        if (statements == null) {
+            statements = Collections.unmodifiableList(splitStatements(readSchema(SCHEMA_RESOURCE, SCHEMA_FILE)));
+            schemaStatements = statements;
+        }
+        return statements;
+    }
+
+    private static String readSchema(String resource, String fallbackFile) throws SQLException {
+        try (InputStream in = DatabaseManager.class.getResourceAsStream(resource)) {
+            if (in != null) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            Path file = Paths.get(fallbackFile);
+            if (Files.exists(file)) {
+                return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not read " + resource.substring(1), e);
+        }
+        throw new SQLException(resource.substring(1) + " not found on the classpath or at " + fallbackFile);
+    }
+
+    /**
+     * Splits a SQL script into single statements, dropping "--" comments.
+     */
+    private static List<String> splitStatements(String script) {
+        StringBuilder cleaned = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            int comment = line.indexOf("--");
+            cleaned.append(comment >= 0 ? line.substring(0, comment) : line).append('\n');
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : cleaned.toString().split(";")) {
+            if (!sql.isBlank()) {
+                statements.add(sql.trim());
+            }
+        }
+        return statements;
     }
 
     /*
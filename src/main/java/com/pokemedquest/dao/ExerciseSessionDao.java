@@ -0,0 +1,198 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.audit.Audit;
+import com.pokemedquest.audit.AuditOperation;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.ExerciseSession;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * ExerciseSessionDao (Data Access Object) for the captured samples of timed exercise sessions.
+ * The samples are stored as one encoded blob per session (see com.pokemedquest.capture);
+ * the list queries leave the blob out, so browsing sessions stays cheap.
+ */
+public class ExerciseSessionDao {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer CREATE_SESSION_TIMER = Metrics.timer("ExerciseSessionDao.createSession");
+    private static final Timer FIND_SESSIONS_BY_PROGRESS_ID_TIMER = Metrics.timer("ExerciseSessionDao.findSessionsByProgressId");
+    private static final Timer FIND_SESSIONS_BY_USER_ID_TIMER = Metrics.timer("ExerciseSessionDao.findSessionsByUserId");
+    private static final Timer FIND_SAMPLES_TIMER = Metrics.timer("ExerciseSessionDao.findSamples");
+
+    // SQL query strings
+    private static final String INSERT_SESSION_SQL = "INSERT INTO exercise_sessions "
+            + "(progress_id, user_id, started_at, duration_micros, sample_count, dropped_samples, samples) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SESSION_COLUMNS = "SELECT session_id, progress_id, user_id, started_at, duration_micros, "
+            + "sample_count, dropped_samples, length(samples) AS encoded_bytes FROM exercise_sessions ";
+    private static final String SELECT_SESSIONS_BY_PROGRESS_SQL = SESSION_COLUMNS + "WHERE progress_id = ? ORDER BY session_id";
+    private static final String SELECT_SESSIONS_BY_USER_SQL = SESSION_COLUMNS + "WHERE user_id = ? ORDER BY started_at DESC";
+    private static final String SELECT_SAMPLES_SQL = "SELECT user_id, samples FROM exercise_sessions WHERE session_id = ?";
+
+    private final String databaseUrl; // null: whatever DatabaseManager currently points at
+
+    /**
+     * Creates an ExerciseSessionDao for the application database.
+     */
+    public ExerciseSessionDao() {
+        this(null);
+    }
+
+    /**
+     * Creates an ExerciseSessionDao for a specific database, e.g. one shard.
+     * @param databaseUrl The JDBC URL of the database that holds the sessions.
+     */
+    public ExerciseSessionDao(String databaseUrl) {
+        this.databaseUrl = databaseUrl;
+    }
+
+    /**
+     * Saves a finished session with its encoded samples.
+     * Updates the passed ExerciseSession with the auto-generated ID.
+     *
+     * @param session The session to save.
+     * @param samples The encoded samples, see SampleStreamWriter.
+     * @return true if the session was saved, false otherwise.
+     */
+    public boolean createSession(ExerciseSession session, byte[] samples) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false); // The row and its change_log entry commit together
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SESSION_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+                preparedStatement.setInt(1, session.getProgressId());
+                preparedStatement.setInt(2, session.getUserId());
+                preparedStatement.setTimestamp(3, Timestamp.valueOf(session.getStartedAt()));
+                preparedStatement.setLong(4, session.getDurationMicros());
+                preparedStatement.setLong(5, session.getSampleCount());
+                preparedStatement.setLong(6, session.getDroppedSamples());
+                preparedStatement.setBytes(7, samples);
+
+                int affectedRows = preparedStatement.executeUpdate();
+                CREATE_SESSION_TIMER.addRows(session.getSampleCount());
+                if (affectedRows > 0) {
+                    try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            int id = generatedKeys.getInt(1);
+                            ChangeLog.record(connection, ChangeLog.EXERCISE_SESSIONS, id);
+                            connection.commit();
+                            session.setSessionId(id);
+                            Audit.record(AuditOperation.PROGRESS_CREATE, session.getUserId(), session.getProgressId());
+                            return true;
+                        }
+                    }
+                }
+                DatabaseManager.rollbackQuietly(connection);
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            CREATE_SESSION_TIMER.markError();
+            System.err.println("Error saving exercise session: " + e.getMessage());
+        } finally {
+            CREATE_SESSION_TIMER.recordSince(start);
+        }
+        return false;
+    }
+
+    /**
+     * Finds the sessions recorded for one test result.
+     *
+     * @param progressId The test_progress row.
+     * @return A List of sessions, oldest first (potentially empty).
+     */
+    public List<ExerciseSession> findSessionsByProgressId(int progressId) {
+        long start = System.nanoTime();
+        List<ExerciseSession> sessions = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_SESSIONS_BY_PROGRESS_SQL)) {
+
+            preparedStatement.setInt(1, progressId);
+            readSessions(preparedStatement, sessions);
+            FIND_SESSIONS_BY_PROGRESS_ID_TIMER.addRows(sessions.size());
+            if (!sessions.isEmpty()) {
+                Audit.record(AuditOperation.PROGRESS_READ, sessions.get(0).getUserId(), sessions.size());
+            }
+        } catch (SQLException e) {
+            FIND_SESSIONS_BY_PROGRESS_ID_TIMER.markError();
+            System.err.println("Error finding exercise sessions by progress ID: " + e.getMessage());
+        } finally {
+            FIND_SESSIONS_BY_PROGRESS_ID_TIMER.recordSince(start);
+        }
+        return sessions;
+    }
+
+    /**
+     * Finds all sessions of a user.
+     *
+     * @param userId The ID of the user.
+     * @return A List of sessions, most recent first (potentially empty).
+     */
+    public List<ExerciseSession> findSessionsByUserId(int userId) {
+        long start = System.nanoTime();
+        List<ExerciseSession> sessions = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_SESSIONS_BY_USER_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            readSessions(preparedStatement, sessions);
+            FIND_SESSIONS_BY_USER_ID_TIMER.addRows(sessions.size());
+            Audit.record(AuditOperation.PROGRESS_READ, userId, sessions.size());
+        } catch (SQLException e) {
+            FIND_SESSIONS_BY_USER_ID_TIMER.markError();
+            System.err.println("Error finding exercise sessions by user ID: " + e.getMessage());
+        } finally {
+            FIND_SESSIONS_BY_USER_ID_TIMER.recordSince(start);
+        }
+        return sessions;
+    }
+
+    /**
+     * Reads the encoded samples of a session.
+     *
+     * @param sessionId The session.
+     * @return An Optional containing the blob, or empty if the session does not exist or on error.
+     */
+    public Optional<byte[]> findSamples(int sessionId) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_SAMPLES_SQL)) {
+
+            preparedStatement.setInt(1, sessionId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                if (rs.next()) {
+                    byte[] samples = rs.getBytes("samples");
+                    FIND_SAMPLES_TIMER.addRows(1);
+                    Audit.record(AuditOperation.PROGRESS_READ, rs.getInt("user_id"), 1);
+                    return Optional.of(samples);
+                }
+            }
+        } catch (SQLException e) {
+            FIND_SAMPLES_TIMER.markError();
+            System.err.println("Error reading exercise session samples: " + e.getMessage());
+        } finally {
+            FIND_SAMPLES_TIMER.recordSince(start);
+        }
+        return Optional.empty();
+    }
+
+    private static void readSessions(PreparedStatement preparedStatement, List<ExerciseSession> sessions) throws SQLException {
+        try (ResultSet rs = preparedStatement.executeQuery()) {
+            while (rs.next()) {
+                sessions.add(new ExerciseSession(rs.getInt("session_id"), rs.getInt("progress_id"), rs.getInt("user_id"),
+                        rs.getTimestamp("started_at").toLocalDateTime(), rs.getLong("duration_micros"),
+                        rs.getLong("sample_count"), rs.getLong("dropped_samples"), rs.getInt("encoded_bytes")));
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.model.CmasItemScores;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.util.VarInt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Encodes the raw test_progress rows of one user and bucket into the rows blob of
+ * test_progress_archive, and back.
+ *
+ * Rows are written in time order as varint deltas (progress ID, timestamp in millis) plus the
+ * score, then deflated. Daily tests of one user differ by about a day and a few IDs, so a
+ * row takes 5-6 bytes before compression instead of a table row with its index entries.
+ * Version 2 adds the packed item scores (0 if none) as a varint after the score; version 1
+ * blobs are still decoded, without item scores.
+ */
+final class ProgressArchiveCodec {
+
+    private static final int FORMAT_VERSION = 2;
+
+    // Private constructor to prevent instantiation of this utility class.
+    private ProgressArchiveCodec() { }
+
+    /**
+     * @param rows The rows of one user, in time order.
+     */
+    static byte[] encode(List<TestProgress> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + rows.size() * 4);
+        try (OutputStream out = new DeflaterOutputStream(bytes)) {
+            VarInt.writeUnsigned(out, FORMAT_VERSION);
+            VarInt.writeUnsigned(out, rows.size());
+            long previousId = 0;
+            long previousMillis = 0;
+            for (TestProgress row : rows) {
+                long millis = row.getTestTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+                VarInt.writeSigned(out, row.getProgressId() - previousId);
+                VarInt.writeSigned(out, millis - previousMillis);
+                VarInt.writeUnsigned(out, row.getCmasScore());
+                VarInt.writeUnsigned(out, row.getItemScores() != null ? row.getItemScores().toPacked() : 0);
+                previousId = row.getProgressId();
+                previousMillis = millis;
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<TestProgress> decode(int userId, byte[] blob) throws IOException {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(blob))) {
+            long version = VarInt.readUnsigned(in);
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("Unknown archive format version " + version);
+            }
+            int count = (int) VarInt.readUnsigned(in);
+            List<TestProgress> rows = new ArrayList<>(count);
+            long id = 0;
+            long millis = 0;
+            for (int i = 0; i < count; i++) {
+                id += VarInt.readSigned(in);
+                millis += VarInt.readSigned(in);
+                int score = (int) VarInt.readUnsigned(in);
+                long packed = version >= 2 ? VarInt.readUnsigned(in) : 0;
+                TestProgress row = new TestProgress((int) id, userId,
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC), score);
+                if (packed != 0) {
+                    row.setItemScores(CmasItemScores.fromPacked(packed));
+                }
+                rows.add(row);
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.audit.Audit;
+import com.pokemedquest.audit.AuditOperation;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.CohortStats;
+import com.pokemedquest.model.PatientSummary;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One open read transaction from a SnapshotReader. All its queries see the database at the
+ * same point in time. Not thread-safe; close it as soon as the report is done.
+ */
+public class ReadSnapshot implements AutoCloseable {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer FIND_PATIENT_SUMMARIES_TIMER = Metrics.timer("ReadSnapshot.findPatientSummaries");
+    private static final Timer FIND_COHORT_STATS_TIMER = Metrics.timer("ReadSnapshot.findCohortStats");
+
+    // SQL query strings
+    private static final String SELECT_PATIENT_SUMMARIES_SQL =
+            "SELECT u.id, u.username, a.avatar_name, a.level, t.tests, t.avg_score, t.last_test "
+            + "FROM users u "
+            + "LEFT JOIN avatars a ON a.user_id = u.id "
+            + "LEFT JOIN (SELECT user_id, SUM(tests) AS tests, SUM(score_sum) * 1.0 / SUM(tests) AS avg_score, MAX(last_test) AS last_test "
+            + "           FROM (SELECT user_id, COUNT(*) AS tests, SUM(cmas_score) AS score_sum, MAX(test_timestamp) AS last_test "
+            + "                 FROM test_progress GROUP BY user_id "
+            + "                 UNION ALL SELECT user_id, tests, score_sum, last_test_at FROM test_progress_rollup) "
+            + "           GROUP BY user_id) t ON t.user_id = u.id "
+            + "WHERE u.role = 'child' ORDER BY u.username";
+
+    private final SnapshotReader reader;
+    private final Connection connection;
+    private boolean closed = false;
+
+    ReadSnapshot(SnapshotReader reader, Connection connection) {
+        this.reader = reader;
+        this.connection = connection;
+    }
+
+    /**
+     * Lists every patient (role "child") with their avatar and test summary.
+     *
+     * @return An Optional containing the summaries ordered by username, or empty on error
+     *         (a partial list would not match the cohort totals of the same snapshot).
+     */
+    public Optional<List<PatientSummary>> findPatientSummaries() {
+        long start = System.nanoTime();
+        List<PatientSummary> patients = new ArrayList<>();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_PATIENT_SUMMARIES_SQL);
+             ResultSet rs = preparedStatement.executeQuery()) {
+
+            while (rs.next()) {
+                Timestamp lastTest = rs.getTimestamp("last_test");
+                patients.add(new PatientSummary(rs.getInt("id"), rs.getString("username"), rs.getString("avatar_name"),
+                        rs.getInt("level"), rs.getInt("tests"), rs.getDouble("avg_score"),
+                        lastTest != null ? lastTest.toLocalDateTime() : null));
+            }
+            FIND_PATIENT_SUMMARIES_TIMER.addRows(patients.size());
+            Audit.record(AuditOperation.PROGRESS_READ_ALL, Audit.ALL_USERS, patients.size());
+        } catch (SQLException e) {
+            FIND_PATIENT_SUMMARIES_TIMER.markError();
+            System.err.println("Error reading patient summaries: " + e.getMessage());
+            return Optional.empty();
+        } finally {
+            FIND_PATIENT_SUMMARIES_TIMER.recordSince(start);
+        }
+        return Optional.of(patients);
+    }
+
+    /**
+     * Computes summary statistics over all test results.
+     *
+     * @return An Optional containing the statistics, or empty on error.
+     */
+    public Optional<CohortStats> findCohortStats() {
+        long start = System.nanoTime();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(TestProgressDao.SELECT_COHORT_STATS_SQL);
+             ResultSet rs = preparedStatement.executeQuery()) {
+
+            if (rs.next()) {
+                long tests = rs.getLong("tests");
+                FIND_COHORT_STATS_TIMER.addRows(1);
+                return Optional.of(tests == 0 ? CohortStats.empty()
+                        : new CohortStats(rs.getLong("patients"), tests, rs.getLong("score_sum"),
+                                          rs.getInt("min_score"), rs.getInt("max_score")));
+            }
+        } catch (SQLException e) {
+            FIND_COHORT_STATS_TIMER.markError();
+            System.err.println("Error computing cohort statistics: " + e.getMessage());
+        } finally {
+            FIND_COHORT_STATS_TIMER.recordSince(start);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Ends the read transaction.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            reader.release(connection);
+        }
+    }
+}
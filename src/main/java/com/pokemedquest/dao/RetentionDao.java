@@ -0,0 +1,321 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.audit.Audit;
+import com.pokemedquest.audit.AuditOperation;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.ProgressRollup;
+import com.pokemedquest.model.TestProgress;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * RetentionDao (Data Access Object) for the rolled-up history: the test_progress_rollup
+ * summaries and the compressed raw rows in test_progress_archive.
+ *
+ * compactBatch() moves raw test_progress rows older than a cutoff into both tables, one
+ * bounded batch per transaction, so the application keeps writing between batches.
+ */
+public class RetentionDao {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer COMPACT_BATCH_TIMER = Metrics.timer("RetentionDao.compactBatch");
+    private static final Timer FIND_ROLLUPS_BY_USER_ID_TIMER = Metrics.timer("RetentionDao.findRollupsByUserId");
+    private static final Timer FIND_LATEST_ROLLUP_TIMER = Metrics.timer("RetentionDao.findLatestRollup");
+    private static final Timer FIND_ROLLUPS_BETWEEN_TIMER = Metrics.timer("RetentionDao.findRollupsBetween");
+    private static final Timer FIND_ARCHIVED_PROGRESS_TIMER = Metrics.timer("RetentionDao.findArchivedProgress");
+
+    // SQL query strings
+    // Skips rows with a change a known sync peer has not acknowledged yet: the export reads the
+    // row itself (see SyncDao.exportChanges), so it would be gone before it was shipped
+    private static final String SELECT_EXPIRED_PROGRESS_SQL = "SELECT progress_id, user_id, test_timestamp, cmas_score, cmas_items FROM test_progress "
+            + "WHERE test_timestamp < ? AND progress_id NOT IN (SELECT row_id FROM change_log WHERE entity = '" + ChangeLog.TEST_PROGRESS + "' "
+            + "AND seq > (SELECT COALESCE(MIN(acked_seq), 9223372036854775807) FROM sync_peers)) ORDER BY progress_id LIMIT ?";
+    private static final String UPSERT_ROLLUP_SQL = "INSERT INTO test_progress_rollup "
+            + "(user_id, bucket_start, granularity, tests, min_score, max_score, score_sum, last_score, last_test_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (user_id, bucket_start, granularity) DO UPDATE SET "
+            + "tests = tests + excluded.tests, min_score = MIN(min_score, excluded.min_score), "
+            + "max_score = MAX(max_score, excluded.max_score), score_sum = score_sum + excluded.score_sum, "
+            + "last_score = CASE WHEN excluded.last_test_at >= last_test_at THEN excluded.last_score ELSE last_score END, "
+            + "last_test_at = MAX(last_test_at, excluded.last_test_at)";
+    private static final String INSERT_ARCHIVE_SQL = "INSERT INTO test_progress_archive (user_id, bucket_start, row_count, rows) VALUES (?, ?, ?, ?)";
+    private static final String DELETE_PROGRESS_SQL = "DELETE FROM test_progress WHERE progress_id = ?";
+    private static final String SELECT_ROLLUPS_COLUMNS = "SELECT user_id, bucket_start, granularity, tests, min_score, max_score, "
+            + "score_sum, last_score, last_test_at FROM test_progress_rollup ";
+    private static final String SELECT_ROLLUPS_BY_USER_SQL = SELECT_ROLLUPS_COLUMNS
+            + "WHERE user_id = ? ORDER BY bucket_start DESC";
+    private static final String SELECT_LATEST_ROLLUP_SQL = SELECT_ROLLUPS_COLUMNS
+            + "WHERE user_id = ? ORDER BY bucket_start DESC LIMIT 1";
+    private static final String SELECT_ROLLUPS_BETWEEN_SQL = SELECT_ROLLUPS_COLUMNS
+            + "WHERE user_id = ? AND bucket_start < ? AND last_test_at >= ? ORDER BY bucket_start DESC";
+    // Package-private: TestProgressDao reads it with the raw rows (findCompleteProgressByUserId, findItemScoresByUserId)
+    static final String SELECT_ARCHIVE_BY_USER_SQL = "SELECT rows FROM test_progress_archive WHERE user_id = ? ORDER BY bucket_start, archive_id";
+
+    private final String databaseUrl; // null: whatever DatabaseManager currently points at
+
+    /**
+     * Creates a RetentionDao for the application database.
+     */
+    public RetentionDao() {
+        this(null);
+    }
+
+    /**
+     * Creates a RetentionDao for a specific database, e.g. one shard.
+     * @param databaseUrl The JDBC URL of the database.
+     */
+    public RetentionDao(String databaseUrl) {
+        this.databaseUrl = databaseUrl;
+    }
+
+    /**
+     * Rolls up and archives at most batchSize raw test results taken before the cutoff, then
+     * deletes them, all in one transaction. The deletions, the users whose rollups changed and
+     * the new archive rows are written to change_log, so incremental backups carry them. Rows that some sync peer has not acknowledged yet are
+     * left alone until it has; a peer that stops syncing therefore holds back compaction of
+     * everything written since its last sync (remove it from sync_peers to release them).
+     *
+     * @param cutoff Results taken before this are compacted.
+     * @param granularity The bucket length of the rollups.
+     * @param batchSize The maximum number of rows to compact.
+     * @return The number of rows compacted (less than batchSize once nothing is left), or -1 on error.
+     */
+    public int compactBatch(LocalDateTime cutoff, ProgressRollup.Granularity granularity, int batchSize) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false);
+            try {
+                List<TestProgress> expired = new ArrayList<>();
+                try (PreparedStatement select = connection.prepareStatement(SELECT_EXPIRED_PROGRESS_SQL)) {
+                    select.setTimestamp(1, Timestamp.valueOf(cutoff));
+                    select.setInt(2, batchSize);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            TestProgress progress = new TestProgress(rs.getInt("progress_id"), rs.getInt("user_id"),
+                                    rs.getTimestamp("test_timestamp").toLocalDateTime(), rs.getInt("cmas_score"));
+                            progress.setItemScores(TestProgressDao.readItemScores(rs));
+                            expired.add(progress);
+                        }
+                    }
+                }
+                if (expired.isEmpty()) {
+                    connection.commit();
+                    return 0;
+                }
+
+                // user ID -> bucket start -> rows
+                Map<Integer, TreeMap<LocalDateTime, List<TestProgress>>> buckets = new HashMap<>();
+                for (TestProgress row : expired) {
+                    buckets.computeIfAbsent(row.getUserId(), user -> new TreeMap<>())
+                           .computeIfAbsent(granularity.bucketStart(row.getTestTimestamp()), bucket -> new ArrayList<>())
+                           .add(row);
+                }
+                try (PreparedStatement upsertRollup = connection.prepareStatement(UPSERT_ROLLUP_SQL);
+                     PreparedStatement insertArchive = connection.prepareStatement(INSERT_ARCHIVE_SQL);
+                     PreparedStatement delete = connection.prepareStatement(DELETE_PROGRESS_SQL)) {
+                    for (Map.Entry<Integer, TreeMap<LocalDateTime, List<TestProgress>>> user : buckets.entrySet()) {
+                        for (Map.Entry<LocalDateTime, List<TestProgress>> bucket : user.getValue().entrySet()) {
+                            List<TestProgress> rows = bucket.getValue();
+                            rows.sort(Comparator.comparing(TestProgress::getTestTimestamp).thenComparing(TestProgress::getProgressId));
+                            bindRollup(upsertRollup, user.getKey(), bucket.getKey(), granularity, rows);
+                            upsertRollup.addBatch();
+                            insertArchive.setInt(1, user.getKey());
+                            insertArchive.setTimestamp(2, Timestamp.valueOf(bucket.getKey()));
+                            insertArchive.setInt(3, rows.size());
+                            insertArchive.setBytes(4, ProgressArchiveCodec.encode(rows));
+                            insertArchive.addBatch();
+                        }
+                    }
+                    List<Integer> progressIds = new ArrayList<>(expired.size());
+                    for (TestProgress row : expired) {
+                        delete.setInt(1, row.getProgressId());
+                        delete.addBatch();
+                        progressIds.add(row.getProgressId());
+                    }
+                    int archiveRows = 0;
+                    for (TreeMap<LocalDateTime, List<TestProgress>> userBuckets : buckets.values()) {
+                        archiveRows += userBuckets.size();
+                    }
+                    upsertRollup.executeBatch();
+                    insertArchive.executeBatch();
+                    // IDs within one transaction are consecutive, ending at the last inserted rowid
+                    int firstArchiveId = DatabaseManager.lastInsertRowId(connection) - archiveRows + 1;
+                    delete.executeBatch();
+                    ChangeLog.recordAll(connection, ChangeLog.TEST_PROGRESS, progressIds);
+                    ChangeLog.recordAll(connection, ChangeLog.TEST_PROGRESS_ROLLUP, buckets.keySet());
+                    ChangeLog.recordRange(connection, ChangeLog.TEST_PROGRESS_ARCHIVE, firstArchiveId, archiveRows);
+                }
+                connection.commit();
+                COMPACT_BATCH_TIMER.addRows(expired.size());
+                return expired.size();
+            } catch (SQLException | IOException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException | IOException e) {
+            COMPACT_BATCH_TIMER.markError();
+            System.err.println("Error compacting test progress: " + e.getMessage());
+            return -1;
+        } finally {
+            COMPACT_BATCH_TIMER.recordSince(start);
+        }
+    }
+
+    private static void bindRollup(PreparedStatement preparedStatement, int userId, LocalDateTime bucketStart,
+                                   ProgressRollup.Granularity granularity, List<TestProgress> rows) throws SQLException {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        long sum = 0;
+        for (TestProgress row : rows) {
+            min = Math.min(min, row.getCmasScore());
+            max = Math.max(max, row.getCmasScore());
+            sum += row.getCmasScore();
+        }
+        TestProgress last = rows.get(rows.size() - 1); // Rows are in time order
+        preparedStatement.setInt(1, userId);
+        preparedStatement.setTimestamp(2, Timestamp.valueOf(bucketStart));
+        preparedStatement.setString(3, granularity.name());
+        preparedStatement.setInt(4, rows.size());
+        preparedStatement.setInt(5, min);
+        preparedStatement.setInt(6, max);
+        preparedStatement.setLong(7, sum);
+        preparedStatement.setInt(8, last.getCmasScore());
+        preparedStatement.setTimestamp(9, Timestamp.valueOf(last.getTestTimestamp()));
+    }
+
+    /**
+     * Finds all rollups of a user.
+     *
+     * @param userId The ID of the user.
+     * @return The rollups, most recent bucket first (may be empty).
+     */
+    public List<ProgressRollup> findRollupsByUserId(int userId) {
+        long start = System.nanoTime();
+        List<ProgressRollup> rollups = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ROLLUPS_BY_USER_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            readRollups(preparedStatement, rollups);
+            FIND_ROLLUPS_BY_USER_ID_TIMER.addRows(rollups.size());
+            Audit.record(AuditOperation.PROGRESS_READ, userId, rollups.size());
+        } catch (SQLException e) {
+            FIND_ROLLUPS_BY_USER_ID_TIMER.markError();
+            System.err.println("Error finding rollups by user ID: " + e.getMessage());
+        } finally {
+            FIND_ROLLUPS_BY_USER_ID_TIMER.recordSince(start);
+        }
+        return rollups;
+    }
+
+    /**
+     * Finds the most recent rollup of a user, whose last score is the latest result that is
+     * no longer in test_progress.
+     *
+     * @param userId The ID of the user.
+     * @return An Optional containing the rollup, or empty if the user has none or on error.
+     */
+    public Optional<ProgressRollup> findLatestRollup(int userId) {
+        long start = System.nanoTime();
+        List<ProgressRollup> rollups = new ArrayList<>(1);
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_LATEST_ROLLUP_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            readRollups(preparedStatement, rollups);
+            FIND_LATEST_ROLLUP_TIMER.addRows(rollups.size());
+            Audit.record(AuditOperation.PROGRESS_READ, userId, rollups.size());
+        } catch (SQLException e) {
+            FIND_LATEST_ROLLUP_TIMER.markError();
+            System.err.println("Error finding latest rollup: " + e.getMessage());
+        } finally {
+            FIND_LATEST_ROLLUP_TIMER.recordSince(start);
+        }
+        return rollups.isEmpty() ? Optional.empty() : Optional.of(rollups.get(0));
+    }
+
+    /**
+     * Finds the rollups of a user with tests in a time range. A bucket that only partly
+     * overlaps the range is included whole.
+     *
+     * @param userId The ID of the user.
+     * @param from Inclusive start of the range.
+     * @param to Exclusive end of the range.
+     * @return The rollups, most recent bucket first (may be empty).
+     */
+    public List<ProgressRollup> findRollupsBetween(int userId, LocalDateTime from, LocalDateTime to) {
+        long start = System.nanoTime();
+        List<ProgressRollup> rollups = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ROLLUPS_BETWEEN_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setTimestamp(2, Timestamp.valueOf(to));
+            preparedStatement.setTimestamp(3, Timestamp.valueOf(from));
+            readRollups(preparedStatement, rollups);
+            FIND_ROLLUPS_BETWEEN_TIMER.addRows(rollups.size());
+            Audit.record(AuditOperation.PROGRESS_READ, userId, rollups.size());
+        } catch (SQLException e) {
+            FIND_ROLLUPS_BETWEEN_TIMER.markError();
+            System.err.println("Error finding rollups in range: " + e.getMessage());
+        } finally {
+            FIND_ROLLUPS_BETWEEN_TIMER.recordSince(start);
+        }
+        return rollups;
+    }
+
+    private static void readRollups(PreparedStatement preparedStatement, List<ProgressRollup> rollups) throws SQLException {
+        try (ResultSet rs = preparedStatement.executeQuery()) {
+            while (rs.next()) {
+                rollups.add(new ProgressRollup(rs.getInt("user_id"),
+                        ProgressRollup.Granularity.valueOf(rs.getString("granularity")),
+                        rs.getTimestamp("bucket_start").toLocalDateTime(), rs.getInt("tests"),
+                        rs.getInt("min_score"), rs.getInt("max_score"), rs.getLong("score_sum"),
+                        rs.getInt("last_score"), rs.getTimestamp("last_test_at").toLocalDateTime()));
+            }
+        }
+    }
+
+    /**
+     * Decompresses the archived raw results of a user, e.g. for a clinical audit.
+     *
+     * @param userId The ID of the user.
+     * @return The archived results, oldest bucket first (may be empty).
+     */
+    public List<TestProgress> findArchivedProgress(int userId) {
+        long start = System.nanoTime();
+        List<TestProgress> progressList = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ARCHIVE_BY_USER_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    progressList.addAll(ProgressArchiveCodec.decode(userId, rs.getBytes("rows")));
+                }
+            }
+            FIND_ARCHIVED_PROGRESS_TIMER.addRows(progressList.size());
+            Audit.record(AuditOperation.PROGRESS_READ, userId, progressList.size());
+        } catch (SQLException | IOException e) {
+            FIND_ARCHIVED_PROGRESS_TIMER.markError();
+            System.err.println("Error reading archived progress: " + e.getMessage());
+        } finally {
+            FIND_ARCHIVED_PROGRESS_TIMER.recordSince(start);
+        }
+        return progressList;
+    }
+}
@@ -0,0 +1,129 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * ShardDirectoryDao (Data Access Object) for the user_directory table of the shard
+ * directory database: which shard holds which username. That database has its own schema
+ * (directory-schema.sql, see DatabaseManager.initializeDirectorySchema).
+ */
+public class ShardDirectoryDao {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer FIND_SHARD_BY_USERNAME_TIMER = Metrics.timer("ShardDirectoryDao.findShardByUsername");
+    private static final Timer REGISTER_TIMER = Metrics.timer("ShardDirectoryDao.register");
+    private static final Timer REGISTER_ALL_TIMER = Metrics.timer("ShardDirectoryDao.registerAll");
+
+    // SQL query strings
+    private static final String SELECT_SHARD_BY_USERNAME_SQL = "SELECT shard FROM user_directory WHERE username = ?";
+    private static final String UPSERT_ENTRY_SQL = "INSERT OR REPLACE INTO user_directory (username, user_id, shard) VALUES (?, ?, ?)";
+
+    private final String databaseUrl;
+
+    /**
+     * @param databaseUrl The JDBC URL of the directory database.
+     */
+    public ShardDirectoryDao(String databaseUrl) {
+        this.databaseUrl = databaseUrl;
+    }
+
+    /**
+     * Looks up the shard a username lives on.
+     *
+     * @param username The username.
+     * @return The shard index, or empty if the username is not in the directory (or on error).
+     */
+    public OptionalInt findShardByUsername(String username) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_SHARD_BY_USERNAME_SQL)) {
+
+            preparedStatement.setString(1, username);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                if (rs.next()) {
+                    FIND_SHARD_BY_USERNAME_TIMER.addRows(1);
+                    return OptionalInt.of(rs.getInt("shard"));
+                }
+            }
+        } catch (SQLException e) {
+            FIND_SHARD_BY_USERNAME_TIMER.markError();
+            System.err.println("Error looking up shard of user: " + e.getMessage());
+        } finally {
+            FIND_SHARD_BY_USERNAME_TIMER.recordSince(start);
+        }
+        return OptionalInt.empty();
+    }
+
+    /**
+     * Records where a user lives.
+     *
+     * @param username The username.
+     * @param userId The user's ID in its shard.
+     * @param shard The shard index.
+     * @return true if the entry was saved, false otherwise.
+     */
+    public boolean register(String username, int userId, int shard) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_ENTRY_SQL)) {
+
+            preparedStatement.setString(1, username);
+            preparedStatement.setInt(2, userId);
+            preparedStatement.setInt(3, shard);
+            REGISTER_TIMER.addRows(preparedStatement.executeUpdate());
+            return true;
+        } catch (SQLException e) {
+            REGISTER_TIMER.markError();
+            System.err.println("Error registering user in shard directory: " + e.getMessage());
+        } finally {
+            REGISTER_TIMER.recordSince(start);
+        }
+        return false;
+    }
+
+    /**
+     * Records where many users live, in a single transaction.
+     *
+     * @param userIdsByUsername User IDs keyed by username.
+     * @param shard The shard they all live on.
+     * @return true if all entries were saved, false otherwise (nothing is saved in that case).
+     */
+    public boolean registerAll(Map<String, Integer> userIdsByUsername, int shard) {
+        if (userIdsByUsername.isEmpty()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_ENTRY_SQL)) {
+                for (Map.Entry<String, Integer> entry : userIdsByUsername.entrySet()) {
+                    preparedStatement.setString(1, entry.getKey());
+                    preparedStatement.setInt(2, entry.getValue());
+                    preparedStatement.setInt(3, shard);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                connection.commit();
+                REGISTER_ALL_TIMER.addRows(userIdsByUsername.size());
+                return true;
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            REGISTER_ALL_TIMER.markError();
+            System.err.println("Error registering users in shard directory: " + e.getMessage());
+        } finally {
+            REGISTER_ALL_TIMER.recordSince(start);
+        }
+        return false;
+    }
+}
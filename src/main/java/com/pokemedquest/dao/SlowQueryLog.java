@@ -0,0 +1,135 @@
+package com.pokemedquest.dao;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous log of slow SQL statements.
+ *
+ * Slow statements are put on a bounded queue and written by a single background
+ * thread, so a slow query never gets slower because of logging. For each entry the
+ * writer also runs EXPLAIN QUERY PLAN (on its own, untraced connection, with the
+ * statement's original bind values) so the log shows why the statement was slow.
+ * If the queue is full, entries are dropped and counted rather than blocking the caller.
+ */
+public class SlowQueryLog implements AutoCloseable {
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private final Path file;
+    private final BlockingQueue<SqlTracer.StatementTrace> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * Creates the log and starts its writer thread.
+     * @param file The file to append slow statements to.
+     */
+    public SlowQueryLog(Path file) {
+        this.file = file;
+        this.writer = new Thread(this::writeLoop, "slow-query-log");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a slow statement for logging. Never blocks.
+     * @param trace The statement's trace.
+     */
+    void submit(SqlTracer.StatementTrace trace) {
+        if (!queue.offer(trace)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return The number of entries dropped because the queue was full.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void writeLoop() {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            while (running || !queue.isEmpty()) {
+                SqlTracer.StatementTrace trace = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (trace == null) {
+                    continue;
+                }
+                out.write(LocalDateTime.now() + " SLOW " + trace);
+                out.newLine();
+                for (String planLine : explain(trace)) {
+                    out.write("    plan: " + planLine);
+                    out.newLine();
+                }
+                long droppedSoFar = dropped.getAndSet(0);
+                if (droppedSoFar > 0) {
+                    out.write(LocalDateTime.now() + " DROPPED " + droppedSoFar + " slow-query entries (queue full)");
+                    out.newLine();
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing slow query log: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs EXPLAIN QUERY PLAN for the traced statement, on the database it ran on.
+     * Uses DriverManager directly: going through DatabaseManager would trace (and possibly log) the EXPLAIN itself.
+     */
+    private List<String> explain(SqlTracer.StatementTrace trace) {
+        List<String> plan = new ArrayList<>();
+        if (trace.sql == null) {
+            return plan;
+        }
+        try (Connection connection = DriverManager.getConnection(trace.databaseUrl);
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + trace.sql)) {
+            for (int i = 0; i < trace.parameterValues.length; i++) {
+                boolean isNull = "NULL".equals(trace.parameterShape[i]);
+                statement.setObject(i + 1, isNull ? null : trace.parameterValues[i]);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(rs.getString("detail"));
+                }
+            }
+        } catch (SQLException e) {
+            plan.add("(could not explain: " + e.getMessage() + ")");
+        }
+        return plan;
+    }
+
+    /**
+     * Stops the writer after it has written everything already queued.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Hands out consistent read snapshots of the database on one dedicated, long-lived reader
+ * connection, for admin reports and exports.
+ *
+ * The database runs in WAL mode (see DatabaseManager.initializeSchema), where a read
+ * transaction sees the database as of its first read and neither blocks writers nor is
+ * blocked by them. Every query made through one ReadSnapshot therefore sees the same point
+ * in time, however long the report takes and however many scores are recorded meanwhile.
+ *
+ * Only one snapshot is open at a time; openSnapshot() waits for the previous one to be closed.
+ * Note that WAL checkpoints cannot complete past an open snapshot, so keep reports bounded.
+ */
+public class SnapshotReader implements AutoCloseable {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer OPEN_SNAPSHOT_TIMER = Metrics.timer("SnapshotReader.openSnapshot");
+
+    // Any read pins the snapshot; the schema table always exists
+    private static final String PIN_SNAPSHOT_SQL = "SELECT COUNT(*) FROM sqlite_master";
+
+    private final String databaseUrl; // null: whatever DatabaseManager currently points at
+    private final Semaphore permit = new Semaphore(1); // Held while a snapshot is open
+    private Connection connection; // Guarded by permit; opened on first use, reopened after errors
+
+    /**
+     * Creates a reader for the application database.
+     */
+    public SnapshotReader() {
+        this(null);
+    }
+
+    /**
+     * Creates a reader for a specific database.
+     * @param databaseUrl The JDBC URL of the database.
+     */
+    public SnapshotReader(String databaseUrl) {
+        this.databaseUrl = databaseUrl;
+    }
+
+    /**
+     * Starts a read transaction. The caller must close the snapshot (try-with-resources).
+     *
+     * @return An Optional containing the snapshot, or empty on error.
+     */
+    public Optional<ReadSnapshot> openSnapshot() {
+        long start = System.nanoTime();
+        try {
+            permit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            OPEN_SNAPSHOT_TIMER.markError();
+            return Optional.empty();
+        }
+        try {
+            if (connection == null || connection.isClosed()) {
+                connection = DatabaseManager.getConnection(databaseUrl);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA query_only = 1"); // A report must never write by accident
+                }
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement pin = connection.prepareStatement(PIN_SNAPSHOT_SQL);
+                 ResultSet rs = pin.executeQuery()) {
+                rs.next();
+            }
+            return Optional.of(new ReadSnapshot(this, connection));
+        } catch (SQLException e) {
+            OPEN_SNAPSHOT_TIMER.markError();
+            System.err.println("Error opening read snapshot: " + e.getMessage());
+            closeConnection();
+            permit.release();
+            return Optional.empty();
+        } finally {
+            OPEN_SNAPSHOT_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Ends the read transaction of a snapshot and lets the next one open. Called by ReadSnapshot.close().
+     */
+    void release(Connection snapshotConnection) {
+        try {
+            snapshotConnection.rollback(); // Nothing was written; just ends the transaction
+            snapshotConnection.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Error ending read snapshot: " + e.getMessage());
+            closeConnection(); // Start over with a fresh connection next time
+        } finally {
+            permit.release();
+        }
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing reader connection: " + e.getMessage());
+            }
+            connection = null;
+        }
+    }
+
+    /**
+     * Closes the reader connection, after waiting for an open snapshot to be closed.
+     */
+    @Override
+    public void close() {
+        permit.acquireUninterruptibly();
+        try {
+            closeConnection();
+        } finally {
+            permit.release();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.pokemedquest.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional SQL tracing for connections handed out by DatabaseManager.
+ *
+ * When tracing is enabled, DatabaseManager wraps each connection in a dynamic proxy.
+ * Statements created from it record their SQL text, the shape of their bind parameters
+ * (e.g. "[INTEGER, TEXT]"), execution time, fetch time (time spent in ResultSet.next())
+ * and row count. Any statement slower than the threshold is handed to the asynchronous
+ * {@link SlowQueryLog}, which also captures its EXPLAIN QUERY PLAN.
+ *
+ * When tracing is disabled (the default), DatabaseManager returns the driver's connection
+ * untouched; the only cost is one volatile read per getConnection().
+ *
+ * Can be switched on at startup with system properties:
+ *   -Dpokemedquest.sql.trace=true
+ *   -Dpokemedquest.sql.slowMillis=100            (threshold, default 100 ms)
+ *   -Dpokemedquest.sql.slowLog=data/slow-queries.log
+ */
+public final class SqlTracer {
+
+    private static volatile boolean enabled = false;
+    private static volatile long slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(100);
+    private static volatile SlowQueryLog slowQueryLog;
+
+    static {
+        if (Boolean.getBoolean("pokemedquest.sql.trace")) {
+            enable(Long.getLong("pokemedquest.sql.slowMillis", 100),
+                    new SlowQueryLog(Paths.get(System.getProperty("pokemedquest.sql.slowLog", "data/slow-queries.log"))));
+        }
+    }
+
+    // Private constructor to prevent instantiation of this utility class.
+    private SqlTracer() { }
+
+    /**
+     * Turns tracing on for all connections opened from now on.
+     *
+     * @param slowThresholdMillis Statements taking at least this long (execute + fetch) are logged.
+     * @param log Where slow statements are written.
+     */
+    public static synchronized void enable(long slowThresholdMillis, SlowQueryLog log) {
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        slowQueryLog = log;
+        enabled = true;
+    }
+
+    /**
+     * Turns tracing off for connections opened from now on and stops the slow-query log.
+     */
+    public static synchronized void disable() {
+        enabled = false;
+        if (slowQueryLog != null) {
+            slowQueryLog.close();
+            slowQueryLog = null;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Wraps a connection so that its statements are traced. The connection's URL is recorded
+     * with every trace, so SlowQueryLog explains a statement on the database (e.g. the shard
+     * or in-memory database) it actually ran on.
+     * @param connection The driver's connection.
+     * @return A tracing proxy around it.
+     * @throws SQLException if the connection's URL cannot be read.
+     */
+    static Connection wrap(Connection connection) throws SQLException {
+        String databaseUrl;
+        try {
+            databaseUrl = connection.getMetaData().getURL();
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return (Connection) Proxy.newProxyInstance(SqlTracer.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new ConnectionHandler(connection, databaseUrl));
+    }
+
+    /**
+     * Called once per finished statement execution.
+     */
+    private static void finished(StatementTrace trace) {
+        SlowQueryLog log = slowQueryLog;
+        if (log != null && trace.totalNanos() >= slowThresholdNanos) {
+            log.submit(trace);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause(); // Let callers see the original SQLException
+        }
+    }
+
+    /**
+     * The measurements of one statement execution. Immutable once handed to the slow-query log.
+     */
+    public static final class StatementTrace {
+        final String databaseUrl; // JDBC URL of the connection the statement ran on
+        final String sql;
+        final String[] parameterShape;
+        final Object[] parameterValues;
+        final long executeNanos;
+        long fetchNanos;
+        long rows;
+
+        StatementTrace(String databaseUrl, String sql, String[] parameterShape, Object[] parameterValues, long executeNanos) {
+            this.databaseUrl = databaseUrl;
+            this.sql = sql;
+            this.parameterShape = parameterShape;
+            this.parameterValues = parameterValues;
+            this.executeNanos = executeNanos;
+        }
+
+        long totalNanos() {
+            return executeNanos + fetchNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "exec=%.3fms fetch=%.3fms rows=%d params=%s sql=%s",
+                    executeNanos / 1e6, fetchNanos / 1e6, rows, Arrays.toString(parameterShape), sql);
+        }
+    }
+
+    /**
+     * Intercepts statement creation; everything else goes straight to the real connection.
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final String databaseUrl;
+
+        ConnectionHandler(Connection target, String databaseUrl) {
+            this.target = target;
+            this.databaseUrl = databaseUrl;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlTracer.invoke(target, method, args);
+            String name = method.getName();
+            if (name.equals("prepareStatement") && result instanceof PreparedStatement) {
+                return Proxy.newProxyInstance(SqlTracer.class.getClassLoader(), new Class<?>[] {PreparedStatement.class},
+                        new StatementHandler((Statement) result, databaseUrl, (String) args[0]));
+            }
+            if (name.equals("createStatement") && result instanceof Statement) {
+                return Proxy.newProxyInstance(SqlTracer.class.getClassLoader(), new Class<?>[] {Statement.class},
+                        new StatementHandler((Statement) result, databaseUrl, null));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Records bind parameters and times execute* calls.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String databaseUrl;
+        private final String preparedSql; // null for plain Statements, where the SQL comes with execute()
+        private String[] shape = new String[0];
+        private Object[] values = new Object[0];
+        private int batchSize = 0;
+
+        StatementHandler(Statement target, String databaseUrl, String preparedSql) {
+            this.target = target;
+            this.databaseUrl = databaseUrl;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                recordParameter((Integer) args[0], name.substring(3), args[1]);
+                return SqlTracer.invoke(target, method, args);
+            }
+            if (name.equals("addBatch")) {
+                batchSize++;
+                return SqlTracer.invoke(target, method, args);
+            }
+            if (!name.startsWith("execute")) {
+                return SqlTracer.invoke(target, method, args);
+            }
+
+            String sql = preparedSql != null ? preparedSql : (args != null && args.length > 0 ? (String) args[0] : null);
+            long start = System.nanoTime();
+            Object result = SqlTracer.invoke(target, method, args);
+            StatementTrace trace = new StatementTrace(databaseUrl, sql, shape.clone(), values.clone(), System.nanoTime() - start);
+
+            if (result instanceof ResultSet) {
+                // Reported when the ResultSet is closed, once the fetch time is known
+                return Proxy.newProxyInstance(SqlTracer.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+                        new ResultSetHandler((ResultSet) result, trace));
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                trace.rows = ((Number) result).longValue();
+            } else if (result instanceof int[]) {
+                trace.rows = batchSize;
+                batchSize = 0;
+            }
+            finished(trace);
+            return result;
+        }
+
+        private void recordParameter(int index, String type, Object value) {
+            if (index > shape.length) {
+                shape = Arrays.copyOf(shape, index);
+                values = Arrays.copyOf(values, index);
+            }
+            shape[index - 1] = value == null ? "NULL" : type.toUpperCase();
+            values[index - 1] = value;
+        }
+    }
+
+    /**
+     * Times ResultSet.next() and counts rows; reports the trace on close().
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final StatementTrace trace;
+        private boolean reported = false;
+
+        ResultSetHandler(ResultSet target, StatementTrace trace) {
+            this.target = target;
+            this.trace = trace;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("next")) {
+                long start = System.nanoTime();
+                Object hasRow = SqlTracer.invoke(target, method, args);
+                trace.fetchNanos += System.nanoTime() - start;
+                if (Boolean.TRUE.equals(hasRow)) {
+                    trace.rows++;
+                }
+                return hasRow;
+            }
+            if (name.equals("close") && !reported) {
+                reported = true;
+                finished(trace);
+            }
+            return SqlTracer.invoke(target, method, args);
+        }
+    }
+}
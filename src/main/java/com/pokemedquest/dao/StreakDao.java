@@ -0,0 +1,145 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.Streak;
+import com.pokemedquest.model.StreakState;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * StreakDao (Data Access Object) for the per-user testing-streak state (user_streaks table).
+ */
+public class StreakDao {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer FIND_STREAK_BY_USER_ID_TIMER = Metrics.timer("StreakDao.findStreakByUserId");
+    private static final Timer SAVE_STREAK_TIMER = Metrics.timer("StreakDao.saveStreak");
+    private static final Timer SAVE_STREAKS_TIMER = Metrics.timer("StreakDao.saveStreaks");
+
+    // SQL query strings
+    private static final String SELECT_STREAK_BY_USER_SQL = "SELECT last_test_day, day_run_start, day_run, best_day_run, last_test_week, week_run_start, week_run, best_week_run FROM user_streaks WHERE user_id = ?";
+    private static final String UPSERT_STREAK_SQL = "INSERT OR REPLACE INTO user_streaks (user_id, last_test_day, day_run_start, day_run, best_day_run, last_test_week, week_run_start, week_run, best_week_run) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Finds the streak state of a user.
+     *
+     * @param userId The ID of the user.
+     * @return An Optional containing the StreakState, or empty if none was saved yet.
+     */
+    public Optional<StreakState> findStreakByUserId(int userId) {
+        long start = System.nanoTime();
+        StreakState state = null;
+        try (Connection connection = DatabaseManager.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_STREAK_BY_USER_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                if (rs.next()) {
+                    Streak daily = new Streak(toLocalDate(rs.getDate("last_test_day")), toLocalDate(rs.getDate("day_run_start")),
+                            rs.getInt("day_run"), rs.getInt("best_day_run"));
+                    Streak weekly = new Streak(toLocalDate(rs.getDate("last_test_week")), toLocalDate(rs.getDate("week_run_start")),
+                            rs.getInt("week_run"), rs.getInt("best_week_run"));
+                    state = new StreakState(userId, daily, weekly);
+                    FIND_STREAK_BY_USER_ID_TIMER.addRows(1);
+                }
+            }
+        } catch (SQLException e) {
+            FIND_STREAK_BY_USER_ID_TIMER.markError();
+            System.err.println("Error finding streak by user ID: " + e.getMessage());
+        } finally {
+            FIND_STREAK_BY_USER_ID_TIMER.recordSince(start);
+        }
+        return Optional.ofNullable(state);
+    }
+
+    /**
+     * Saves (inserts or replaces) the streak state of one user.
+     *
+     * @param state The state to save.
+     * @return true if it was saved, false otherwise.
+     */
+    public boolean saveStreak(StreakState state) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_STREAK_SQL)) {
+
+            bind(preparedStatement, state);
+            int affectedRows = preparedStatement.executeUpdate();
+            SAVE_STREAK_TIMER.addRows(affectedRows);
+            return affectedRows > 0;
+
+        } catch (SQLException e) {
+            SAVE_STREAK_TIMER.markError();
+            System.err.println("Error saving streak: " + e.getMessage());
+        } finally {
+            SAVE_STREAK_TIMER.recordSince(start);
+        }
+        return false;
+    }
+
+    /**
+     * Saves many streak states in a single transaction using a JDBC batch.
+     *
+     * @param states The states to save.
+     * @return true if all were saved, false otherwise (nothing is saved in that case).
+     */
+    public boolean saveStreaks(List<StreakState> states) {
+        if (states.isEmpty()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(UPSERT_STREAK_SQL)) {
+                for (StreakState state : states) {
+                    bind(preparedStatement, state);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                connection.commit();
+                SAVE_STREAKS_TIMER.addRows(states.size());
+                return true;
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            SAVE_STREAKS_TIMER.markError();
+            System.err.println("Error saving streaks in batch: " + e.getMessage());
+        } finally {
+            SAVE_STREAKS_TIMER.recordSince(start);
+        }
+        return false;
+    }
+
+    private static void bind(PreparedStatement preparedStatement, StreakState state) throws SQLException {
+        Streak daily = state.getDaily();
+        Streak weekly = state.getWeekly();
+        preparedStatement.setInt(1, state.getUserId());
+        preparedStatement.setDate(2, toSqlDate(daily.getLastPeriod()));
+        preparedStatement.setDate(3, toSqlDate(daily.getRunStart()));
+        preparedStatement.setInt(4, daily.getCurrentRun());
+        preparedStatement.setInt(5, daily.getBestRun());
+        preparedStatement.setDate(6, toSqlDate(weekly.getLastPeriod()));
+        preparedStatement.setDate(7, toSqlDate(weekly.getRunStart()));
+        preparedStatement.setInt(8, weekly.getCurrentRun());
+        preparedStatement.setInt(9, weekly.getBestRun());
+    }
+
+    private static Date toSqlDate(LocalDate date) {
+        return date == null ? null : Date.valueOf(date);
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date == null ? null : date.toLocalDate();
+    }
+}
@@ -0,0 +1,332 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.SyncDelta;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * SyncDao (Data Access Object) for delta sync between databases (change_log, sync_node, sync_peers).
+ *
+ * Exports read the rows named in change_log since the peer's last acknowledged sequence,
+ * so their cost follows the number of changes, not the size of the database. Imports match
+ * rows by natural key (username; user and test time) rather than by ID, which differs
+ * between databases, so applying the same delta twice changes nothing. Imported rows are
+ * not logged as changes of the receiving database, so they are never shipped back.
+ */
+public class SyncDao {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer GET_NODE_ID_TIMER = Metrics.timer("SyncDao.getNodeId");
+    private static final Timer EXPORT_CHANGES_TIMER = Metrics.timer("SyncDao.exportChanges");
+    private static final Timer APPLY_DELTA_TIMER = Metrics.timer("SyncDao.applyDelta");
+
+    // SQL query strings
+    private static final String SELECT_NODE_ID_SQL = "SELECT node_id FROM sync_node WHERE id = 1";
+    private static final String INSERT_NODE_ID_SQL = "INSERT OR IGNORE INTO sync_node (id, node_id) VALUES (1, ?)";
+    private static final String SELECT_PEER_SQL = "SELECT acked_seq, applied_seq FROM sync_peers WHERE peer_node = ?";
+    private static final String UPSERT_PEER_SQL = "INSERT INTO sync_peers (peer_node, acked_seq, applied_seq) VALUES (?, ?, ?) "
+            + "ON CONFLICT(peer_node) DO UPDATE SET acked_seq = MAX(acked_seq, excluded.acked_seq), applied_seq = MAX(applied_seq, excluded.applied_seq)";
+    private static final String SELECT_MAX_SEQ_SQL = "SELECT COALESCE(MAX(seq), 0) FROM change_log";
+    private static final String SELECT_CHANGED_ROWS_SQL = "SELECT DISTINCT entity, row_id FROM change_log WHERE seq > ? AND seq <= ?";
+    private static final String SELECT_USER_SQL = "SELECT id, username, password_hash, role FROM users WHERE id = ?";
+    private static final String SELECT_AVATAR_SQL = "SELECT avatar_id, user_id, avatar_name, color, accessory, level FROM avatars WHERE user_id = ?";
+    private static final String SELECT_PROGRESS_SQL = "SELECT progress_id, user_id, test_timestamp, cmas_score, cmas_items FROM test_progress WHERE progress_id = ?";
+    private static final String SELECT_USERNAME_SQL = "SELECT username FROM users WHERE id = ?";
+    private static final String SELECT_USER_ID_BY_USERNAME_SQL = "SELECT id FROM users WHERE username = ?";
+    private static final String UPSERT_USER_SQL = "INSERT INTO users (username, password_hash, role) VALUES (?, ?, ?) "
+            + "ON CONFLICT(username) DO UPDATE SET password_hash = excluded.password_hash, role = excluded.role, version = version + 1";
+    private static final String UPSERT_AVATAR_SQL = "INSERT INTO avatars (user_id, avatar_name, color, accessory, level) VALUES (?, ?, ?, ?, ?) "
+            + "ON CONFLICT(user_id) DO UPDATE SET avatar_name = excluded.avatar_name, color = excluded.color, "
+            + "accessory = excluded.accessory, level = excluded.level, version = version + 1";
+    private static final String INSERT_PROGRESS_IF_ABSENT_SQL = "INSERT INTO test_progress (user_id, test_timestamp, cmas_score, cmas_items) "
+            + "SELECT ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM test_progress WHERE user_id = ? AND test_timestamp = ?)";
+
+    /**
+     * Returns this database's sync identity, generating it on first use.
+     *
+     * @return An Optional containing the node ID, or empty on error.
+     */
+    public Optional<String> getNodeId() {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection()) {
+            return Optional.of(nodeId(connection));
+        } catch (SQLException e) {
+            GET_NODE_ID_TIMER.markError();
+            System.err.println("Error reading sync node ID: " + e.getMessage());
+        } finally {
+            GET_NODE_ID_TIMER.recordSince(start);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Collects every change the peer has not acknowledged yet.
+     * All reads happen in one transaction, so the delta is a consistent cut at toSeq.
+     *
+     * @param peerNode The node ID of the database the delta is for.
+     * @return An Optional containing the delta (possibly without rows), or empty on error.
+     */
+    public Optional<SyncDelta> exportChanges(String peerNode) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection()) {
+            String nodeId = nodeId(connection);
+            connection.setAutoCommit(false);
+            try {
+                long[] peer = peerState(connection, peerNode);
+                long toSeq = queryLong(connection, SELECT_MAX_SEQ_SQL);
+                SyncDelta delta = new SyncDelta(nodeId, peer[0], toSeq, peer[1]);
+
+                try (PreparedStatement changes = connection.prepareStatement(SELECT_CHANGED_ROWS_SQL);
+                     PreparedStatement selectUser = connection.prepareStatement(SELECT_USER_SQL);
+                     PreparedStatement selectAvatar = connection.prepareStatement(SELECT_AVATAR_SQL);
+                     PreparedStatement selectProgress = connection.prepareStatement(SELECT_PROGRESS_SQL)) {
+                    changes.setLong(1, peer[0]);
+                    changes.setLong(2, toSeq);
+                    try (ResultSet rs = changes.executeQuery()) {
+                        while (rs.next()) {
+                            addRow(delta, rs.getString("entity"), rs.getInt("row_id"), selectUser, selectAvatar, selectProgress);
+                        }
+                    }
+                }
+                addUsernames(connection, delta);
+                connection.commit();
+                EXPORT_CHANGES_TIMER.addRows(delta.getRowCount());
+                return Optional.of(delta);
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            EXPORT_CHANGES_TIMER.markError();
+            System.err.println("Error exporting changes: " + e.getMessage());
+        } finally {
+            EXPORT_CHANGES_TIMER.recordSince(start);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Applies a delta from a peer in a single transaction. A delta that was already
+     * applied only refreshes the acknowledgement; one that starts after a gap in what
+     * was applied so far is refused, since the changes in the gap would be lost.
+     *
+     * @param delta The delta to apply.
+     * @return true if the delta was applied (or already had been), false otherwise (nothing is changed in that case).
+     */
+    public boolean applyDelta(SyncDelta delta) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long appliedSeq = peerState(connection, delta.getSourceNode())[1];
+                if (delta.getFromSeq() > appliedSeq) {
+                    DatabaseManager.rollbackQuietly(connection);
+                    APPLY_DELTA_TIMER.markError();
+                    System.err.println("Refusing delta: it starts after sequence " + delta.getFromSeq()
+                            + " but only changes up to " + appliedSeq + " from " + delta.getSourceNode() + " were applied.");
+                    return false;
+                }
+                if (delta.getToSeq() > appliedSeq) {
+                    APPLY_DELTA_TIMER.addRows(applyRows(connection, delta));
+                }
+                try (PreparedStatement upsertPeer = connection.prepareStatement(UPSERT_PEER_SQL)) {
+                    upsertPeer.setString(1, delta.getSourceNode());
+                    upsertPeer.setLong(2, delta.getAckSeq());
+                    upsertPeer.setLong(3, delta.getToSeq());
+                    upsertPeer.executeUpdate();
+                }
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            APPLY_DELTA_TIMER.markError();
+            System.err.println("Error applying delta: " + e.getMessage());
+        } finally {
+            APPLY_DELTA_TIMER.recordSince(start);
+        }
+        return false;
+    }
+
+    /**
+     * Writes the delta's rows: users first, so avatars and tests can be mapped to local user IDs.
+     * @return The number of rows written.
+     */
+    private int applyRows(Connection connection, SyncDelta delta) throws SQLException {
+        int written = 0;
+        try (PreparedStatement upsertUser = connection.prepareStatement(UPSERT_USER_SQL)) {
+            for (User user : delta.getUsers()) {
+                upsertUser.setString(1, user.getUsername());
+                upsertUser.setString(2, user.getPasswordHash());
+                upsertUser.setString(3, user.getRole());
+                upsertUser.addBatch();
+            }
+            upsertUser.executeBatch();
+            written += delta.getUsers().size();
+        }
+
+        Map<Integer, Integer> localIds = new HashMap<>();
+        try (PreparedStatement selectId = connection.prepareStatement(SELECT_USER_ID_BY_USERNAME_SQL)) {
+            for (Map.Entry<Integer, String> entry : delta.getUsernames().entrySet()) {
+                selectId.setString(1, entry.getValue());
+                try (ResultSet rs = selectId.executeQuery()) {
+                    if (rs.next()) {
+                        localIds.put(entry.getKey(), rs.getInt(1));
+                    }
+                }
+            }
+        }
+
+        int skipped = 0;
+        try (PreparedStatement upsertAvatar = connection.prepareStatement(UPSERT_AVATAR_SQL)) {
+            for (Avatar avatar : delta.getAvatars()) {
+                Integer userId = localIds.get(avatar.getUserId());
+                if (userId == null) {
+                    skipped++;
+                    continue;
+                }
+                upsertAvatar.setInt(1, userId);
+                upsertAvatar.setString(2, avatar.getAvatarName());
+                upsertAvatar.setString(3, avatar.getColor());
+                upsertAvatar.setString(4, avatar.getAccessory());
+                upsertAvatar.setInt(5, avatar.getLevel());
+                upsertAvatar.addBatch();
+                written++;
+            }
+            upsertAvatar.executeBatch();
+        }
+        try (PreparedStatement insertProgress = connection.prepareStatement(INSERT_PROGRESS_IF_ABSENT_SQL)) {
+            for (TestProgress progress : delta.getProgress()) {
+                Integer userId = localIds.get(progress.getUserId());
+                if (userId == null) {
+                    skipped++;
+                    continue;
+                }
+                Timestamp timestamp = Timestamp.valueOf(progress.getTestTimestamp());
+                insertProgress.setInt(1, userId);
+                insertProgress.setTimestamp(2, timestamp);
+                insertProgress.setInt(3, progress.getCmasScore());
+                TestProgressDao.setItemScores(insertProgress, 4, progress.getItemScores());
+                insertProgress.setInt(5, userId);
+                insertProgress.setTimestamp(6, timestamp);
+                insertProgress.addBatch();
+                written++;
+            }
+            insertProgress.executeBatch();
+        }
+        if (skipped > 0) {
+            System.err.println("Skipped " + skipped + " avatar/test rows whose user is unknown here.");
+        }
+        return written;
+    }
+
+    private static void addRow(SyncDelta delta, String entity, int rowId, PreparedStatement selectUser,
+                               PreparedStatement selectAvatar, PreparedStatement selectProgress) throws SQLException {
+        if (ChangeLog.USERS.equals(entity)) {
+            selectUser.setInt(1, rowId);
+            try (ResultSet rs = selectUser.executeQuery()) {
+                if (rs.next()) {
+                    User user = new User(rs.getInt("id"), rs.getString("username"), rs.getString("password_hash"), rs.getString("role"));
+                    delta.getUsers().add(user);
+                    delta.getUsernames().put(user.getId(), user.getUsername());
+                }
+            }
+        } else if (ChangeLog.AVATARS.equals(entity)) {
+            selectAvatar.setInt(1, rowId);
+            try (ResultSet rs = selectAvatar.executeQuery()) {
+                if (rs.next()) {
+                    delta.getAvatars().add(new Avatar(rs.getInt("avatar_id"), rs.getInt("user_id"), rs.getString("avatar_name"),
+                            rs.getString("color"), rs.getString("accessory"), rs.getInt("level")));
+                }
+            }
+        } else if (ChangeLog.TEST_PROGRESS.equals(entity)) {
+            selectProgress.setInt(1, rowId);
+            try (ResultSet rs = selectProgress.executeQuery()) {
+                if (rs.next()) {
+                    TestProgress progress = new TestProgress(rs.getInt("progress_id"), rs.getInt("user_id"),
+                            rs.getTimestamp("test_timestamp").toLocalDateTime(), rs.getInt("cmas_score"));
+                    progress.setItemScores(TestProgressDao.readItemScores(rs));
+                    delta.getProgress().add(progress);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the username of every user an avatar or test in the delta belongs to.
+     */
+    private static void addUsernames(Connection connection, SyncDelta delta) throws SQLException {
+        Map<Integer, String> usernames = delta.getUsernames();
+        try (PreparedStatement selectUsername = connection.prepareStatement(SELECT_USERNAME_SQL)) {
+            for (Avatar avatar : delta.getAvatars()) {
+                addUsername(selectUsername, usernames, avatar.getUserId());
+            }
+            for (TestProgress progress : delta.getProgress()) {
+                addUsername(selectUsername, usernames, progress.getUserId());
+            }
+        }
+    }
+
+    private static void addUsername(PreparedStatement selectUsername, Map<Integer, String> usernames, int userId) throws SQLException {
+        if (usernames.containsKey(userId)) {
+            return;
+        }
+        selectUsername.setInt(1, userId);
+        try (ResultSet rs = selectUsername.executeQuery()) {
+            if (rs.next()) {
+                usernames.put(userId, rs.getString(1));
+            }
+        }
+    }
+
+    private static String nodeId(Connection connection) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_NODE_ID_SQL)) {
+            insert.setString(1, UUID.randomUUID().toString());
+            insert.executeUpdate(); // No-op once the ID exists
+        }
+        try (PreparedStatement select = connection.prepareStatement(SELECT_NODE_ID_SQL);
+             ResultSet rs = select.executeQuery()) {
+            if (rs.next()) {
+                return rs.getString(1);
+            }
+        }
+        throw new SQLException("sync_node has no row");
+    }
+
+    /**
+     * @return {acked_seq, applied_seq} for the peer, zeros if it was never synced with.
+     */
+    private static long[] peerState(Connection connection, String peerNode) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(SELECT_PEER_SQL)) {
+            select.setString(1, peerNode);
+            try (ResultSet rs = select.executeQuery()) {
+                if (rs.next()) {
+                    return new long[] {rs.getLong("acked_seq"), rs.getLong("applied_seq")};
+                }
+            }
+        }
+        return new long[] {0, 0};
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(sql);
+             ResultSet rs = select.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
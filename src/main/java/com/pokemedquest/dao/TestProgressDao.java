@@ -1,16 +1,27 @@
 package com.pokemedquest.dao;
 
+import com.pokemedquest.audit.Audit;
+import com.pokemedquest.audit.AuditOperation;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.CmasItemScores;
+import com.pokemedquest.model.CohortStats;
 import com.pokemedquest.model.TestProgress; // Import the TestProgress model
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.sql.Timestamp; // Needed for conversion with LocalDateTime
 import java.time.LocalDateTime; // Used in the model
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -19,14 +30,73 @@ import java.util.Optional;
  */
 public class TestProgressDao {
 
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer CREATE_TEST_PROGRESS_TIMER = Metrics.timer("TestProgressDao.createTestProgress");
+    private static final Timer FIND_PROGRESS_BETWEEN_TIMER = Metrics.timer("TestProgressDao.findProgressBetween");
+    private static final Timer FIND_PROGRESS_BY_USER_ID_TIMER = Metrics.timer("TestProgressDao.findProgressByUserId");
+    private static final Timer FIND_LATEST_PROGRESS_BY_USER_ID_TIMER = Metrics.timer("TestProgressDao.findLatestProgressByUserId");
+    private static final Timer FIND_COMPLETE_PROGRESS_BY_USER_ID_TIMER = Metrics.timer("TestProgressDao.findCompleteProgressByUserId");
+    private static final Timer FIND_ITEM_SCORES_BY_USER_ID_TIMER = Metrics.timer("TestProgressDao.findItemScoresByUserId");
+    private static final Timer FIND_PROGRESS_BY_ID_TIMER = Metrics.timer("TestProgressDao.findProgressById");
+    private static final Timer CREATE_TEST_PROGRESS_BATCH_TIMER = Metrics.timer("TestProgressDao.createTestProgressBatch");
+    private static final Timer FIND_USER_IDS_WITH_PROGRESS_TIMER = Metrics.timer("TestProgressDao.findUserIdsWithProgress");
+    private static final Timer COUNT_TESTS_BY_USER_TIMER = Metrics.timer("TestProgressDao.countTestsByUser");
+    private static final Timer FIND_COHORT_STATS_TIMER = Metrics.timer("TestProgressDao.findCohortStats");
+    private static final Timer FIND_LAST_TEST_TIMES_TIMER = Metrics.timer("TestProgressDao.findLastTestTimes");
+    private static final Timer STREAM_TREND_POINTS_TIMER = Metrics.timer("TestProgressDao.streamTrendPoints");
+
     // SQL query strings - Adjust table/column names as needed
-    private static final String INSERT_PROGRESS_SQL = "INSERT INTO test_progress (user_id, test_timestamp, cmas_score) VALUES (?, ?, ?)";
-    private static final String SELECT_PROGRESS_BY_USER_SQL = "SELECT progress_id, user_id, test_timestamp, cmas_score FROM test_progress WHERE user_id = ? ORDER BY test_timestamp DESC"; // Order by most recent
-    private static final String SELECT_PROGRESS_BY_ID_SQL = "SELECT progress_id, user_id, test_timestamp, cmas_score FROM test_progress WHERE progress_id = ?";
+    private static final String INSERT_PROGRESS_SQL = "INSERT INTO test_progress (user_id, test_timestamp, cmas_score, cmas_items) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_PROGRESS_BY_USER_SQL = "SELECT progress_id, user_id, test_timestamp, cmas_score, cmas_items FROM test_progress WHERE user_id = ? ORDER BY test_timestamp DESC"; // Order by most recent
+    private static final String SELECT_LATEST_PROGRESS_BY_USER_SQL = "SELECT progress_id, user_id, test_timestamp, cmas_score, cmas_items FROM test_progress "
+            + "WHERE user_id = ? ORDER BY test_timestamp DESC LIMIT 1";
+    private static final String SELECT_PROGRESS_BY_ID_SQL = "SELECT progress_id, user_id, test_timestamp, cmas_score, cmas_items FROM test_progress WHERE progress_id = ?";
+    // Includes patients whose results have all been archived by RetentionJob
+    private static final String SELECT_USER_IDS_WITH_PROGRESS_SQL = "SELECT user_id FROM test_progress "
+            + "UNION SELECT user_id FROM test_progress_archive ORDER BY user_id";
+    private static final String SELECT_PROGRESS_BETWEEN_SQL = "SELECT progress_id, user_id, test_timestamp, cmas_score, cmas_items FROM test_progress "
+            + "WHERE user_id = ? AND test_timestamp >= ? AND test_timestamp < ? ORDER BY test_timestamp DESC";
+    private static final String SELECT_ITEM_SCORES_BY_USER_SQL = "SELECT progress_id, user_id, test_timestamp, cmas_score, cmas_items FROM test_progress "
+            + "WHERE user_id = ? AND cmas_items IS NOT NULL ORDER BY test_timestamp"; // Oldest first, for trends
+    // Counts and statistics include the tests already rolled up by RetentionJob
+    private static final String COUNT_TESTS_BY_USER_SQL = "SELECT user_id, SUM(tests) AS tests FROM ("
+            + "SELECT user_id, COUNT(*) AS tests FROM test_progress GROUP BY user_id "
+            + "UNION ALL SELECT user_id, tests FROM test_progress_rollup) GROUP BY user_id";
+    private static final String SELECT_LAST_TEST_TIMES_SQL = "SELECT user_id, MAX(last_test_at) AS last_test_at FROM ("
+            + "SELECT user_id, MAX(test_timestamp) AS last_test_at FROM test_progress GROUP BY user_id "
+            + "UNION ALL SELECT user_id, last_test_at FROM test_progress_rollup) GROUP BY user_id";
+    // A user's rollups and raw results as one timeline, oldest first: both sides are read in index
+    // order and merged, with a rollup ahead of a raw result at the same time
+    private static final String COUNT_TREND_POINTS_SQL = "SELECT (SELECT COUNT(*) FROM test_progress_rollup WHERE user_id = ?) "
+            + "+ (SELECT COUNT(*) FROM test_progress WHERE user_id = ?) AS points";
+    private static final String SELECT_TREND_POINTS_SQL = "SELECT bucket_start AS at, score_sum * 1.0 / tests AS score, "
+            + "min_score AS low, max_score AS high FROM test_progress_rollup WHERE user_id = ? "
+            + "UNION ALL SELECT test_timestamp, cmas_score, cmas_score, cmas_score FROM test_progress WHERE user_id = ? ORDER BY at";
+    // Package-private: ReadSnapshot runs it inside its read transaction
+    static final String SELECT_COHORT_STATS_SQL = "SELECT COUNT(DISTINCT user_id) AS patients, COALESCE(SUM(tests), 0) AS tests, "
+            + "COALESCE(SUM(score_sum), 0) AS score_sum, MIN(min_score) AS min_score, MAX(max_score) AS max_score FROM ("
+            + "SELECT user_id, 1 AS tests, cmas_score AS score_sum, cmas_score AS min_score, cmas_score AS max_score FROM test_progress "
+            + "UNION ALL SELECT user_id, tests, score_sum, min_score, max_score FROM test_progress_rollup)";
     // Add UPDATE and DELETE SQL statements later if needed
     // private static final String UPDATE_PROGRESS_SQL = "UPDATE test_progress SET user_id = ?, test_timestamp = ?, cmas_score = ? WHERE progress_id = ?";
     // private static final String DELETE_PROGRESS_SQL = "DELETE FROM test_progress WHERE progress_id = ?";
 
+    private final String databaseUrl; // null: whatever DatabaseManager currently points at
+
+    /**
+     * Creates a TestProgressDao for the application database.
+     */
+    public TestProgressDao() {
+        this(null);
+    }
+
+    /**
+     * Creates a TestProgressDao for a specific database, e.g. one shard (see com.pokemedquest.shard).
+     * @param databaseUrl The JDBC URL of the database that holds the test progress records.
+     */
+    public TestProgressDao(String databaseUrl) {
+        this.databaseUrl = databaseUrl;
+    }
 
     /**
      * Creates a new test progress record in the database.
@@ -36,26 +106,42 @@ public class TestProgressDao {
      * @return true if the record was created successfully, false otherwise.
      */
     public boolean createTestProgress(TestProgress progress) {
-        try (Connection connection = DatabaseManager.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_PROGRESS_SQL, Statement.RETURN_GENERATED_KEYS)) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false); // The row and its change_log entry commit together
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_PROGRESS_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
-            preparedStatement.setInt(1, progress.getUserId());
-            // Convert LocalDateTime to java.sql.Timestamp for JDBC
-            preparedStatement.setTimestamp(2, Timestamp.valueOf(progress.getTestTimestamp()));
-            preparedStatement.setInt(3, progress.getCmasScore());
+                preparedStatement.setInt(1, progress.getUserId());
+                // Convert LocalDateTime to java.sql.Timestamp for JDBC
+                preparedStatement.setTimestamp(2, Timestamp.valueOf(progress.getTestTimestamp()));
+                preparedStatement.setInt(3, progress.getCmasScore());
+                setItemScores(preparedStatement, 4, progress.getItemScores());
 
-            int affectedRows = preparedStatement.executeUpdate();
+                int affectedRows = preparedStatement.executeUpdate();
+                CREATE_TEST_PROGRESS_TIMER.addRows(affectedRows);
 
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        progress.setProgressId(generatedKeys.getInt(1)); // Set the generated ID
-                        return true;
+                if (affectedRows > 0) {
+                    try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            int progressId = generatedKeys.getInt(1);
+                            ChangeLog.record(connection, ChangeLog.TEST_PROGRESS, progressId);
+                            connection.commit();
+                            progress.setProgressId(progressId); // Set the generated ID
+                            Audit.record(AuditOperation.PROGRESS_CREATE, progress.getUserId(), progressId);
+                            return true;
+                        }
                     }
                 }
+                DatabaseManager.rollbackQuietly(connection);
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
             }
         } catch (SQLException e) {
+            CREATE_TEST_PROGRESS_TIMER.markError();
             System.err.println("Error creating test progress record: " + e.getMessage());
+        } finally {
+            CREATE_TEST_PROGRESS_TIMER.recordSince(start);
         }
         return false;
     }
@@ -67,8 +153,9 @@ public class TestProgressDao {
      * @return A List of TestProgress objects (potentially empty).
      */
     public List<TestProgress> findProgressByUserId(int userId) {
+        long start = System.nanoTime();
         List<TestProgress> progressList = new ArrayList<>();
-        try (Connection connection = DatabaseManager.getConnection();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_PROGRESS_BY_USER_SQL)) {
 
             preparedStatement.setInt(1, userId);
@@ -83,15 +170,257 @@ public class TestProgressDao {
                     int cmasScore = rs.getInt("cmas_score");
 
                     TestProgress progress = new TestProgress(progressId, userId, timestamp, cmasScore);
+                    progress.setItemScores(readItemScores(rs));
                     progressList.add(progress);
                 }
+                FIND_PROGRESS_BY_USER_ID_TIMER.addRows(progressList.size());
+                Audit.record(AuditOperation.PROGRESS_READ, userId, progressList.size());
             }
         } catch (SQLException e) {
+            FIND_PROGRESS_BY_USER_ID_TIMER.markError();
             System.err.println("Error finding progress records by user ID: " + e.getMessage());
+        } finally {
+            FIND_PROGRESS_BY_USER_ID_TIMER.recordSince(start);
         }
         return progressList; // Return the list (might be empty)
     }
 
+    /**
+     * Receives the points of {@link #streamTrendPoints}.
+     */
+    public interface TrendPointVisitor {
+        /**
+         * Called once before the first point.
+         * @param count The number of points that will follow.
+         */
+        void begin(long count);
+
+        /**
+         * Called for each point, oldest first. A raw result has its score as low and high;
+         * a rollup is at the start of its bucket, with its mean, min and max score.
+         */
+        void point(LocalDateTime at, double score, double low, double high);
+    }
+
+    /**
+     * Streams a user's rollups and raw results to a visitor, merged oldest first, without
+     * holding them in memory. The count and the points are read in one transaction, so the
+     * count announced to the visitor is exact.
+     *
+     * @param userId The ID of the user.
+     * @param visitor Receives the count, then every point.
+     * @return true if every point was read, false on error (the visitor may have seen some).
+     */
+    public boolean streamTrendPoints(int userId, TrendPointVisitor visitor) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false);
+            int points = 0;
+            try (PreparedStatement count = connection.prepareStatement(COUNT_TREND_POINTS_SQL);
+                 PreparedStatement select = connection.prepareStatement(SELECT_TREND_POINTS_SQL)) {
+
+                count.setInt(1, userId);
+                count.setInt(2, userId);
+                try (ResultSet rs = count.executeQuery()) {
+                    rs.next();
+                    visitor.begin(rs.getLong("points"));
+                }
+                select.setInt(1, userId);
+                select.setInt(2, userId);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        visitor.point(rs.getTimestamp("at").toLocalDateTime(), rs.getDouble("score"),
+                                rs.getDouble("low"), rs.getDouble("high"));
+                        points++;
+                    }
+                }
+            } finally {
+                DatabaseManager.rollbackQuietly(connection); // Nothing was written; just ends the transaction
+            }
+            STREAM_TREND_POINTS_TIMER.addRows(points);
+            Audit.record(AuditOperation.PROGRESS_READ, userId, points);
+            return true;
+        } catch (SQLException e) {
+            STREAM_TREND_POINTS_TIMER.markError();
+            System.err.println("Error streaming trend points: " + e.getMessage());
+            return false;
+        } finally {
+            STREAM_TREND_POINTS_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Finds the most recent raw test progress record of a user.
+     *
+     * @param userId The ID of the user.
+     * @return An Optional containing the record, or empty if there is none or on error.
+     */
+    public Optional<TestProgress> findLatestProgressByUserId(int userId) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_LATEST_PROGRESS_BY_USER_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                if (rs.next()) {
+                    TestProgress progress = new TestProgress(rs.getInt("progress_id"), userId,
+                            rs.getTimestamp("test_timestamp").toLocalDateTime(), rs.getInt("cmas_score"));
+                    progress.setItemScores(readItemScores(rs));
+                    FIND_LATEST_PROGRESS_BY_USER_ID_TIMER.addRows(1);
+                    Audit.record(AuditOperation.PROGRESS_READ, userId, 1);
+                    return Optional.of(progress);
+                }
+            }
+        } catch (SQLException e) {
+            FIND_LATEST_PROGRESS_BY_USER_ID_TIMER.markError();
+            System.err.println("Error finding latest progress record: " + e.getMessage());
+        } finally {
+            FIND_LATEST_PROGRESS_BY_USER_ID_TIMER.recordSince(start);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds all test results of a user, most recent first, including the ones RetentionJob has
+     * moved into test_progress_archive (findProgressByUserId only sees the raw rows that are
+     * left). Anything rebuilt from a user's history, such as streaks or achievement counters,
+     * must read it through here. Both tables are read in one transaction, so a compaction
+     * running at the same time neither hides rows nor returns them twice.
+     *
+     * @param userId The ID of the user whose results to find.
+     * @return An Optional containing the List of TestProgress objects (empty list if there are
+     *         none), or empty on error so callers skip the user instead of rebuilding from nothing.
+     */
+    public Optional<List<TestProgress>> findCompleteProgressByUserId(int userId) {
+        long start = System.nanoTime();
+        List<TestProgress> progressList = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement archived = connection.prepareStatement(RetentionDao.SELECT_ARCHIVE_BY_USER_SQL);
+                 PreparedStatement raw = connection.prepareStatement(SELECT_PROGRESS_BY_USER_SQL)) {
+
+                archived.setInt(1, userId);
+                try (ResultSet rs = archived.executeQuery()) {
+                    while (rs.next()) {
+                        progressList.addAll(ProgressArchiveCodec.decode(userId, rs.getBytes("rows")));
+                    }
+                }
+                raw.setInt(1, userId);
+                try (ResultSet rs = raw.executeQuery()) {
+                    while (rs.next()) {
+                        TestProgress progress = new TestProgress(rs.getInt("progress_id"), userId,
+                                rs.getTimestamp("test_timestamp").toLocalDateTime(), rs.getInt("cmas_score"));
+                        progress.setItemScores(readItemScores(rs));
+                        progressList.add(progress);
+                    }
+                }
+            } finally {
+                DatabaseManager.rollbackQuietly(connection); // Nothing was written; just ends the transaction
+            }
+            // Backfilled raw rows can be older than archived ones
+            progressList.sort(Comparator.comparing(TestProgress::getTestTimestamp).reversed());
+            FIND_COMPLETE_PROGRESS_BY_USER_ID_TIMER.addRows(progressList.size());
+            Audit.record(AuditOperation.PROGRESS_READ, userId, progressList.size());
+        } catch (SQLException | IOException e) {
+            FIND_COMPLETE_PROGRESS_BY_USER_ID_TIMER.markError();
+            System.err.println("Error finding complete progress records by user ID: " + e.getMessage());
+            return Optional.empty(); // A partial or missing history would rebuild wrong state
+        } finally {
+            FIND_COMPLETE_PROGRESS_BY_USER_ID_TIMER.recordSince(start);
+        }
+        return Optional.of(progressList);
+    }
+
+    /**
+     * Finds the test progress records of a user taken in a time range, ordered by most recent first.
+     *
+     * @param userId The ID of the user whose progress records to find.
+     * @param from Inclusive start of the range.
+     * @param to Exclusive end of the range.
+     * @return A List of TestProgress objects (potentially empty).
+     */
+    public List<TestProgress> findProgressBetween(int userId, LocalDateTime from, LocalDateTime to) {
+        long start = System.nanoTime();
+        List<TestProgress> progressList = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_PROGRESS_BETWEEN_SQL)) {
+
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setTimestamp(2, Timestamp.valueOf(from));
+            preparedStatement.setTimestamp(3, Timestamp.valueOf(to));
+
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    TestProgress progress = new TestProgress(rs.getInt("progress_id"), userId,
+                            rs.getTimestamp("test_timestamp").toLocalDateTime(), rs.getInt("cmas_score"));
+                    progress.setItemScores(readItemScores(rs));
+                    progressList.add(progress);
+                }
+                FIND_PROGRESS_BETWEEN_TIMER.addRows(progressList.size());
+                Audit.record(AuditOperation.PROGRESS_READ, userId, progressList.size());
+            }
+        } catch (SQLException e) {
+            FIND_PROGRESS_BETWEEN_TIMER.markError();
+            System.err.println("Error finding progress records in range: " + e.getMessage());
+        } finally {
+            FIND_PROGRESS_BETWEEN_TIMER.recordSince(start);
+        }
+        return progressList;
+    }
+
+    /**
+     * Finds the test progress records of a user that have per-item scores, oldest first,
+     * including the ones RetentionJob has archived (the archive keeps item scores, see
+     * ProgressArchiveCodec). Records with only a total score are left out. Both tables are
+     * read in one transaction, like findCompleteProgressByUserId.
+     *
+     * @param userId The ID of the user whose progress records to find.
+     * @return A List of TestProgress objects with item scores (empty if there are none or on error).
+     */
+    public List<TestProgress> findItemScoresByUserId(int userId) {
+        long start = System.nanoTime();
+        List<TestProgress> progressList = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement archived = connection.prepareStatement(RetentionDao.SELECT_ARCHIVE_BY_USER_SQL);
+                 PreparedStatement raw = connection.prepareStatement(SELECT_ITEM_SCORES_BY_USER_SQL)) {
+
+                archived.setInt(1, userId);
+                try (ResultSet rs = archived.executeQuery()) {
+                    while (rs.next()) {
+                        for (TestProgress progress : ProgressArchiveCodec.decode(userId, rs.getBytes("rows"))) {
+                            if (progress.getItemScores() != null) {
+                                progressList.add(progress);
+                            }
+                        }
+                    }
+                }
+                raw.setInt(1, userId);
+                try (ResultSet rs = raw.executeQuery()) {
+                    while (rs.next()) {
+                        TestProgress progress = new TestProgress(rs.getInt("progress_id"), userId,
+                                rs.getTimestamp("test_timestamp").toLocalDateTime(), rs.getInt("cmas_score"));
+                        progress.setItemScores(readItemScores(rs));
+                        progressList.add(progress);
+                    }
+                }
+            } finally {
+                DatabaseManager.rollbackQuietly(connection); // Nothing was written; just ends the transaction
+            }
+            // Backfilled raw rows can be older than archived ones
+            progressList.sort(Comparator.comparing(TestProgress::getTestTimestamp));
+            FIND_ITEM_SCORES_BY_USER_ID_TIMER.addRows(progressList.size());
+            Audit.record(AuditOperation.PROGRESS_READ, userId, progressList.size());
+        } catch (SQLException | IOException e) {
+            FIND_ITEM_SCORES_BY_USER_ID_TIMER.markError();
+            System.err.println("Error finding item scores by user ID: " + e.getMessage());
+            progressList.clear(); // A partial history would show wrong trends
+        } finally {
+            FIND_ITEM_SCORES_BY_USER_ID_TIMER.recordSince(start);
+        }
+        return progressList;
+    }
+
     /**
      * Finds a specific test progress record by its unique ID.
      *
@@ -99,8 +428,9 @@ public class TestProgressDao {
      * @return An Optional containing the TestProgress if found, otherwise an empty Optional.
      */
     public Optional<TestProgress> findProgressById(int progressId) {
+        long start = System.nanoTime();
         TestProgress progress = null;
-        try (Connection connection = DatabaseManager.getConnection();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_PROGRESS_BY_ID_SQL)) {
 
             preparedStatement.setInt(1, progressId);
@@ -112,14 +442,194 @@ public class TestProgressDao {
                     LocalDateTime timestamp = rs.getTimestamp("test_timestamp").toLocalDateTime();
                     int cmasScore = rs.getInt("cmas_score");
                     progress = new TestProgress(progressId, userId, timestamp, cmasScore);
+                    progress.setItemScores(readItemScores(rs));
+                    FIND_PROGRESS_BY_ID_TIMER.addRows(1);
+                    Audit.record(AuditOperation.PROGRESS_READ, userId, 1);
                 }
             }
         } catch (SQLException e) {
+            FIND_PROGRESS_BY_ID_TIMER.markError();
             System.err.println("Error finding progress record by ID: " + e.getMessage());
+        } finally {
+            FIND_PROGRESS_BY_ID_TIMER.recordSince(start);
         }
         return Optional.ofNullable(progress);
     }
 
+    /**
+     * Creates many test progress records in a single transaction using a JDBC batch.
+     * On success every TestProgress gets its generated ID.
+     *
+     * @param progressList The records to save.
+     * @return true if all records were created, false otherwise (nothing is saved in that case).
+     */
+    public boolean createTestProgressBatch(List<TestProgress> progressList) {
+        if (progressList.isEmpty()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_PROGRESS_SQL)) {
+                for (TestProgress progress : progressList) {
+                    preparedStatement.setInt(1, progress.getUserId());
+                    preparedStatement.setTimestamp(2, Timestamp.valueOf(progress.getTestTimestamp()));
+                    preparedStatement.setInt(3, progress.getCmasScore());
+                    setItemScores(preparedStatement, 4, progress.getItemScores());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                int id = DatabaseManager.lastInsertRowId(connection) - progressList.size() + 1;
+                ChangeLog.recordRange(connection, ChangeLog.TEST_PROGRESS, id, progressList.size());
+                connection.commit();
+                for (TestProgress progress : progressList) {
+                    progress.setProgressId(id++);
+                    Audit.record(AuditOperation.PROGRESS_CREATE, progress.getUserId(), progress.getProgressId());
+                }
+                CREATE_TEST_PROGRESS_BATCH_TIMER.addRows(progressList.size());
+                return true;
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            CREATE_TEST_PROGRESS_BATCH_TIMER.markError();
+            System.err.println("Error creating test progress records in batch: " + e.getMessage());
+        } finally {
+            CREATE_TEST_PROGRESS_BATCH_TIMER.recordSince(start);
+        }
+        return false;
+    }
+
+    /**
+     * Finds the IDs of all users that have at least one test result, raw or archived.
+     *
+     * @return A List of user IDs in ascending order (potentially empty).
+     */
+    public List<Integer> findUserIdsWithProgress() {
+        long start = System.nanoTime();
+        List<Integer> userIds = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_USER_IDS_WITH_PROGRESS_SQL);
+             ResultSet rs = preparedStatement.executeQuery()) {
+
+            while (rs.next()) {
+                userIds.add(rs.getInt("user_id"));
+            }
+            FIND_USER_IDS_WITH_PROGRESS_TIMER.addRows(userIds.size());
+            Audit.record(AuditOperation.PROGRESS_READ_ALL, Audit.ALL_USERS, userIds.size());
+        } catch (SQLException e) {
+            FIND_USER_IDS_WITH_PROGRESS_TIMER.markError();
+            System.err.println("Error finding users with progress records: " + e.getMessage());
+        } finally {
+            FIND_USER_IDS_WITH_PROGRESS_TIMER.recordSince(start);
+        }
+        return userIds;
+    }
+
+    /**
+     * Counts the test progress records of every user that has any.
+     *
+     * @return A Map from user ID to number of tests (potentially empty).
+     */
+    public Map<Integer, Integer> countTestsByUser() {
+        long start = System.nanoTime();
+        Map<Integer, Integer> counts = new HashMap<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(COUNT_TESTS_BY_USER_SQL);
+             ResultSet rs = preparedStatement.executeQuery()) {
+
+            while (rs.next()) {
+                counts.put(rs.getInt("user_id"), rs.getInt("tests"));
+            }
+            COUNT_TESTS_BY_USER_TIMER.addRows(counts.size());
+            Audit.record(AuditOperation.PROGRESS_READ_ALL, Audit.ALL_USERS, counts.size());
+        } catch (SQLException e) {
+            COUNT_TESTS_BY_USER_TIMER.markError();
+            System.err.println("Error counting tests by user: " + e.getMessage());
+        } finally {
+            COUNT_TESTS_BY_USER_TIMER.recordSince(start);
+        }
+        return counts;
+    }
+
+    /**
+     * Finds when each user last took a test, rolled-up results included.
+     *
+     * @return The time of the latest test by user ID; users without tests are absent.
+     * Empty on error.
+     */
+    public Map<Integer, LocalDateTime> findLastTestTimes() {
+        long start = System.nanoTime();
+        Map<Integer, LocalDateTime> lastTests = new HashMap<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_LAST_TEST_TIMES_SQL);
+             ResultSet rs = preparedStatement.executeQuery()) {
+
+            while (rs.next()) {
+                lastTests.put(rs.getInt("user_id"), rs.getTimestamp("last_test_at").toLocalDateTime());
+            }
+            FIND_LAST_TEST_TIMES_TIMER.addRows(lastTests.size());
+            Audit.record(AuditOperation.PROGRESS_READ_ALL, Audit.ALL_USERS, lastTests.size());
+        } catch (SQLException e) {
+            FIND_LAST_TEST_TIMES_TIMER.markError();
+            System.err.println("Error finding last test times: " + e.getMessage());
+        } finally {
+            FIND_LAST_TEST_TIMES_TIMER.recordSince(start);
+        }
+        return lastTests;
+    }
+
+    /**
+     * Computes summary statistics over all test results in this database.
+     *
+     * @return An Optional containing the statistics, or empty on error.
+     */
+    public Optional<CohortStats> findCohortStats() {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_COHORT_STATS_SQL);
+             ResultSet rs = preparedStatement.executeQuery()) {
+
+            if (rs.next()) {
+                long tests = rs.getLong("tests");
+                CohortStats stats = tests == 0 ? CohortStats.empty()
+                        : new CohortStats(rs.getLong("patients"), tests, rs.getLong("score_sum"),
+                                          rs.getInt("min_score"), rs.getInt("max_score"));
+                FIND_COHORT_STATS_TIMER.addRows(1);
+                Audit.record(AuditOperation.PROGRESS_READ_ALL, Audit.ALL_USERS, (int) Math.min(tests, Integer.MAX_VALUE));
+                return Optional.of(stats);
+            }
+        } catch (SQLException e) {
+            FIND_COHORT_STATS_TIMER.markError();
+            System.err.println("Error computing cohort statistics: " + e.getMessage());
+        } finally {
+            FIND_COHORT_STATS_TIMER.recordSince(start);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Binds the packed item scores, or NULL if none were recorded.
+     * Package-private: SyncDao inserts test_progress rows too.
+     */
+    static void setItemScores(PreparedStatement preparedStatement, int index, CmasItemScores itemScores) throws SQLException {
+        if (itemScores == null || itemScores.toPacked() == 0) {
+            preparedStatement.setNull(index, Types.INTEGER);
+        } else {
+            preparedStatement.setLong(index, itemScores.toPacked());
+        }
+    }
+
+    /**
+     * Reads the cmas_items column of the current row.
+     * @return The item scores, or null if the column is NULL.
+     */
+    static CmasItemScores readItemScores(ResultSet rs) throws SQLException {
+        long packed = rs.getLong("cmas_items");
+        return rs.wasNull() ? null : CmasItemScores.fromPacked(packed);
+    }
+
     // --- TODO: Implement update and delete methods if required ---
     /*
     public boolean updateTestProgress(TestProgress progress) {
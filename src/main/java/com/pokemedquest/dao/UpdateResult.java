@@ -0,0 +1,11 @@
+package com.pokemedquest.dao;
+
+/**
+ * The outcome of an update that only applies if the row still has the version it was read
+ * with (optimistic concurrency, see AvatarDao.updateAvatarIfVersion).
+ */
+public enum UpdateResult {
+    UPDATED,   // Saved; the object now carries the new version
+    STALE,     // Someone else updated (or deleted) the row since it was read: re-read, merge and retry
+    FAILED     // Database error, already logged
+}
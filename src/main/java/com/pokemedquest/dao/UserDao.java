@@ -1,5 +1,9 @@
 package com.pokemedquest.dao;
 
+import com.pokemedquest.audit.Audit;
+import com.pokemedquest.audit.AuditOperation;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
 import com.pokemedquest.model.User; // Import the User model
 
 import java.sql.Connection;
@@ -17,16 +21,43 @@ import java.util.Optional; // Used for find methods that might not return a resu
  */
 public class UserDao {
 
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer CREATE_USER_TIMER = Metrics.timer("UserDao.createUser");
+    private static final Timer FIND_USER_BY_USERNAME_TIMER = Metrics.timer("UserDao.findUserByUsername");
+    private static final Timer FIND_USER_BY_ID_TIMER = Metrics.timer("UserDao.findUserById");
+    private static final Timer CREATE_USERS_TIMER = Metrics.timer("UserDao.createUsers");
+    private static final Timer FIND_USERS_BY_ROLE_TIMER = Metrics.timer("UserDao.findUsersByRole");
+    private static final Timer UPDATE_USER_IF_VERSION_TIMER = Metrics.timer("UserDao.updateUserIfVersion");
+
     // SQL query strings - defined as constants
     // Assumes a table named 'users' with the specified columns
     private static final String INSERT_USER_SQL = "INSERT INTO users (username, password_hash, role) VALUES (?, ?, ?)";
-    private static final String SELECT_USER_BY_ID_SQL = "SELECT id, username, password_hash, role FROM users WHERE id = ?";
-    private static final String SELECT_USER_BY_USERNAME_SQL = "SELECT id, username, password_hash, role FROM users WHERE username = ?";
-    // Add UPDATE and DELETE SQL statements later as needed
-    // private static final String UPDATE_USER_SQL = "UPDATE users SET username = ?, password_hash = ?, role = ? WHERE id = ?";
+    private static final String SELECT_USER_BY_ID_SQL = "SELECT id, username, password_hash, role, version FROM users WHERE id = ?";
+    private static final String SELECT_USER_BY_USERNAME_SQL = "SELECT id, username, password_hash, role, version FROM users WHERE username = ?";
+    private static final String SELECT_USERS_BY_ROLE_SQL = "SELECT id, username, password_hash, role, version FROM users WHERE role = ? ORDER BY username";
+    // Only applies if nobody updated the row since it was read (optimistic concurrency)
+    private static final String UPDATE_USER_IF_VERSION_SQL = "UPDATE users SET username = ?, password_hash = ?, role = ?, version = version + 1 "
+            + "WHERE id = ? AND version = ?";
+    // Add DELETE SQL statements later as needed
     // private static final String DELETE_USER_SQL = "DELETE FROM users WHERE id = ?";
-    // private static final String SELECT_ALL_USERS_SQL = "SELECT id, username, password_hash, role FROM users";
+    // private static final String SELECT_ALL_USERS_SQL = "SELECT id, username, password_hash, role, version FROM users";
 
+    private final String databaseUrl; // null: whatever DatabaseManager currently points at
+
+    /**
+     * Creates a UserDao for the application database.
+     */
+    public UserDao() {
+        this(null);
+    }
+
+    /**
+     * Creates a UserDao for a specific database, e.g. one shard (see com.pokemedquest.shard).
+     * @param databaseUrl The JDBC URL of the database that holds the users.
+     */
+    public UserDao(String databaseUrl) {
+        this.databaseUrl = databaseUrl;
+    }
 
     /**
      * Creates a new user record in the database.
@@ -36,30 +67,45 @@ public class UserDao {
      * @return true if the user was created successfully, false otherwise.
      */
     public boolean createUser(User user) {
+        long start = System.nanoTime();
         // Use try-with-resources to ensure Connection and PreparedStatement are closed automatically
-        try (Connection connection = DatabaseManager.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_USER_SQL, Statement.RETURN_GENERATED_KEYS)) {
-
-            // Set parameters using placeholders (?) to prevent SQL injection
-            preparedStatement.setString(1, user.getUsername());
-            preparedStatement.setString(2, user.getPasswordHash());
-            preparedStatement.setString(3, user.getRole());
-
-            int affectedRows = preparedStatement.executeUpdate();
-
-            // Check if the insertion was successful
-            if (affectedRows > 0) {
-                // Retrieve the auto-generated key (the user ID)
-                try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        user.setId(generatedKeys.getInt(1)); // Set the ID back on the user object
-                        return true; // User created successfully
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false); // The row and its change_log entry commit together
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_USER_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+                // Set parameters using placeholders (?) to prevent SQL injection
+                preparedStatement.setString(1, user.getUsername());
+                preparedStatement.setString(2, user.getPasswordHash());
+                preparedStatement.setString(3, user.getRole());
+
+                int affectedRows = preparedStatement.executeUpdate();
+                CREATE_USER_TIMER.addRows(affectedRows);
+
+                // Check if the insertion was successful
+                if (affectedRows > 0) {
+                    // Retrieve the auto-generated key (the user ID)
+                    try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            int id = generatedKeys.getInt(1);
+                            ChangeLog.record(connection, ChangeLog.USERS, id);
+                            connection.commit();
+                            user.setId(id); // Set the ID back on the user object
+                            Audit.record(AuditOperation.USER_CREATE, id, id);
+                            return true; // User created successfully
+                        }
                     }
                 }
+                DatabaseManager.rollbackQuietly(connection);
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
             }
         } catch (SQLException e) {
+            CREATE_USER_TIMER.markError();
             System.err.println("Error creating user: " + e.getMessage());
             // Handle exception appropriately - maybe log it or throw a custom exception
+        } finally {
+            CREATE_USER_TIMER.recordSince(start);
         }
         return false; // User creation failed
     }
@@ -72,9 +118,10 @@ public class UserDao {
      * @return An Optional containing the User if found, otherwise an empty Optional.
      */
     public Optional<User> findUserByUsername(String username) {
+        long start = System.nanoTime();
         User user = null;
         // Use try-with-resources for Connection, PreparedStatement, and ResultSet
-        try (Connection connection = DatabaseManager.getConnection();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_USER_BY_USERNAME_SQL)) {
 
             preparedStatement.setString(1, username); // Set the username parameter
@@ -88,11 +135,17 @@ public class UserDao {
                     String passwordHash = rs.getString("password_hash");
                     String role = rs.getString("role");
                     user = new User(id, foundUsername, passwordHash, role);
+                    user.setVersion(rs.getInt("version"));
+                    FIND_USER_BY_USERNAME_TIMER.addRows(1);
+                    Audit.record(AuditOperation.USER_READ, id, id);
                 }
             }
         } catch (SQLException e) {
+            FIND_USER_BY_USERNAME_TIMER.markError();
             System.err.println("Error finding user by username: " + e.getMessage());
             // Handle exception
+        } finally {
+            FIND_USER_BY_USERNAME_TIMER.recordSince(start);
         }
         // Wrap the result in Optional - handles null gracefully
         return Optional.ofNullable(user);
@@ -105,8 +158,9 @@ public class UserDao {
      * @return An Optional containing the User if found, otherwise an empty Optional.
      */
     public Optional<User> findUserById(int userId) {
+        long start = System.nanoTime();
         User user = null;
-        try (Connection connection = DatabaseManager.getConnection();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
              PreparedStatement preparedStatement = connection.prepareStatement(SELECT_USER_BY_ID_SQL)) {
 
             preparedStatement.setInt(1, userId); // Set the ID parameter
@@ -118,24 +172,144 @@ public class UserDao {
                     String passwordHash = rs.getString("password_hash");
                     String role = rs.getString("role");
                     user = new User(id, username, passwordHash, role);
+                    user.setVersion(rs.getInt("version"));
+                    FIND_USER_BY_ID_TIMER.addRows(1);
+                    Audit.record(AuditOperation.USER_READ, id, id);
                 }
             }
         } catch (SQLException e) {
+            FIND_USER_BY_ID_TIMER.markError();
             System.err.println("Error finding user by ID: " + e.getMessage());
             // Handle exception
+        } finally {
+            FIND_USER_BY_ID_TIMER.recordSince(start);
         }
         return Optional.ofNullable(user);
     }
 
-    // --- TODO: Implement other methods as needed ---
+    /**
+     * Creates many user records in a single transaction using a JDBC batch.
+     * Much faster than calling createUser in a loop, because SQLite only has to
+     * commit (and sync to disk) once. On success every User gets its generated ID.
+     *
+     * @param users The users to save.
+     * @return true if all users were created, false otherwise (nothing is saved in that case).
+     */
+    public boolean createUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_USER_SQL)) {
+                for (User user : users) {
+                    preparedStatement.setString(1, user.getUsername());
+                    preparedStatement.setString(2, user.getPasswordHash());
+                    preparedStatement.setString(3, user.getRole());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                // IDs within one transaction are consecutive, ending at the last inserted rowid
+                int id = DatabaseManager.lastInsertRowId(connection) - users.size() + 1;
+                ChangeLog.recordRange(connection, ChangeLog.USERS, id, users.size());
+                connection.commit();
+                for (User user : users) {
+                    user.setId(id++);
+                    Audit.record(AuditOperation.USER_CREATE, user.getId(), user.getId());
+                }
+                CREATE_USERS_TIMER.addRows(users.size());
+                return true;
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            CREATE_USERS_TIMER.markError();
+            System.err.println("Error creating users in batch: " + e.getMessage());
+        } finally {
+            CREATE_USERS_TIMER.recordSince(start);
+        }
+        return false;
+    }
 
-    /*
-    public boolean updateUser(User user) {
-        // Implementation would be similar to createUser, using UPDATE_USER_SQL
-        // Use PreparedStatement and set parameters for username, hash, role, and id (in WHERE clause)
-        return false; // Placeholder
+    /**
+     * Finds all users with a given role, e.g. the patient list ("child").
+     *
+     * @param role The role to match.
+     * @return A List of Users ordered by username (potentially empty).
+     */
+    public List<User> findUsersByRole(String role) {
+        long start = System.nanoTime();
+        List<User> users = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl);
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_USERS_BY_ROLE_SQL)) {
+
+            preparedStatement.setString(1, role);
+
+            try (ResultSet rs = preparedStatement.executeQuery()) {
+                while (rs.next()) {
+                    User user = new User(rs.getInt("id"), rs.getString("username"), rs.getString("password_hash"), rs.getString("role"));
+                    user.setVersion(rs.getInt("version"));
+                    users.add(user);
+                }
+            }
+            FIND_USERS_BY_ROLE_TIMER.addRows(users.size());
+            Audit.record(AuditOperation.USER_READ_ALL, Audit.ALL_USERS, users.size());
+        } catch (SQLException e) {
+            FIND_USERS_BY_ROLE_TIMER.markError();
+            System.err.println("Error finding users by role: " + e.getMessage());
+        } finally {
+            FIND_USERS_BY_ROLE_TIMER.recordSince(start);
+        }
+        return users;
+    }
+
+    /**
+     * Saves a user's username, password hash and role, but only if the row still has the
+     * version the User was read with. On success the User carries the new version.
+     *
+     * @param user The User to save (ID and version as read).
+     * @return UPDATED, STALE if the row changed (or went away) since it was read, or FAILED.
+     */
+    public UpdateResult updateUserIfVersion(User user) {
+        long start = System.nanoTime();
+        try (Connection connection = DatabaseManager.getConnection(databaseUrl)) {
+            connection.setAutoCommit(false); // The row and its change_log entry commit together
+            try (PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_USER_IF_VERSION_SQL)) {
+                preparedStatement.setString(1, user.getUsername());
+                preparedStatement.setString(2, user.getPasswordHash());
+                preparedStatement.setString(3, user.getRole());
+                preparedStatement.setInt(4, user.getId());
+                preparedStatement.setInt(5, user.getVersion());
+
+                int affectedRows = preparedStatement.executeUpdate();
+                UPDATE_USER_IF_VERSION_TIMER.addRows(affectedRows);
+                if (affectedRows == 0) {
+                    DatabaseManager.rollbackQuietly(connection);
+                    return UpdateResult.STALE;
+                }
+                ChangeLog.record(connection, ChangeLog.USERS, user.getId());
+                connection.commit();
+                user.setVersion(user.getVersion() + 1);
+                Audit.record(AuditOperation.USER_UPDATE, user.getId(), user.getId());
+                return UpdateResult.UPDATED;
+            } catch (SQLException e) {
+                DatabaseManager.rollbackQuietly(connection);
+                throw e;
+            }
+        } catch (SQLException e) {
+            UPDATE_USER_IF_VERSION_TIMER.markError();
+            System.err.println("Error updating user: " + e.getMessage());
+        } finally {
+            UPDATE_USER_IF_VERSION_TIMER.recordSince(start);
+        }
+        return UpdateResult.FAILED;
     }
 
+    // --- TODO: Implement other methods as needed ---
+
+    /*
     public boolean deleteUser(int userId) {
         // Implementation using DELETE_USER_SQL
         // Use PreparedStatement and set the id parameter
@@ -0,0 +1,37 @@
+package com.pokemedquest.events;
+
+import com.pokemedquest.model.Avatar;
+
+/**
+ * An avatar was created, customized or levelled up (including achievement rewards).
+ *
+ * The event carries the avatar as saved, with its row version. Events published from
+ * different threads can arrive out of order, so a subscriber keeping its own copy should
+ * ignore an avatar whose version is not newer than the one it already has.
+ */
+public class AvatarUpdated extends DomainEvent {
+
+    private final Avatar avatar;
+
+    /**
+     * @param avatar The avatar as it is now saved. A copy is kept.
+     */
+    public AvatarUpdated(Avatar avatar) {
+        super(avatar.getUserId());
+        this.avatar = new Avatar(avatar.getAvatarId(), avatar.getUserId(), avatar.getAvatarName(),
+                avatar.getColor(), avatar.getAccessory(), avatar.getLevel());
+        this.avatar.setVersion(avatar.getVersion());
+    }
+
+    /**
+     * @return The avatar as saved, with its version. Must not be modified.
+     */
+    public Avatar getAvatar() {
+        return avatar;
+    }
+
+    @Override
+    public String toString() {
+        return "AvatarUpdated{" + avatar + '}';
+    }
+}
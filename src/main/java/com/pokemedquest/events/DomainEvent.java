@@ -0,0 +1,31 @@
+package com.pokemedquest.events;
+
+/**
+ * Base class of everything published on the EventBus: something that happened to a user.
+ * Events are immutable and carry copies of the data they describe, so subscribers on
+ * other threads never see later changes to the caller's objects.
+ */
+public abstract class DomainEvent {
+
+    private final int userId;
+    private final long occurredAtMillis;
+
+    protected DomainEvent(int userId) {
+        this.userId = userId;
+        this.occurredAtMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @return The ID of the user the event is about.
+     */
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return When the event was created (epoch milliseconds).
+     */
+    public long getOccurredAtMillis() {
+        return occurredAtMillis;
+    }
+}
@@ -0,0 +1,302 @@
+package com.pokemedquest.events;
+
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process domain event bus. Services publish events on the request thread; every
+ * subscriber consumes them on its own thread, so adding reactions does not add latency
+ * to the user-facing call.
+ *
+ * Events go through a fixed ring buffer of pre-allocated slots (Disruptor-style):
+ * - publish() claims the next sequence number, stores the event in its slot and then marks
+ *   the slot with that sequence; no locks and no allocation on the hot path.
+ * - Each subscriber follows the ring with its own sequence, handing everything that is
+ *   available (up to {@link #MAX_BATCH_SIZE}) to the subscriber in one batch.
+ * - Back-pressure: a slot is only reused once every subscriber has consumed it, so when
+ *   the slowest subscriber is a full ring behind, publish() waits instead of dropping.
+ * Idle subscribers spin briefly and then sleep on a condition that publishers only signal
+ * when somebody is actually sleeping.
+ *
+ * Subscribers are registered before {@link #start()}. A subscriber must never publish from
+ * its own consumer thread (it could end up waiting for itself); hand such work to another thread.
+ */
+public class EventBus {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int MAX_BATCH_SIZE = 256;
+
+    private static final Timer PUBLISH_TIMER = Metrics.timer("EventBus.publish");
+    private static final Timer BACK_PRESSURE_TIMER = Metrics.timer("EventBus.backPressure");
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long SLEEP_TIMEOUT_MILLIS = 10; // Safety net against a missed signal
+
+    /**
+     * One pre-allocated ring slot. The volatile sequence is written after the event,
+     * so a consumer that sees its expected sequence also sees the event.
+     */
+    private static final class Slot {
+        DomainEvent event;
+        volatile long sequence = -1;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(); // Next sequence to hand out
+    private final List<Consumer> consumers = new ArrayList<>();
+    private volatile long gatingCache = -1; // Last known minimum consumer sequence
+
+    private final ReentrantLock sleepLock = new ReentrantLock();
+    private final Condition published = sleepLock.newCondition();
+    private final AtomicInteger sleepers = new AtomicInteger();
+
+    private volatile boolean started = false;
+    private volatile boolean running = false;
+
+    /**
+     * Creates a bus with the default capacity.
+     */
+    public EventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity Number of ring slots; must be a power of two.
+     */
+    public EventBus(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Registers a subscriber. Must be called before {@link #start()}.
+     * @param name Short name, used for its thread ("event-NAME") and timer ("EventBus.NAME").
+     * @param subscriber The subscriber.
+     */
+    public synchronized void subscribe(String name, EventSubscriber subscriber) {
+        if (started) {
+            throw new IllegalStateException("Subscribers must be registered before start()");
+        }
+        consumers.add(new Consumer(name, subscriber));
+    }
+
+    /**
+     * Starts one consumer thread per subscriber. Events published before start() are kept
+     * (up to the capacity) and delivered once it is called.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        running = true;
+        for (Consumer consumer : consumers) {
+            consumer.thread.start();
+        }
+    }
+
+    /**
+     * Publishes an event, waiting for space if the slowest subscriber is a full ring behind.
+     * @param event The event.
+     * @return The event's sequence number.
+     */
+    public long publish(DomainEvent event) {
+        long start = System.nanoTime();
+        long sequence = claimed.getAndIncrement();
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint > gatingCache) {
+            waitForCapacity(wrapPoint);
+        }
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.event = event;
+        slot.sequence = sequence; // Publishes the event
+        if (sleepers.get() > 0) {
+            wakeConsumers();
+        }
+        PUBLISH_TIMER.recordSince(start);
+        return sequence;
+    }
+
+    /**
+     * Waits until every subscriber has consumed everything published before this call.
+     * For callers that need to show the outcome of a reaction right away.
+     *
+     * @param timeoutMillis Maximum time to wait.
+     * @return true if the subscribers caught up, false on timeout.
+     */
+    public boolean awaitDrained(long timeoutMillis) {
+        long target = claimed.get() - 1;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (minConsumerSequence() < target) {
+            if (!running || System.nanoTime() > deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(50_000);
+        }
+        return true;
+    }
+
+    /**
+     * Lets the subscribers consume everything already published, then stops their threads.
+     */
+    public void shutdown() {
+        running = false;
+        wakeConsumers();
+        for (Consumer consumer : consumers) {
+            try {
+                consumer.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void waitForCapacity(long wrapPoint) {
+        long start = System.nanoTime();
+        long parkNanos = 1_000;
+        long min;
+        while (wrapPoint > (min = minConsumerSequence())) {
+            if (started && !running && consumersStopped()) {
+                // Nobody will ever free the slot; overwrite rather than hang the caller
+                BACK_PRESSURE_TIMER.markError();
+                System.err.println("Event bus is shut down; overwriting an unconsumed event.");
+                break;
+            }
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos * 2, 1_000_000);
+        }
+        gatingCache = min;
+        BACK_PRESSURE_TIMER.recordSince(start);
+    }
+
+    private long minConsumerSequence() {
+        long min = claimed.get() - 1; // No subscribers: nothing gates the producers
+        for (Consumer consumer : consumers) {
+            min = Math.min(min, consumer.sequence);
+        }
+        return min;
+    }
+
+    private boolean consumersStopped() {
+        for (Consumer consumer : consumers) {
+            if (consumer.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void wakeConsumers() {
+        sleepLock.lock();
+        try {
+            published.signalAll();
+        } finally {
+            sleepLock.unlock();
+        }
+    }
+
+    /**
+     * Follows the ring for one subscriber.
+     */
+    private final class Consumer implements Runnable {
+        private final String name;
+        private final EventSubscriber subscriber;
+        private final Timer timer;
+        private final Thread thread;
+        private final List<DomainEvent> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        volatile long sequence = -1; // Last consumed sequence
+
+        Consumer(String name, EventSubscriber subscriber) {
+            this.name = name;
+            this.subscriber = subscriber;
+            this.timer = Metrics.timer("EventBus." + name);
+            this.thread = new Thread(this, "event-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence + 1;
+            int idle = 0;
+            while (true) {
+                Slot slot = slots[(int) (next & mask)];
+                if (slot.sequence != next) {
+                    if (!running && next >= claimed.get()) {
+                        return; // Shut down and fully drained
+                    }
+                    idle = idle(idle, slot, next);
+                    continue;
+                }
+                idle = 0;
+
+                long last = next;
+                batch.add(slot.event);
+                while (batch.size() < MAX_BATCH_SIZE && slots[(int) ((last + 1) & mask)].sequence == last + 1) {
+                    last++;
+                    batch.add(slots[(int) (last & mask)].event);
+                }
+                deliver();
+                sequence = last; // Frees the slots for producers
+                next = last + 1;
+            }
+        }
+
+        private void deliver() {
+            long start = System.nanoTime();
+            try {
+                subscriber.onEvents(batch);
+                timer.addRows(batch.size());
+            } catch (RuntimeException e) {
+                timer.markError();
+                System.err.println("Event subscriber '" + name + "' failed on a batch of " + batch.size() + ": " + e);
+            } finally {
+                batch.clear();
+                timer.recordSince(start);
+            }
+        }
+
+        /**
+         * Spin, then yield, then sleep until a publisher signals (or the timeout passes).
+         */
+        private int idle(int idle, Slot slot, long expected) {
+            if (idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (idle < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                sleepers.incrementAndGet();
+                sleepLock.lock();
+                try {
+                    if (slot.sequence != expected && running) {
+                        published.await(SLEEP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                } finally {
+                    sleepLock.unlock();
+                    sleepers.decrementAndGet();
+                }
+            }
+            return idle + 1;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.pokemedquest.events;
+
+import java.util.List;
+
+/**
+ * Reacts to domain events on its own EventBus consumer thread.
+ *
+ * Events arrive in publication order, in batches of whatever had been published since the
+ * previous call (up to a maximum), so subscribers can amortize work such as database writes
+ * over a batch. Subscribers receive every event type and pick what they need.
+ */
+@FunctionalInterface
+public interface EventSubscriber {
+
+    /**
+     * @param batch The events, oldest first. The list is reused after the call returns,
+     * so it must not be kept. Exceptions are logged and the batch is skipped.
+     */
+    void onEvents(List<DomainEvent> batch);
+}
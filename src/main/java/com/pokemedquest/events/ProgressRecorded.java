@@ -0,0 +1,33 @@
+package com.pokemedquest.events;
+
+import com.pokemedquest.model.TestProgress;
+
+/**
+ * A CMAS test result was saved (recorded now or backfilled with an earlier timestamp).
+ */
+public class ProgressRecorded extends DomainEvent {
+
+    private final TestProgress progress;
+
+    /**
+     * @param progress The saved result (its progressId is set). A copy is kept.
+     */
+    public ProgressRecorded(TestProgress progress) {
+        super(progress.getUserId());
+        this.progress = new TestProgress(progress.getProgressId(), progress.getUserId(),
+                progress.getTestTimestamp(), progress.getCmasScore());
+        this.progress.setItemScores(progress.getItemScores()); // Immutable, safe to share
+    }
+
+    /**
+     * @return The saved result. Must not be modified.
+     */
+    public TestProgress getProgress() {
+        return progress;
+    }
+
+    @Override
+    public String toString() {
+        return "ProgressRecorded{" + progress + '}';
+    }
+}
@@ -0,0 +1,23 @@
+package com.pokemedquest.events;
+
+/**
+ * A user logged in successfully.
+ */
+public class UserLoggedIn extends DomainEvent {
+
+    private final String username;
+
+    public UserLoggedIn(int userId, String username) {
+        super(userId);
+        this.username = username;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String toString() {
+        return "UserLoggedIn{userId=" + getUserId() + ", username='" + username + "'}";
+    }
+}
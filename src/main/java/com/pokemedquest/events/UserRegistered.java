@@ -0,0 +1,29 @@
+package com.pokemedquest.events;
+
+/**
+ * A new user account was created. Carries no credentials.
+ */
+public class UserRegistered extends DomainEvent {
+
+    private final String username;
+    private final String role;
+
+    public UserRegistered(int userId, String username, String role) {
+        super(userId);
+        this.username = username;
+        this.role = role;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    @Override
+    public String toString() {
+        return "UserRegistered{userId=" + getUserId() + ", username='" + username + "', role='" + role + "'}";
+    }
+}
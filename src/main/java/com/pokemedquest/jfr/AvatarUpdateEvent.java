@@ -0,0 +1,14 @@
+package com.pokemedquest.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An avatar being customized (AvatarService.updateAvatarCustomization).
+ */
+@Name("com.pokemedquest.AvatarUpdate")
+@Label("Avatar Update")
+@Description("An avatar being customized (AvatarService.updateAvatarCustomization).")
+public class AvatarUpdateEvent extends PokeMedEvent {
+}
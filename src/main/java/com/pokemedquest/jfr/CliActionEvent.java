@@ -0,0 +1,23 @@
+package com.pokemedquest.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One menu action handled by the CLI, from the moment the choice is made until the
+ * result has been printed. Wraps the service-level events of the same operation, so the
+ * difference between the two is time spent on prompts and console output.
+ */
+@Name("com.pokemedquest.CliAction")
+@Label("CLI Action")
+@Description("One menu action handled by CliHandler, including console output.")
+public class CliActionEvent extends PokeMedEvent {
+
+    @Label("Action")
+    private String action;
+
+    public CliActionEvent(String action) {
+        this.action = action;
+    }
+}
@@ -0,0 +1,14 @@
+package com.pokemedquest.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A user's test history being loaded (ProgressService.getProgressHistoryForUser or getFullHistory).
+ */
+@Name("com.pokemedquest.HistoryView")
+@Label("History View")
+@Description("A user's test history being loaded (ProgressService.getProgressHistoryForUser or getFullHistory).")
+public class HistoryViewEvent extends PokeMedEvent {
+}
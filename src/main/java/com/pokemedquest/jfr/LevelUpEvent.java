@@ -0,0 +1,14 @@
+package com.pokemedquest.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An avatar levelling up (AvatarService.levelUpAvatar).
+ */
+@Name("com.pokemedquest.LevelUp")
+@Label("Level Up")
+@Description("An avatar levelling up (AvatarService.levelUpAvatar).")
+public class LevelUpEvent extends PokeMedEvent {
+}
@@ -0,0 +1,14 @@
+package com.pokemedquest.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A user logging in (AuthService.loginUser).
+ */
+@Name("com.pokemedquest.Login")
+@Label("Login")
+@Description("A user logging in (AuthService.loginUser).")
+public class LoginEvent extends PokeMedEvent {
+}
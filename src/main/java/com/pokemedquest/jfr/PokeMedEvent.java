@@ -0,0 +1,45 @@
+package com.pokemedquest.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base class for PokeMed Quest's custom JDK Flight Recorder events.
+ *
+ * Each subclass describes one user-facing operation. Callers create the event,
+ * call begin() before the work and commit() after it, so the recording shows how
+ * long the operation took next to GC pauses, I/O and lock events on the same thread.
+ * When the event type is disabled, begin() and commit() return immediately and the JIT
+ * removes the allocation, so the events can stay in the code at no measurable cost.
+ *
+ * Stack traces are off by default: they are the expensive part and rarely needed.
+ */
+@Category("PokeMed Quest")
+@StackTrace(false)
+public abstract class PokeMedEvent extends Event {
+
+    // Not private: JFR only records superclass fields that subclasses can see
+
+    @Label("User ID")
+    protected int userId = -1; // -1 until the user is known (e.g. failed login)
+
+    @Label("Rows Touched")
+    protected int rowsTouched;
+
+    @Label("Success")
+    protected boolean success;
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public void setRowsTouched(int rowsTouched) {
+        this.rowsTouched = rowsTouched;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+}
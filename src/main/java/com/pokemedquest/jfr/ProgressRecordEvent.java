@@ -0,0 +1,14 @@
+package com.pokemedquest.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A CMAS score being recorded (ProgressService.recordTestResult).
+ */
+@Name("com.pokemedquest.ProgressRecord")
+@Label("Progress Record")
+@Description("A CMAS score being recorded (ProgressService.recordTestResult).")
+public class ProgressRecordEvent extends PokeMedEvent {
+}
@@ -0,0 +1,14 @@
+package com.pokemedquest.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A new user registering (AuthService.registerUser).
+ */
+@Name("com.pokemedquest.Registration")
+@Label("Registration")
+@Description("A new user registering (AuthService.registerUser).")
+public class RegistrationEvent extends PokeMedEvent {
+}
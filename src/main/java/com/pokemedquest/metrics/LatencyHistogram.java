@@ -0,0 +1,88 @@
+package com.pokemedquest.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with HDR-style log-linear buckets.
+ *
+ * Every power of two is split into 16 equally sized sub-buckets, so any recorded
+ * value lands in a bucket that is at most ~6% wide relative to the value. That keeps
+ * the whole range from nanoseconds to hours in 1,000 counters, and recording a value
+ * is a couple of bit operations plus one atomic increment - no locks, no allocation.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 16 per power of two
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Records one value.
+     * @param value The value to record (negative values are recorded as 0).
+     */
+    public void record(long value) {
+        counts.incrementAndGet(bucketIndex(Math.max(0, value)));
+    }
+
+    /**
+     * Returns the value at the given percentile.
+     * The result is the upper bound of the bucket the percentile falls into.
+     *
+     * @param percentile A percentile between 0 and 100.
+     * @return The value at that percentile, or 0 if nothing was recorded.
+     */
+    public long valueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * @return The upper bound of the highest non-empty bucket, or 0 if nothing was recorded.
+     */
+    public long max() {
+        for (int i = BUCKET_COUNT - 1; i >= 0; i--) {
+            if (counts.get(i) > 0) {
+                return bucketUpperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value; // Small values get exact buckets
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // >= SUB_BUCKET_BITS
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (1L << exponent) + subBucket * width;
+        return lower + width - 1;
+    }
+}
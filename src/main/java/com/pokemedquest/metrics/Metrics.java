@@ -0,0 +1,136 @@
+package com.pokemedquest.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide registry of operation timers.
+ *
+ * DAOs and services grab their timers once into static fields:
+ *     private static final Timer FIND_TIMER = Metrics.timer("UserDao.findUserByUsername");
+ * Every timer is registered as a JMX MBean (com.pokemedquest:type=Timer,name=...) when it is
+ * created, and {@link #startSnapshotWriter} can additionally dump all timers to a text file
+ * at a fixed interval.
+ */
+public final class Metrics {
+
+    public static final String JMX_DOMAIN = "com.pokemedquest";
+
+    private static final ConcurrentHashMap<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static ScheduledExecutorService snapshotWriter;
+
+    // Private constructor to prevent instantiation of this utility class.
+    private Metrics() { }
+
+    /**
+     * Returns the timer with the given name, creating (and registering) it on first use.
+     *
+     * @param name The operation name, e.g. "UserDao.findUserByUsername".
+     * @return The timer for that operation.
+     */
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, key -> {
+            Timer timer = new Timer(key);
+            registerMBean(timer);
+            return timer;
+        });
+    }
+
+    /**
+     * @return All timers, sorted by name.
+     */
+    public static List<Timer> timers() {
+        List<Timer> timers = new ArrayList<>(TIMERS.values());
+        timers.sort(Comparator.comparing(Timer::getName));
+        return timers;
+    }
+
+    /**
+     * Formats all timers as a fixed-width text table.
+     * @return The table, one line per operation.
+     */
+    public static String snapshot() {
+        StringBuilder text = new StringBuilder();
+        text.append("# PokeMed Quest metrics at ").append(LocalDateTime.now()).append('\n');
+        text.append(String.format(Locale.ROOT, "%-45s %10s %8s %12s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "rows", "mean(us)", "p50(us)", "p99(us)", "max(us)"));
+        for (Timer timer : timers()) {
+            text.append(String.format(Locale.ROOT, "%-45s %10d %8d %12d %10.1f %10d %10d %10d%n",
+                    timer.getName(), timer.getCount(), timer.getErrors(), timer.getRows(),
+                    timer.getMeanMicros(), timer.getP50Micros(), timer.getP99Micros(), timer.getMaxMicros()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Starts a background thread that rewrites the given file with {@link #snapshot()} periodically.
+     * The file is written to a temp file first and then moved into place, so readers never
+     * see a half-written snapshot.
+     *
+     * @param file The snapshot file.
+     * @param periodSeconds How often to write it.
+     */
+    public static synchronized void startSnapshotWriter(Path file, long periodSeconds) {
+        if (snapshotWriter != null) {
+            return; // Already running
+        }
+        snapshotWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotWriter.scheduleAtFixedRate(() -> writeSnapshot(file), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the snapshot writer (if running) after writing one last snapshot.
+     * @param file The snapshot file to write the final snapshot to.
+     */
+    public static synchronized void stopSnapshotWriter(Path file) {
+        if (snapshotWriter != null) {
+            snapshotWriter.shutdownNow();
+            snapshotWriter = null;
+            writeSnapshot(file);
+        }
+    }
+
+    private static void writeSnapshot(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(parent, "metrics", ".tmp");
+            Files.write(temp, snapshot().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics snapshot: " + e.getMessage());
+        }
+    }
+
+    private static void registerMBean(Timer timer) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=Timer,name=" + ObjectName.quote(timer.getName()));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(timer, objectName);
+            }
+        } catch (JMException e) {
+            // Metrics must never break the application; the timer still works without JMX
+            System.err.println("Error registering metrics MBean for " + timer.getName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.pokemedquest.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures one operation (e.g. "UserDao.findUserByUsername"): how often it ran,
+ * how long it took, how often it failed and how many rows it returned.
+ *
+ * All counters are LongAdders and the latency distribution is a lock-free
+ * {@link LatencyHistogram}, so timing a call never blocks another thread.
+ * Typical use:
+ *
+ * long start = System.nanoTime();
+ * try {
+ *     ... the operation ...
+ * } finally {
+ *     TIMER.recordSince(start);
+ * }
+ */
+public class Timer implements TimerMBean {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one call that started at the given System.nanoTime() value.
+     * @param startNanos The System.nanoTime() taken when the call started.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records one call of the given duration.
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        histogram.record(nanos);
+    }
+
+    /**
+     * Counts rows returned (or written) by the operation.
+     * @param rowCount The number of rows.
+     */
+    public void addRows(long rowCount) {
+        rows.add(rowCount);
+    }
+
+    /**
+     * Counts a failed call (the duration is still recorded via recordSince).
+     */
+    public void markError() {
+        errors.increment();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long calls = count.sum();
+        return calls == 0 ? 0 : totalNanos.sum() / 1000.0 / calls;
+    }
+
+    @Override
+    public long getP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.valueAtPercentile(50));
+    }
+
+    @Override
+    public long getP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.valueAtPercentile(99));
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(histogram.max());
+    }
+}
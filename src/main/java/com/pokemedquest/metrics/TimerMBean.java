@@ -0,0 +1,22 @@
+package com.pokemedquest.metrics;
+
+/**
+ * JMX view of a {@link Timer}. Shows up in JConsole / VisualVM under
+ * "com.pokemedquest" &gt; "Timer" &gt; operation name.
+ */
+public interface TimerMBean {
+
+    long getCount();
+
+    long getErrors();
+
+    long getRows();
+
+    double getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getMaxMicros();
+}
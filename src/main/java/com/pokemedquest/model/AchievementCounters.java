@@ -0,0 +1,140 @@
+package com.pokemedquest.model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Small per-user counters that the achievement rules are evaluated against.
+ * They are updated incrementally on every recorded test, so rules never have to
+ * re-read a user's whole test history.
+ */
+public class AchievementCounters {
+
+    // --- Fields ---
+    private int userId;
+    private int totalTests;          // Tests recorded in total
+    private String currentMonth;     // "yyyy-MM" of the most recent test
+    private int testsThisMonth;      // Tests recorded in currentMonth
+    private int bestScore = -1;      // Best CMAS score so far (-1: none yet)
+    private int lastScore = -1;      // Most recent CMAS score (-1: none yet)
+    private int improvementStreak;   // Consecutive tests that each beat the previous score
+    private int lastProgressId;      // Highest progress_id applied; older events are ignored
+    private boolean newPersonalBest; // Whether the last applied test set a new best (not persisted)
+    private final Set<String> unlockedCodes = new HashSet<>(); // Achievements already unlocked
+
+    // --- Constructor ---
+
+    /**
+     * Creates empty counters for a user with no tests yet.
+     * @param userId The user the counters belong to.
+     */
+    public AchievementCounters(int userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * Copy constructor, used to take a consistent snapshot for persisting.
+     * @param other The counters to copy.
+     */
+    public AchievementCounters(AchievementCounters other) {
+        this.userId = other.userId;
+        this.totalTests = other.totalTests;
+        this.currentMonth = other.currentMonth;
+        this.testsThisMonth = other.testsThisMonth;
+        this.bestScore = other.bestScore;
+        this.lastScore = other.lastScore;
+        this.improvementStreak = other.improvementStreak;
+        this.lastProgressId = other.lastProgressId;
+        this.newPersonalBest = other.newPersonalBest;
+        this.unlockedCodes.addAll(other.unlockedCodes);
+    }
+
+    // --- Getters and Setters ---
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getTotalTests() {
+        return totalTests;
+    }
+
+    public void setTotalTests(int totalTests) {
+        this.totalTests = totalTests;
+    }
+
+    public String getCurrentMonth() {
+        return currentMonth;
+    }
+
+    public void setCurrentMonth(String currentMonth) {
+        this.currentMonth = currentMonth;
+    }
+
+    public int getTestsThisMonth() {
+        return testsThisMonth;
+    }
+
+    public void setTestsThisMonth(int testsThisMonth) {
+        this.testsThisMonth = testsThisMonth;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public void setBestScore(int bestScore) {
+        this.bestScore = bestScore;
+    }
+
+    public int getLastScore() {
+        return lastScore;
+    }
+
+    public void setLastScore(int lastScore) {
+        this.lastScore = lastScore;
+    }
+
+    public int getImprovementStreak() {
+        return improvementStreak;
+    }
+
+    public void setImprovementStreak(int improvementStreak) {
+        this.improvementStreak = improvementStreak;
+    }
+
+    public int getLastProgressId() {
+        return lastProgressId;
+    }
+
+    public void setLastProgressId(int lastProgressId) {
+        this.lastProgressId = lastProgressId;
+    }
+
+    public boolean isNewPersonalBest() {
+        return newPersonalBest;
+    }
+
+    public void setNewPersonalBest(boolean newPersonalBest) {
+        this.newPersonalBest = newPersonalBest;
+    }
+
+    public Set<String> getUnlockedCodes() {
+        return unlockedCodes;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "AchievementCounters{" +
+               "userId=" + userId +
+               ", totalTests=" + totalTests +
+               ", currentMonth='" + currentMonth + '\'' +
+               ", testsThisMonth=" + testsThisMonth +
+               ", bestScore=" + bestScore +
+               ", lastScore=" + lastScore +
+               ", improvementStreak=" + improvementStreak +
+               ", unlocked=" + unlockedCodes.size() +
+               '}';
+    }
+}
@@ -12,6 +12,7 @@ public class Avatar {
     private String color;      // Example customization: color attribute
     private String accessory;  // Example customization: accessory attribute
     private int level;         // Example gamification: avatar level
+    private int version;       // Row version when read; conditional updates only succeed if it is still current
 
     // --- Constructors ---
 
@@ -103,6 +104,18 @@ public class Avatar {
         this.level = level;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the row version, as read from the database or after a successful update.
+     * @param version The version the avatars row had.
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     // --- Optional: toString() method for debugging ---
     @Override
     public String toString() {
@@ -113,6 +126,7 @@ public class Avatar {
                ", color='" + color + '\'' +
                ", accessory='" + accessory + '\'' +
                ", level=" + level +
+               ", version=" + version +
                '}';
     }
 }
\ No newline at end of file
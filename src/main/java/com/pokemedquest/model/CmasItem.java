@@ -0,0 +1,38 @@
+package com.pokemedquest.model;
+
+/**
+ * The 14 items of the Childhood Myositis Assessment Scale, in scoring-sheet order, with the
+ * highest score each can get. The item maxima add up to the CMAS maximum of 52.
+ */
+public enum CmasItem {
+    HEAD_ELEVATION("Head elevation", 5),
+    LEG_RAISE("Leg raise / touch object", 2),
+    STRAIGHT_LEG_LIFT("Straight leg lift", 5),
+    SUPINE_TO_PRONE("Supine to prone", 3),
+    SIT_UPS("Sit-ups", 6),
+    SUPINE_TO_SIT("Supine to sit", 4),
+    ARM_RAISE_STRAIGHTEN("Arm raise / straighten", 3),
+    ARM_RAISE_DURATION("Arm raise / duration", 4),
+    FLOOR_SIT("Floor sit", 4),
+    ALL_FOURS("All-fours maneuver", 4),
+    FLOOR_RISE("Floor rise", 4),
+    CHAIR_RISE("Chair rise", 4),
+    STOOL_STEP("Stool step", 2),
+    PICK_UP_OBJECT("Pick up object", 2);
+
+    private final String label;
+    private final int maxScore;
+
+    CmasItem(String label, int maxScore) {
+        this.label = label;
+        this.maxScore = maxScore;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getMaxScore() {
+        return maxScore;
+    }
+}
@@ -0,0 +1,133 @@
+package com.pokemedquest.model;
+
+import java.util.Arrays;
+
+/**
+ * The per-item scores of one CMAS test, bit-packed into a single long (the cmas_items column).
+ *
+ * Each item takes just enough bits for its score + 1, where 0 means "not scored": 2 bits for
+ * items scored 0-2, 3 bits for the others, 39 bits for all 14 items. SQLite stores the value
+ * as a 6-byte integer, instead of 14 rows or columns per test. A packed value of 0 means no
+ * item was scored, which is why the DAOs store it as NULL.
+ *
+ * Reading an item is a shift and a mask, so trends over a long history decode quickly.
+ */
+public final class CmasItemScores {
+
+    public static final int NOT_SCORED = -1;
+
+    private static final CmasItem[] ITEMS = CmasItem.values();
+    private static final int[] OFFSET = new int[ITEMS.length];
+    private static final int[] WIDTH = new int[ITEMS.length];
+    static {
+        int offset = 0;
+        for (CmasItem item : ITEMS) {
+            // Values 0..maxScore + 1 must fit
+            int width = 32 - Integer.numberOfLeadingZeros(item.getMaxScore() + 1);
+            OFFSET[item.ordinal()] = offset;
+            WIDTH[item.ordinal()] = width;
+            offset += width;
+        }
+    }
+
+    // --- Fields ---
+    private final long packed;
+
+    private CmasItemScores(long packed) {
+        this.packed = packed;
+    }
+
+    /**
+     * @param scores One score per CmasItem in declaration order, or NOT_SCORED.
+     * @return The packed scores.
+     * @throws IllegalArgumentException if there are not 14 scores or one is out of its item's range.
+     */
+    public static CmasItemScores of(int[] scores) {
+        if (scores.length != ITEMS.length) {
+            throw new IllegalArgumentException("Expected " + ITEMS.length + " item scores, got " + scores.length);
+        }
+        long packed = 0;
+        for (CmasItem item : ITEMS) {
+            int score = scores[item.ordinal()];
+            if (score == NOT_SCORED) {
+                continue;
+            }
+            if (score < 0 || score > item.getMaxScore()) {
+                throw new IllegalArgumentException(item.getLabel() + " must be scored 0-" + item.getMaxScore() + ", got " + score);
+            }
+            packed |= (long) (score + 1) << OFFSET[item.ordinal()];
+        }
+        return new CmasItemScores(packed);
+    }
+
+    /**
+     * @param packed A value from {@link #toPacked()}.
+     * @return The scores.
+     */
+    public static CmasItemScores fromPacked(long packed) {
+        return new CmasItemScores(packed);
+    }
+
+    /**
+     * Decodes all items of a packed value at once, for scans over a history.
+     * @param out Receives one score per CmasItem in declaration order, or NOT_SCORED.
+     */
+    public static void decode(long packed, int[] out) {
+        for (int i = 0; i < ITEMS.length; i++) {
+            out[i] = (int) ((packed >>> OFFSET[i]) & ((1L << WIDTH[i]) - 1)) - 1;
+        }
+    }
+
+    /**
+     * @return The item's score, or NOT_SCORED.
+     */
+    public int get(CmasItem item) {
+        int i = item.ordinal();
+        return (int) ((packed >>> OFFSET[i]) & ((1L << WIDTH[i]) - 1)) - 1;
+    }
+
+    /**
+     * @return The sum of the scored items, i.e. the CMAS total if the test is complete.
+     */
+    public int total() {
+        int total = 0;
+        for (CmasItem item : ITEMS) {
+            total += Math.max(0, get(item));
+        }
+        return total;
+    }
+
+    /**
+     * @return true if every item was scored.
+     */
+    public boolean isComplete() {
+        for (CmasItem item : ITEMS) {
+            if (get(item) == NOT_SCORED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long toPacked() {
+        return packed;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CmasItemScores && ((CmasItemScores) other).packed == packed;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(packed);
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        int[] scores = new int[ITEMS.length];
+        decode(packed, scores);
+        return "CmasItemScores" + Arrays.toString(scores).replace("-1", "-");
+    }
+}
@@ -0,0 +1,71 @@
+package com.pokemedquest.model;
+
+/**
+ * How one CMAS item developed over a patient's tests with item scores: where it started,
+ * its best, and where it is now. An item whose latest score is below its best points at a
+ * muscle group that is weakening.
+ */
+public class CmasItemTrend {
+
+    // --- Fields ---
+    private final CmasItem item;
+    private final int tests;         // Tests in which the item was scored
+    private final int firstScore;
+    private final int bestScore;
+    private final int latestScore;
+
+    // --- Constructor ---
+
+    public CmasItemTrend(CmasItem item, int tests, int firstScore, int bestScore, int latestScore) {
+        this.item = item;
+        this.tests = tests;
+        this.firstScore = firstScore;
+        this.bestScore = bestScore;
+        this.latestScore = latestScore;
+    }
+
+    // --- Getters ---
+
+    public CmasItem getItem() {
+        return item;
+    }
+
+    public int getTests() {
+        return tests;
+    }
+
+    public int getFirstScore() {
+        return firstScore;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public int getLatestScore() {
+        return latestScore;
+    }
+
+    /**
+     * @return latest - first: negative if the item got worse over the whole history.
+     */
+    public int getChange() {
+        return latestScore - firstScore;
+    }
+
+    public boolean isBelowBest() {
+        return latestScore < bestScore;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "CmasItemTrend{" +
+               "item=" + item +
+               ", tests=" + tests +
+               ", first=" + firstScore +
+               ", best=" + bestScore +
+               ", latest=" + latestScore +
+               '}';
+    }
+}
@@ -0,0 +1,74 @@
+package com.pokemedquest.model;
+
+/**
+ * Summary statistics of the test results of a group of patients, e.g. one shard or all of them.
+ * Partial statistics (one per shard) are combined with {@link #merge}.
+ */
+public class CohortStats {
+
+    // --- Fields ---
+    private final long patients;   // Users with at least one test
+    private final long tests;      // Test results recorded
+    private final long scoreSum;   // Sum of all CMAS scores, for the mean
+    private final int minScore;    // Lowest CMAS score (Integer.MAX_VALUE if no tests)
+    private final int maxScore;    // Highest CMAS score (Integer.MIN_VALUE if no tests)
+
+    // --- Constructor ---
+
+    public CohortStats(long patients, long tests, long scoreSum, int minScore, int maxScore) {
+        this.patients = patients;
+        this.tests = tests;
+        this.scoreSum = scoreSum;
+        this.minScore = minScore;
+        this.maxScore = maxScore;
+    }
+
+    /**
+     * @return Statistics of no tests at all, the identity for merge().
+     */
+    public static CohortStats empty() {
+        return new CohortStats(0, 0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Combines the statistics of two disjoint groups of patients.
+     */
+    public CohortStats merge(CohortStats other) {
+        return new CohortStats(patients + other.patients, tests + other.tests, scoreSum + other.scoreSum,
+                Math.min(minScore, other.minScore), Math.max(maxScore, other.maxScore));
+    }
+
+    // --- Getters ---
+
+    public long getPatients() {
+        return patients;
+    }
+
+    public long getTests() {
+        return tests;
+    }
+
+    public double getAverageScore() {
+        return tests == 0 ? 0 : (double) scoreSum / tests;
+    }
+
+    public int getMinScore() {
+        return minScore;
+    }
+
+    public int getMaxScore() {
+        return maxScore;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "CohortStats{" +
+               "patients=" + patients +
+               ", tests=" + tests +
+               ", averageScore=" + String.format("%.2f", getAverageScore()) +
+               ", minScore=" + (tests == 0 ? "-" : String.valueOf(minScore)) +
+               ", maxScore=" + (tests == 0 ? "-" : String.valueOf(maxScore)) +
+               '}';
+    }
+}
@@ -0,0 +1,48 @@
+package com.pokemedquest.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The admin dashboard: every patient's summary plus cohort totals, all read from the
+ * same database snapshot, so the totals always add up to the rows.
+ */
+public class DashboardReport {
+
+    // --- Fields ---
+    private final LocalDateTime generatedAt;
+    private final List<PatientSummary> patients;
+    private final CohortStats cohortStats;
+
+    // --- Constructor ---
+
+    public DashboardReport(LocalDateTime generatedAt, List<PatientSummary> patients, CohortStats cohortStats) {
+        this.generatedAt = generatedAt;
+        this.patients = patients;
+        this.cohortStats = cohortStats;
+    }
+
+    // --- Getters ---
+
+    public LocalDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public List<PatientSummary> getPatients() {
+        return patients;
+    }
+
+    public CohortStats getCohortStats() {
+        return cohortStats;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "DashboardReport{" +
+               "generatedAt=" + generatedAt +
+               ", patients=" + patients.size() +
+               ", cohortStats=" + cohortStats +
+               '}';
+    }
+}
@@ -0,0 +1,90 @@
+package com.pokemedquest.model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The stored samples of one timed exercise session, linked to the TestProgress row the
+ * session produced. The samples themselves are read with a SampleStreamReader (see
+ * com.pokemedquest.capture); this holds what is known without decoding them.
+ */
+public class ExerciseSession {
+
+    // --- Fields ---
+    private int sessionId;               // Generated by the database
+    private final int progressId;        // The test result the session belongs to
+    private final int userId;
+    private final LocalDateTime startedAt;
+    private final long durationMicros;   // Offset of the last sample
+    private final long sampleCount;
+    private final long droppedSamples;   // Lost because the capture buffer was full
+    private final int encodedBytes;      // Size of the stored blob
+
+    // --- Constructor ---
+
+    public ExerciseSession(int sessionId, int progressId, int userId, LocalDateTime startedAt,
+                           long durationMicros, long sampleCount, long droppedSamples, int encodedBytes) {
+        this.sessionId = sessionId;
+        this.progressId = progressId;
+        this.userId = userId;
+        this.startedAt = startedAt;
+        this.durationMicros = durationMicros;
+        this.sampleCount = sampleCount;
+        this.droppedSamples = droppedSamples;
+        this.encodedBytes = encodedBytes;
+    }
+
+    // --- Getters and Setters ---
+
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(int sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public int getProgressId() {
+        return progressId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    public int getEncodedBytes() {
+        return encodedBytes;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        return "ExerciseSession{" +
+               "sessionId=" + sessionId +
+               ", progressId=" + progressId +
+               ", userId=" + userId +
+               ", startedAt=" + (startedAt != null ? startedAt.format(formatter) : "N/A") +
+               ", durationMicros=" + durationMicros +
+               ", samples=" + sampleCount +
+               ", dropped=" + droppedSamples +
+               ", bytes=" + encodedBytes +
+               '}';
+    }
+}
@@ -0,0 +1,58 @@
+package com.pokemedquest.model;
+
+/**
+ * One avatar's position on a leaderboard. Immutable: a changed score is a new entry.
+ */
+public class LeaderboardEntry {
+
+    // --- Fields ---
+    private final int userId;          // The avatar's owner
+    private final String avatarName;   // Shown on the board
+    private final int score;           // Level or tests completed, depending on the board
+    private final int rank;            // 1-based position, 0 while the entry is not placed yet
+
+    // --- Constructor ---
+
+    public LeaderboardEntry(int userId, String avatarName, int score, int rank) {
+        this.userId = userId;
+        this.avatarName = avatarName;
+        this.score = score;
+        this.rank = rank;
+    }
+
+    // --- Getters ---
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getAvatarName() {
+        return avatarName;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * @return A copy of this entry placed at the given rank.
+     */
+    public LeaderboardEntry withRank(int rank) {
+        return new LeaderboardEntry(userId, avatarName, score, rank);
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "LeaderboardEntry{" +
+               "rank=" + rank +
+               ", userId=" + userId +
+               ", avatarName='" + avatarName + '\'' +
+               ", score=" + score +
+               '}';
+    }
+}
@@ -0,0 +1,75 @@
+package com.pokemedquest.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the admin dashboard: a patient with their avatar and a summary of their tests.
+ */
+public class PatientSummary {
+
+    // --- Fields ---
+    private final int userId;
+    private final String username;
+    private final String avatarName;         // null if the patient has no avatar
+    private final int level;                 // Avatar level (0 without avatar)
+    private final int tests;                 // Number of tests recorded
+    private final double averageScore;       // Mean CMAS score (0 without tests)
+    private final LocalDateTime lastTestAt;  // null without tests
+
+    // --- Constructor ---
+
+    public PatientSummary(int userId, String username, String avatarName, int level,
+                          int tests, double averageScore, LocalDateTime lastTestAt) {
+        this.userId = userId;
+        this.username = username;
+        this.avatarName = avatarName;
+        this.level = level;
+        this.tests = tests;
+        this.averageScore = averageScore;
+        this.lastTestAt = lastTestAt;
+    }
+
+    // --- Getters ---
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getAvatarName() {
+        return avatarName;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getTests() {
+        return tests;
+    }
+
+    public double getAverageScore() {
+        return averageScore;
+    }
+
+    public LocalDateTime getLastTestAt() {
+        return lastTestAt;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "PatientSummary{" +
+               "userId=" + userId +
+               ", username='" + username + '\'' +
+               ", avatarName='" + avatarName + '\'' +
+               ", level=" + level +
+               ", tests=" + tests +
+               ", averageScore=" + averageScore +
+               ", lastTestAt=" + lastTestAt +
+               '}';
+    }
+}
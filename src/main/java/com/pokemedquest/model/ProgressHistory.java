@@ -0,0 +1,58 @@
+package com.pokemedquest.model;
+
+import java.util.List;
+
+/**
+ * A user's test history as the doctor sees it: the recent results one by one, and the
+ * older ones as weekly or monthly summaries (see ProgressRollup). Rollups cover older tests
+ * than the raw results (a result backfilled into a rolled-up period stays raw until the next
+ * compaction), so the two lists together form one timeline.
+ */
+public class ProgressHistory {
+
+    // --- Fields ---
+    private final List<TestProgress> recent;     // Raw results, most recent first
+    private final List<ProgressRollup> rollups;  // Older results by bucket, most recent first
+
+    // --- Constructor ---
+
+    public ProgressHistory(List<TestProgress> recent, List<ProgressRollup> rollups) {
+        this.recent = recent;
+        this.rollups = rollups;
+    }
+
+    // --- Getters ---
+
+    public List<TestProgress> getRecent() {
+        return recent;
+    }
+
+    public List<ProgressRollup> getRollups() {
+        return rollups;
+    }
+
+    /**
+     * @return The number of tests covered, raw and rolled up.
+     */
+    public long getTestCount() {
+        long tests = recent.size();
+        for (ProgressRollup rollup : rollups) {
+            tests += rollup.getTests();
+        }
+        return tests;
+    }
+
+    public boolean isEmpty() {
+        return recent.isEmpty() && rollups.isEmpty();
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "ProgressHistory{" +
+               "recent=" + recent.size() +
+               ", rollups=" + rollups.size() +
+               ", tests=" + getTestCount() +
+               '}';
+    }
+}
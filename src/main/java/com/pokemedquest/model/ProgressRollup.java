@@ -0,0 +1,124 @@
+package com.pokemedquest.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Summary of one user's test results in one week or month, kept instead of the raw
+ * TestProgress rows once those are older than the retention age (see RetentionJob).
+ */
+public class ProgressRollup {
+
+    /**
+     * The length of a rollup bucket.
+     */
+    public enum Granularity {
+        WEEK, MONTH;
+
+        /**
+         * @return The start of the bucket a timestamp falls into: Monday or the first of the month, at midnight.
+         */
+        public LocalDateTime bucketStart(LocalDateTime timestamp) {
+            LocalDateTime midnight = timestamp.toLocalDate().atStartOfDay();
+            return this == WEEK ? midnight.with(DayOfWeek.MONDAY) : midnight.withDayOfMonth(1);
+        }
+
+        /**
+         * @return The start of the bucket after the one starting at bucketStart.
+         */
+        public LocalDateTime bucketEnd(LocalDateTime bucketStart) {
+            return this == WEEK ? bucketStart.plusWeeks(1) : bucketStart.plusMonths(1);
+        }
+    }
+
+    // --- Fields ---
+    private final int userId;
+    private final Granularity granularity;
+    private final LocalDateTime bucketStart;  // Monday or first of the month, 00:00
+    private final int tests;                  // Test results summarized
+    private final int minScore;
+    private final int maxScore;
+    private final long scoreSum;              // For the mean, and for merging buckets
+    private final int lastScore;              // Score of the latest test in the bucket
+    private final LocalDateTime lastTestAt;   // When that test was taken
+
+    // --- Constructor ---
+
+    public ProgressRollup(int userId, Granularity granularity, LocalDateTime bucketStart, int tests,
+                          int minScore, int maxScore, long scoreSum, int lastScore, LocalDateTime lastTestAt) {
+        this.userId = userId;
+        this.granularity = granularity;
+        this.bucketStart = bucketStart;
+        this.tests = tests;
+        this.minScore = minScore;
+        this.maxScore = maxScore;
+        this.scoreSum = scoreSum;
+        this.lastScore = lastScore;
+        this.lastTestAt = lastTestAt;
+    }
+
+    // --- Getters ---
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    /**
+     * @return The start of the next bucket (exclusive end of this one).
+     */
+    public LocalDateTime getBucketEnd() {
+        return granularity.bucketEnd(bucketStart);
+    }
+
+    public int getTests() {
+        return tests;
+    }
+
+    public int getMinScore() {
+        return minScore;
+    }
+
+    public int getMaxScore() {
+        return maxScore;
+    }
+
+    public long getScoreSum() {
+        return scoreSum;
+    }
+
+    public double getMeanScore() {
+        return tests == 0 ? 0 : (double) scoreSum / tests;
+    }
+
+    public int getLastScore() {
+        return lastScore;
+    }
+
+    public LocalDateTime getLastTestAt() {
+        return lastTestAt;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
+        return "ProgressRollup{" +
+               "userId=" + userId +
+               ", " + granularity + " of " + bucketStart.format(formatter) +
+               ", tests=" + tests +
+               ", min=" + minScore +
+               ", max=" + maxScore +
+               ", mean=" + String.format("%.1f", getMeanScore()) +
+               ", last=" + lastScore +
+               '}';
+    }
+}
@@ -0,0 +1,46 @@
+package com.pokemedquest.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A prompt for a patient to take their next CMAS test. Immutable.
+ */
+public class Reminder {
+
+    // --- Fields ---
+    private final int userId;                // The patient to remind
+    private final LocalDateTime dueAt;       // When the next test was due
+    private final LocalDateTime lastTestAt;  // The patient's latest test, null if they never tested
+
+    // --- Constructor ---
+
+    public Reminder(int userId, LocalDateTime dueAt, LocalDateTime lastTestAt) {
+        this.userId = userId;
+        this.dueAt = dueAt;
+        this.lastTestAt = lastTestAt;
+    }
+
+    // --- Getters ---
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public LocalDateTime getDueAt() {
+        return dueAt;
+    }
+
+    public LocalDateTime getLastTestAt() {
+        return lastTestAt;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "Reminder{" +
+               "userId=" + userId +
+               ", dueAt=" + dueAt +
+               ", lastTestAt=" + lastTestAt +
+               '}';
+    }
+}
@@ -0,0 +1,94 @@
+package com.pokemedquest.model;
+
+/**
+ * Represents a logged-in session in PokeMed_Quest.
+ * A session is identified by an opaque token and carries a snapshot of the
+ * User (and their Avatar, for children) taken at login, so that handlers do not
+ * need to go back to the database for every request. The avatar is kept current by
+ * the SessionRegistry from AvatarUpdated events.
+ */
+public class Session {
+
+    // --- Fields ---
+    private final String token;     // Opaque, unguessable session identifier
+    private final User user;        // Snapshot of the logged-in user
+    private volatile Avatar avatar; // Snapshot of the user's avatar (null for admins/doctors)
+    private final long createdAtMillis;       // When the session was created
+    private volatile long expiresAtMillis;    // Sliding expiry; pushed forward on every access
+
+    // --- Constructor ---
+
+    /**
+     * Constructor used by the SessionRegistry when a user logs in.
+     *
+     * @param token The opaque session token.
+     * @param user The logged-in user.
+     * @param avatar The user's avatar, or null if they have none.
+     * @param createdAtMillis Creation time in epoch millis.
+     * @param expiresAtMillis Initial expiry time in epoch millis.
+     */
+    public Session(String token, User user, Avatar avatar, long createdAtMillis, long expiresAtMillis) {
+        this.token = token;
+        this.user = user;
+        this.avatar = avatar;
+        this.createdAtMillis = createdAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    // --- Getters and Setters ---
+
+    public String getToken() {
+        return token;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Avatar getAvatar() {
+        return avatar;
+    }
+
+    /**
+     * Replaces the cached avatar snapshot if the given one is newer, e.g. after the avatar
+     * was customized or levelled up. Updates can arrive out of order, so an older or equal
+     * version is ignored.
+     * @param avatar The new avatar snapshot, with its saved version.
+     * @return true if the snapshot was replaced.
+     */
+    public synchronized boolean updateAvatar(Avatar avatar) {
+        Avatar current = this.avatar;
+        if (current != null && avatar.getVersion() <= current.getVersion()) {
+            return false;
+        }
+        this.avatar = avatar;
+        return true;
+    }
+
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public void setExpiresAtMillis(long expiresAtMillis) {
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    // IMPORTANT: Do NOT include the token in toString(), it is as good as a password.
+    @Override
+    public String toString() {
+        return "Session{" +
+               "user=" + user +
+               ", createdAtMillis=" + createdAtMillis +
+               ", expiresAtMillis=" + expiresAtMillis +
+               '}';
+    }
+}
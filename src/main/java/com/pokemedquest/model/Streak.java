@@ -0,0 +1,79 @@
+package com.pokemedquest.model;
+
+import java.time.LocalDate;
+
+/**
+ * A run of consecutive testing periods (days or weeks) for one user.
+ * Periods are identified by a date: the day itself, or the Monday of the week.
+ */
+public class Streak {
+
+    // --- Fields ---
+    private LocalDate lastPeriod;   // Most recent period with a test (null: no tests yet)
+    private LocalDate runStart;     // First period of the run that ends at lastPeriod
+    private int currentRun;         // Length of that run, in periods
+    private int bestRun;            // Longest run ever, in periods
+
+    // --- Constructors ---
+
+    /**
+     * Creates an empty streak (no tests yet).
+     */
+    public Streak() {
+    }
+
+    /**
+     * Constructor for creating a Streak from data retrieved from the database.
+     */
+    public Streak(LocalDate lastPeriod, LocalDate runStart, int currentRun, int bestRun) {
+        this.lastPeriod = lastPeriod;
+        this.runStart = runStart;
+        this.currentRun = currentRun;
+        this.bestRun = bestRun;
+    }
+
+    // --- Getters and Setters ---
+
+    public LocalDate getLastPeriod() {
+        return lastPeriod;
+    }
+
+    public void setLastPeriod(LocalDate lastPeriod) {
+        this.lastPeriod = lastPeriod;
+    }
+
+    public LocalDate getRunStart() {
+        return runStart;
+    }
+
+    public void setRunStart(LocalDate runStart) {
+        this.runStart = runStart;
+    }
+
+    public int getCurrentRun() {
+        return currentRun;
+    }
+
+    public void setCurrentRun(int currentRun) {
+        this.currentRun = currentRun;
+    }
+
+    public int getBestRun() {
+        return bestRun;
+    }
+
+    public void setBestRun(int bestRun) {
+        this.bestRun = bestRun;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "Streak{" +
+               "lastPeriod=" + lastPeriod +
+               ", runStart=" + runStart +
+               ", currentRun=" + currentRun +
+               ", bestRun=" + bestRun +
+               '}';
+    }
+}
@@ -0,0 +1,64 @@
+package com.pokemedquest.model;
+
+/**
+ * The compact testing-streak state of one user: a daily and a weekly Streak.
+ * Stored in the user_streaks table and updated on every recorded test.
+ */
+public class StreakState {
+
+    // --- Fields ---
+    private int userId;
+    private Streak daily;    // Consecutive days with a test
+    private Streak weekly;   // Consecutive (ISO, Monday-based) weeks with a test
+
+    // --- Constructors ---
+
+    /**
+     * Creates the state of a user with no tests yet.
+     * @param userId The user the state belongs to.
+     */
+    public StreakState(int userId) {
+        this(userId, new Streak(), new Streak());
+    }
+
+    /**
+     * Constructor for creating a StreakState from data retrieved from the database.
+     */
+    public StreakState(int userId, Streak daily, Streak weekly) {
+        this.userId = userId;
+        this.daily = daily;
+        this.weekly = weekly;
+    }
+
+    // --- Getters and Setters ---
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public Streak getDaily() {
+        return daily;
+    }
+
+    public void setDaily(Streak daily) {
+        this.daily = daily;
+    }
+
+    public Streak getWeekly() {
+        return weekly;
+    }
+
+    public void setWeekly(Streak weekly) {
+        this.weekly = weekly;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "StreakState{" +
+               "userId=" + userId +
+               ", daily=" + daily +
+               ", weekly=" + weekly +
+               '}';
+    }
+}
@@ -0,0 +1,91 @@
+package com.pokemedquest.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The changes one database ships to another in delta sync: the current state of every
+ * users, avatars and test_progress row changed in the source's change_log between
+ * fromSeq (exclusive) and toSeq (inclusive).
+ *
+ * User IDs inside are the source's; the receiver maps them to its own through the
+ * usernames, which are the same in every database.
+ */
+public class SyncDelta {
+
+    // --- Fields ---
+    private final String sourceNode;  // sync_node.node_id of the database that made the delta
+    private final long fromSeq;       // Changes after this sequence...
+    private final long toSeq;         // ...up to and including this one
+    private final long ackSeq;        // Highest of the receiver's own sequences the source has applied
+    private final Map<Integer, String> usernames = new HashMap<>(); // Every source user ID referenced below
+    private final List<User> users = new ArrayList<>();
+    private final List<Avatar> avatars = new ArrayList<>();
+    private final List<TestProgress> progress = new ArrayList<>();
+
+    // --- Constructor ---
+
+    public SyncDelta(String sourceNode, long fromSeq, long toSeq, long ackSeq) {
+        this.sourceNode = sourceNode;
+        this.fromSeq = fromSeq;
+        this.toSeq = toSeq;
+        this.ackSeq = ackSeq;
+    }
+
+    // --- Getters ---
+
+    public String getSourceNode() {
+        return sourceNode;
+    }
+
+    public long getFromSeq() {
+        return fromSeq;
+    }
+
+    public long getToSeq() {
+        return toSeq;
+    }
+
+    public long getAckSeq() {
+        return ackSeq;
+    }
+
+    public Map<Integer, String> getUsernames() {
+        return usernames;
+    }
+
+    public List<User> getUsers() {
+        return users;
+    }
+
+    public List<Avatar> getAvatars() {
+        return avatars;
+    }
+
+    public List<TestProgress> getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return The number of rows the delta carries.
+     */
+    public int getRowCount() {
+        return users.size() + avatars.size() + progress.size();
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "SyncDelta{" +
+               "sourceNode='" + sourceNode + '\'' +
+               ", fromSeq=" + fromSeq +
+               ", toSeq=" + toSeq +
+               ", ackSeq=" + ackSeq +
+               ", users=" + users.size() +
+               ", avatars=" + avatars.size() +
+               ", progress=" + progress.size() +
+               '}';
+    }
+}
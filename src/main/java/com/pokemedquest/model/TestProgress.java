@@ -13,6 +13,7 @@ public class TestProgress {
     private int userId;         // Foreign key linking to the User who took the test
     private LocalDateTime testTimestamp; // When the test was completed
     private int cmasScore;      // The resulting CMAS score for this test
+    private CmasItemScores itemScores; // Per-item scores, or null if only the total was recorded
 
     // --- Constructors ---
 
@@ -79,6 +80,14 @@ public class TestProgress {
         this.cmasScore = cmasScore;
     }
 
+    public CmasItemScores getItemScores() {
+        return itemScores;
+    }
+
+    public void setItemScores(CmasItemScores itemScores) {
+        this.itemScores = itemScores;
+    }
+
     // --- Optional: toString() method for debugging ---
     @Override
     public String toString() {
@@ -91,6 +100,7 @@ public class TestProgress {
                ", userId=" + userId +
                ", testTimestamp=" + formattedTimestamp +
                ", cmasScore=" + cmasScore +
+               (itemScores != null ? ", itemScores=" + itemScores : "") +
                '}';
     }
 }
\ No newline at end of file
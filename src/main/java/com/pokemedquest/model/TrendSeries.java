@@ -0,0 +1,135 @@
+package com.pokemedquest.model;
+
+import com.pokemedquest.util.LttbDownsampler;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * A user's CMAS history reduced to a few dozen points for charting (see
+ * ProgressService.getTrendSeries), oldest first. Each point is a real test result (or
+ * rollup mean) picked to keep the shape of the curve, with the lowest and highest score
+ * of the stretch of history it stands for.
+ */
+public class TrendSeries {
+
+    // --- Fields ---
+    private final long sourcePoints;      // Results (and rollups) the series was reduced from
+    private final LocalDateTime[] times;
+    private final double[] scores;
+    private final double[] lows;
+    private final double[] highs;
+
+    // --- Constructor ---
+
+    public TrendSeries(long sourcePoints, LocalDateTime[] times, double[] scores, double[] lows, double[] highs) {
+        this.sourcePoints = sourcePoints;
+        this.times = times;
+        this.scores = scores;
+        this.lows = lows;
+        this.highs = highs;
+    }
+
+    /**
+     * @return A series with no points, for a user without results.
+     */
+    public static TrendSeries empty() {
+        return new TrendSeries(0, new LocalDateTime[0], new double[0], new double[0], new double[0]);
+    }
+
+    /**
+     * Reduces a history to at most the given number of points, keeping its shape (see
+     * LttbDownsampler). A rollup counts as one point at the start of its bucket, at the mean
+     * score, with its min and max as the range. One pass over the history, whatever the
+     * number of points asked for.
+     * @param history The history to reduce.
+     * @param points The most points to keep, at least 3.
+     */
+    public static TrendSeries from(ProgressHistory history, int points) {
+        List<TestProgress> recent = history.getRecent();     // Both most recent first
+        List<ProgressRollup> rollups = history.getRollups();
+        int count = recent.size() + rollups.size();
+        LttbDownsampler lttb = new LttbDownsampler(count, points);
+        // Merge the two lists oldest first; rollups are normally all older than the raw results
+        int r = recent.size() - 1;
+        int b = rollups.size() - 1;
+        while (r >= 0 || b >= 0) {
+            boolean takeRollup = r < 0
+                    || (b >= 0 && !rollups.get(b).getBucketStart().isAfter(recent.get(r).getTestTimestamp()));
+            if (takeRollup) {
+                ProgressRollup rollup = rollups.get(b--);
+                lttb.add(rollup.getBucketStart().toEpochSecond(ZoneOffset.UTC), rollup.getMeanScore(),
+                        rollup.getMinScore(), rollup.getMaxScore());
+            } else {
+                TestProgress progress = recent.get(r--);
+                lttb.add(progress.getTestTimestamp().toEpochSecond(ZoneOffset.UTC), progress.getCmasScore());
+            }
+        }
+        return finish(lttb, count);
+    }
+
+    /**
+     * Finishes a downsampler that was fed every point (e.g. straight from
+     * TestProgressDao.streamTrendPoints) and collects the points it kept.
+     * @param lttb The downsampler, with x in epoch seconds (UTC).
+     * @param sourcePoints The number of points it was fed.
+     */
+    public static TrendSeries finish(LttbDownsampler lttb, long sourcePoints) {
+        int kept = lttb.finish();
+        LocalDateTime[] times = new LocalDateTime[kept];
+        double[] scores = new double[kept];
+        double[] lows = new double[kept];
+        double[] highs = new double[kept];
+        for (int i = 0; i < kept; i++) {
+            times[i] = LocalDateTime.ofEpochSecond((long) lttb.getX(i), 0, ZoneOffset.UTC); // UTC both ways
+            scores[i] = lttb.getY(i);
+            lows[i] = lttb.getLow(i);
+            highs[i] = lttb.getHigh(i);
+        }
+        return new TrendSeries(sourcePoints, times, scores, lows, highs);
+    }
+
+    // --- Getters ---
+
+    public long getSourcePoints() {
+        return sourcePoints;
+    }
+
+    /**
+     * @return The number of points in the series.
+     */
+    public int size() {
+        return times.length;
+    }
+
+    public LocalDateTime getTime(int i) {
+        return times[i];
+    }
+
+    public double getScore(int i) {
+        return scores[i];
+    }
+
+    public double getLow(int i) {
+        return lows[i];
+    }
+
+    public double getHigh(int i) {
+        return highs[i];
+    }
+
+    public boolean isEmpty() {
+        return times.length == 0;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "TrendSeries{" +
+               "points=" + times.length +
+               ", sourcePoints=" + sourcePoints +
+               (times.length > 0 ? ", from=" + times[0] + ", to=" + times[times.length - 1] : "") +
+               '}';
+    }
+}
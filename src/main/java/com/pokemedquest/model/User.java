@@ -11,6 +11,7 @@ public class User {
     private String username; // User's login name
     private String passwordHash; // Stores the HASH of the password, NOT the plain text password
     private String role; // User's role (e.g., "child", "admin", "doctor")
+    private int version; // Row version when read; updates only succeed if it is still current
 
     // --- Constructor ---
 
@@ -91,6 +92,18 @@ public class User {
         this.role = role;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the row version, as read from the database or after a successful update.
+     * @param version The version the users row had.
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     // --- Optional: toString() method for debugging ---
     // Good for easily printing user info (e.g., for logging or debugging)
     // IMPORTANT: Do NOT include the passwordHash in toString() for security reasons.
@@ -101,6 +114,7 @@ public class User {
                "id=" + id +
                ", username='" + username + '\'' +
                ", role='" + role + '\'' +
+               ", version=" + version +
                '}';
     }
 
@@ -0,0 +1,77 @@
+package com.pokemedquest.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents an achievement (reward) unlocked by a User.
+ * Each achievement is identified by a code such as "FIRST_TEST" or "PERSONAL_BEST:42",
+ * and can be unlocked at most once per user.
+ */
+public class UserAchievement {
+
+    // --- Fields ---
+    private int userId;                 // The user who unlocked the achievement
+    private String achievementCode;     // Which achievement (see AchievementRules)
+    private LocalDateTime unlockedAt;   // When it was unlocked
+    private int levelsAwarded;          // Avatar levels granted as the reward
+
+    // --- Constructor ---
+
+    /**
+     * @param userId The user who unlocked the achievement.
+     * @param achievementCode The achievement code.
+     * @param unlockedAt When it was unlocked.
+     * @param levelsAwarded Avatar levels granted as the reward.
+     */
+    public UserAchievement(int userId, String achievementCode, LocalDateTime unlockedAt, int levelsAwarded) {
+        this.userId = userId;
+        this.achievementCode = achievementCode;
+        this.unlockedAt = unlockedAt;
+        this.levelsAwarded = levelsAwarded;
+    }
+
+    // --- Getters and Setters ---
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public String getAchievementCode() {
+        return achievementCode;
+    }
+
+    public void setAchievementCode(String achievementCode) {
+        this.achievementCode = achievementCode;
+    }
+
+    public LocalDateTime getUnlockedAt() {
+        return unlockedAt;
+    }
+
+    public void setUnlockedAt(LocalDateTime unlockedAt) {
+        this.unlockedAt = unlockedAt;
+    }
+
+    public int getLevelsAwarded() {
+        return levelsAwarded;
+    }
+
+    public void setLevelsAwarded(int levelsAwarded) {
+        this.levelsAwarded = levelsAwarded;
+    }
+
+    // --- Optional: toString() method for debugging ---
+    @Override
+    public String toString() {
+        return "UserAchievement{" +
+               "userId=" + userId +
+               ", achievementCode='" + achievementCode + '\'' +
+               ", unlockedAt=" + unlockedAt +
+               ", levelsAwarded=" + levelsAwarded +
+               '}';
+    }
+}
@@ -0,0 +1,63 @@
+package com.pokemedquest.reminder;
+
+import com.pokemedquest.model.Reminder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends reminders to a text file, one line each: user ID, due time and last test time
+ * ("-" if none), tab-separated. Each batch is written with a single flush, for whatever
+ * picks the file up (a notification job, or a person during development).
+ */
+public class FileReminderSink implements ReminderSink, AutoCloseable {
+
+    private final Path file;
+    private final BufferedWriter writer;
+
+    /**
+     * Opens the file for appending, creating it and its directory if needed.
+     * @param file The file to append to.
+     * @throws IOException if the file cannot be opened.
+     */
+    public FileReminderSink(Path file) throws IOException {
+        this.file = file;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized void deliver(List<Reminder> reminders) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        for (Reminder reminder : reminders) {
+            line.setLength(0);
+            line.append(reminder.getUserId()).append('\t').append(reminder.getDueAt()).append('\t')
+                    .append(reminder.getLastTestAt() != null ? reminder.getLastTestAt().toString() : "-");
+            writer.write(line.toString());
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Error closing reminder file " + file + ": " + e.getMessage());
+        }
+    }
+}
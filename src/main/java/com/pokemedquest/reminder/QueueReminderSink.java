@@ -0,0 +1,43 @@
+package com.pokemedquest.reminder;
+
+import com.pokemedquest.model.Reminder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Puts reminders on a bounded in-process queue, standing in for a message queue until the
+ * app has one. Consumers take reminders from {@link #getQueue()}.
+ *
+ * A batch is refused whole when it does not fit, so the scheduler retries it later rather
+ * than losing part of it.
+ */
+public class QueueReminderSink implements ReminderSink {
+
+    private final BlockingQueue<Reminder> queue;
+
+    /**
+     * @param capacity The most reminders waiting to be consumed.
+     */
+    public QueueReminderSink(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public synchronized void deliver(List<Reminder> reminders) throws IOException {
+        // Only this method adds, so the free space can only grow while it runs
+        if (queue.remainingCapacity() < reminders.size()) {
+            throw new IOException("Reminder queue full (" + queue.size() + " waiting)");
+        }
+        queue.addAll(reminders);
+    }
+
+    /**
+     * @return The queue consumers take reminders from.
+     */
+    public BlockingQueue<Reminder> getQueue() {
+        return queue;
+    }
+}
@@ -0,0 +1,325 @@
+package com.pokemedquest.reminder;
+
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.dao.UserDao;
+import com.pokemedquest.events.DomainEvent;
+import com.pokemedquest.events.EventSubscriber;
+import com.pokemedquest.events.ProgressRecorded;
+import com.pokemedquest.events.UserRegistered;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.Reminder;
+import com.pokemedquest.model.User;
+import com.pokemedquest.util.HierarchicalTimingWheel;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reminds patients (users with role "child") to take their next CMAS test.
+ *
+ * A patient's next test is due one cadence (default 7 days) after their latest test, or
+ * right away if they have never tested. Every patient has one entry in a
+ * HierarchicalTimingWheel at minute resolution, so a recorded test moves the entry in O(1)
+ * (via the ProgressRecorded subscription) and the ticker only ever looks at patients who
+ * are due: the work per minute follows the number of reminders sent, not the number of
+ * patients scheduled. Due reminders go to the ReminderSink in batches. A patient who still
+ * has not tested is reminded again every repeat interval (default 1 day); a batch the
+ * sink refuses is retried after 5 minutes.
+ *
+ * Call {@link #load()} once to schedule every patient from the database, subscribe the
+ * scheduler to the EventBus, then {@link #start()} the ticker.
+ */
+public class ReminderScheduler implements EventSubscriber {
+
+    public static final long DEFAULT_CADENCE_MILLIS = TimeUnit.DAYS.toMillis(7);
+    public static final long DEFAULT_REPEAT_MILLIS = TimeUnit.DAYS.toMillis(1);
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final long TICK_MILLIS = TimeUnit.MINUTES.toMillis(1); // Reminder resolution
+    private static final int WHEEL_LEVELS = 4;                            // 64^4 minutes, about 31 years
+    private static final long RETRY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long NEVER_TESTED = Long.MIN_VALUE;
+    private static final String PATIENT_ROLE = "child";
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer LOAD_TIMER = Metrics.timer("ReminderScheduler.load");
+    private static final Timer PATIENT_TESTED_TIMER = Metrics.timer("ReminderScheduler.patientTested");
+    private static final Timer DELIVER_DUE_TIMER = Metrics.timer("ReminderScheduler.deliverDue");
+
+    /**
+     * A scheduled patient. lastTestMillis is only changed while holding the object's lock.
+     */
+    private static final class Patient {
+        final int userId;
+        volatile long lastTestMillis;
+
+        Patient(int userId, long lastTestMillis) {
+            this.userId = userId;
+            this.lastTestMillis = lastTestMillis;
+        }
+    }
+
+    private final UserDao userDao;
+    private final TestProgressDao testProgressDao;
+    private final ReminderSink sink;
+    private final long cadenceMillis;
+    private final long repeatMillis;
+    private final int batchSize;
+
+    private final HierarchicalTimingWheel<Patient> wheel;
+    private final ConcurrentHashMap<Integer, HierarchicalTimingWheel.Timeout<Patient>> patients = new ConcurrentHashMap<>();
+
+    // The batch being filled, only touched by the ticker (deliverDue is synchronized)
+    private final List<Reminder> batch = new ArrayList<>();
+    private final List<HierarchicalTimingWheel.Timeout<Patient>> batchTimeouts = new ArrayList<>();
+    private final List<Long> batchDeadlines = new ArrayList<>();
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Creates a scheduler with the default cadence, repeat interval and batch size.
+     * @param userDao The UserDao instance, for the list of patients.
+     * @param testProgressDao The TestProgressDao instance, for their latest tests.
+     * @param sink Where due reminders are delivered.
+     */
+    public ReminderScheduler(UserDao userDao, TestProgressDao testProgressDao, ReminderSink sink) {
+        this(userDao, testProgressDao, sink, DEFAULT_CADENCE_MILLIS, DEFAULT_REPEAT_MILLIS, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param userDao The UserDao instance, for the list of patients.
+     * @param testProgressDao The TestProgressDao instance, for their latest tests.
+     * @param sink Where due reminders are delivered.
+     * @param cadenceMillis How long after a test the next one is due.
+     * @param repeatMillis How often a patient who has not tested yet is reminded again.
+     * @param batchSize The most reminders handed to the sink at once.
+     */
+    public ReminderScheduler(UserDao userDao, TestProgressDao testProgressDao, ReminderSink sink,
+                             long cadenceMillis, long repeatMillis, int batchSize) {
+        this.userDao = userDao;
+        this.testProgressDao = testProgressDao;
+        this.sink = sink;
+        this.cadenceMillis = cadenceMillis;
+        this.repeatMillis = repeatMillis;
+        this.batchSize = batchSize;
+        this.wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, WHEEL_LEVELS, System.currentTimeMillis());
+    }
+
+    /**
+     * Schedules every patient in the database from their latest test. Patients already
+     * scheduled keep their entry, moved if the database knows of a later test.
+     */
+    public void load() {
+        long start = System.nanoTime();
+        try {
+            Map<Integer, LocalDateTime> lastTests = testProgressDao.findLastTestTimes();
+            for (User user : userDao.findUsersByRole(PATIENT_ROLE)) {
+                schedulePatient(user.getId(), lastTests.get(user.getId()));
+            }
+        } finally {
+            LOAD_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Adds a patient, or moves their reminder if lastTestAt is later than the test it was
+     * based on.
+     * @param userId The patient's user ID.
+     * @param lastTestAt Their latest test, or null if they have never tested.
+     */
+    public void schedulePatient(int userId, LocalDateTime lastTestAt) {
+        record(userId, lastTestAt != null ? toMillis(lastTestAt) : NEVER_TESTED);
+    }
+
+    /**
+     * Moves a patient's next reminder to one cadence after a test they just took. O(1).
+     * Backfilled results older than the patient's latest test change nothing.
+     * @param userId The patient's user ID.
+     * @param testedAt When the test was taken.
+     */
+    public void patientTested(int userId, LocalDateTime testedAt) {
+        long start = System.nanoTime();
+        try {
+            record(userId, toMillis(testedAt));
+        } finally {
+            PATIENT_TESTED_TIMER.recordSince(start);
+        }
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            if (event instanceof ProgressRecorded) {
+                patientTested(event.getUserId(), ((ProgressRecorded) event).getProgress().getTestTimestamp());
+            } else if (event instanceof UserRegistered && PATIENT_ROLE.equals(((UserRegistered) event).getRole())) {
+                schedulePatient(event.getUserId(), null);
+            }
+        }
+    }
+
+    /**
+     * Sends every reminder that has come due, in batches. Called by the ticker every minute;
+     * exposed so benchmarks can drive time themselves.
+     *
+     * @param nowMillis The current time in epoch millis.
+     * @return The number of reminders delivered.
+     */
+    public synchronized int deliverDue(long nowMillis) {
+        long start = System.nanoTime();
+        long deliveredBefore = delivered.sum();
+        try {
+            wheel.advance(nowMillis, timeout -> {
+                long deadline = timeout.getDeadlineMillis();
+                if (deadline > nowMillis) {
+                    return; // Just moved by a new test; the wheel places it again
+                }
+                Patient patient = timeout.getItem();
+                long lastTest = patient.lastTestMillis;
+                batch.add(new Reminder(patient.userId,
+                        toDateTime(lastTest != NEVER_TESTED ? lastTest + cadenceMillis : deadline),
+                        lastTest != NEVER_TESTED ? toDateTime(lastTest) : null));
+                batchTimeouts.add(timeout);
+                batchDeadlines.add(deadline);
+                if (batch.size() >= batchSize) {
+                    flush(nowMillis);
+                }
+            });
+            flush(nowMillis);
+            int count = (int) (delivered.sum() - deliveredBefore);
+            DELIVER_DUE_TIMER.addRows(count);
+            return count;
+        } finally {
+            DELIVER_DUE_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Starts calling deliverDue once a minute on a background thread.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return; // Already running
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reminders");
+            thread.setDaemon(true); // Never keep the JVM alive just for reminders
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> deliverDue(System.currentTimeMillis()),
+                TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the ticker; a delivery in progress finishes first.
+     */
+    public void shutdown() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = ticker;
+            ticker = null;
+        }
+        if (running == null) {
+            return;
+        }
+        running.shutdown();
+        try {
+            running.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The number of patients with a reminder scheduled.
+     */
+    public int getScheduledCount() {
+        return patients.size();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return Reminders whose batch the sink refused (each retry counts again).
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    private void record(int userId, long testedMillis) {
+        HierarchicalTimingWheel.Timeout<Patient> timeout = patients.get(userId);
+        if (timeout == null) {
+            timeout = patients.computeIfAbsent(userId,
+                    id -> wheel.schedule(new Patient(id, testedMillis), dueMillis(testedMillis)));
+            if (timeout.getItem().lastTestMillis == testedMillis) {
+                return; // Just added (or already up to date)
+            }
+        }
+        Patient patient = timeout.getItem();
+        synchronized (patient) {
+            if (testedMillis == NEVER_TESTED || testedMillis <= patient.lastTestMillis) {
+                return;
+            }
+            patient.lastTestMillis = testedMillis;
+            wheel.reschedule(timeout, testedMillis + cadenceMillis);
+        }
+    }
+
+    /**
+     * Hands the batch to the sink, then schedules the next reminder for each patient in it:
+     * after the repeat interval, or after RETRY_MILLIS if the sink failed.
+     */
+    private void flush(long nowMillis) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        boolean sent;
+        try {
+            sink.deliver(batch);
+            delivered.add(batch.size());
+            sent = true;
+        } catch (IOException | RuntimeException e) {
+            failed.add(batch.size());
+            System.err.println("Error delivering " + batch.size() + " reminders: " + e.getMessage());
+            sent = false;
+        }
+        long next = nowMillis + (sent ? repeatMillis : RETRY_MILLIS);
+        for (int i = 0; i < batchTimeouts.size(); i++) {
+            HierarchicalTimingWheel.Timeout<Patient> timeout = batchTimeouts.get(i);
+            synchronized (timeout.getItem()) {
+                if (timeout.getDeadlineMillis() == batchDeadlines.get(i)) {
+                    wheel.reschedule(timeout, next); // Unless a new test moved it meanwhile
+                }
+            }
+        }
+        batch.clear();
+        batchTimeouts.clear();
+        batchDeadlines.clear();
+    }
+
+    private long dueMillis(long lastTestMillis) {
+        return lastTestMillis != NEVER_TESTED ? lastTestMillis + cadenceMillis : System.currentTimeMillis();
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,23 @@
+package com.pokemedquest.reminder;
+
+import com.pokemedquest.model.Reminder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where ReminderScheduler sends due reminders, e.g. a file or a message queue.
+ */
+@FunctionalInterface
+public interface ReminderSink {
+
+    /**
+     * Delivers one batch, on the scheduler's ticker thread.
+     *
+     * @param reminders The reminders, in the order they became due. The list is reused after
+     * the call returns, so it must not be kept.
+     * @throws IOException if the batch could not be delivered; the scheduler tries these
+     * patients again a few minutes later.
+     */
+    void deliver(List<Reminder> reminders) throws IOException;
+}
@@ -0,0 +1,101 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.model.AchievementCounters;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.UserAchievement;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Evaluates achievement rules incrementally.
+ *
+ * For every recorded test the engine first folds the test into the user's counters
+ * (O(1), no history needed) and then runs each rule against the updated counters.
+ * It holds no per-user state itself; callers must not apply two tests to the same
+ * counters object concurrently.
+ */
+public class AchievementEngine {
+
+    private final List<AchievementRule> rules;
+
+    /**
+     * Creates an engine with the default rule set.
+     */
+    public AchievementEngine() {
+        this(AchievementRule.defaults());
+    }
+
+    /**
+     * @param rules The rules to evaluate, in order.
+     */
+    public AchievementEngine(List<AchievementRule> rules) {
+        this.rules = new ArrayList<>(rules);
+    }
+
+    public List<AchievementRule> getRules() {
+        return Collections.unmodifiableList(rules);
+    }
+
+    /**
+     * Folds one test into the counters and returns the achievements it newly unlocks.
+     * Unlocked codes are added to the counters, so each achievement is awarded only once.
+     * A test whose progressId was already applied is ignored.
+     *
+     * @param counters The user's counters (updated in place).
+     * @param progress The recorded test.
+     * @return The newly unlocked achievements (usually empty).
+     */
+    public List<UserAchievement> apply(AchievementCounters counters, TestProgress progress) {
+        if (!update(counters, progress)) {
+            return Collections.emptyList();
+        }
+        List<UserAchievement> unlocked = null;
+        for (AchievementRule rule : rules) {
+            String code = rule.evaluate(counters, progress);
+            if (code != null && counters.getUnlockedCodes().add(code)) {
+                if (unlocked == null) {
+                    unlocked = new ArrayList<>(2);
+                }
+                unlocked.add(new UserAchievement(counters.getUserId(), code, progress.getTestTimestamp(), rule.getLevelReward()));
+            }
+        }
+        return unlocked == null ? Collections.emptyList() : unlocked;
+    }
+
+    /**
+     * Folds one test into the counters without evaluating any rules.
+     * Used on its own to rebuild counters from history.
+     *
+     * @param counters The user's counters (updated in place).
+     * @param progress The recorded test.
+     * @return false if the test was already applied, true otherwise.
+     */
+    public boolean update(AchievementCounters counters, TestProgress progress) {
+        if (progress.getProgressId() > 0 && progress.getProgressId() <= counters.getLastProgressId()) {
+            return false; // Duplicate delivery
+        }
+        int score = progress.getCmasScore();
+
+        String month = YearMonth.from(progress.getTestTimestamp()).toString();
+        if (month.equals(counters.getCurrentMonth())) {
+            counters.setTestsThisMonth(counters.getTestsThisMonth() + 1);
+        } else if (counters.getCurrentMonth() == null || month.compareTo(counters.getCurrentMonth()) > 0) {
+            counters.setCurrentMonth(month);
+            counters.setTestsThisMonth(1);
+        } // else: a test from an earlier month, it does not count towards the current one
+
+        boolean hadScore = counters.getTotalTests() > 0;
+        counters.setNewPersonalBest(hadScore && score > counters.getBestScore());
+        if (score > counters.getBestScore()) {
+            counters.setBestScore(score);
+        }
+        counters.setImprovementStreak(hadScore && score > counters.getLastScore() ? counters.getImprovementStreak() + 1 : 0);
+        counters.setLastScore(score);
+        counters.setTotalTests(counters.getTotalTests() + 1);
+        counters.setLastProgressId(Math.max(counters.getLastProgressId(), progress.getProgressId()));
+        return true;
+    }
+}
@@ -0,0 +1,110 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.model.AchievementCounters;
+import com.pokemedquest.model.TestProgress;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One achievement rule: a check against a user's AchievementCounters (already updated
+ * with the new test) plus the number of avatar levels it awards.
+ *
+ * A rule returns the code of the achievement it unlocks, or null. The code identifies
+ * the achievement per user, so a rule can be one-off ("FIRST_TEST") or repeatable by
+ * putting something variable in the code ("TESTS_THIS_MONTH_5:2025-04").
+ */
+public final class AchievementRule {
+
+    /**
+     * The check itself. Must be cheap: it runs for every recorded test.
+     */
+    @FunctionalInterface
+    public interface Check {
+        String evaluate(AchievementCounters counters, TestProgress progress);
+    }
+
+    private final String name;
+    private final int levelReward;
+    private final Check check;
+
+    /**
+     * @param name A short name for the rule, used in logs and benchmarks.
+     * @param levelReward The avatar levels awarded when the rule unlocks an achievement.
+     * @param check The check to run.
+     */
+    public AchievementRule(String name, int levelReward, Check check) {
+        this.name = name;
+        this.levelReward = levelReward;
+        this.check = check;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLevelReward() {
+        return levelReward;
+    }
+
+    /**
+     * @return The achievement code unlocked by this test, or null.
+     */
+    public String evaluate(AchievementCounters counters, TestProgress progress) {
+        return check.evaluate(counters, progress);
+    }
+
+    // --- Standard rules ---
+
+    /**
+     * Unlocked by a user's very first test.
+     */
+    public static AchievementRule firstTest(int levelReward) {
+        return new AchievementRule("firstTest", levelReward,
+                (counters, progress) -> counters.getTotalTests() == 1 ? "FIRST_TEST" : null);
+    }
+
+    /**
+     * Unlocked once per calendar month, by the n-th test of that month.
+     */
+    public static AchievementRule testsThisMonth(int n, int levelReward) {
+        String prefix = "TESTS_THIS_MONTH_" + n + ":";
+        return new AchievementRule("testsThisMonth" + n, levelReward,
+                (counters, progress) -> counters.getTestsThisMonth() == n ? prefix + counters.getCurrentMonth() : null);
+    }
+
+    /**
+     * Unlocked every time a user beats their best score (not by the first test, which has nothing to beat).
+     */
+    public static AchievementRule personalBest(int levelReward) {
+        return new AchievementRule("personalBest", levelReward,
+                (counters, progress) -> counters.isNewPersonalBest() ? "PERSONAL_BEST:" + progress.getCmasScore() : null);
+    }
+
+    /**
+     * Unlocked once, when n tests in a row each score higher than the one before.
+     */
+    public static AchievementRule improvementStreak(int n, int levelReward) {
+        String code = "IMPROVEMENT_STREAK_" + n;
+        return new AchievementRule("improvementStreak" + n, levelReward,
+                (counters, progress) -> counters.getImprovementStreak() == n ? code : null);
+    }
+
+    /**
+     * @return The rules the application ships with.
+     */
+    public static List<AchievementRule> defaults() {
+        return Arrays.asList(
+                firstTest(1),
+                testsThisMonth(5, 1),
+                testsThisMonth(10, 2),
+                personalBest(1),
+                improvementStreak(3, 1),
+                improvementStreak(5, 2));
+    }
+
+    @Override
+    public String toString() {
+        return "AchievementRule{" + name + ", levels=" + levelReward + '}';
+    }
+}
@@ -0,0 +1,302 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.dao.AchievementDao;
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.events.AvatarUpdated;
+import com.pokemedquest.events.DomainEvent;
+import com.pokemedquest.events.EventBus;
+import com.pokemedquest.events.EventSubscriber;
+import com.pokemedquest.events.ProgressRecorded;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.AchievementCounters;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.UserAchievement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AchievementService turns recorded tests into achievements and avatar level rewards.
+ *
+ * It subscribes to ProgressRecorded events. For each recorded test it updates the user's cached
+ * AchievementCounters and runs the AchievementEngine rules against them - no history is
+ * read, except once per user to seed counters that were never saved. Unlocked achievements,
+ * changed counters and level rewards are queued and written in batches by a background
+ * flusher (every second, or sooner once enough writes are pending), and on shutdown().
+ * Saved level rewards are published as AvatarUpdated events.
+ */
+public class AchievementService implements EventSubscriber {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer ON_PROGRESS_RECORDED_TIMER = Metrics.timer("AchievementService.onProgressRecorded");
+    private static final Timer GET_ACHIEVEMENTS_FOR_USER_TIMER = Metrics.timer("AchievementService.getAchievementsForUser");
+    private static final Timer FLUSH_TIMER = Metrics.timer("AchievementService.flush");
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+    public static final int DEFAULT_FLUSH_BATCH_SIZE = 256;
+
+    private final AchievementDao achievementDao;
+    private final AvatarDao avatarDao;
+    private final TestProgressDao testProgressDao;
+    private final EventBus eventBus; // May be null: rewards are not published then
+    private final AchievementEngine engine;
+    private final int flushBatchSize;
+
+    private final ConcurrentHashMap<Integer, AchievementCounters> countersByUser = new ConcurrentHashMap<>();
+
+    // Writes waiting for the next flush
+    private final Queue<UserAchievement> pendingAchievements = new ConcurrentLinkedQueue<>();
+    private final Set<Integer> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    // Achievements unlocked since the user last asked, for showing them right away
+    private final ConcurrentHashMap<Integer, Queue<UserAchievement>> recentByUser = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Constructor for dependency injection, with the default rules and flush settings.
+     * @param achievementDao The AchievementDao instance.
+     * @param avatarDao The AvatarDao instance, used to award levels.
+     * @param testProgressDao The TestProgressDao instance, used to seed counters from history.
+     * @param eventBus The bus to publish level rewards on.
+     */
+    public AchievementService(AchievementDao achievementDao, AvatarDao avatarDao, TestProgressDao testProgressDao,
+                              EventBus eventBus) {
+        this(achievementDao, avatarDao, testProgressDao, eventBus, new AchievementEngine(),
+                DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_FLUSH_BATCH_SIZE);
+    }
+
+    /**
+     * @param achievementDao The AchievementDao instance.
+     * @param avatarDao The AvatarDao instance, used to award levels.
+     * @param testProgressDao The TestProgressDao instance, used to seed counters from history.
+     * @param eventBus The bus to publish level rewards on (may be null).
+     * @param engine The rule engine.
+     * @param flushIntervalMillis How often pending writes are flushed; 0 disables the background flusher.
+     * @param flushBatchSize Flush early once this many writes are pending.
+     */
+    public AchievementService(AchievementDao achievementDao, AvatarDao avatarDao, TestProgressDao testProgressDao,
+                              EventBus eventBus, AchievementEngine engine, long flushIntervalMillis, int flushBatchSize) {
+        this.achievementDao = achievementDao;
+        this.avatarDao = avatarDao;
+        this.testProgressDao = testProgressDao;
+        this.eventBus = eventBus;
+        this.engine = engine;
+        this.flushBatchSize = flushBatchSize;
+        if (flushIntervalMillis > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "achievement-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> batch) {
+        for (DomainEvent event : batch) {
+            if (event instanceof ProgressRecorded) {
+                onProgressRecorded(((ProgressRecorded) event).getProgress());
+            }
+        }
+    }
+
+    /**
+     * Evaluates the achievement rules for a newly recorded test and queues the resulting writes.
+     * Flushes triggered from here run on the flusher thread, never on the caller's.
+     * @param progress The saved test result.
+     */
+    public void onProgressRecorded(TestProgress progress) {
+        long start = System.nanoTime();
+        try {
+            Optional<AchievementCounters> loaded = countersFor(progress);
+            if (!loaded.isPresent()) {
+                // Nothing is cached, so the user's next result rebuilds the counters (this test included)
+                ON_PROGRESS_RECORDED_TIMER.markError();
+                System.err.println("Error updating achievements: history of user " + progress.getUserId() + " could not be read");
+                return;
+            }
+            AchievementCounters counters = loaded.get();
+            List<UserAchievement> unlocked;
+            synchronized (counters) {
+                unlocked = engine.apply(counters, progress);
+            }
+            // Queue first, count second: flush() resets the count before draining, so nothing is stranded
+            dirtyUsers.add(progress.getUserId());
+            if (!unlocked.isEmpty()) {
+                pendingAchievements.addAll(unlocked);
+                recentByUser.computeIfAbsent(progress.getUserId(), id -> new ConcurrentLinkedQueue<>()).addAll(unlocked);
+            }
+            int pending = pendingCount.addAndGet(1 + unlocked.size());
+            if (pending >= flushBatchSize && flusher != null) {
+                flusher.execute(this::flush);
+            }
+        } finally {
+            ON_PROGRESS_RECORDED_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Returns (and forgets) the achievements a user unlocked since the last call,
+     * so the CLI can congratulate them right after recording a test.
+     * @param userId The ID of the user.
+     * @return The newly unlocked achievements, oldest first (may be empty).
+     */
+    public List<UserAchievement> takeRecentAchievements(int userId) {
+        Queue<UserAchievement> recent = recentByUser.remove(userId);
+        return recent == null ? Collections.emptyList() : new ArrayList<>(recent);
+    }
+
+    /**
+     * Retrieves all achievements a user has unlocked, most recent first.
+     * Pending writes are flushed first, so the list is complete.
+     * @param userId The ID of the user.
+     * @return A List of UserAchievement objects (may be empty).
+     */
+    public List<UserAchievement> getAchievementsForUser(int userId) {
+        long start = System.nanoTime();
+        try {
+            flush();
+            return achievementDao.findAchievementsByUserId(userId);
+        } finally {
+            GET_ACHIEVEMENTS_FOR_USER_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Writes all pending achievements, counters and level rewards.
+     * Achievements and counters go in one transaction, level rewards in a second one.
+     * If a write fails, its data stays queued for the next flush.
+     */
+    public synchronized void flush() {
+        if (pendingCount.get() == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            pendingCount.set(0);
+            List<UserAchievement> achievements = new ArrayList<>();
+            UserAchievement achievement;
+            while ((achievement = pendingAchievements.poll()) != null) {
+                achievements.add(achievement);
+            }
+            List<AchievementCounters> snapshots = new ArrayList<>();
+            for (Integer userId : dirtyUsers) {
+                dirtyUsers.remove(userId);
+                AchievementCounters counters = countersByUser.get(userId);
+                if (counters != null) {
+                    synchronized (counters) {
+                        snapshots.add(new AchievementCounters(counters));
+                    }
+                }
+            }
+
+            if (!achievementDao.saveBatch(achievements, snapshots)) {
+                FLUSH_TIMER.markError();
+                requeue(achievements, snapshots);
+                return;
+            }
+            FLUSH_TIMER.addRows(achievements.size() + snapshots.size());
+
+            Map<Integer, Integer> levels = new HashMap<>();
+            for (UserAchievement unlocked : achievements) {
+                levels.merge(unlocked.getUserId(), unlocked.getLevelsAwarded(), Integer::sum);
+            }
+            Optional<List<Avatar>> rewarded = avatarDao.addLevels(levels);
+            if (!rewarded.isPresent()) {
+                // The achievements are saved; losing their level reward is better than awarding it twice
+                FLUSH_TIMER.markError();
+                System.err.println("Failed to award avatar levels for " + levels.size() + " users.");
+                return;
+            }
+            if (eventBus != null) {
+                // Whole avatars with their versions, so subscribers can drop an older state that arrives later
+                for (Avatar avatar : rewarded.get()) {
+                    eventBus.publish(new AvatarUpdated(avatar));
+                }
+            }
+        } finally {
+            FLUSH_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Stops the background flusher and writes everything still pending.
+     */
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * @return The rule engine, e.g. to inspect the active rules.
+     */
+    public AchievementEngine getEngine() {
+        return engine;
+    }
+
+    private void requeue(List<UserAchievement> achievements, List<AchievementCounters> snapshots) {
+        pendingAchievements.addAll(achievements);
+        for (AchievementCounters snapshot : snapshots) {
+            dirtyUsers.add(snapshot.getUserId());
+        }
+        pendingCount.addAndGet(achievements.size() + snapshots.size());
+    }
+
+    /**
+     * Returns the cached counters for the test's user, loading them on first use.
+     * Users without saved counters (e.g. tests recorded before achievements existed) get
+     * counters rebuilt from their history, excluding the test being processed.
+     * Empty if the history had to be read and could not be; nothing is cached then.
+     */
+    private Optional<AchievementCounters> countersFor(TestProgress progress) {
+        int userId = progress.getUserId();
+        AchievementCounters counters = countersByUser.get(userId);
+        if (counters != null) {
+            return Optional.of(counters);
+        }
+        counters = achievementDao.findCountersByUserId(userId).orElse(null);
+        if (counters == null) {
+            Optional<List<TestProgress>> found = testProgressDao.findCompleteProgressByUserId(userId);
+            if (!found.isPresent()) {
+                return Optional.empty();
+            }
+            counters = new AchievementCounters(userId);
+            List<TestProgress> history = found.get(); // Most recent first, archived included
+            for (int i = history.size() - 1; i >= 0; i--) {
+                TestProgress past = history.get(i);
+                if (past.getProgressId() != progress.getProgressId()) {
+                    engine.update(counters, past);
+                }
+            }
+        }
+        AchievementCounters existing = countersByUser.putIfAbsent(userId, counters);
+        return Optional.of(existing != null ? existing : counters);
+    }
+}
@@ -1,6 +1,18 @@
 package com.pokemedquest.service;
 
+import com.pokemedquest.audit.Audit;
+import com.pokemedquest.audit.AuditOperation;
+import com.pokemedquest.dao.AvatarDao;
 import com.pokemedquest.dao.UserDao;
+import com.pokemedquest.events.EventBus;
+import com.pokemedquest.events.UserLoggedIn;
+import com.pokemedquest.events.UserRegistered;
+import com.pokemedquest.jfr.LoginEvent;
+import com.pokemedquest.jfr.RegistrationEvent;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.Session;
 import com.pokemedquest.model.User;
 
 import java.util.Optional;
@@ -10,15 +22,57 @@ import java.util.Optional;
  */
 public class AuthService {
 
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer REGISTER_USER_TIMER = Metrics.timer("AuthService.registerUser");
+    private static final Timer LOGIN_USER_TIMER = Metrics.timer("AuthService.loginUser");
+    private static final Timer START_SESSION_TIMER = Metrics.timer("AuthService.startSession");
+    private static final Timer GET_SESSION_TIMER = Metrics.timer("AuthService.getSession");
+    private static final Timer LOGOUT_TIMER = Metrics.timer("AuthService.logout");
+    private static final Timer FIND_USER_BY_USERNAME_TIMER = Metrics.timer("AuthService.findUserByUsername");
+
     private final UserDao userDao;
+    private final AvatarDao avatarDao;
+    private final SessionRegistry sessionRegistry;
+    private final EventBus eventBus; // May be null: no events are published then
+    private final LoginRateLimiter loginRateLimiter;
+
+    /**
+     * Constructor for dependency injection. The session registry is owned by the caller,
+     * which shuts it down (see SessionRegistry.shutdown).
+     * @param userDao The UserDao instance.
+     * @param avatarDao The AvatarDao instance, used to snapshot the avatar into the session.
+     * @param sessionRegistry The registry that holds all logged-in sessions.
+     */
+    public AuthService(UserDao userDao, AvatarDao avatarDao, SessionRegistry sessionRegistry) {
+        this(userDao, avatarDao, sessionRegistry, null);
+    }
 
     /**
-     * Constructor for dependency injection.
-     * Requires a UserDao instance to interact with the database.
+     * Constructor for dependency injection with a shared session registry and event bus.
      * @param userDao The UserDao instance.
+     * @param avatarDao The AvatarDao instance, used to snapshot the avatar into the session.
+     * @param sessionRegistry The registry that holds all logged-in sessions.
+     * @param eventBus The bus to publish UserRegistered and UserLoggedIn events on.
      */
-    public AuthService(UserDao userDao) {
+    public AuthService(UserDao userDao, AvatarDao avatarDao, SessionRegistry sessionRegistry, EventBus eventBus) {
+        this(userDao, avatarDao, sessionRegistry, eventBus, new LoginRateLimiter());
+    }
+
+    /**
+     * Constructor for dependency injection with a shared session registry, event bus and login limits.
+     * @param userDao The UserDao instance.
+     * @param avatarDao The AvatarDao instance, used to snapshot the avatar into the session.
+     * @param sessionRegistry The registry that holds all logged-in sessions.
+     * @param eventBus The bus to publish UserRegistered and UserLoggedIn events on.
+     * @param loginRateLimiter Throttles login attempts per username and overall.
+     */
+    public AuthService(UserDao userDao, AvatarDao avatarDao, SessionRegistry sessionRegistry, EventBus eventBus,
+                       LoginRateLimiter loginRateLimiter) {
+        this.loginRateLimiter = loginRateLimiter;
         this.userDao = userDao;
+        this.avatarDao = avatarDao;
+        this.sessionRegistry = sessionRegistry;
+        this.eventBus = eventBus;
     }
 
     /**
@@ -32,33 +86,50 @@ public class AuthService {
      * otherwise an empty Optional.
      */
     public Optional<User> registerUser(String username, String plainPassword, String role) {
-        // --- TODO: Implement Password Hashing ---
-        // Use a library like BCrypt:
-        // String hashedPassword = BCrypt.hashpw(plainPassword, BCrypt.gensalt());
-        // For this example, we'll store the plain password HASH (WHICH IS WRONG - just demonstrating flow)
-        // IN A REAL APP, NEVER STORE OR PASS AROUND PLAIN PASSWORDS LIKE THIS BEYOND INITIAL HASHING
-        String hashedPassword = plainPassword; // <-- !!! REPLACE WITH ACTUAL HASHING !!!
-
-        // Check if username already exists (optional, depends on DB constraints)
-        if (userDao.findUserByUsername(username).isPresent()) {
-            System.err.println("Username '" + username + "' already exists.");
-            return Optional.empty(); // Username taken
-        }
+        long start = System.nanoTime();
+        RegistrationEvent event = new RegistrationEvent();
+        event.begin();
+        try {
+            // --- TODO: Implement Password Hashing ---
+            // Use a library like BCrypt:
+            // String hashedPassword = BCrypt.hashpw(plainPassword, BCrypt.gensalt());
+            // For this example, we'll store the plain password HASH (WHICH IS WRONG - just demonstrating flow)
+            // IN A REAL APP, NEVER STORE OR PASS AROUND PLAIN PASSWORDS LIKE THIS BEYOND INITIAL HASHING
+            String hashedPassword = plainPassword; // <-- !!! REPLACE WITH ACTUAL HASHING !!!
 
-        User newUser = new User(username, hashedPassword, role);
-        boolean success = userDao.createUser(newUser);
+            // Check if username already exists (optional, depends on DB constraints)
+            if (userDao.findUserByUsername(username).isPresent()) {
+                REGISTER_USER_TIMER.markError();
+                System.err.println("Username '" + username + "' already exists.");
+                return Optional.empty(); // Username taken
+            }
+
+            User newUser = new User(username, hashedPassword, role);
+            boolean success = userDao.createUser(newUser);
 
-        if (success) {
-            // The newUser object should now have its ID set by the createUser method
-            return Optional.of(newUser);
-        } else {
-            return Optional.empty(); // Registration failed
+            if (success) {
+                // The newUser object should now have its ID set by the createUser method
+                event.setUserId(newUser.getId());
+                event.setRowsTouched(1);
+                event.setSuccess(true);
+                if (eventBus != null) {
+                    eventBus.publish(new UserRegistered(newUser.getId(), newUser.getUsername(), newUser.getRole()));
+                }
+                return Optional.of(newUser);
+            } else {
+                return Optional.empty(); // Registration failed
+            }
+        } finally {
+            REGISTER_USER_TIMER.recordSince(start);
+            event.commit();
         }
     }
 
     /**
      * Attempts to log in a user.
      * NOTE: Password verification MUST use a proper hashing check in a real application.
+     * Attempts over the login rate limits (see LoginRateLimiter) fail before the user is
+     * even looked up.
      *
      * @param username The username attempting to log in.
      * @param plainPassword The plain text password entered by the user.
@@ -66,24 +137,117 @@ public class AuthService {
      * otherwise an empty Optional.
      */
     public Optional<User> loginUser(String username, String plainPassword) {
-        Optional<User> userOptional = userDao.findUserByUsername(username);
+        long start = System.nanoTime();
+        LoginEvent event = new LoginEvent();
+        event.begin();
+        try {
+            if (!loginRateLimiter.tryAcquire(username, start)) {
+                return Optional.empty(); // Counted by the limiter; no lookup, hashing or audit record
+            }
+            Optional<User> userOptional = userDao.findUserByUsername(username);
 
-        if (userOptional.isPresent()) {
-            User user = userOptional.get();
+            if (userOptional.isPresent()) {
+                User user = userOptional.get();
+                event.setUserId(user.getId());
+                event.setRowsTouched(1);
 
-            // --- TODO: Implement Password Verification ---
-            // Use the same hashing library used during registration:
-            // if (BCrypt.checkpw(plainPassword, user.getPasswordHash())) {
-            //    return Optional.of(user); // Passwords match
-            // }
-            // For this example, we compare the plain password HASH (WHICH IS WRONG)
-            // IN A REAL APP, NEVER COMPARE PLAIN PASSWORDS
-            if (user.getPasswordHash().equals(plainPassword)) { // <-- !!! REPLACE WITH BCrypt.checkpw() !!!
-                 return Optional.of(user); // Login successful (using insecure comparison)
+                // --- TODO: Implement Password Verification ---
+                // Use the same hashing library used during registration:
+                // if (BCrypt.checkpw(plainPassword, user.getPasswordHash())) {
+                //    return Optional.of(user); // Passwords match
+                // }
+                // For this example, we compare the plain password HASH (WHICH IS WRONG)
+                // IN A REAL APP, NEVER COMPARE PLAIN PASSWORDS
+                if (user.getPasswordHash().equals(plainPassword)) { // <-- !!! REPLACE WITH BCrypt.checkpw() !!!
+                     event.setSuccess(true);
+                     Audit.recordAs(user.getId(), AuditOperation.LOGIN, user.getId(), user.getId());
+                     if (eventBus != null) {
+                         eventBus.publish(new UserLoggedIn(user.getId(), user.getUsername()));
+                     }
+                     return Optional.of(user); // Login successful (using insecure comparison)
+                }
             }
+
+            // User not found OR password mismatch
+            int subject = userOptional.isPresent() ? userOptional.get().getId() : Audit.UNKNOWN_USER;
+            Audit.record(AuditOperation.LOGIN_FAILED, subject, subject);
+            return Optional.empty();
+        } finally {
+            LOGIN_USER_TIMER.recordSince(start);
+            event.commit();
         }
+    }
+
+    /**
+     * @return The limiter that throttles loginUser, e.g. to report its rejection counts.
+     */
+    public LoginRateLimiter getLoginRateLimiter() {
+        return loginRateLimiter;
+    }
 
-        // User not found OR password mismatch
-        return Optional.empty();
+    /**
+     * Logs in a user and opens a session for them.
+     * The session caches the User and (for children) their Avatar, and is identified
+     * by an opaque token that the caller hands back on every later request.
+     *
+     * @param username The username attempting to log in.
+     * @param plainPassword The plain text password entered by the user.
+     * @return An Optional containing the new Session if login is successful,
+     * otherwise an empty Optional.
+     */
+    public Optional<Session> startSession(String username, String plainPassword) {
+        long start = System.nanoTime();
+        try {
+            Optional<User> userOptional = loginUser(username, plainPassword);
+            if (!userOptional.isPresent()) {
+                return Optional.empty();
+            }
+            User user = userOptional.get();
+            Avatar avatar = avatarDao.findAvatarByUserId(user.getId()).orElse(null);
+            return Optional.of(sessionRegistry.createSession(user, avatar));
+        } finally {
+            START_SESSION_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Resolves a session token to its live session, extending its lifetime.
+     * @param token The session token.
+     * @return An Optional containing the Session, or empty if it is unknown or expired.
+     */
+    public Optional<Session> getSession(String token) {
+        long start = System.nanoTime();
+        try {
+            return sessionRegistry.getSession(token);
+        } finally {
+            GET_SESSION_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Ends a session.
+     * @param token The session token.
+     */
+    public void logout(String token) {
+        long start = System.nanoTime();
+        try {
+            sessionRegistry.invalidate(token);
+        } finally {
+            LOGOUT_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Looks up a user by username, e.g. the patient an admin asked for.
+     * @param username The username.
+     * @return An Optional containing the User, or empty if there is no such user.
+     */
+    public Optional<User> findUserByUsername(String username) {
+        long start = System.nanoTime();
+        try {
+            return userDao.findUserByUsername(username);
+        } finally {
+            FIND_USER_BY_USERNAME_TIMER.recordSince(start);
+        }
     }
-}
\ No newline at end of file
+}
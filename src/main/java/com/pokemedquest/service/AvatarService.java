@@ -1,24 +1,59 @@
 package com.pokemedquest.service;
 
 import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.UpdateResult;
+import com.pokemedquest.events.AvatarUpdated;
+import com.pokemedquest.events.EventBus;
+import com.pokemedquest.jfr.AvatarUpdateEvent;
+import com.pokemedquest.jfr.LevelUpEvent;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
 import com.pokemedquest.model.Avatar;
 import com.pokemedquest.model.User; // May be needed for context
 
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * AvatarService provides logic related to user avatars.
+ *
+ * Changes are saved with optimistic concurrency: an update only applies if the avatar still
+ * has the version it was read with (AvatarDao.updateAvatarIfVersion). If another client got
+ * there first, the avatar is read again, the change is applied to the fresh copy (merging
+ * it with the other client's) and saving is retried, up to MAX_UPDATE_ATTEMPTS times.
  */
 public class AvatarService {
 
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer CREATE_DEFAULT_AVATAR_TIMER = Metrics.timer("AvatarService.createDefaultAvatar");
+    private static final Timer GET_AVATAR_FOR_USER_TIMER = Metrics.timer("AvatarService.getAvatarForUser");
+    private static final Timer UPDATE_AVATAR_CUSTOMIZATION_TIMER = Metrics.timer("AvatarService.updateAvatarCustomization");
+    private static final Timer LEVEL_UP_AVATAR_TIMER = Metrics.timer("AvatarService.levelUpAvatar");
+
+    static final int MAX_UPDATE_ATTEMPTS = 5;
+
     private final AvatarDao avatarDao;
+    private final EventBus eventBus; // May be null: no events are published then
+    private final LongAdder versionConflicts = new LongAdder();
 
     /**
-     * Constructor for dependency injection.
+     * Constructor for dependency injection, without publishing events.
      * @param avatarDao The AvatarDao instance.
      */
     public AvatarService(AvatarDao avatarDao) {
+        this(avatarDao, null);
+    }
+
+    /**
+     * Constructor for dependency injection.
+     * @param avatarDao The AvatarDao instance.
+     * @param eventBus The bus to publish AvatarUpdated events on.
+     */
+    public AvatarService(AvatarDao avatarDao, EventBus eventBus) {
         this.avatarDao = avatarDao;
+        this.eventBus = eventBus;
     }
 
     /**
@@ -28,20 +63,27 @@ public class AvatarService {
      * @return An Optional containing the created Avatar (with ID) if successful, empty otherwise.
      */
     public Optional<Avatar> createDefaultAvatar(User user, String avatarName) {
-        // Define default values
-        String defaultColor = "blue";
-        String defaultAccessory = "none";
-        int defaultLevel = 1;
-
-        Avatar newAvatar = new Avatar(user.getId(), avatarName, defaultColor, defaultAccessory, defaultLevel);
-        boolean success = avatarDao.createAvatar(newAvatar);
-
-        if (success) {
-            // newAvatar object should have its ID set by createAvatar
-            return Optional.of(newAvatar);
-        } else {
-            System.err.println("Failed to create default avatar for user ID: " + user.getId());
-            return Optional.empty();
+        long start = System.nanoTime();
+        try {
+            // Define default values
+            String defaultColor = "blue";
+            String defaultAccessory = "none";
+            int defaultLevel = 1;
+
+            Avatar newAvatar = new Avatar(user.getId(), avatarName, defaultColor, defaultAccessory, defaultLevel);
+            boolean success = avatarDao.createAvatar(newAvatar);
+
+            if (success) {
+                // newAvatar object should have its ID set by createAvatar
+                publishUpdate(newAvatar);
+                return Optional.of(newAvatar);
+            } else {
+                CREATE_DEFAULT_AVATAR_TIMER.markError();
+                System.err.println("Failed to create default avatar for user ID: " + user.getId());
+                return Optional.empty();
+            }
+        } finally {
+            CREATE_DEFAULT_AVATAR_TIMER.recordSince(start);
         }
     }
 
@@ -51,7 +93,12 @@ public class AvatarService {
      * @return An Optional containing the Avatar if found, empty otherwise.
      */
     public Optional<Avatar> getAvatarForUser(int userId) {
-        return avatarDao.findAvatarByUserId(userId);
+        long start = System.nanoTime();
+        try {
+            return avatarDao.findAvatarByUserId(userId);
+        } finally {
+            GET_AVATAR_FOR_USER_TIMER.recordSince(start);
+        }
     }
 
     /**
@@ -64,18 +111,57 @@ public class AvatarService {
      */
     public boolean updateAvatarCustomization(int userId, String newName, String newColor, String newAccessory) {
         Optional<Avatar> avatarOpt = avatarDao.findAvatarByUserId(userId);
-        if (avatarOpt.isPresent()) {
-            Avatar avatar = avatarOpt.get();
-            // Update fields
-            avatar.setAvatarName(newName);
-            avatar.setColor(newColor);
-            avatar.setAccessory(newAccessory);
-            // Update in the database
-            return avatarDao.updateAvatarByUserId(avatar);
-        } else {
+        if (!avatarOpt.isPresent()) {
+            UPDATE_AVATAR_CUSTOMIZATION_TIMER.markError();
             System.err.println("Cannot update: Avatar not found for user ID: " + userId);
             return false;
         }
+        return updateAvatarCustomization(avatarOpt.get(), newName, newColor, newAccessory);
+    }
+
+    /**
+     * Updates the customization of an avatar as the user saw it, e.g. on the edit screen.
+     * Only the fields that differ from what was shown are changed; if the avatar was changed
+     * meanwhile, the other fields keep their newer values (a field both changed gets this
+     * value). The given Avatar is not modified.
+     * @param shown The avatar as read before asking for the new values.
+     * @param newName New name for the avatar.
+     * @param newColor New color for the avatar.
+     * @param newAccessory New accessory for the avatar.
+     * @return true if the update was successful, false otherwise.
+     */
+    public boolean updateAvatarCustomization(Avatar shown, String newName, String newColor, String newAccessory) {
+        long start = System.nanoTime();
+        AvatarUpdateEvent event = new AvatarUpdateEvent();
+        event.begin();
+        event.setUserId(shown.getUserId());
+        try {
+            boolean nameChanged = !Objects.equals(newName, shown.getAvatarName());
+            boolean colorChanged = !Objects.equals(newColor, shown.getColor());
+            boolean accessoryChanged = !Objects.equals(newAccessory, shown.getAccessory());
+            Optional<Avatar> saved = updateWithRetry(copyOf(shown), avatar -> {
+                if (nameChanged) {
+                    avatar.setAvatarName(newName);
+                }
+                if (colorChanged) {
+                    avatar.setColor(newColor);
+                }
+                if (accessoryChanged) {
+                    avatar.setAccessory(newAccessory);
+                }
+            });
+            event.setRowsTouched(saved.isPresent() ? 1 : 0);
+            event.setSuccess(saved.isPresent());
+            if (saved.isPresent()) {
+                publishUpdate(saved.get());
+            } else {
+                UPDATE_AVATAR_CUSTOMIZATION_TIMER.markError();
+            }
+            return saved.isPresent();
+        } finally {
+            UPDATE_AVATAR_CUSTOMIZATION_TIMER.recordSince(start);
+            event.commit();
+        }
     }
 
     /**
@@ -84,18 +170,84 @@ public class AvatarService {
      * @return true if level up was successful, false otherwise.
      */
     public boolean levelUpAvatar(int userId) {
-         Optional<Avatar> avatarOpt = avatarDao.findAvatarByUserId(userId);
-         if (avatarOpt.isPresent()) {
-             Avatar avatar = avatarOpt.get();
-             avatar.setLevel(avatar.getLevel() + 1); // Increment level
-             boolean success = avatarDao.updateAvatarByUserId(avatar);
-             if(success){
-                 System.out.println("Avatar for user " + userId + " leveled up to " + avatar.getLevel());
+        long start = System.nanoTime();
+        LevelUpEvent event = new LevelUpEvent();
+        event.begin();
+        event.setUserId(userId);
+        try {
+             Optional<Avatar> avatarOpt = avatarDao.findAvatarByUserId(userId);
+             if (avatarOpt.isPresent()) {
+                 // Adds to whatever level is saved, so concurrent level-ups all count
+                 Optional<Avatar> saved = updateWithRetry(avatarOpt.get(), avatar -> avatar.setLevel(avatar.getLevel() + 1));
+                 event.setRowsTouched(saved.isPresent() ? 1 : 0);
+                 event.setSuccess(saved.isPresent());
+                 if (saved.isPresent()) {
+                     System.out.println("Avatar for user " + userId + " leveled up to " + saved.get().getLevel());
+                     publishUpdate(saved.get());
+                 }
+                 return saved.isPresent();
+             } else {
+                 LEVEL_UP_AVATAR_TIMER.markError();
+                 System.err.println("Cannot level up: Avatar not found for user ID: " + userId);
+                 return false;
              }
-             return success;
-         } else {
-             System.err.println("Cannot level up: Avatar not found for user ID: " + userId);
-             return false;
-         }
+        } finally {
+            LEVEL_UP_AVATAR_TIMER.recordSince(start);
+            event.commit();
+        }
+    }
+
+    /**
+     * @return How often an avatar update found the avatar changed by someone else and was
+     * retried (or given up), since this service was created.
+     */
+    public long getVersionConflicts() {
+        return versionConflicts.sum();
+    }
+
+    /**
+     * Applies a change to the avatar and saves it if its version is still current. Otherwise
+     * the avatar is read again and the change applied to the fresh copy, up to
+     * MAX_UPDATE_ATTEMPTS times in all.
+     * @param avatar The avatar as read; modified in place.
+     * @param change Sets the fields this update is about, leaving the others alone.
+     * @return The saved avatar, or empty if it is gone, the database failed, or every attempt conflicted.
+     */
+    private Optional<Avatar> updateWithRetry(Avatar avatar, Consumer<Avatar> change) {
+        for (int attempt = 1; ; attempt++) {
+            change.accept(avatar);
+            UpdateResult result = avatarDao.updateAvatarIfVersion(avatar);
+            if (result == UpdateResult.UPDATED) {
+                return Optional.of(avatar);
+            }
+            if (result == UpdateResult.FAILED) {
+                return Optional.empty();
+            }
+            versionConflicts.increment();
+            if (attempt == MAX_UPDATE_ATTEMPTS) {
+                System.err.println("Giving up updating avatar for user ID " + avatar.getUserId()
+                        + " after " + attempt + " conflicting updates");
+                return Optional.empty();
+            }
+            Optional<Avatar> fresh = avatarDao.findAvatarByUserId(avatar.getUserId());
+            if (!fresh.isPresent()) {
+                System.err.println("Cannot update: Avatar not found for user ID: " + avatar.getUserId());
+                return Optional.empty();
+            }
+            avatar = fresh.get();
+        }
+    }
+
+    private static Avatar copyOf(Avatar avatar) {
+        Avatar copy = new Avatar(avatar.getAvatarId(), avatar.getUserId(), avatar.getAvatarName(),
+                avatar.getColor(), avatar.getAccessory(), avatar.getLevel());
+        copy.setVersion(avatar.getVersion());
+        return copy;
+    }
+
+    private void publishUpdate(Avatar avatar) {
+        if (eventBus != null) {
+            eventBus.publish(new AvatarUpdated(avatar));
+        }
     }
 }
\ No newline at end of file
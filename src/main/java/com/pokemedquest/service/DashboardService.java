@@ -0,0 +1,63 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.dao.ReadSnapshot;
+import com.pokemedquest.dao.SnapshotReader;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.CohortStats;
+import com.pokemedquest.model.DashboardReport;
+import com.pokemedquest.model.PatientSummary;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DashboardService builds the admin/doctor reports.
+ *
+ * Each report is read inside one snapshot on the SnapshotReader's dedicated connection, so
+ * its figures are consistent with each other and a child recording a score at the same
+ * moment is never held up by it.
+ */
+public class DashboardService {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer GET_DASHBOARD_TIMER = Metrics.timer("DashboardService.getDashboard");
+
+    private final SnapshotReader snapshotReader;
+
+    /**
+     * Constructor for dependency injection.
+     * @param snapshotReader The reader whose snapshots the reports are built from.
+     */
+    public DashboardService(SnapshotReader snapshotReader) {
+        this.snapshotReader = snapshotReader;
+    }
+
+    /**
+     * Builds the patient dashboard: every patient's summary and the cohort totals.
+     *
+     * @return An Optional containing the report, or empty if the database could not be read.
+     */
+    public Optional<DashboardReport> getDashboard() {
+        long start = System.nanoTime();
+        try {
+            Optional<ReadSnapshot> snapshotOptional = snapshotReader.openSnapshot();
+            if (!snapshotOptional.isPresent()) {
+                GET_DASHBOARD_TIMER.markError();
+                return Optional.empty();
+            }
+            try (ReadSnapshot snapshot = snapshotOptional.get()) {
+                Optional<List<PatientSummary>> patients = snapshot.findPatientSummaries();
+                Optional<CohortStats> stats = patients.isPresent() ? snapshot.findCohortStats() : Optional.empty();
+                if (!stats.isPresent()) {
+                    GET_DASHBOARD_TIMER.markError();
+                    return Optional.empty();
+                }
+                return Optional.of(new DashboardReport(LocalDateTime.now(), patients.get(), stats.get()));
+            }
+        } finally {
+            GET_DASHBOARD_TIMER.recordSince(start);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.events.AvatarUpdated;
+import com.pokemedquest.events.DomainEvent;
+import com.pokemedquest.events.EventSubscriber;
+import com.pokemedquest.events.ProgressRecorded;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.LeaderboardEntry;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.util.IndexableSkipList;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * LeaderboardService keeps in-memory leaderboards of avatars, by level and by tests completed.
+ *
+ * Each board is an IndexableSkipList ordered by score (highest first), then user ID, so
+ * top-K and rank-of-user queries take O(log n + K) without touching the database. The boards
+ * are loaded once with {@link #load()} and then kept in step with the database by subscribing
+ * to AvatarUpdated (creation, customization, level-ups, level rewards) and ProgressRecorded
+ * events.
+ *
+ * Avatar changes are published by AvatarService and by AchievementService's flusher, so they
+ * can arrive out of order. Each carries the avatar's row version, and a change is only applied
+ * if it is newer than the version already on the boards.
+ *
+ * load() must run before the service is subscribed. Recorded tests arrive as increments, and
+ * an increment that lands while load() reads the database may or may not be in what it reads,
+ * so a load racing with events could count it twice or lose it. load() is therefore refused
+ * (IllegalStateException) once the first event has been applied.
+ */
+public class LeaderboardService implements EventSubscriber {
+
+    /**
+     * The available leaderboards.
+     */
+    public enum Board {
+        LEVEL,
+        TESTS_COMPLETED
+    }
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer LOAD_TIMER = Metrics.timer("LeaderboardService.load");
+    private static final Timer GET_TOP_ENTRIES_TIMER = Metrics.timer("LeaderboardService.getTopEntries");
+    private static final Timer GET_ENTRY_FOR_USER_TIMER = Metrics.timer("LeaderboardService.getEntryForUser");
+
+    // Highest score first; the user ID breaks ties so every entry has a distinct position
+    private static final Comparator<LeaderboardEntry> ORDER =
+            Comparator.comparingInt(LeaderboardEntry::getScore).reversed().thenComparingInt(LeaderboardEntry::getUserId);
+
+    /**
+     * Everything known about one user; only users with an avatar are on the boards.
+     */
+    private static final class Standing {
+        String avatarName;
+        int level;
+        int version; // avatars.version of the state above
+        int tests;
+        boolean hasAvatar;
+
+        int score(Board board) {
+            return board == Board.LEVEL ? level : tests;
+        }
+    }
+
+    private final AvatarDao avatarDao;
+    private final TestProgressDao testProgressDao;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Standing> standings = new HashMap<>();
+    private final EnumMap<Board, IndexableSkipList<LeaderboardEntry>> boards = new EnumMap<>(Board.class);
+    private volatile boolean applyingEvents = false; // Set by the first event; load() is refused from then on
+
+    /**
+     * Constructor for dependency injection. The boards start empty; call {@link #load()}.
+     * @param avatarDao The AvatarDao instance.
+     * @param testProgressDao The TestProgressDao instance.
+     */
+    public LeaderboardService(AvatarDao avatarDao, TestProgressDao testProgressDao) {
+        this.avatarDao = avatarDao;
+        this.testProgressDao = testProgressDao;
+        for (Board board : Board.values()) {
+            boards.put(board, new IndexableSkipList<>(ORDER));
+        }
+    }
+
+    /**
+     * Builds all boards from the database. Must be called before the service is subscribed
+     * to the event bus.
+     * @throws IllegalStateException if an event has already been applied.
+     */
+    public void load() {
+        long start = System.nanoTime();
+        try {
+            checkNotApplyingEvents();
+            // Read outside the lock so queries keep being answered meanwhile
+            List<Avatar> avatars = avatarDao.findAllAvatars();
+            Map<Integer, Integer> testCounts = testProgressDao.countTestsByUser();
+
+            lock.writeLock().lock();
+            try {
+                checkNotApplyingEvents(); // An event may have come in while reading
+                standings.clear();
+                for (Board board : Board.values()) {
+                    boards.put(board, new IndexableSkipList<>(ORDER));
+                }
+                for (Map.Entry<Integer, Integer> count : testCounts.entrySet()) {
+                    standings.computeIfAbsent(count.getKey(), id -> new Standing()).tests = count.getValue();
+                }
+                for (Avatar avatar : avatars) {
+                    Standing standing = standings.computeIfAbsent(avatar.getUserId(), id -> new Standing());
+                    standing.avatarName = avatar.getAvatarName();
+                    standing.level = avatar.getLevel();
+                    standing.version = avatar.getVersion();
+                    standing.hasAvatar = true;
+                    place(avatar.getUserId(), standing);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            LOAD_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Returns the first entries of a board.
+     * @param board Which board.
+     * @param count How many entries (at most).
+     * @return The entries with their ranks, best first.
+     */
+    public List<LeaderboardEntry> getTopEntries(Board board, int count) {
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            List<LeaderboardEntry> top = boards.get(board).range(0, count);
+            List<LeaderboardEntry> ranked = new ArrayList<>(top.size());
+            for (int i = 0; i < top.size(); i++) {
+                ranked.add(top.get(i).withRank(i + 1));
+            }
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+            GET_TOP_ENTRIES_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Returns a user's entry on a board, with their rank.
+     * @param board Which board.
+     * @param userId The ID of the user.
+     * @return An Optional containing the entry, or empty if the user has no avatar.
+     */
+    public Optional<LeaderboardEntry> getEntryForUser(Board board, int userId) {
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            Standing standing = standings.get(userId);
+            if (standing == null || !standing.hasAvatar) {
+                return Optional.empty();
+            }
+            LeaderboardEntry entry = entry(userId, standing, board);
+            return Optional.of(entry.withRank(boards.get(board).rankOf(entry) + 1));
+        } finally {
+            lock.readLock().unlock();
+            GET_ENTRY_FOR_USER_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * @return The number of avatars on the boards.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return boards.get(Board.LEVEL).size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> batch) {
+        for (DomainEvent event : batch) {
+            if (event instanceof AvatarUpdated) {
+                onAvatarChanged(((AvatarUpdated) event).getAvatar());
+            } else if (event instanceof ProgressRecorded) {
+                onProgressRecorded(((ProgressRecorded) event).getProgress());
+            }
+        }
+    }
+
+    /**
+     * An avatar was created, customized, levelled up or rewarded levels. Ignored if the boards
+     * already show this version of the avatar or a newer one.
+     * @param avatar The avatar as it is now saved, with its version.
+     */
+    public void onAvatarChanged(Avatar avatar) {
+        lock.writeLock().lock();
+        try {
+            Standing standing = unplace(avatar.getUserId());
+            if (!standing.hasAvatar || avatar.getVersion() > standing.version) {
+                standing.avatarName = avatar.getAvatarName();
+                standing.level = avatar.getLevel();
+                standing.version = avatar.getVersion();
+                standing.hasAvatar = true;
+            }
+            place(avatar.getUserId(), standing);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A test result was recorded.
+     */
+    public void onProgressRecorded(TestProgress progress) {
+        lock.writeLock().lock();
+        try {
+            Standing standing = unplace(progress.getUserId());
+            standing.tests++;
+            place(progress.getUserId(), standing);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void checkNotApplyingEvents() {
+        if (applyingEvents) {
+            throw new IllegalStateException("LeaderboardService.load() must run before the service is subscribed to events");
+        }
+    }
+
+    // --- Board maintenance (write lock held) ---
+
+    /**
+     * Takes a user off all boards and returns their standing for updating.
+     */
+    private Standing unplace(int userId) {
+        applyingEvents = true; // Every event goes through here
+        Standing standing = standings.computeIfAbsent(userId, id -> new Standing());
+        if (standing.hasAvatar) {
+            for (Board board : Board.values()) {
+                boards.get(board).remove(entry(userId, standing, board));
+            }
+        }
+        return standing;
+    }
+
+    /**
+     * Puts a user (back) on all boards if they have an avatar.
+     */
+    private void place(int userId, Standing standing) {
+        if (standing.hasAvatar) {
+            for (Board board : Board.values()) {
+                boards.get(board).add(entry(userId, standing, board));
+            }
+        }
+    }
+
+    private static LeaderboardEntry entry(int userId, Standing standing, Board board) {
+        return new LeaderboardEntry(userId, standing.avatarName, standing.score(board), 0);
+    }
+}
@@ -0,0 +1,187 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.util.TokenBucket;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throttles login attempts before any database or password work is done (see
+ * AuthService.loginUser): each username gets its own token bucket, and all attempts
+ * together share a global one. The username bucket is checked first, so guessing at one
+ * account cannot use up the global budget other users log in with.
+ *
+ * Nothing here locks: buckets are lock-free (see TokenBucket) and live in a
+ * ConcurrentHashMap. The map is bounded. A bucket that has filled up again carries no
+ * state worth keeping, so such idle buckets are swept out once a minute, or as soon as the
+ * map is full (at most once a second). If the map is still full after a sweep, attempts
+ * for new usernames are only checked against the global bucket until room frees up. (One
+ * shared bucket for them would let anyone who fills the map lock every other new username
+ * out.)
+ */
+public class LoginRateLimiter {
+
+    public static final int DEFAULT_USERNAME_CAPACITY = 5;
+    public static final long DEFAULT_USERNAME_REFILL_NANOS = TimeUnit.SECONDS.toNanos(12);  // 5 a minute sustained
+    public static final int DEFAULT_GLOBAL_CAPACITY = 200;
+    public static final long DEFAULT_GLOBAL_REFILL_NANOS = TimeUnit.MILLISECONDS.toNanos(10); // 100 a second sustained
+    public static final int DEFAULT_MAX_TRACKED_USERNAMES = 100_000;
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long FULL_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1); // Sweeps are O(map size)
+
+    private final int usernameCapacity;
+    private final long usernameRefillNanos;
+    private final int maxTrackedUsernames;
+    private final ConcurrentHashMap<String, TokenBucket> byUsername = new ConcurrentHashMap<>();
+    private final TokenBucket global;
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile long lastSweepNanos;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedByUsername = new LongAdder();
+    private final LongAdder rejectedGlobally = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+
+    /**
+     * Creates a limiter with the default limits.
+     */
+    public LoginRateLimiter() {
+        this(DEFAULT_USERNAME_CAPACITY, DEFAULT_USERNAME_REFILL_NANOS,
+                DEFAULT_GLOBAL_CAPACITY, DEFAULT_GLOBAL_REFILL_NANOS, DEFAULT_MAX_TRACKED_USERNAMES);
+    }
+
+    /**
+     * @param usernameCapacity Attempts one username may make in a burst.
+     * @param usernameRefillNanos Time for one more attempt per username to become available.
+     * @param globalCapacity Attempts all usernames together may make in a burst.
+     * @param globalRefillNanos Time for one more attempt overall to become available.
+     * @param maxTrackedUsernames The most usernames with their own bucket.
+     */
+    public LoginRateLimiter(int usernameCapacity, long usernameRefillNanos,
+                            int globalCapacity, long globalRefillNanos, int maxTrackedUsernames) {
+        long now = System.nanoTime();
+        this.usernameCapacity = usernameCapacity;
+        this.usernameRefillNanos = usernameRefillNanos;
+        this.maxTrackedUsernames = maxTrackedUsernames;
+        this.global = new TokenBucket(globalCapacity, globalRefillNanos, now);
+        this.lastSweepNanos = now;
+    }
+
+    /**
+     * @return A limiter that allows every attempt, for benchmarks that log in in a loop.
+     */
+    public static LoginRateLimiter unlimited() {
+        return new LoginRateLimiter(Integer.MAX_VALUE, 1, Integer.MAX_VALUE, 1, 0);
+    }
+
+    /**
+     * Takes one login attempt from the username's and the global budget.
+     * @param username The username being logged in to (null is treated as "").
+     * @return true if the attempt may go ahead, false if it is over a limit.
+     */
+    public boolean tryAcquire(String username) {
+        return tryAcquire(username, System.nanoTime());
+    }
+
+    /**
+     * Same as {@link #tryAcquire(String)} at a given time, for benchmarks.
+     * @param nowNanos The current System.nanoTime().
+     */
+    public boolean tryAcquire(String username, long nowNanos) {
+        TokenBucket bucket = bucketFor(username != null ? username : "", nowNanos);
+        if (bucket == null) {
+            untracked.increment();
+        } else if (!bucket.tryAcquire(nowNanos)) {
+            rejectedByUsername.increment();
+            return false;
+        }
+        if (!global.tryAcquire(nowNanos)) {
+            rejectedGlobally.increment();
+            return false;
+        }
+        allowed.increment();
+        return true;
+    }
+
+    /**
+     * Drops the buckets of usernames that have not tried to log in for long enough to have
+     * every attempt back. Runs on the calling thread; returns at once if another thread is
+     * already sweeping. An attempt that races with the removal of its bucket may go uncounted.
+     * @param nowNanos The current System.nanoTime().
+     * @return The number of buckets dropped.
+     */
+    public int evictIdle(long nowNanos) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            int removed = 0;
+            for (Map.Entry<String, TokenBucket> entry : byUsername.entrySet()) {
+                if (entry.getValue().isFull(nowNanos) && byUsername.remove(entry.getKey(), entry.getValue())) {
+                    removed++;
+                }
+            }
+            lastSweepNanos = nowNanos;
+            return removed;
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    /**
+     * @return Attempts refused because their username was over its limit.
+     */
+    public long getRejectedByUsernameCount() {
+        return rejectedByUsername.sum();
+    }
+
+    /**
+     * @return Attempts refused because all logins together were over the global limit.
+     */
+    public long getRejectedGloballyCount() {
+        return rejectedGlobally.sum();
+    }
+
+    /**
+     * @return Attempts only checked against the global limit because the map was full.
+     */
+    public long getUntrackedCount() {
+        return untracked.sum();
+    }
+
+    /**
+     * @return The number of usernames that currently have their own bucket.
+     */
+    public int getTrackedUsernameCount() {
+        return byUsername.size();
+    }
+
+    /**
+     * @return The username's bucket, or null if the map is full and it has none.
+     */
+    private TokenBucket bucketFor(String username, long nowNanos) {
+        TokenBucket bucket = byUsername.get(username);
+        if (bucket != null) {
+            return bucket;
+        }
+        long sinceSweep = nowNanos - lastSweepNanos;
+        boolean full = byUsername.size() >= maxTrackedUsernames;
+        if (sinceSweep > SWEEP_INTERVAL_NANOS || (full && sinceSweep > FULL_SWEEP_INTERVAL_NANOS)) {
+            evictIdle(nowNanos);
+            full = byUsername.size() >= maxTrackedUsernames;
+        }
+        if (full) {
+            return null;
+        }
+        return byUsername.computeIfAbsent(username, key -> new TokenBucket(usernameCapacity, usernameRefillNanos, nowNanos));
+    }
+}
@@ -1,9 +1,25 @@
 package com.pokemedquest.service;
 
+import com.pokemedquest.dao.RetentionDao;
 import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.events.EventBus;
+import com.pokemedquest.events.ProgressRecorded;
+import com.pokemedquest.jfr.HistoryViewEvent;
+import com.pokemedquest.jfr.ProgressRecordEvent;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.CmasItem;
+import com.pokemedquest.model.CmasItemScores;
+import com.pokemedquest.model.CmasItemTrend;
+import com.pokemedquest.model.ProgressHistory;
+import com.pokemedquest.model.ProgressRollup;
 import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.TrendSeries;
+import com.pokemedquest.util.LttbDownsampler;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -13,14 +29,46 @@ import java.util.Optional;
  */
 public class ProgressService {
 
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer RECORD_TEST_RESULT_TIMER = Metrics.timer("ProgressService.recordTestResult");
+    private static final Timer GET_PROGRESS_HISTORY_FOR_USER_TIMER = Metrics.timer("ProgressService.getProgressHistoryForUser");
+    private static final Timer GET_LATEST_PROGRESS_FOR_USER_TIMER = Metrics.timer("ProgressService.getLatestProgressForUser");
+    private static final Timer GET_FULL_HISTORY_TIMER = Metrics.timer("ProgressService.getFullHistory");
+    private static final Timer GET_HISTORY_BETWEEN_TIMER = Metrics.timer("ProgressService.getHistoryBetween");
+    private static final Timer GET_ITEM_TRENDS_TIMER = Metrics.timer("ProgressService.getItemTrends");
+    private static final Timer GET_TREND_SERIES_TIMER = Metrics.timer("ProgressService.getTrendSeries");
+
     private final TestProgressDao testProgressDao;
+    private final RetentionDao retentionDao;
+    private final EventBus eventBus; // May be null: no events are published then
 
     /**
-     * Constructor for dependency injection.
+     * Constructor for dependency injection, without publishing events.
      * @param testProgressDao The TestProgressDao instance.
      */
     public ProgressService(TestProgressDao testProgressDao) {
+        this(testProgressDao, null);
+    }
+
+    /**
+     * Constructor for dependency injection.
+     * @param testProgressDao The TestProgressDao instance.
+     * @param eventBus The bus to publish ProgressRecorded events on.
+     */
+    public ProgressService(TestProgressDao testProgressDao, EventBus eventBus) {
+        this(testProgressDao, new RetentionDao(), eventBus);
+    }
+
+    /**
+     * Constructor for dependency injection with rolled-up history.
+     * @param testProgressDao The TestProgressDao instance.
+     * @param retentionDao The RetentionDao instance, for results older than the retention age.
+     * @param eventBus The bus to publish ProgressRecorded events on.
+     */
+    public ProgressService(TestProgressDao testProgressDao, RetentionDao retentionDao, EventBus eventBus) {
         this.testProgressDao = testProgressDao;
+        this.retentionDao = retentionDao;
+        this.eventBus = eventBus;
     }
 
     /**
@@ -31,48 +79,238 @@ public class ProgressService {
      * empty otherwise.
      */
     public Optional<TestProgress> recordTestResult(int userId, int cmasScore) {
-        // Get the current timestamp
-        LocalDateTime now = LocalDateTime.now();
-
-        TestProgress newProgress = new TestProgress(userId, now, cmasScore);
-        boolean success = testProgressDao.createTestProgress(newProgress);
-
-        if (success) {
-            // newProgress object should have its ID set
-            return Optional.of(newProgress);
-        } else {
-            System.err.println("Failed to record test progress for user ID: " + userId);
-            return Optional.empty();
+        return recordTestResult(userId, cmasScore, LocalDateTime.now());
+    }
+
+    /**
+     * Records a CMAS test result taken at the given time, e.g. a result from a paper
+     * form that is entered (backfilled) later. Subscribers handle results out of order.
+     * @param userId The ID of the user who took the test.
+     * @param cmasScore The score achieved.
+     * @param testTimestamp When the test was taken.
+     * @return An Optional containing the created TestProgress record (with ID) if successful,
+     * empty otherwise.
+     */
+    public Optional<TestProgress> recordTestResult(int userId, int cmasScore, LocalDateTime testTimestamp) {
+        return recordTestResult(userId, cmasScore, null, testTimestamp);
+    }
+
+    /**
+     * Records a new CMAS test result scored item by item. The total score is the sum of the
+     * scored items.
+     * @param userId The ID of the user who took the test.
+     * @param itemScores The score of each item (items may be left unscored).
+     * @return An Optional containing the created TestProgress record (with ID) if successful,
+     * empty otherwise.
+     */
+    public Optional<TestProgress> recordTestResult(int userId, CmasItemScores itemScores) {
+        return recordTestResult(userId, itemScores.total(), itemScores, LocalDateTime.now());
+    }
+
+    private Optional<TestProgress> recordTestResult(int userId, int cmasScore, CmasItemScores itemScores,
+                                                    LocalDateTime testTimestamp) {
+        long start = System.nanoTime();
+        ProgressRecordEvent event = new ProgressRecordEvent();
+        event.begin();
+        event.setUserId(userId);
+        try {
+            TestProgress newProgress = new TestProgress(userId, testTimestamp, cmasScore);
+            newProgress.setItemScores(itemScores);
+            boolean success = testProgressDao.createTestProgress(newProgress);
+
+            if (success) {
+                // newProgress object should have its ID set
+                event.setRowsTouched(1);
+                event.setSuccess(true);
+                if (eventBus != null) {
+                    eventBus.publish(new ProgressRecorded(newProgress));
+                }
+                return Optional.of(newProgress);
+            } else {
+                RECORD_TEST_RESULT_TIMER.markError();
+                System.err.println("Failed to record test progress for user ID: " + userId);
+                return Optional.empty();
+            }
+        } finally {
+            RECORD_TEST_RESULT_TIMER.recordSince(start);
+            event.commit();
         }
     }
 
     /**
-     * Retrieves the complete test history for a user, ordered most recent first.
+     * Retrieves every test result of a user one by one, ordered most recent first, including
+     * the results RetentionJob has moved to the archive (see TestProgressDao.findCompleteProgressByUserId).
      * @param userId The ID of the user.
      * @return A List of TestProgress objects (may be empty).
      */
     public List<TestProgress> getProgressHistoryForUser(int userId) {
-        List<TestProgress> history = testProgressDao.findProgressByUserId(userId);
-        // The DAO already sorts, but defensive programming could re-sort or return unmodifiable list
-        // return Collections.unmodifiableList(history);
-        return history;
+        long start = System.nanoTime();
+        try {
+            return loadHistory(userId, true);
+        } finally {
+            GET_PROGRESS_HISTORY_FOR_USER_TIMER.recordSince(start);
+        }
     }
 
     /**
-     * Gets the most recent test progress record for a user, if any.
+     * Gets the most recent test result of a user, if any. When that result has already been
+     * rolled up, it is rebuilt from the latest rollup's last score and time, without an ID
+     * or item scores.
      * @param userId The ID of the user.
      * @return An Optional containing the latest TestProgress, or empty if no records exist.
      */
     public Optional<TestProgress> getLatestProgressForUser(int userId) {
-        List<TestProgress> history = getProgressHistoryForUser(userId);
-        if (history.isEmpty()) {
-            return Optional.empty(); // No history found
-        } else {
-            // DAO returns sorted list (most recent first)
-            return Optional.of(history.get(0));
+        long start = System.nanoTime();
+        try {
+            Optional<TestProgress> latestRaw = testProgressDao.findLatestProgressByUserId(userId);
+            Optional<ProgressRollup> latestRollup = retentionDao.findLatestRollup(userId);
+            // Raw results are normally newer than any rollup, but a backfilled one may not be
+            if (latestRollup.isPresent() && (latestRaw.isEmpty()
+                    || latestRollup.get().getLastTestAt().isAfter(latestRaw.get().getTestTimestamp()))) {
+                ProgressRollup rollup = latestRollup.get();
+                return Optional.of(new TestProgress(userId, rollup.getLastTestAt(), rollup.getLastScore()));
+            }
+            return latestRaw;
+        } finally {
+            GET_LATEST_PROGRESS_FOR_USER_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Retrieves a user's whole history: recent results one by one, older ones as rollups.
+     * @param userId The ID of the user.
+     * @return The history (may be empty).
+     */
+    public ProgressHistory getFullHistory(int userId) {
+        long start = System.nanoTime();
+        try {
+            List<TestProgress> recent = loadHistory(userId, false); // The rollups cover the archived results
+            List<ProgressRollup> rollups = retentionDao.findRollupsByUserId(userId);
+            return new ProgressHistory(recent, rollups);
+        } finally {
+            GET_FULL_HISTORY_TIMER.recordSince(start);
+        }
+    }
+
+    private List<TestProgress> loadHistory(int userId, boolean includeArchived) {
+        HistoryViewEvent event = new HistoryViewEvent();
+        event.begin();
+        event.setUserId(userId);
+        try {
+            if (includeArchived) {
+                Optional<List<TestProgress>> complete = testProgressDao.findCompleteProgressByUserId(userId);
+                event.setRowsTouched(complete.map(List::size).orElse(0));
+                event.setSuccess(complete.isPresent());
+                return complete.orElseGet(Collections::emptyList);
+            }
+            List<TestProgress> history = testProgressDao.findProgressByUserId(userId);
+            event.setRowsTouched(history.size());
+            event.setSuccess(true);
+            return history;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Retrieves a user's history in a time range, stitched from raw results and rollups
+     * like getFullHistory. A rollup bucket that only partly overlaps the range is included whole.
+     * @param userId The ID of the user.
+     * @param from Inclusive start of the range.
+     * @param to Exclusive end of the range.
+     * @return The history in the range (may be empty).
+     */
+    public ProgressHistory getHistoryBetween(int userId, LocalDateTime from, LocalDateTime to) {
+        long start = System.nanoTime();
+        try {
+            List<TestProgress> recent = testProgressDao.findProgressBetween(userId, from, to);
+            List<ProgressRollup> rollups = retentionDao.findRollupsBetween(userId, from, to);
+            return new ProgressHistory(recent, rollups);
+        } finally {
+            GET_HISTORY_BETWEEN_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Summarizes how each CMAS item developed over the user's tests that were scored item by item,
+     * archived ones included. Items that were never scored are left out.
+     * @param userId The ID of the user.
+     * @return One trend per scored item, in CmasItem order (may be empty).
+     */
+    public List<CmasItemTrend> getItemTrends(int userId) {
+        long start = System.nanoTime();
+        try {
+            List<TestProgress> tests = testProgressDao.findItemScoresByUserId(userId); // Oldest first
+            CmasItem[] items = CmasItem.values();
+            int[] count = new int[items.length];
+            int[] first = new int[items.length];
+            int[] best = new int[items.length];
+            int[] latest = new int[items.length];
+            int[] scores = new int[items.length];
+            for (TestProgress test : tests) {
+                CmasItemScores.decode(test.getItemScores().toPacked(), scores);
+                for (int i = 0; i < items.length; i++) {
+                    int score = scores[i];
+                    if (score == CmasItemScores.NOT_SCORED) {
+                        continue;
+                    }
+                    if (count[i]++ == 0) {
+                        first[i] = score;
+                        best[i] = score;
+                    }
+                    best[i] = Math.max(best[i], score);
+                    latest[i] = score;
+                }
+            }
+            List<CmasItemTrend> trends = new ArrayList<>();
+            for (int i = 0; i < items.length; i++) {
+                if (count[i] > 0) {
+                    trends.add(new CmasItemTrend(items[i], count[i], first[i], best[i], latest[i]));
+                }
+            }
+            return trends;
+        } finally {
+            GET_ITEM_TRENDS_TIMER.recordSince(start);
         }
     }
 
+    /**
+     * Reduces a user's whole history (raw results and rollups, as in getFullHistory) to at
+     * most the given number of points for a chart, keeping its shape. The history is streamed
+     * from the database straight into the downsampler (see LttbDownsampler), so it is never
+     * held in memory, however long it is.
+     * @param userId The ID of the user.
+     * @param points The most points to return, at least 3.
+     * @return The series, oldest first (empty if the user has no results or on error).
+     */
+    public TrendSeries getTrendSeries(int userId, int points) {
+        long start = System.nanoTime();
+        try {
+            LttbDownsampler[] lttb = new LttbDownsampler[1];
+            long[] count = new long[1];
+            boolean read = testProgressDao.streamTrendPoints(userId, new TestProgressDao.TrendPointVisitor() {
+                @Override
+                public void begin(long pointCount) {
+                    count[0] = pointCount;
+                    lttb[0] = new LttbDownsampler(pointCount, points);
+                }
+
+                @Override
+                public void point(LocalDateTime at, double score, double low, double high) {
+                    lttb[0].add(at.toEpochSecond(ZoneOffset.UTC), score, low, high);
+                }
+            });
+            if (!read) {
+                GET_TREND_SERIES_TIMER.markError();
+                return TrendSeries.empty();
+            }
+            return TrendSeries.finish(lttb[0], count[0]);
+        } finally {
+            GET_TREND_SERIES_TIMER.recordSince(start);
+        }
+    }
+
+
     // --- TODO: Add methods for anomaly detection logic later ---
     /*
     public List<String> findPotentialAnomalies(int userId) {
@@ -0,0 +1,125 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.dao.DatabaseManager;
+import com.pokemedquest.dao.RetentionDao;
+import com.pokemedquest.model.ProgressRollup;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background compaction of old test results: raw test_progress rows older than the retention
+ * age are summarized into weekly or monthly rollups, archived in compressed form and deleted
+ * (see RetentionDao.compactBatch). ProgressService.getFullHistory stitches the rollups and the
+ * remaining raw rows back together.
+ *
+ * Each batch is its own short transaction followed by a pause, so a large first run does not
+ * hold the database lock for long. The cutoff is fixed at the start of a run; rows that age
+ * past it during the run are picked up by the next one.
+ *
+ * Run once with: java -cp ... com.pokemedquest.service.RetentionJob [rawDays] [WEEK|MONTH]
+ */
+public class RetentionJob {
+
+    public static final int DEFAULT_RAW_DAYS = 730;
+    public static final int DEFAULT_BATCH_SIZE = 2000;
+    public static final long DEFAULT_PAUSE_MILLIS = 50;
+
+    private final RetentionDao retentionDao;
+    private final int rawDays;
+    private final ProgressRollup.Granularity granularity;
+    private final int batchSize;
+    private final long pauseMillis;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param retentionDao The RetentionDao instance.
+     * @param rawDays Results older than this many days are rolled up.
+     * @param granularity The bucket length of the rollups.
+     * @param batchSize Rows compacted per transaction.
+     * @param pauseMillis Pause between batches.
+     */
+    public RetentionJob(RetentionDao retentionDao, int rawDays, ProgressRollup.Granularity granularity,
+                        int batchSize, long pauseMillis) {
+        this.retentionDao = retentionDao;
+        this.rawDays = rawDays;
+        this.granularity = granularity;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * Compacts all results older than the retention age, batch by batch.
+     * @return The number of rows compacted, or -1 if a batch failed (earlier batches stay compacted).
+     */
+    public long compact() {
+        // Whole buckets only: a bucket that straddles the cutoff stays raw until it is entirely old
+        LocalDateTime cutoff = granularity.bucketStart(LocalDateTime.now().minusDays(rawDays));
+        long total = 0;
+        while (true) {
+            int compacted = retentionDao.compactBatch(cutoff, granularity, batchSize);
+            if (compacted < 0) {
+                return -1;
+            }
+            total += compacted;
+            if (compacted < batchSize) {
+                return total;
+            }
+            try {
+                Thread.sleep(pauseMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return total; // Shutting down; the rest is compacted next time
+            }
+        }
+    }
+
+    /**
+     * Runs compact() every periodHours, the first time right away.
+     */
+    public synchronized void start(long periodHours) {
+        if (scheduler != null) {
+            return; // Already running
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::compact, 0, periodHours, TimeUnit.HOURS);
+    }
+
+    /**
+     * Stops the schedule; a run in progress stops after its current batch.
+     */
+    public synchronized void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        scheduler = null;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        int rawDays = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RAW_DAYS;
+        ProgressRollup.Granularity granularity = args.length > 1
+                ? ProgressRollup.Granularity.valueOf(args[1].toUpperCase()) : ProgressRollup.Granularity.WEEK;
+        DatabaseManager.initializeSchema(); // Adds the rollup tables to older databases
+        RetentionJob job = new RetentionJob(new RetentionDao(), rawDays, granularity, DEFAULT_BATCH_SIZE, DEFAULT_PAUSE_MILLIS);
+        long start = System.nanoTime();
+        long compacted = job.compact();
+        if (compacted < 0) {
+            System.exit(1);
+        }
+        System.out.println("Rolled up " + compacted + " test results older than " + rawDays + " days into "
+                + granularity.name().toLowerCase() + "ly buckets in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.");
+    }
+}
@@ -0,0 +1,217 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.events.AvatarUpdated;
+import com.pokemedquest.events.DomainEvent;
+import com.pokemedquest.events.EventSubscriber;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.Session;
+import com.pokemedquest.model.User;
+import com.pokemedquest.util.TimingWheel;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SessionRegistry keeps track of all logged-in sessions in the process.
+ *
+ * Sessions live in a ConcurrentHashMap keyed by token, so lookups never lock and
+ * updates only contend on a single bin. Expiry is driven by a TimingWheel that is
+ * advanced by one background thread: the wheel only looks at sessions that are due,
+ * so there is no periodic scan over every live session.
+ *
+ * Expiry is sliding: each successful lookup pushes the session's deadline forward.
+ * To keep lookups cheap the wheel entry is NOT moved on every access; when an entry
+ * fires for a session that has been touched since, it is simply rescheduled.
+ *
+ * The registry subscribes to AvatarUpdated events and refreshes the avatar snapshot of
+ * every session of that user, so handlers can show the session's avatar without a query.
+ */
+public class SessionRegistry implements EventSubscriber {
+
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final long TICK_MILLIS = 1000;   // Expiry resolution: one second
+    private static final int WHEEL_SIZE = 4096;     // ~68 minutes per turn at one-second ticks
+    private static final int TOKEN_BYTES = 32;      // 256 bits of randomness per token
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Session>> sessionsByUser = new ConcurrentHashMap<>();
+    private final TimingWheel<Session> expiryWheel;
+    private final long ttlMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService ticker;
+
+    /**
+     * Creates a registry with the default session lifetime and starts the expiry thread.
+     */
+    public SessionRegistry() {
+        this(DEFAULT_TTL_MILLIS, true);
+    }
+
+    /**
+     * Creates a registry.
+     *
+     * @param ttlMillis How long a session stays valid after its last access.
+     * @param startTicker Whether to start the background expiry thread. Pass false when the
+     *                    caller wants to drive expiry itself via {@link #expireSessions(long)}.
+     */
+    public SessionRegistry(long ttlMillis, boolean startTicker) {
+        this.ttlMillis = ttlMillis;
+        this.expiryWheel = new TimingWheel<>(TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+        if (startTicker) {
+            this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "session-expiry");
+                thread.setDaemon(true); // Never keep the JVM alive just for session expiry
+                return thread;
+            });
+            this.ticker.scheduleAtFixedRate(() -> expireSessions(System.currentTimeMillis()),
+                    TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            this.ticker = null;
+        }
+    }
+
+    /**
+     * Creates a new session for a user who has just been authenticated.
+     *
+     * @param user The authenticated user.
+     * @param avatar The user's avatar, or null if they have none.
+     * @return The new session, including its token.
+     */
+    public Session createSession(User user, Avatar avatar) {
+        long now = System.currentTimeMillis();
+        Session session = new Session(newToken(), user, avatar, now, now + ttlMillis);
+        sessions.put(session.getToken(), session);
+        sessionsByUser.compute(user.getId(), (id, userSessions) -> {
+            Set<Session> updated = userSessions != null ? userSessions : ConcurrentHashMap.newKeySet();
+            updated.add(session); // Inside compute, so a concurrent logout cannot drop the set meanwhile
+            return updated;
+        });
+        expiryWheel.schedule(session, session.getExpiresAtMillis());
+        return session;
+    }
+
+    /**
+     * Looks up a live session by token and extends its lifetime.
+     *
+     * @param token The session token.
+     * @return An Optional containing the session if it exists and has not expired.
+     */
+    public Optional<Session> getSession(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        if (session.isExpired(now)) {
+            // The wheel has not caught up yet; treat it as gone and clean up eagerly
+            if (sessions.remove(token, session)) {
+                forgetUserSession(session);
+            }
+            return Optional.empty();
+        }
+        session.setExpiresAtMillis(now + ttlMillis);
+        return Optional.of(session);
+    }
+
+    /**
+     * Ends a session (e.g. on logout).
+     *
+     * @param token The session token.
+     * @return true if a session was removed, false if it did not exist.
+     */
+    public boolean invalidate(String token) {
+        // The wheel entry is left behind and ignored when it fires
+        Session removed = token != null ? sessions.remove(token) : null;
+        if (removed == null) {
+            return false;
+        }
+        forgetUserSession(removed);
+        return true;
+    }
+
+    /**
+     * @return The number of sessions currently held (including ones that are due but not yet swept).
+     */
+    public int activeSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Removes every session whose deadline has passed.
+     * Called by the background ticker; exposed so tests and benchmarks can drive time themselves.
+     *
+     * @param nowMillis The current time in epoch millis.
+     * @return The number of sessions removed.
+     */
+    public synchronized int expireSessions(long nowMillis) {
+        int[] removed = {0};
+        expiryWheel.advance(nowMillis, session -> {
+            if (sessions.get(session.getToken()) != session) {
+                return; // Already logged out
+            }
+            if (session.isExpired(nowMillis)) {
+                if (sessions.remove(session.getToken(), session)) {
+                    forgetUserSession(session);
+                    removed[0]++;
+                }
+            } else {
+                // Touched since it was scheduled; move it to its new deadline
+                expiryWheel.schedule(session, session.getExpiresAtMillis());
+            }
+        });
+        return removed[0];
+    }
+
+    /**
+     * Refreshes the avatar snapshot of the sessions of each user whose avatar changed.
+     * Sessions already holding this version of the avatar or a newer one keep theirs.
+     *
+     * @param batch Events in publication order.
+     */
+    @Override
+    public void onEvents(List<DomainEvent> batch) {
+        for (DomainEvent event : batch) {
+            if (event instanceof AvatarUpdated) {
+                Avatar avatar = ((AvatarUpdated) event).getAvatar();
+                Set<Session> userSessions = sessionsByUser.get(avatar.getUserId());
+                if (userSessions != null) {
+                    for (Session session : userSessions) {
+                        session.updateAvatar(avatar);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the background expiry thread, if one was started.
+     */
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    private void forgetUserSession(Session session) {
+        sessionsByUser.computeIfPresent(session.getUser().getId(), (id, userSessions) -> {
+            userSessions.remove(session);
+            return userSessions.isEmpty() ? null : userSessions;
+        });
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
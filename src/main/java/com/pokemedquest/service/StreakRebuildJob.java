@@ -0,0 +1,116 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.dao.StreakDao;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.model.StreakState;
+import com.pokemedquest.model.TestProgress;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recomputes the streak state of every user with test results, e.g. after a bulk import or
+ * a change to the streak rules.
+ *
+ * Users' histories are read and folded on a pool of worker threads; the results are written
+ * by the calling thread in batches, so SQLite only ever sees one writer. Run it while the
+ * application is stopped, or call StreakService.clearCache() afterwards.
+ *
+ * Run with: java -cp "target/classes:lib/sqlite-jdbc-XYZ.jar" com.pokemedquest.service.StreakRebuildJob [threads]
+ */
+public class StreakRebuildJob {
+
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    private final TestProgressDao testProgressDao;
+    private final StreakDao streakDao;
+    private final StreakTracker tracker = new StreakTracker();
+    private final int threads;
+
+    /**
+     * @param testProgressDao The TestProgressDao instance, to read histories.
+     * @param streakDao The StreakDao instance, to save the results.
+     * @param threads The number of worker threads.
+     */
+    public StreakRebuildJob(TestProgressDao testProgressDao, StreakDao streakDao, int threads) {
+        this.testProgressDao = testProgressDao;
+        this.streakDao = streakDao;
+        this.threads = threads;
+    }
+
+    /**
+     * Rebuilds and saves the streaks of all users that have test results. Users whose history
+     * cannot be read are skipped (their saved streaks are left alone), so run it again to retry them.
+     * @return The number of users whose streaks were saved.
+     */
+    public int rebuildAll() {
+        List<Integer> userIds = testProgressDao.findUserIdsWithProgress();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "streak-rebuild-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Optional<StreakState>> results = new ExecutorCompletionService<>(workers);
+        for (Integer userId : userIds) {
+            results.submit(() -> rebuild(userId));
+        }
+
+        int saved = 0;
+        int skipped = 0;
+        List<StreakState> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        try {
+            for (int i = 0; i < userIds.size(); i++) {
+                Optional<StreakState> state = results.take().get();
+                if (state.isPresent()) {
+                    batch.add(state.get());
+                } else {
+                    skipped++;
+                }
+                if (batch.size() == WRITE_BATCH_SIZE || (i == userIds.size() - 1 && !batch.isEmpty())) {
+                    if (streakDao.saveStreaks(batch)) {
+                        saved += batch.size();
+                    }
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error rebuilding streaks: " + e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        if (skipped > 0) {
+            System.err.println("Skipped " + skipped + " users whose history could not be read; run the job again to retry them.");
+        }
+        return saved;
+    }
+
+    private Optional<StreakState> rebuild(int userId) {
+        return testProgressDao.findCompleteProgressByUserId(userId).map(history -> {
+            List<LocalDate> days = new ArrayList<>();
+            for (TestProgress progress : history) {
+                days.add(progress.getTestTimestamp().toLocalDate());
+            }
+            return tracker.rebuild(userId, days);
+        });
+    }
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        int saved = new StreakRebuildJob(new TestProgressDao(), new StreakDao(), threads).rebuildAll();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println("Rebuilt streaks for " + saved + " users in " + millis + " ms using " + threads + " threads.");
+    }
+}
@@ -0,0 +1,167 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.dao.StreakDao;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.events.DomainEvent;
+import com.pokemedquest.events.EventSubscriber;
+import com.pokemedquest.events.ProgressRecorded;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.StreakState;
+import com.pokemedquest.model.TestProgress;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * StreakService keeps every user's testing streaks (consecutive days and weeks with a test)
+ * up to date as results are recorded.
+ *
+ * It subscribes to ProgressRecorded events and updates a compact per-user StreakState, which is cached
+ * and written through to the user_streaks table. History is only read for users without a
+ * saved state and for backfilled results that fall before the current run.
+ */
+public class StreakService implements EventSubscriber {
+
+    // Timers for every public method, see com.pokemedquest.metrics.Metrics
+    private static final Timer ON_PROGRESS_RECORDED_TIMER = Metrics.timer("StreakService.onProgressRecorded");
+    private static final Timer GET_STREAK_FOR_USER_TIMER = Metrics.timer("StreakService.getStreakForUser");
+
+    private final StreakDao streakDao;
+    private final TestProgressDao testProgressDao;
+    private final StreakTracker tracker = new StreakTracker();
+
+    private final ConcurrentHashMap<Integer, StreakState> statesByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for dependency injection.
+     * @param streakDao The StreakDao instance.
+     * @param testProgressDao The TestProgressDao instance, used to rebuild a user's streaks from history.
+     */
+    public StreakService(StreakDao streakDao, TestProgressDao testProgressDao) {
+        this.streakDao = streakDao;
+        this.testProgressDao = testProgressDao;
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> batch) {
+        for (DomainEvent event : batch) {
+            if (event instanceof ProgressRecorded) {
+                onProgressRecorded(((ProgressRecorded) event).getProgress());
+            }
+        }
+    }
+
+    /**
+     * Folds a newly recorded (or backfilled) test into the user's streaks and saves them.
+     * @param progress The saved test result.
+     */
+    public void onProgressRecorded(TestProgress progress) {
+        long start = System.nanoTime();
+        try {
+            int userId = progress.getUserId();
+            StreakState state = statesByUser.get(userId);
+            if (state == null) {
+                Optional<StreakState> loaded = load(userId);
+                if (!loaded.isPresent()) {
+                    // Nothing is cached, so the next result for this user tries again from history
+                    ON_PROGRESS_RECORDED_TIMER.markError();
+                    System.err.println("Error updating streaks: history of user " + userId + " could not be read");
+                    return;
+                }
+                state = loaded.get();
+            }
+            synchronized (state) {
+                // Applying a day that is already counted (e.g. in a freshly rebuilt state) changes nothing
+                if (!tracker.apply(state, progress.getTestTimestamp().toLocalDate())) {
+                    Optional<StreakState> rebuilt = rebuildFromHistory(userId);
+                    if (!rebuilt.isPresent()) {
+                        // The cached state is missing this backfilled day; drop it rather than save it
+                        statesByUser.remove(userId, state);
+                        ON_PROGRESS_RECORDED_TIMER.markError();
+                        System.err.println("Error updating streaks: history of user " + userId
+                                + " could not be read; run StreakRebuildJob to repair the saved streaks");
+                        return;
+                    }
+                    state.setDaily(rebuilt.get().getDaily());
+                    state.setWeekly(rebuilt.get().getWeekly());
+                }
+                streakDao.saveStreak(state);
+            }
+        } finally {
+            ON_PROGRESS_RECORDED_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Retrieves a user's streak state (loading or rebuilding it on first use).
+     * Use {@link #getCurrentDayStreak} and {@link #getCurrentWeekStreak} for the
+     * streaks as of today; the stored current run may already be broken.
+     *
+     * @param userId The ID of the user.
+     * @return The user's StreakState (empty streaks if they have no tests, or if their history
+     *         cannot be read; that empty state is not cached or saved).
+     */
+    public StreakState getStreakForUser(int userId) {
+        long start = System.nanoTime();
+        try {
+            StreakState state = statesByUser.get(userId);
+            if (state != null) {
+                return state;
+            }
+            Optional<StreakState> loaded = load(userId);
+            if (!loaded.isPresent()) {
+                GET_STREAK_FOR_USER_TIMER.markError();
+            }
+            return loaded.orElseGet(() -> tracker.rebuild(userId, new ArrayList<>()));
+        } finally {
+            GET_STREAK_FOR_USER_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * @return The number of consecutive days with a test, ending today or yesterday (0 otherwise).
+     */
+    public int getCurrentDayStreak(StreakState state, LocalDate today) {
+        return tracker.currentRun(state.getDaily(), StreakTracker.Unit.DAY, today);
+    }
+
+    /**
+     * @return The number of consecutive weeks with a test, ending this week or last week (0 otherwise).
+     */
+    public int getCurrentWeekStreak(StreakState state, LocalDate today) {
+        return tracker.currentRun(state.getWeekly(), StreakTracker.Unit.WEEK, today);
+    }
+
+    /**
+     * Drops all cached states, e.g. after StreakRebuildJob has rewritten the table.
+     */
+    public void clearCache() {
+        statesByUser.clear();
+    }
+
+    /**
+     * @return The cached, saved or rebuilt state; empty if it had to be rebuilt and the history could not be read.
+     */
+    private Optional<StreakState> load(int userId) {
+        Optional<StreakState> saved = streakDao.findStreakByUserId(userId);
+        Optional<StreakState> state = saved.isPresent() ? saved : rebuildFromHistory(userId);
+        return state.map(loaded -> {
+            StreakState existing = statesByUser.putIfAbsent(userId, loaded);
+            return existing != null ? existing : loaded;
+        });
+    }
+
+    private Optional<StreakState> rebuildFromHistory(int userId) {
+        return testProgressDao.findCompleteProgressByUserId(userId).map(history -> {
+            List<LocalDate> days = new ArrayList<>();
+            for (TestProgress past : history) {
+                days.add(past.getTestTimestamp().toLocalDate());
+            }
+            return tracker.rebuild(userId, days);
+        });
+    }
+}
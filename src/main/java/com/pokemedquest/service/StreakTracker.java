@@ -0,0 +1,122 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.model.Streak;
+import com.pokemedquest.model.StreakState;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Calendar-aware streak arithmetic, shared by StreakService and StreakRebuildJob.
+ *
+ * A test on a day later than the last one is applied in O(1). So is a backfilled test
+ * that falls inside the current run (that period is already counted). A backfilled test
+ * from before the current run can join two older runs, which the compact state cannot
+ * see, so {@link #apply} reports it and the caller rebuilds that user from history.
+ */
+public class StreakTracker {
+
+    /**
+     * The length of one streak period.
+     */
+    public enum Unit {
+        DAY {
+            @Override
+            LocalDate periodOf(LocalDate day) {
+                return day;
+            }
+
+            @Override
+            LocalDate next(LocalDate period) {
+                return period.plusDays(1);
+            }
+        },
+        WEEK {
+            @Override
+            LocalDate periodOf(LocalDate day) {
+                return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            }
+
+            @Override
+            LocalDate next(LocalDate period) {
+                return period.plusWeeks(1);
+            }
+        };
+
+        abstract LocalDate periodOf(LocalDate day);
+
+        abstract LocalDate next(LocalDate period);
+    }
+
+    /**
+     * Applies a test taken on the given day to both streaks.
+     *
+     * @param state The user's state (updated in place).
+     * @param day The day the test was taken.
+     * @return false if the test lies before a current run and the state must be rebuilt
+     * from history instead (the state is left unchanged in that case).
+     */
+    public boolean apply(StreakState state, LocalDate day) {
+        if (!canApply(state.getDaily(), Unit.DAY.periodOf(day)) || !canApply(state.getWeekly(), Unit.WEEK.periodOf(day))) {
+            return false;
+        }
+        apply(state.getDaily(), Unit.DAY.periodOf(day), Unit.DAY);
+        apply(state.getWeekly(), Unit.WEEK.periodOf(day), Unit.WEEK);
+        return true;
+    }
+
+    /**
+     * Computes a user's state from scratch.
+     *
+     * @param userId The ID of the user.
+     * @param testDays The days the user took a test, in any order, duplicates allowed.
+     * @return The streak state.
+     */
+    public StreakState rebuild(int userId, Collection<LocalDate> testDays) {
+        StreakState state = new StreakState(userId);
+        for (LocalDate day : new TreeSet<>(testDays)) {
+            apply(state, day); // Ascending, so never needs a rebuild
+        }
+        return state;
+    }
+
+    /**
+     * Returns the run that is still alive on the given day: a run is alive while its last
+     * period is the current or the previous one (today's test may just not be taken yet).
+     *
+     * @param streak The streak.
+     * @param unit Its period length.
+     * @param today The current day.
+     * @return The current run length, or 0 if the run is broken.
+     */
+    public int currentRun(Streak streak, Unit unit, LocalDate today) {
+        if (streak.getLastPeriod() == null) {
+            return 0;
+        }
+        LocalDate period = unit.periodOf(today);
+        boolean alive = streak.getLastPeriod().equals(period) || unit.next(streak.getLastPeriod()).equals(period);
+        return alive ? streak.getCurrentRun() : 0;
+    }
+
+    private static boolean canApply(Streak streak, LocalDate period) {
+        return streak.getLastPeriod() == null || !period.isBefore(streak.getRunStart());
+    }
+
+    private static void apply(Streak streak, LocalDate period, Unit unit) {
+        LocalDate last = streak.getLastPeriod();
+        if (last != null && !period.isAfter(last)) {
+            return; // Inside the current run: already counted
+        }
+        if (last != null && unit.next(last).equals(period)) {
+            streak.setCurrentRun(streak.getCurrentRun() + 1);
+        } else {
+            streak.setRunStart(period);
+            streak.setCurrentRun(1);
+        }
+        streak.setLastPeriod(period);
+        streak.setBestRun(Math.max(streak.getBestRun(), streak.getCurrentRun()));
+    }
+}
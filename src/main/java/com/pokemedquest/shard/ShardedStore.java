@@ -0,0 +1,329 @@
+package com.pokemedquest.shard;
+
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.DatabaseManager;
+import com.pokemedquest.dao.ShardDirectoryDao;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.dao.UpdateResult;
+import com.pokemedquest.dao.UserDao;
+import com.pokemedquest.metrics.Metrics;
+import com.pokemedquest.metrics.Timer;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.CohortStats;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.User;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Spreads users, with their avatar and test results, over several SQLite files (shards),
+ * so writes for different users no longer queue up behind one database lock.
+ *
+ * Placement: a user lives on shard crc32(username) mod N, so a username always maps to the
+ * same shard and the per-shard UNIQUE constraint keeps usernames unique overall. A small
+ * directory database (user_directory, see directory-schema.sql) records the placement for
+ * logins; it can be rebuilt from the shards and is only a lookup aid.
+ *
+ * IDs: shard k hands out IDs from k * IDS_PER_SHARD + 1 upwards (see
+ * DatabaseManager.startIdsAfter), so IDs never collide across shards and a user ID alone
+ * says which shard holds the user's rows. A store starts empty: an existing application.db
+ * cannot simply become shard 0, since its users would be neither placed by hash nor in the
+ * directory.
+ *
+ * Admin queries over all users (patient list, cohort stats) run on every shard in parallel
+ * and the partial results are merged.
+ */
+public class ShardedStore implements AutoCloseable {
+
+    public static final int MAX_SHARDS = 32;
+    static final int IDS_PER_SHARD = Integer.MAX_VALUE / MAX_SHARDS; // 67,108,863 per table and shard
+
+    // Timers for every fan-out query, see com.pokemedquest.metrics.Metrics
+    private static final Timer FIND_PATIENTS_TIMER = Metrics.timer("ShardedStore.findPatients");
+    private static final Timer FIND_COHORT_STATS_TIMER = Metrics.timer("ShardedStore.findCohortStats");
+
+    private final List<String> shardUrls;
+    private final UserDao[] userDaos;
+    private final AvatarDao[] avatarDaos;
+    private final TestProgressDao[] testProgressDaos;
+    private final ShardDirectoryDao directory;
+    private final ExecutorService fanOut;
+
+    /**
+     * @param shardUrls JDBC URLs of the shards; their order defines the shard indexes and must never change.
+     * @param directoryUrl JDBC URL of the directory database.
+     */
+    public ShardedStore(List<String> shardUrls, String directoryUrl) {
+        if (shardUrls.isEmpty() || shardUrls.size() > MAX_SHARDS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_SHARDS + " shards are supported, got " + shardUrls.size());
+        }
+        this.shardUrls = new ArrayList<>(shardUrls);
+        int shards = shardUrls.size();
+        this.userDaos = new UserDao[shards];
+        this.avatarDaos = new AvatarDao[shards];
+        this.testProgressDaos = new TestProgressDao[shards];
+        for (int i = 0; i < shards; i++) {
+            userDaos[i] = new UserDao(shardUrls.get(i));
+            avatarDaos[i] = new AvatarDao(shardUrls.get(i));
+            testProgressDaos[i] = new TestProgressDao(shardUrls.get(i));
+        }
+        this.directory = new ShardDirectoryDao(directoryUrl);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.fanOut = Executors.newFixedThreadPool(shards, runnable -> {
+            Thread thread = new Thread(runnable, "shard-fan-out-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens (creating if needed) N shards named shard-00.db, shard-01.db, ... and
+     * directory.db in a directory, and prepares their schemas and ID ranges.
+     *
+     * @param directory The directory holding the database files.
+     * @param shardCount The number of shards.
+     * @return The initialized store.
+     * @throws SQLException if a database cannot be prepared.
+     */
+    public static ShardedStore open(Path directory, int shardCount) throws SQLException {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new SQLException("Could not create shard directory " + directory, e);
+        }
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            urls.add("jdbc:sqlite:" + directory.resolve(String.format("shard-%02d.db", i)).toAbsolutePath());
+        }
+        ShardedStore store = new ShardedStore(urls, "jdbc:sqlite:" + directory.resolve("directory.db").toAbsolutePath());
+        store.initialize(directory.resolve("directory.db"));
+        return store;
+    }
+
+    private void initialize(Path directoryFile) throws SQLException {
+        DatabaseManager.initializeDirectorySchema("jdbc:sqlite:" + directoryFile.toAbsolutePath());
+        for (int i = 0; i < shardUrls.size(); i++) {
+            DatabaseManager.initializeSchema(shardUrls.get(i));
+            DatabaseManager.startIdsAfter(shardUrls.get(i), (long) i * IDS_PER_SHARD);
+        }
+    }
+
+    public int getShardCount() {
+        return shardUrls.size();
+    }
+
+    /**
+     * @return The shard a (new) user with this username is placed on.
+     */
+    public int shardForUsername(String username) {
+        CRC32 crc = new CRC32();
+        crc.update(username.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() % shardUrls.size());
+    }
+
+    /**
+     * @return The shard that holds the rows of the user with this ID.
+     */
+    public int shardForUserId(int userId) {
+        int shard = (userId - 1) / IDS_PER_SHARD;
+        if (userId <= 0 || shard >= shardUrls.size()) {
+            throw new IllegalArgumentException("User ID " + userId + " belongs to no shard");
+        }
+        return shard;
+    }
+
+    // --- Single-user operations, routed to one shard ---
+
+    /**
+     * Creates a user on its shard and records it in the directory.
+     * @return true if the user was created, false otherwise.
+     */
+    public boolean createUser(User user) {
+        int shard = shardForUsername(user.getUsername());
+        if (!userDaos[shard].createUser(user)) {
+            return false;
+        }
+        if (!directory.register(user.getUsername(), user.getId(), shard)) {
+            // Logins still work: lookups fall back to the hash placement
+            System.err.println("User " + user.getUsername() + " created on shard " + shard + " but not in the directory.");
+        }
+        return true;
+    }
+
+    /**
+     * Creates many users, one batch per shard, with the shards written in parallel.
+     * @return true if all users were created, false if any shard's batch failed.
+     */
+    public boolean createUsers(List<User> users) {
+        Map<Integer, List<User>> byShard = new HashMap<>();
+        for (User user : users) {
+            byShard.computeIfAbsent(shardForUsername(user.getUsername()), shard -> new ArrayList<>()).add(user);
+        }
+        List<Boolean> results = fanOut(shard -> {
+            List<User> batch = byShard.get(shard);
+            if (batch == null) {
+                return true;
+            }
+            if (!userDaos[shard].createUsers(batch)) {
+                return false;
+            }
+            Map<String, Integer> entries = new HashMap<>();
+            for (User user : batch) {
+                entries.put(user.getUsername(), user.getId());
+            }
+            return directory.registerAll(entries, shard);
+        });
+        return !results.contains(Boolean.FALSE);
+    }
+
+    public Optional<User> findUserByUsername(String username) {
+        OptionalInt shard = directory.findShardByUsername(username);
+        return userDaos[shard.isPresent() ? shard.getAsInt() : shardForUsername(username)].findUserByUsername(username);
+    }
+
+    public Optional<User> findUserById(int userId) {
+        return userDaos[shardForUserId(userId)].findUserById(userId);
+    }
+
+    public boolean createAvatar(Avatar avatar) {
+        return avatarDaos[shardForUserId(avatar.getUserId())].createAvatar(avatar);
+    }
+
+    public Optional<Avatar> findAvatarByUserId(int userId) {
+        return avatarDaos[shardForUserId(userId)].findAvatarByUserId(userId);
+    }
+
+    public boolean updateAvatarByUserId(Avatar avatar) {
+        return avatarDaos[shardForUserId(avatar.getUserId())].updateAvatarByUserId(avatar);
+    }
+
+    public UpdateResult updateAvatarIfVersion(Avatar avatar) {
+        return avatarDaos[shardForUserId(avatar.getUserId())].updateAvatarIfVersion(avatar);
+    }
+
+    public boolean createTestProgress(TestProgress progress) {
+        return testProgressDaos[shardForUserId(progress.getUserId())].createTestProgress(progress);
+    }
+
+    public List<TestProgress> findProgressByUserId(int userId) {
+        return testProgressDaos[shardForUserId(userId)].findProgressByUserId(userId);
+    }
+
+    // --- Admin queries, fanned out to every shard ---
+
+    /**
+     * Lists all patients (users with role "child") across all shards.
+     * @return The patients ordered by username.
+     */
+    public List<User> findPatients() {
+        long start = System.nanoTime();
+        try {
+            List<List<User>> perShard = fanOut(shard -> userDaos[shard].findUsersByRole("child"));
+            List<User> merged = mergeByUsername(perShard);
+            FIND_PATIENTS_TIMER.addRows(merged.size());
+            return merged;
+        } finally {
+            FIND_PATIENTS_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Computes test statistics over all shards.
+     * @return The combined statistics, or empty if any shard failed (partial figures would mislead).
+     */
+    public Optional<CohortStats> findCohortStats() {
+        long start = System.nanoTime();
+        try {
+            CohortStats total = CohortStats.empty();
+            for (Optional<CohortStats> stats : fanOut(shard -> testProgressDaos[shard].findCohortStats())) {
+                if (!stats.isPresent()) {
+                    FIND_COHORT_STATS_TIMER.markError();
+                    return Optional.empty();
+                }
+                total = total.merge(stats.get());
+            }
+            return Optional.of(total);
+        } finally {
+            FIND_COHORT_STATS_TIMER.recordSince(start);
+        }
+    }
+
+    /**
+     * Runs a query on every shard in parallel.
+     * @return The per-shard results, in shard order.
+     */
+    private <T> List<T> fanOut(IntFunction<T> query) {
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < shardUrls.size(); i++) {
+            int shard = i;
+            Callable<T> task = () -> query.apply(shard);
+            futures.add(fanOut.submit(task));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * k-way merge of per-shard lists that are each sorted by username.
+     */
+    private static List<User> mergeByUsername(List<List<User>> perShard) {
+        // Heap entries: {shard, position in that shard's list}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(
+                Comparator.comparing((int[] head) -> perShard.get(head[0]).get(head[1]).getUsername()));
+        int total = 0;
+        for (int shard = 0; shard < perShard.size(); shard++) {
+            total += perShard.get(shard).size();
+            if (!perShard.get(shard).isEmpty()) {
+                heads.add(new int[] {shard, 0});
+            }
+        }
+        List<User> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<User> list = perShard.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Stops the fan-out threads.
+     */
+    @Override
+    public void close() {
+        fanOut.shutdown();
+    }
+}
@@ -0,0 +1,145 @@
+package com.pokemedquest.sync;
+
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.CmasItemScores;
+import com.pokemedquest.model.SyncDelta;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes SyncDelta files: a gzip-compressed binary stream.
+ *
+ *   magic "PMQD" | version | source node | fromSeq | toSeq | ackSeq
+ *   usernames  (count, then source user ID + username)
+ *   users      (count, then source user ID + password hash + role)
+ *   avatars    (count, then source user ID + name + color + accessory + level)
+ *   tests      (count, then source user ID + test time + score + packed item scores, 0 if none)
+ *
+ * Strings that may be null are preceded by a presence flag. Test times are written as
+ * seconds and nanoseconds of the local date-time, so they round-trip exactly. Version 1 files
+ * (written before per-item scores) are still read; their tests have no item scores.
+ */
+public final class DeltaFile {
+
+    private static final int MAGIC = 0x504D5144; // "PMQD"
+    private static final short FORMAT_VERSION = 2;
+
+    // Private constructor to prevent instantiation of this utility class.
+    private DeltaFile() { }
+
+    /**
+     * Writes a delta to a file, replacing it if it exists.
+     */
+    public static void write(SyncDelta delta, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file), 64 * 1024)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(FORMAT_VERSION);
+            out.writeUTF(delta.getSourceNode());
+            out.writeLong(delta.getFromSeq());
+            out.writeLong(delta.getToSeq());
+            out.writeLong(delta.getAckSeq());
+
+            out.writeInt(delta.getUsernames().size());
+            for (Map.Entry<Integer, String> entry : delta.getUsernames().entrySet()) {
+                out.writeInt(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            out.writeInt(delta.getUsers().size());
+            for (User user : delta.getUsers()) {
+                out.writeInt(user.getId());
+                out.writeUTF(user.getPasswordHash());
+                out.writeUTF(user.getRole());
+            }
+            out.writeInt(delta.getAvatars().size());
+            for (Avatar avatar : delta.getAvatars()) {
+                out.writeInt(avatar.getUserId());
+                writeNullable(out, avatar.getAvatarName());
+                writeNullable(out, avatar.getColor());
+                writeNullable(out, avatar.getAccessory());
+                out.writeInt(avatar.getLevel());
+            }
+            out.writeInt(delta.getProgress().size());
+            for (TestProgress progress : delta.getProgress()) {
+                LocalDateTime time = progress.getTestTimestamp();
+                out.writeInt(progress.getUserId());
+                out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(time.getNano());
+                out.writeInt(progress.getCmasScore());
+                out.writeLong(progress.getItemScores() != null ? progress.getItemScores().toPacked() : 0);
+            }
+        }
+    }
+
+    /**
+     * Reads a delta written by {@link #write}.
+     * @throws IOException If the file cannot be read or is not a delta file.
+     */
+    public static SyncDelta read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file), 64 * 1024)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a delta file");
+            }
+            short version = in.readShort();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException(file + " has unsupported delta format version " + version);
+            }
+            SyncDelta delta = new SyncDelta(in.readUTF(), in.readLong(), in.readLong(), in.readLong());
+
+            int usernames = in.readInt();
+            for (int i = 0; i < usernames; i++) {
+                delta.getUsernames().put(in.readInt(), in.readUTF());
+            }
+            int users = in.readInt();
+            for (int i = 0; i < users; i++) {
+                int id = in.readInt();
+                delta.getUsers().add(new User(id, delta.getUsernames().get(id), in.readUTF(), in.readUTF()));
+            }
+            int avatars = in.readInt();
+            for (int i = 0; i < avatars; i++) {
+                int userId = in.readInt();
+                String name = readNullable(in);
+                String color = readNullable(in);
+                String accessory = readNullable(in);
+                delta.getAvatars().add(new Avatar(userId, name, color, accessory, in.readInt()));
+            }
+            int tests = in.readInt();
+            for (int i = 0; i < tests; i++) {
+                int userId = in.readInt();
+                LocalDateTime time = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+                TestProgress progress = new TestProgress(userId, time, in.readInt());
+                long packed = version >= 2 ? in.readLong() : 0;
+                if (packed != 0) {
+                    progress.setItemScores(CmasItemScores.fromPacked(packed));
+                }
+                delta.getProgress().add(progress);
+            }
+            return delta;
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,151 @@
+package com.pokemedquest.sync;
+
+import com.pokemedquest.dao.DatabaseManager;
+import com.pokemedquest.dao.StreakDao;
+import com.pokemedquest.dao.SyncDao;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.model.SyncDelta;
+import com.pokemedquest.service.StreakRebuildJob;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command-line delta sync between two PokeMed Quest databases, e.g. a child's home copy
+ * and the clinic's. Deltas are files, so they can travel any way (USB stick, upload).
+ *
+ *   SyncTool id                               prints this database's node ID
+ *   SyncTool export --peer=NODE [--out=FILE]  writes the changes NODE has not acknowledged yet
+ *   SyncTool import --in=FILE                 applies a peer's delta (safe to repeat)
+ *
+ * A peer acknowledges our changes with the next delta it sends us, so syncing in both
+ * directions keeps deltas small; a one-way peer can send an empty export back as its ack.
+ * Use -Dpokemedquest.db.url=jdbc:sqlite:... (or POKEMEDQUEST_DB_URL) to pick the database.
+ *
+ * Imported tests are written straight to the database, not recorded through ProgressService,
+ * so an import that brings tests rebuilds every user's streaks with StreakRebuildJob before
+ * it exits. Run the import while the application is stopped, as for StreakRebuildJob itself.
+ */
+public class SyncTool {
+
+    private final SyncDao syncDao;
+
+    public SyncTool(SyncDao syncDao) {
+        this.syncDao = syncDao;
+    }
+
+    /**
+     * Exports the peer's pending changes to a file.
+     * @return The delta that was written, or empty on error.
+     */
+    public Optional<SyncDelta> exportTo(String peerNode, Path file) {
+        Optional<SyncDelta> delta = syncDao.exportChanges(peerNode);
+        if (!delta.isPresent()) {
+            return Optional.empty();
+        }
+        try {
+            DeltaFile.write(delta.get(), file);
+            return delta;
+        } catch (IOException e) {
+            System.err.println("Error writing delta file " + file + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Applies a delta file.
+     * @return The delta that was applied, or empty if it could not be read or applied.
+     */
+    public Optional<SyncDelta> importFrom(Path file) {
+        SyncDelta delta;
+        try {
+            delta = DeltaFile.read(file);
+        } catch (IOException e) {
+            System.err.println("Error reading delta file " + file + ": " + e.getMessage());
+            return Optional.empty();
+        }
+        return syncDao.applyDelta(delta) ? Optional.of(delta) : Optional.empty();
+    }
+
+    public static void main(String[] args) throws SQLException, IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: SyncTool id | export --peer=NODE [--out=FILE] | import --in=FILE");
+            System.exit(2);
+        }
+        Map<String, String> options = parseOptions(args);
+        DatabaseManager.initializeSchema(); // Adds the change-log tables to older databases
+        SyncTool tool = new SyncTool(new SyncDao());
+        long start = System.nanoTime();
+
+        switch (args[0]) {
+            case "id":
+                System.out.println(tool.syncDao.getNodeId().orElse("(unavailable)"));
+                return;
+            case "export": {
+                String peer = options.get("peer");
+                if (peer == null) {
+                    System.err.println("export needs --peer=NODE (the other database's 'SyncTool id')");
+                    System.exit(2);
+                }
+                Path out = Paths.get(options.getOrDefault("out", "delta-" + peer + ".pmqd"));
+                Optional<SyncDelta> delta = tool.exportTo(peer, out);
+                if (!delta.isPresent()) {
+                    System.exit(1);
+                }
+                System.out.println("Exported " + delta.get().getRowCount() + " rows (changes " + delta.get().getFromSeq()
+                        + ".." + delta.get().getToSeq() + ", " + Files.size(out) + " bytes) to " + out
+                        + " in " + elapsedMillis(start) + " ms.");
+                return;
+            }
+            case "import": {
+                String in = options.get("in");
+                if (in == null) {
+                    System.err.println("import needs --in=FILE");
+                    System.exit(2);
+                }
+                Optional<SyncDelta> delta = tool.importFrom(Paths.get(in));
+                if (!delta.isPresent()) {
+                    System.exit(1);
+                }
+                System.out.println("Applied " + delta.get().getRowCount() + " rows from " + delta.get().getSourceNode()
+                        + " (changes up to " + delta.get().getToSeq() + ") in " + elapsedMillis(start) + " ms.");
+                if (!delta.get().getProgress().isEmpty()) {
+                    // The streak subscriber never saw these tests, so recompute streaks from the histories
+                    long rebuildStart = System.nanoTime();
+                    int threads = Runtime.getRuntime().availableProcessors();
+                    int rebuilt = new StreakRebuildJob(new TestProgressDao(), new StreakDao(), threads).rebuildAll();
+                    System.out.println("Rebuilt streaks for " + rebuilt + " users in " + elapsedMillis(rebuildStart) + " ms.");
+                }
+                return;
+            }
+            default:
+                System.err.println("Unknown command '" + args[0] + "'");
+                System.exit(2);
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else {
+                System.err.println("Ignoring argument '" + arg + "' (expected --key=value)");
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,308 @@
+package com.pokemedquest.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel, for timeouts that are far away compared to the resolution
+ * (reminders due in days, at minute resolution).
+ *
+ * Level 0 has 64 slots of one tick each, level 1 has 64 slots of 64 ticks each, and so on.
+ * A timeout goes into the lowest level whose span reaches its deadline. Every 64 ticks the
+ * next slot of level 1 is emptied ("cascaded") into level 0, every 4096 ticks a slot of
+ * level 2 into level 1, etc. A timeout is therefore moved at most once per level, however
+ * far away it is, and advancing by one tick costs the same whether 1,000 or 1,000,000
+ * timeouts are scheduled. (The single-level TimingWheel instead revisits far-away timeouts
+ * on every turn of the wheel.) Deadlines beyond the top level's span are parked at its end
+ * and placed again when they get there.
+ *
+ * A timeout can be moved to a new deadline or cancelled in O(1), and is unlinked from its
+ * slot right away, so rescheduling often leaves nothing behind.
+ *
+ * Threading: {@link #schedule}, {@link #reschedule} and {@link Timeout#cancel()} may be called
+ * from any thread; they hand the timeout to the ticker through a queue. {@link #advance}
+ * must only be called from a single thread (the "ticker"), the only one touching the slots.
+ *
+ * @param <T> The type of item being scheduled.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS; // Per level
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final Slot<T>[][] levels;
+    private final long spanTicks; // Ticks covered by all levels together
+
+    // New, moved and cancelled timeouts are handed to the ticker thread through this queue
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+
+    private final List<Timeout<T>> due = new ArrayList<>(); // Reused by advance()
+    private long currentTick = 0; // The next tick to process; only accessed by the ticker thread
+
+    /**
+     * Creates a new timing wheel.
+     *
+     * @param tickMillis The length of one tick in milliseconds (the expiry resolution).
+     * @param levelCount The number of levels; the wheel spans 64^levelCount ticks.
+     * @param startMillis The time (in millis) that tick 0 corresponds to.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HierarchicalTimingWheel(long tickMillis, int levelCount, long startMillis) {
+        if (tickMillis <= 0 || levelCount <= 0 || levelCount * SLOT_BITS >= Long.SIZE - 1) {
+            throw new IllegalArgumentException("tickMillis must be positive and levelCount between 1 and 10");
+        }
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.levels = new Slot[levelCount][SLOTS];
+        for (Slot<T>[] level : levels) {
+            for (int i = 0; i < SLOTS; i++) {
+                level[i] = new Slot<>();
+            }
+        }
+        this.spanTicks = 1L << (SLOT_BITS * levelCount);
+    }
+
+    /**
+     * Schedules an item to expire at the given time.
+     * The item is placed in the wheel the next time {@link #advance} runs.
+     *
+     * @param item The item to expire.
+     * @param deadlineMillis The absolute time (in millis) at which the item should expire.
+     * @return A handle to move or cancel the timeout with.
+     */
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(this, item, deadlineMillis);
+        timeout.enqueue();
+        return timeout;
+    }
+
+    /**
+     * Moves a timeout to a new deadline, whether it is still waiting, has already expired or
+     * is being expired right now. O(1); the move takes effect the next time {@link #advance}
+     * runs. Cancelled timeouts stay cancelled.
+     *
+     * @param timeout A timeout scheduled on this wheel.
+     * @param deadlineMillis The new absolute deadline in millis.
+     */
+    public void reschedule(Timeout<T> timeout, long deadlineMillis) {
+        if (timeout.wheel != this) {
+            throw new IllegalArgumentException("Timeout belongs to another wheel");
+        }
+        timeout.deadlineMillis = deadlineMillis; // Written before enqueue() so the ticker sees it
+        timeout.enqueue();
+    }
+
+    /**
+     * Advances the wheel up to the given time, handing every expired timeout to the callback.
+     * The callback may reschedule the timeout it is given. Must only be called from the
+     * ticker thread.
+     *
+     * @param nowMillis The current time in millis.
+     * @param onExpire Called once for each timeout whose deadline has passed.
+     * @return The number of timeouts that expired.
+     */
+    public int advance(long nowMillis, Consumer<Timeout<T>> onExpire) {
+        transferPending();
+
+        // Only ticks that have completely elapsed are processed, so whatever is due in them
+        // is guaranteed to have reached its deadline
+        long lastCompleteTick = (nowMillis - startMillis) / tickMillis - 1;
+        while (currentTick <= lastCompleteTick) {
+            int index = (int) (currentTick & SLOT_MASK);
+            if (index == 0) {
+                cascade();
+            }
+            levels[0][index].expire(this, due);
+            currentTick++;
+        }
+        int expired = due.size();
+        try {
+            for (Timeout<T> timeout : due) {
+                onExpire.accept(timeout);
+            }
+        } finally {
+            due.clear();
+        }
+        return expired;
+    }
+
+    /**
+     * At the start of a level-0 turn, empties the level-1 slot that covers it into level 0,
+     * and likewise up the levels whenever a lower level starts a new turn.
+     */
+    private void cascade() {
+        for (int level = 1; level < levels.length; level++) {
+            int index = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            Timeout<T> timeout = levels[level][index].takeAll();
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                timeout.next = null;
+                timeout.slot = null;
+                place(timeout);
+                timeout = next;
+            }
+            if (index != 0) {
+                return; // The level above only turns over when this one wraps
+            }
+        }
+    }
+
+    /**
+     * Applies queued schedules, moves and cancellations.
+     */
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            timeout.queued = 0; // Before reading the deadline: a later move queues it again
+            if (timeout.slot != null) {
+                timeout.slot.remove(timeout);
+            }
+            if (!timeout.cancelled) {
+                place(timeout);
+            }
+        }
+    }
+
+    /**
+     * Puts a timeout into the lowest level whose span reaches its deadline.
+     */
+    private void place(Timeout<T> timeout) {
+        long deadlineTick = Math.max(tickOf(timeout.deadlineMillis), currentTick);
+        long delta = deadlineTick - currentTick;
+        if (delta >= spanTicks) {
+            deadlineTick = currentTick + spanTicks - 1; // Placed again when it gets there, see Slot.expire
+            delta = spanTicks - 1;
+        }
+        int level = 0;
+        while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        levels[level][(int) ((deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK)].add(timeout);
+    }
+
+    private long tickOf(long millis) {
+        return Math.floorDiv(millis - startMillis, tickMillis);
+    }
+
+    /**
+     * Handle for a scheduled item.
+     *
+     * @param <T> The type of item being scheduled.
+     */
+    public static final class Timeout<T> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<Timeout> QUEUED =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "queued");
+
+        private final HierarchicalTimingWheel<T> wheel;
+        private final T item;
+        private volatile long deadlineMillis;
+        private volatile boolean cancelled = false;
+        private volatile int queued = 0; // 1 while on the pending queue, so it is queued at most once
+
+        // Slot bookkeeping, only touched by the ticker thread
+        private Slot<T> slot;
+        private Timeout<T> next;
+        private Timeout<T> prev;
+
+        private Timeout(HierarchicalTimingWheel<T> wheel, T item, long deadlineMillis) {
+            this.wheel = wheel;
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * @return The latest deadline set, possibly not yet applied by the ticker.
+         */
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        /**
+         * Cancels the timeout; it is unlinked the next time the wheel advances.
+         */
+        public void cancel() {
+            cancelled = true;
+            enqueue();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void enqueue() {
+            if (QUEUED.compareAndSet(this, 0, 1)) {
+                wheel.pending.add(this);
+            }
+        }
+    }
+
+    /**
+     * One slot of one level: an intrusive doubly-linked list of timeouts.
+     */
+    private static final class Slot<T> {
+        private Timeout<T> head;
+
+        void add(Timeout<T> timeout) {
+            timeout.slot = this;
+            timeout.next = head;
+            timeout.prev = null;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.slot = null;
+            timeout.next = null;
+            timeout.prev = null;
+        }
+
+        /**
+         * Unlinks the whole list and returns its head; the entries are still chained by next.
+         */
+        Timeout<T> takeAll() {
+            Timeout<T> all = head;
+            head = null;
+            return all;
+        }
+
+        /**
+         * Moves every timeout in this level-0 slot to the due list, except those parked here
+         * because their deadline was beyond the wheel's span; those are placed again.
+         */
+        void expire(HierarchicalTimingWheel<T> wheel, List<Timeout<T>> due) {
+            Timeout<T> timeout = head;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                remove(timeout);
+                if (wheel.tickOf(timeout.deadlineMillis) > wheel.currentTick) {
+                    wheel.place(timeout);
+                } else {
+                    due.add(timeout);
+                }
+                timeout = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.pokemedquest.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A sorted set that also answers positional queries: the rank of an element and the
+ * element at a rank, both in O(log n) expected time.
+ *
+ * It is a skip list where every forward link also stores its width (how many elements
+ * it skips), the same layout Redis uses for sorted sets. Elements must not change in a
+ * way that affects their order while they are in the list; remove and re-add instead.
+ *
+ * Not thread-safe; callers must synchronize.
+ */
+public class IndexableSkipList<T> {
+
+    private static final int MAX_LEVEL = 32;
+    private static final double LEVEL_PROBABILITY = 0.25;
+
+    private static final class Node<T> {
+        final T value;
+        final Node<T>[] next;
+        final int[] width; // width[i]: number of level-0 steps from this node to next[i]
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node(T value, int levels) {
+            this.value = value;
+            this.next = (Node<T>[]) new Node[levels];
+            this.width = new int[levels];
+        }
+    }
+
+    private final Comparator<? super T> comparator;
+    private final Node<T> head = new Node<>(null, MAX_LEVEL);
+    private final Random random = new Random(0x5EED);
+    private int level = 1;
+    private int size = 0;
+
+    /**
+     * @param comparator Defines the order; elements comparing equal are duplicates.
+     */
+    public IndexableSkipList(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds an element.
+     * @return false if an equal element is already present.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public boolean add(T value) {
+        Node<T>[] update = (Node<T>[]) new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node<T> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && comparator.compare(x.next[i].value, value) < 0) {
+                rank[i] += x.width[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        if (x.next[0] != null && comparator.compare(x.next[0].value, value) == 0) {
+            return false;
+        }
+
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            for (int i = level; i < newLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.width[i] = size;
+            }
+            level = newLevel;
+        }
+        Node<T> node = new Node<>(value, newLevel);
+        for (int i = 0; i < newLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.width[i] = update[i].width[i] - (rank[0] - rank[i]);
+            update[i].width[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = newLevel; i < level; i++) {
+            update[i].width[i]++;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the element equal to the given one.
+     * @return false if no such element was present.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public boolean remove(T value) {
+        Node<T>[] update = (Node<T>[]) new Node[MAX_LEVEL];
+        Node<T> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && comparator.compare(x.next[i].value, value) < 0) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        x = x.next[0];
+        if (x == null || comparator.compare(x.value, value) != 0) {
+            return false;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == x) {
+                update[i].width[i] += x.width[i] - 1;
+                update[i].next[i] = x.next[i];
+            } else {
+                update[i].width[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * @return The 0-based position of the element equal to the given one, or -1 if absent.
+     */
+    public int rankOf(T value) {
+        int rank = 0;
+        Node<T> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && comparator.compare(x.next[i].value, value) <= 0) {
+                rank += x.width[i];
+                x = x.next[i];
+            }
+            if (x != head && comparator.compare(x.value, value) == 0) {
+                return rank - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The element at the given 0-based position.
+     * @throws IndexOutOfBoundsException if the position is not in [0, size).
+     */
+    public T get(int index) {
+        return nodeAt(index).value;
+    }
+
+    /**
+     * @return Up to {@code count} elements starting at the given 0-based position, in order.
+     */
+    public List<T> range(int from, int count) {
+        List<T> values = new ArrayList<>(Math.max(0, Math.min(count, size - from)));
+        if (from < 0 || from >= size || count <= 0) {
+            return values;
+        }
+        for (Node<T> x = nodeAt(from); x != null && values.size() < count; x = x.next[0]) {
+            values.add(x.value);
+        }
+        return values;
+    }
+
+    private Node<T> nodeAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        int target = index + 1; // Widths count the head as position 0
+        int traversed = 0;
+        Node<T> x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.width[i] <= target) {
+                traversed += x.width[i];
+                x = x.next[i];
+            }
+            if (traversed == target) {
+                return x;
+            }
+        }
+        throw new IllegalStateException("Corrupt skip list widths");
+    }
+
+    private int randomLevel() {
+        int newLevel = 1;
+        while (newLevel < MAX_LEVEL && random.nextDouble() < LEVEL_PROBABILITY) {
+            newLevel++;
+        }
+        return newLevel;
+    }
+}
@@ -0,0 +1,218 @@
+package com.pokemedquest.util;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013), fed one point at a time.
+ *
+ * LTTB keeps the first and last point and splits the others into threshold - 2 buckets of
+ * equal point count. From each bucket it keeps the point that forms the largest triangle
+ * with the point kept from the previous bucket and the average of the next bucket, which
+ * preserves peaks and dips that averaging would flatten.
+ *
+ * The number of points must be known up front, so the bucket boundaries are too. A bucket
+ * can only be decided once the next one is complete, so just two buckets are held at a
+ * time: one pass, O(n) time, O(n / threshold) memory. Each kept point also carries the
+ * lowest and highest value of its bucket, for drawing min/max bands.
+ *
+ *   LttbDownsampler lttb = new LttbDownsampler(count, 72);
+ *   for (...) lttb.add(x, y);            // x ascending
+ *   int kept = lttb.finish();            // then getX(i), getY(i), getLow(i), getHigh(i)
+ */
+public final class LttbDownsampler {
+
+    private final long count;
+    private final int middleBuckets; // threshold - 2
+    private final double every; // Points per middle bucket
+
+    // Output
+    private final double[] outX;
+    private final double[] outY;
+    private final double[] outLow;
+    private final double[] outHigh;
+    private int kept = 0;
+
+    // The bucket waiting for its successor, and the one being filled
+    private Bucket pending;
+    private Bucket filling;
+    private int fillingIndex = 0;   // Middle bucket number of 'filling'
+    private long fillingEnd;        // Point index at which 'filling' is complete
+    private long seen = 0;
+    private double lastX, lastY, lastLow, lastHigh;
+
+    /**
+     * @param count The number of points that will be added.
+     * @param threshold The number of points to keep, at least 3. With no more points than
+     * this, every point is kept.
+     */
+    public LttbDownsampler(long count, int threshold) {
+        if (threshold < 3) {
+            throw new IllegalArgumentException("Threshold must be at least 3: " + threshold);
+        }
+        this.count = count;
+        this.middleBuckets = threshold - 2;
+        int capacity = (int) Math.min(count, threshold);
+        this.outX = new double[capacity];
+        this.outY = new double[capacity];
+        this.outLow = new double[capacity];
+        this.outHigh = new double[capacity];
+        this.every = count > threshold ? (double) (count - 2) / (threshold - 2) : 0;
+        if (every > 0) {
+            int bucketSize = (int) Math.ceil(every) + 1;
+            this.pending = new Bucket(bucketSize);
+            this.filling = new Bucket(bucketSize);
+            this.fillingEnd = bucketEnd(0);
+        }
+    }
+
+    /**
+     * Adds the next point.
+     */
+    public void add(double x, double y) {
+        add(x, y, y, y);
+    }
+
+    /**
+     * Adds the next point, which itself stands for a range of values (e.g. a weekly summary).
+     * @param low The lowest value behind the point, for the band.
+     * @param high The highest value behind the point, for the band.
+     */
+    public void add(double x, double y, double low, double high) {
+        long index = seen++;
+        if (index >= count) {
+            throw new IllegalStateException("More than the announced " + count + " points");
+        }
+        if (every == 0) { // Nothing to drop
+            keep(x, y, low, high);
+            return;
+        }
+        if (index == 0) {
+            keep(x, y, low, high);
+            return;
+        }
+        if (index == count - 1) { // The last point; held back so finish() can use it as the final "next bucket"
+            lastX = x;
+            lastY = y;
+            lastLow = low;
+            lastHigh = high;
+            return;
+        }
+        filling.add(x, y, low, high);
+        if (index + 1 == fillingEnd) {
+            if (fillingIndex > 0) {
+                selectFrom(pending, filling.averageX(), filling.averageY());
+            }
+            Bucket full = filling;
+            filling = pending;
+            pending = full;
+            filling.clear();
+            fillingIndex++;
+            fillingEnd = bucketEnd(fillingIndex);
+        }
+    }
+
+    /**
+     * Decides the remaining buckets once every point has been added.
+     * @return The number of points kept.
+     * @throws IllegalStateException if fewer points were added than announced.
+     */
+    public int finish() {
+        if (seen != count) {
+            throw new IllegalStateException("Expected " + count + " points, got " + seen);
+        }
+        if (every > 0) {
+            selectFrom(pending, lastX, lastY); // The last middle bucket looks ahead to the last point
+            keep(lastX, lastY, lastLow, lastHigh);
+        }
+        return kept;
+    }
+
+    public double getX(int i) {
+        return outX[i];
+    }
+
+    public double getY(int i) {
+        return outY[i];
+    }
+
+    public double getLow(int i) {
+        return outLow[i];
+    }
+
+    public double getHigh(int i) {
+        return outHigh[i];
+    }
+
+    /**
+     * @return One past the index of the last point in middle bucket b (point 0 is the first point).
+     * Integer arithmetic, so the last middle bucket ends exactly at count - 1 (with doubles,
+     * e.g. 58 * (59.0 / 58) is just below 59 and one bucket too many would be selected).
+     */
+    private long bucketEnd(int b) {
+        return (b + 1L) * (count - 2) / middleBuckets + 1;
+    }
+
+    private void selectFrom(Bucket bucket, double nextX, double nextY) {
+        double ax = outX[kept - 1];
+        double ay = outY[kept - 1];
+        int best = 0;
+        double bestArea = -1;
+        for (int i = 0; i < bucket.size; i++) {
+            // Twice the triangle area; the factor does not change the maximum
+            double area = Math.abs((ax - nextX) * (bucket.y[i] - ay) - (ax - bucket.x[i]) * (nextY - ay));
+            if (area > bestArea) {
+                bestArea = area;
+                best = i;
+            }
+        }
+        keep(bucket.x[best], bucket.y[best], bucket.low, bucket.high);
+    }
+
+    private void keep(double x, double y, double low, double high) {
+        outX[kept] = x;
+        outY[kept] = y;
+        outLow[kept] = low;
+        outHigh[kept] = high;
+        kept++;
+    }
+
+    /**
+     * The points of one bucket, with running sums for the average and the band.
+     */
+    private static final class Bucket {
+        final double[] x;
+        final double[] y;
+        int size;
+        double sumX, sumY, low, high;
+
+        Bucket(int capacity) {
+            x = new double[capacity];
+            y = new double[capacity];
+            clear();
+        }
+
+        void add(double px, double py, double pLow, double pHigh) {
+            x[size] = px;
+            y[size] = py;
+            size++;
+            sumX += px;
+            sumY += py;
+            low = Math.min(low, pLow);
+            high = Math.max(high, pHigh);
+        }
+
+        double averageX() {
+            return sumX / size;
+        }
+
+        double averageY() {
+            return sumY / size;
+        }
+
+        void clear() {
+            size = 0;
+            sumX = 0;
+            sumY = 0;
+            low = Double.POSITIVE_INFINITY;
+            high = Double.NEGATIVE_INFINITY;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.pokemedquest.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel for expiring large numbers of items without scanning them.
+ *
+ * Time is divided into ticks of a fixed length, and the wheel has a fixed number of
+ * buckets (a power of two). An item due in tick N is placed in bucket N mod size.
+ * Advancing the wheel only looks at the buckets for the ticks that have fully passed, so the
+ * cost of expiry depends on the bucket sizes, not on how many items are scheduled overall.
+ * Items more than one full turn away simply stay in their bucket until a later visit.
+ *
+ * Threading: {@link #schedule} and {@link Timeout#cancel()} may be called from any thread.
+ * {@link #advance} must only be called from a single thread (the "ticker"), which is the only
+ * thread that touches the buckets themselves.
+ *
+ * @param <T> The type of item being scheduled.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final Bucket<T>[] buckets;
+
+    // New timeouts are handed to the ticker thread through this queue
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+
+    private final long startMillis;
+    private long currentTick = 0; // Only accessed by the ticker thread
+
+    /**
+     * Creates a new timing wheel.
+     *
+     * @param tickMillis The length of one tick in milliseconds (the expiry resolution).
+     * @param wheelSize The number of buckets; rounded up to the next power of two.
+     * @param startMillis The time (in millis) that tick 0 corresponds to.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket<>();
+        }
+        this.startMillis = startMillis;
+    }
+
+    /**
+     * Schedules an item to expire at the given time.
+     * The item is placed in the wheel the next time {@link #advance} runs.
+     *
+     * @param item The item to expire.
+     * @param deadlineMillis The absolute time (in millis) at which the item should expire.
+     * @return A handle that can be used to cancel the timeout.
+     */
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(item, deadlineMillis);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel up to the given time, handing every expired item to the callback.
+     * Must only be called from the ticker thread.
+     *
+     * @param nowMillis The current time in millis.
+     * @param onExpire Called once for each item whose deadline has passed.
+     * @return The number of items that expired.
+     */
+    public int advance(long nowMillis, Consumer<T> onExpire) {
+        transferPending();
+
+        // Only ticks that have completely elapsed are processed, so everything in their buckets
+        // that belongs to the current turn is guaranteed to be due
+        long lastCompleteTick = (nowMillis - startMillis) / tickMillis - 1;
+        int expired = 0;
+        // Never walk more than one full turn: after that every bucket has been visited once
+        long lastTick = Math.min(lastCompleteTick, currentTick + mask);
+        List<T> due = new ArrayList<>();
+        while (currentTick <= lastTick) {
+            buckets[(int) (currentTick & mask)].expire(nowMillis, due);
+            currentTick++;
+        }
+        if (currentTick <= lastCompleteTick) {
+            currentTick = lastCompleteTick + 1; // Skipped ticks were already covered above
+        }
+        for (T item : due) {
+            onExpire.accept(item);
+            expired++;
+        }
+        return expired;
+    }
+
+    /**
+     * Moves newly scheduled timeouts from the pending queue into their buckets.
+     */
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long deadlineTick = Math.max((timeout.deadlineMillis - startMillis) / tickMillis, currentTick);
+            buckets[(int) (deadlineTick & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * Handle for a scheduled item. Cancelling is lazy: the entry stays in its bucket and is
+     * unlinked the next time the ticker visits that bucket.
+     *
+     * @param <T> The type of item being scheduled.
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadlineMillis;
+        private volatile boolean cancelled = false;
+
+        // Bucket bookkeeping, only touched by the ticker thread
+        private Timeout<T> next;
+        private Timeout<T> prev;
+
+        private Timeout(T item, long deadlineMillis) {
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * One slot of the wheel: an intrusive doubly-linked list of timeouts.
+     */
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+
+        void add(Timeout<T> timeout) {
+            timeout.next = head;
+            timeout.prev = null;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.next = null;
+            timeout.prev = null;
+        }
+
+        void expire(long nowMillis, List<T> due) {
+            Timeout<T> timeout = head;
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else if (timeout.deadlineMillis <= nowMillis) {
+                    remove(timeout);
+                    due.add(timeout.item);
+                }
+                // Otherwise the timeout belongs to a later turn of the wheel and stays put
+                timeout = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.pokemedquest.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket whose whole state is one AtomicLong, so acquiring never locks.
+ *
+ * Instead of a token count and a last-refill time, the bucket keeps the time at which it
+ * would be full again if nothing else were taken (the "generic cell rate algorithm" form
+ * of a token bucket). Taking a token pushes that time one refill interval further; a take
+ * is refused if it would push it more than capacity intervals past now. A refused take
+ * changes nothing, so a flood of refused attempts only reads the state and never
+ * contends on it.
+ *
+ * Times are System.nanoTime() values, compared by subtraction so they may wrap.
+ */
+public final class TokenBucket {
+
+    private final long refillNanos;   // One token comes back per interval
+    private final long burstNanos;    // capacity * refillNanos
+    private final AtomicLong fullAt;  // When the bucket is full again
+
+    /**
+     * Creates a full bucket.
+     * @param capacity The most tokens the bucket holds, i.e. the largest burst allowed.
+     * @param refillNanos The time it takes for one token to come back.
+     * @param nowNanos The current System.nanoTime().
+     */
+    public TokenBucket(int capacity, long refillNanos, long nowNanos) {
+        if (capacity < 1 || refillNanos < 1) {
+            throw new IllegalArgumentException("Capacity and refill interval must be positive: " + capacity + ", " + refillNanos);
+        }
+        this.refillNanos = refillNanos;
+        this.burstNanos = Math.multiplyExact(capacity, refillNanos);
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token if there is one.
+     * @param nowNanos The current System.nanoTime().
+     * @return true if a token was taken, false if the bucket is empty.
+     */
+    public boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - nowNanos < 0 ? nowNanos : current) + refillNanos;
+            if (next - nowNanos > burstNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return true if every token is back, so dropping the bucket and creating a new one
+     * later would behave the same.
+     */
+    public boolean isFull(long nowNanos) {
+        return fullAt.get() - nowNanos <= 0;
+    }
+
+    /**
+     * @return How long until the next token is available; 0 if one is available now.
+     */
+    public long nanosUntilAvailable(long nowNanos) {
+        return Math.max(0, fullAt.get() + refillNanos - burstNanos - nowNanos);
+    }
+}
@@ -0,0 +1,88 @@
+package com.pokemedquest.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Variable-length integer encoding (LEB128, as in protobuf): 7 bits per byte, the high bit
+ * set on every byte but the last. Small values take one byte, which makes it a good fit for
+ * deltas between consecutive values. Signed values go through zigzag encoding first, so
+ * small negative deltas stay small too.
+ */
+public final class VarInt {
+
+    // The longest encoding of a 64-bit value
+    public static final int MAX_BYTES = 10;
+
+    // Private constructor to prevent instantiation of this utility class.
+    private VarInt() { }
+
+    /**
+     * Writes a non-negative value (treated as unsigned).
+     */
+    public static void writeUnsigned(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Writes a signed value, zigzag encoded.
+     */
+    public static void writeSigned(OutputStream out, long value) throws IOException {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Encodes a non-negative value (treated as unsigned) into a buffer, for hot loops that
+     * should not pay a stream call per byte. The buffer needs {@link #MAX_BYTES} free bytes.
+     * @return The position after the value.
+     */
+    public static int putUnsigned(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Encodes a signed value, zigzag encoded, into a buffer, see putUnsigned.
+     * @return The position after the value.
+     */
+    public static int putSigned(byte[] buffer, int position, long value) {
+        return putUnsigned(buffer, position, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Reads a value written by writeUnsigned.
+     * @throws EOFException if the stream ends inside the value.
+     */
+    public static long readUnsigned(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Stream ended inside a varint");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint longer than 10 bytes");
+    }
+
+    /**
+     * Reads a value written by writeSigned.
+     */
+    public static long readSigned(InputStream in) throws IOException {
+        long zigzag = readUnsigned(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+}
@@ -0,0 +1,9 @@
+-- Schema of the shard directory database (directory.db), see ShardedStore.
+-- The shards themselves use schema.sql.
+
+-- Username-to-shard lookup for logins; can be rebuilt from the shards
+CREATE TABLE IF NOT EXISTS user_directory (
+    username TEXT PRIMARY KEY,                          -- Login name, unique across all shards
+    user_id  INTEGER NOT NULL UNIQUE,                   -- users.id in the user's shard
+    shard    INTEGER NOT NULL                           -- Index of the shard holding the user's rows
+);
@@ -1,27 +1,133 @@
 -- Table for Users
-CREATE TABLE users (
+CREATE TABLE IF NOT EXISTS users (
     id            INTEGER PRIMARY KEY AUTOINCREMENT, -- Unique ID for the user
     username      TEXT UNIQUE NOT NULL,             -- Username, must be unique
     password_hash TEXT NOT NULL,                    -- Hashed password (store hash, not plain text!)
-    role          TEXT NOT NULL                     -- Role (e.g., 'child', 'admin')
+    role          TEXT NOT NULL,                    -- Role (e.g., 'child', 'admin')
+    version       INTEGER NOT NULL DEFAULT 0        -- Bumped by every update, for optimistic concurrency
 );
 
 -- Table for Avatars (assuming one avatar per user)
-CREATE TABLE avatars (
+CREATE TABLE IF NOT EXISTS avatars (
     avatar_id   INTEGER PRIMARY KEY AUTOINCREMENT, -- Unique ID for the avatar
     user_id     INTEGER NOT NULL UNIQUE,           -- Links to the user, ensures one avatar per user
     avatar_name TEXT,                              -- Name of the avatar
     color       TEXT,                              -- Customization: color
     accessory   TEXT,                              -- Customization: accessory
     level       INTEGER DEFAULT 1,                 -- Gamification: level
+    version     INTEGER NOT NULL DEFAULT 0,        -- Bumped by every update, for optimistic concurrency
     FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE -- If user is deleted, delete avatar too
 );
 
 -- Table for Test Progress Records
-CREATE TABLE test_progress (
+CREATE TABLE IF NOT EXISTS test_progress (
     progress_id  INTEGER PRIMARY KEY AUTOINCREMENT, -- Unique ID for the record
     user_id      INTEGER NOT NULL,                  -- Links to the user
     test_timestamp DATETIME NOT NULL,                 -- When the test was taken
     cmas_score   INTEGER NOT NULL,                  -- The score achieved
+    cmas_items   INTEGER,                           -- Per-item scores bit-packed (see CmasItemScores), NULL if not recorded
     FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE -- If user is deleted, delete their progress too
-);
\ No newline at end of file
+);
+
+-- Achievements unlocked by users (each code at most once per user)
+CREATE TABLE IF NOT EXISTS user_achievements (
+    user_id          INTEGER NOT NULL,                  -- Links to the user
+    achievement_code TEXT NOT NULL,                     -- e.g. 'FIRST_TEST', 'PERSONAL_BEST:42'
+    unlocked_at      DATETIME NOT NULL,                 -- Timestamp of the test that unlocked it
+    levels_awarded   INTEGER NOT NULL,                  -- Avatar levels granted as the reward
+    PRIMARY KEY (user_id, achievement_code),
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+-- Per-user counters the achievement rules are evaluated against
+CREATE TABLE IF NOT EXISTS achievement_counters (
+    user_id            INTEGER PRIMARY KEY,             -- Links to the user
+    total_tests        INTEGER NOT NULL,                -- Tests recorded in total
+    current_month      TEXT,                            -- 'YYYY-MM' of the most recent test
+    tests_this_month   INTEGER NOT NULL,                -- Tests recorded in current_month
+    best_score         INTEGER NOT NULL,                -- Best CMAS score so far (-1: none)
+    last_score         INTEGER NOT NULL,                -- Most recent CMAS score (-1: none)
+    improvement_streak INTEGER NOT NULL,                -- Consecutive improving tests
+    last_progress_id   INTEGER NOT NULL,                -- Highest test_progress row applied
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+-- Testing streaks per user (daily and weekly runs), see StreakService
+CREATE TABLE IF NOT EXISTS user_streaks (
+    user_id        INTEGER PRIMARY KEY,                 -- Links to the user
+    last_test_day  DATE,                                -- Most recent day with a test
+    day_run_start  DATE,                                -- First day of the run ending at last_test_day
+    day_run        INTEGER NOT NULL,                    -- Length of that run in days
+    best_day_run   INTEGER NOT NULL,                    -- Longest run of days ever
+    last_test_week DATE,                                -- Monday of the most recent week with a test
+    week_run_start DATE,                                -- Monday of the first week of the current run
+    week_run       INTEGER NOT NULL,                    -- Length of that run in weeks
+    best_week_run  INTEGER NOT NULL,                    -- Longest run of weeks ever
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+-- Change data capture: one row per write to users, avatars, test_progress and the tables
+-- incremental backups need (rollups, archive, exercise sessions), see ChangeLog
+CREATE TABLE IF NOT EXISTS change_log (
+    seq        INTEGER PRIMARY KEY AUTOINCREMENT,       -- Monotonic, never reused
+    entity     TEXT NOT NULL,                           -- The table name, e.g. 'users' or 'test_progress'
+    row_id     INTEGER NOT NULL,                        -- Its key: users.id, avatars.user_id, progress_id, ... (see ChangeLog)
+    changed_at DATETIME NOT NULL                        -- When the change was made
+);
+
+-- This database's identity in delta sync (a single row)
+CREATE TABLE IF NOT EXISTS sync_node (
+    id      INTEGER PRIMARY KEY CHECK (id = 1),
+    node_id TEXT NOT NULL                               -- Random ID, generated on first sync
+);
+
+-- Delta sync progress with each peer database
+CREATE TABLE IF NOT EXISTS sync_peers (
+    peer_node   TEXT PRIMARY KEY,                       -- The peer's sync_node.node_id
+    acked_seq   INTEGER NOT NULL DEFAULT 0,             -- Our change_log.seq the peer confirmed it has applied
+    applied_seq INTEGER NOT NULL DEFAULT 0              -- The peer's change_log.seq we have applied
+);
+
+-- Finds a user's test at a given time (sync apply) and a user's history in order
+CREATE INDEX IF NOT EXISTS idx_test_progress_user_time ON test_progress (user_id, test_timestamp);
+
+-- Weekly or monthly summaries of test results older than the retention age, see RetentionJob
+CREATE TABLE IF NOT EXISTS test_progress_rollup (
+    user_id      INTEGER NOT NULL,                      -- Links to the user
+    bucket_start DATETIME NOT NULL,                     -- Monday or first of the month, 00:00
+    granularity  TEXT NOT NULL,                         -- 'WEEK' or 'MONTH'
+    tests        INTEGER NOT NULL,                      -- Test results summarized
+    min_score    INTEGER NOT NULL,
+    max_score    INTEGER NOT NULL,
+    score_sum    INTEGER NOT NULL,                      -- Mean = score_sum / tests
+    last_score   INTEGER NOT NULL,                      -- Score of the latest test in the bucket
+    last_test_at DATETIME NOT NULL,                     -- When that test was taken
+    PRIMARY KEY (user_id, bucket_start, granularity),
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+-- The raw test_progress rows behind the rollups, compressed per user and bucket, see ProgressArchiveCodec
+CREATE TABLE IF NOT EXISTS test_progress_archive (
+    archive_id   INTEGER PRIMARY KEY AUTOINCREMENT,
+    user_id      INTEGER NOT NULL,                      -- Links to the user
+    bucket_start DATETIME NOT NULL,                     -- The rollup bucket the rows belong to
+    row_count    INTEGER NOT NULL,                      -- Rows in the blob
+    rows         BLOB NOT NULL,                         -- Deflated varint deltas
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_test_progress_archive_user ON test_progress_archive (user_id, bucket_start);
+
+-- Raw timing and repetition samples of an exercise session, see com.pokemedquest.capture
+CREATE TABLE IF NOT EXISTS exercise_sessions (
+    session_id      INTEGER PRIMARY KEY AUTOINCREMENT,
+    progress_id     INTEGER NOT NULL,                   -- The test_progress row the session produced (kept when rolled up)
+    user_id         INTEGER NOT NULL,                   -- Links to the user
+    started_at      DATETIME NOT NULL,                  -- When the first sample could be taken
+    duration_micros INTEGER NOT NULL,                   -- Offset of the last sample
+    sample_count    INTEGER NOT NULL,                   -- Samples in the blob
+    dropped_samples INTEGER NOT NULL DEFAULT 0,         -- Samples lost because the capture buffer was full
+    samples         BLOB NOT NULL,                      -- Deflated varint deltas, see SampleStreamWriter
+    FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+CREATE INDEX IF NOT EXISTS idx_exercise_sessions_progress ON exercise_sessions (progress_id);
+CREATE INDEX IF NOT EXISTS idx_exercise_sessions_user ON exercise_sessions (user_id, started_at);
@@ -0,0 +1,76 @@
+package com.pokemedquest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the failures of one of the checks under src/test (classes ending in "Test" with a
+ * main method; the project has no test framework). Each check prints what failed and exits
+ * with status 1, so a build script can run them one after another:
+ *
+ *   Check check = new Check("LttbDownsamplerTest");
+ *   check.that(kept <= threshold, "kept " + kept + " of " + count);
+ *   check.finish();
+ */
+public final class Check {
+
+    private static final int MAX_PRINTED = 20;
+
+    private final String name;
+    private final List<String> failures = new ArrayList<>();
+    private int checked = 0;
+
+    public Check(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a failure unless the condition holds.
+     * @param condition What should be true.
+     * @param message Describes the case, printed if it fails.
+     */
+    public void that(boolean condition, String message) {
+        checked++;
+        if (!condition) {
+            failures.add(message);
+        }
+    }
+
+    /**
+     * Records a failure unless the two values are equal.
+     */
+    public void equal(Object expected, Object actual, String message) {
+        that(expected == null ? actual == null : expected.equals(actual),
+                message + ": expected " + expected + ", got " + actual);
+    }
+
+    /**
+     * Records a failure unless the action throws the given exception type.
+     */
+    public void fails(Class<? extends Throwable> expected, Runnable action, String message) {
+        try {
+            action.run();
+            that(false, message + ": no " + expected.getSimpleName() + " thrown");
+        } catch (Throwable t) {
+            that(expected.isInstance(t), message + ": threw " + t);
+        }
+    }
+
+    /**
+     * Prints the result and exits with status 1 if anything failed.
+     */
+    public void finish() {
+        if (failures.isEmpty()) {
+            System.out.println(name + ": " + checked + " checks OK");
+            return;
+        }
+        for (int i = 0; i < Math.min(MAX_PRINTED, failures.size()); i++) {
+            System.err.println(name + ": FAILED " + failures.get(i));
+        }
+        if (failures.size() > MAX_PRINTED) {
+            System.err.println(name + ": ... and " + (failures.size() - MAX_PRINTED) + " more failures");
+        }
+        System.err.println(name + ": " + failures.size() + " of " + checked + " checks failed");
+        System.exit(1);
+    }
+}
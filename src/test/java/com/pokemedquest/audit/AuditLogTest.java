@@ -0,0 +1,86 @@
+package com.pokemedquest.audit;
+
+import com.pokemedquest.Check;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Checks that AuditLog records come back from AuditLogReader as written, across segment
+ * boundaries, and that a failed write is reported rather than passed off as committed:
+ * sync() returns false, the lost records are counted, and the records after them still
+ * reach disk in a new segment and can be read.
+ */
+public class AuditLogTest {
+
+    public static void main(String[] args) throws Exception {
+        Check check = new Check("AuditLogTest");
+        roundTrip(check);
+        failedWrite(check);
+        check.finish();
+    }
+
+    private static void roundTrip(Check check) throws IOException {
+        Path directory = Files.createTempDirectory("pokemedquest-audit-test");
+        try {
+            // Room for 10 records per segment, so 1,000 records span many segments
+            AuditLog log = new AuditLog(directory, 5, AuditLog.HEADER_SIZE + 10L * AuditLog.RECORD_SIZE);
+            for (int i = 0; i < 1000; i++) {
+                log.append(AuditOperation.PROGRESS_READ, i, i % 7, i * 3);
+            }
+            check.that(log.sync(10_000), "sync after appends");
+            log.close();
+            List<AuditRecord> records = new AuditLogReader(directory).read(AuditLogReader.ANY_USER, Long.MIN_VALUE, Long.MAX_VALUE);
+            check.equal(1000, records.size(), "records read back");
+            boolean inOrder = true;
+            for (int i = 0; i < records.size(); i++) {
+                AuditRecord record = records.get(i);
+                inOrder &= record.getActorUserId() == i && record.getSubjectUserId() == i % 7
+                        && record.getDetail() == i * 3 && record.getOperation() == AuditOperation.PROGRESS_READ;
+            }
+            check.that(inOrder, "records read back in order with their fields");
+            check.equal(1000 / 7 + 1, new AuditLogReader(directory).read(0, Long.MIN_VALUE, Long.MAX_VALUE).size(),
+                    "records filtered by user");
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void failedWrite(Check check) throws IOException {
+        Path directory = Files.createTempDirectory("pokemedquest-audit-test");
+        try {
+            // One record per segment: every batch has to create a file
+            AuditLog log = new AuditLog(directory, 5, AuditLog.HEADER_SIZE + AuditLog.RECORD_SIZE);
+            log.append(AuditOperation.PROGRESS_READ, 1, 1, 1);
+            check.that(log.sync(10_000), "sync before the failure");
+
+            deleteRecursively(directory); // The next segment cannot be created
+            log.append(AuditOperation.PROGRESS_READ, 2, 2, 2);
+            check.that(!log.sync(10_000), "sync reports the lost record");
+            check.equal(1L, log.getLostCount(), "lost records");
+
+            Files.createDirectories(directory);
+            log.append(AuditOperation.PROGRESS_READ, 3, 3, 3);
+            check.that(!log.sync(10_000), "sync keeps reporting the earlier loss");
+            log.close();
+            List<AuditRecord> records = new AuditLogReader(directory).read(AuditLogReader.ANY_USER, Long.MIN_VALUE, Long.MAX_VALUE);
+            check.equal(1, records.size(), "records after the failure are readable");
+            check.that(!records.isEmpty() && records.get(0).getActorUserId() == 3, "the record after the failure was written");
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
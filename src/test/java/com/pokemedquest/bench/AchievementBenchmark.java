@@ -0,0 +1,92 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.dao.AchievementDao;
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.model.AchievementCounters;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.service.AchievementEngine;
+import com.pokemedquest.service.AchievementService;
+
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Measures achievement rule evaluation throughput per recorded test.
+ *
+ *   AchievementEngine.apply             - counters update + all default rules, in memory
+ *   AchievementService.onProgressRecorded - the same plus queueing, with a synchronous
+ *                                         flush every --batch events against a temp database
+ *
+ * Options (all optional):
+ *   --users=N         users the events are spread over (default 10000)
+ *   --batch=N         events per flush in the service benchmark (default 256)
+ *   --warmup=N, --iterations=N, --iteration-ms=N, --seed=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default achievement-bench-results.json)
+ */
+public class AchievementBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "10000"));
+        int batch = Integer.parseInt(options.getOrDefault("batch", "256"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("users", String.valueOf(users));
+
+        // Engine only: every event goes to a random user, one minute after the previous event
+        AchievementEngine engine = new AchievementEngine();
+        AchievementCounters[] counters = new AchievementCounters[users];
+        for (int i = 0; i < users; i++) {
+            counters[i] = new AchievementCounters(i + 1);
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        LocalDateTime[] clock = {LocalDateTime.of(2024, 1, 1, 9, 0)};
+        int[] nextProgressId = {1};
+        runner.run("AchievementEngine.apply", params, () -> {
+            int index = random.nextInt(users);
+            clock[0] = clock[0].plusMinutes(1);
+            TestProgress progress = new TestProgress(nextProgressId[0]++, index + 1, clock[0], random.nextInt(53));
+            return engine.apply(counters[index], progress);
+        });
+
+        // Full service, including batched writes
+        Map<String, String> serviceParams = new LinkedHashMap<>(params);
+        serviceParams.put("batch", String.valueOf(batch));
+        try (BenchmarkDatabase database = BenchmarkDatabase.create()) {
+            System.out.println("Seeding " + users + " users into " + database.getFile() + " ...");
+            int firstUser = database.addUsers(users, 0, seed);
+            AchievementService service = new AchievementService(new AchievementDao(), new AvatarDao(),
+                    new TestProgressDao(), null, new AchievementEngine(), 0, batch);
+            int[] sinceFlush = {0};
+            runner.run("AchievementService.onProgressRecorded", serviceParams, () -> {
+                int userId = firstUser + random.nextInt(users);
+                clock[0] = clock[0].plusMinutes(1);
+                TestProgress progress = new TestProgress(nextProgressId[0]++, userId, clock[0], random.nextInt(53));
+                service.onProgressRecorded(progress);
+                if (++sinceFlush[0] == batch) {
+                    sinceFlush[0] = 0;
+                    service.flush();
+                }
+                return progress;
+            });
+            service.shutdown();
+        }
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("users", String.valueOf(users));
+        meta.put("batch", String.valueOf(batch));
+        meta.put("seed", String.valueOf(seed));
+        String out = options.getOrDefault("out", "achievement-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+}
@@ -0,0 +1,107 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.audit.Audit;
+import com.pokemedquest.audit.AuditLog;
+import com.pokemedquest.audit.AuditOperation;
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.dao.UserDao;
+import com.pokemedquest.service.AuthService;
+import com.pokemedquest.service.LoginRateLimiter;
+import com.pokemedquest.service.ProgressService;
+import com.pokemedquest.service.SessionRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Measures what auditing adds to the login and record paths.
+ *
+ * Each path runs twice against the same temp database: once with no audit log installed
+ * and once with a log group-committing every --fsync-ms to a temp directory. The raw
+ * cost of AuditLog.append on its own is measured as well.
+ *
+ * Options (all optional):
+ *   --users=N         users to log in and record results for (default 1000)
+ *   --fsync-ms=N      group commit interval of the audit log (default 100)
+ *   --warmup=N, --iterations=N, --iteration-ms=N, --seed=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default audit-bench-results.json)
+ */
+public class AuditBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        long fsyncMillis = Long.parseLong(options.getOrDefault("fsync-ms", "100"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        Path auditDir = Files.createTempDirectory("pokemedquest-audit-bench");
+        try (BenchmarkDatabase database = BenchmarkDatabase.create()) {
+            System.out.println("Seeding " + users + " users into " + database.getFile() + " ...");
+            int firstUser = database.addUsers(users, 10, seed);
+            AuthService authService = new AuthService(new UserDao(), new AvatarDao(),
+                    new SessionRegistry(SessionRegistry.DEFAULT_TTL_MILLIS, false), null,
+                    LoginRateLimiter.unlimited()); // Measure the login itself, not the throttling
+            ProgressService progressService = new ProgressService(new TestProgressDao());
+            SplittableRandom random = new SplittableRandom(seed);
+
+            for (String mode : new String[] {"off", "on"}) {
+                AuditLog log = null;
+                if (mode.equals("on")) {
+                    log = new AuditLog(auditDir, fsyncMillis, AuditLog.DEFAULT_SEGMENT_BYTES);
+                    Audit.install(log);
+                }
+                Map<String, String> params = new LinkedHashMap<>();
+                params.put("audit", mode);
+                params.put("users", String.valueOf(users));
+
+                runner.run("AuthService.loginUser", params, () -> {
+                    int index = random.nextInt(users);
+                    return authService.loginUser("user" + index, "pw" + index);
+                });
+                runner.run("ProgressService.recordTestResult", params, () -> {
+                    int userId = firstUser + random.nextInt(users);
+                    Audit.setActor(userId);
+                    return progressService.recordTestResult(userId, random.nextInt(53));
+                });
+                Audit.clearActor();
+
+                if (log != null) {
+                    runner.run("AuditLog.append", params, () -> {
+                        Audit.record(AuditOperation.PROGRESS_READ, firstUser, 1);
+                        return null;
+                    });
+                    Audit.uninstall();
+                    log.close();
+                }
+            }
+        } finally {
+            deleteRecursively(auditDir);
+        }
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("users", String.valueOf(users));
+        meta.put("fsyncMs", String.valueOf(fsyncMillis));
+        meta.put("seed", String.valueOf(seed));
+        String out = options.getOrDefault("out", "audit-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.DatabaseManager;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.service.AvatarService;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Several clients customizing the same few avatars at once, saved either with optimistic
+ * concurrency (AvatarService: conditional update, re-read and merge on conflict) or with
+ * a lock held from read to write (BEGIN IMMEDIATE, SQLite's write lock, then read, update
+ * and commit). Each operation changes one avatar's color.
+ *
+ * --think-us simulates the time between reading the avatar and saving it. With the lock it
+ * is spent holding the database's write lock; optimistically it only widens the window for
+ * conflicts. After each run the avatars' versions must have gone up by exactly the number
+ * of updates reported as saved (printed as "mismatch", which should be 0), along with the
+ * number of conflicts per saved update.
+ *
+ * Options (all optional):
+ *   --avatars=N       avatars the clients contend for (default 4)
+ *   --threads=N,N,... client threads (default 1,2,4,8)
+ *   --think-us=N      time between read and write, in microseconds (default 200)
+ *   --warmup=N, --iterations=N, --iteration-ms=N, --seed=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default contention-bench-results.json)
+ */
+public class AvatarContentionBenchmark {
+
+    private static final String[] COLORS = {"red", "blue", "green", "yellow", "purple"};
+
+    private static final String SELECT_AVATAR_SQL = "SELECT avatar_name, color, accessory, level FROM avatars WHERE user_id = ?";
+    private static final String UPDATE_AVATAR_SQL = "UPDATE avatars SET color = ?, version = version + 1 WHERE user_id = ?";
+    private static final String INSERT_CHANGE_SQL = "INSERT INTO change_log (entity, row_id, changed_at) VALUES ('avatars', ?, ?)";
+    private static final String SUM_VERSIONS_SQL = "SELECT COALESCE(SUM(version), 0) FROM avatars";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        int avatars = Integer.parseInt(options.getOrDefault("avatars", "4"));
+        String[] threadCounts = options.getOrDefault("threads", "1,2,4,8").split(",");
+        long thinkNanos = Long.parseLong(options.getOrDefault("think-us", "200")) * 1000;
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        try (BenchmarkDatabase database = BenchmarkDatabase.create()) {
+            System.out.println("Seeding " + avatars + " avatars into " + database.getFile() + " ...");
+            int firstUser = database.addUsers(avatars, 0, seed);
+            AvatarDao avatarDao = new AvatarDao();
+            LongAdder updates = new LongAdder();
+
+            for (String threadCount : threadCounts) {
+                int threads = Integer.parseInt(threadCount.trim());
+                Map<String, String> params = new LinkedHashMap<>();
+                params.put("avatars", String.valueOf(avatars));
+                params.put("threads", String.valueOf(threads));
+                params.put("thinkUs", String.valueOf(thinkNanos / 1000));
+
+                // A service per run, so its conflict count covers just this run
+                AvatarService avatarService = new AvatarService(avatarDao);
+                params.put("control", "optimistic");
+                long versionsBefore = sumVersions();
+                updates.reset();
+                runner.runConcurrent("updateAvatarColor", params, threads, () -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int userId = firstUser + random.nextInt(avatars);
+                    String color = COLORS[random.nextInt(COLORS.length)];
+                    if (updateOptimistically(avatarDao, avatarService, userId, color, thinkNanos)) {
+                        updates.increment();
+                    }
+                    return 1;
+                });
+                report("optimistic", threads, updates.sum(), sumVersions() - versionsBefore, avatarService.getVersionConflicts());
+
+                params.put("control", "locking");
+                versionsBefore = sumVersions();
+                updates.reset();
+                runner.runConcurrent("updateAvatarColor", params, threads, () -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int userId = firstUser + random.nextInt(avatars);
+                    String color = COLORS[random.nextInt(COLORS.length)];
+                    if (updateWithLock(userId, color, thinkNanos)) {
+                        updates.increment();
+                    }
+                    return 1;
+                });
+                report("locking", threads, updates.sum(), sumVersions() - versionsBefore, 0);
+            }
+        }
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("avatars", String.valueOf(avatars));
+        meta.put("thinkUs", String.valueOf(thinkNanos / 1000));
+        String out = options.getOrDefault("out", "contention-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    /**
+     * Reads the avatar, "thinks", then saves the new color through AvatarService, which
+     * merges it into the latest version if someone else saved meanwhile.
+     */
+    private static boolean updateOptimistically(AvatarDao avatarDao, AvatarService avatarService,
+                                                int userId, String color, long thinkNanos) {
+        Avatar shown = avatarDao.findAvatarByUserId(userId).orElseThrow(IllegalStateException::new);
+        think(thinkNanos);
+        return avatarService.updateAvatarCustomization(shown, shown.getAvatarName(), color, shown.getAccessory());
+    }
+
+    /**
+     * Takes the database write lock, then reads, "thinks", updates and commits, the way a
+     * pessimistic version of updateAvatarCustomization would.
+     */
+    private static boolean updateWithLock(int userId, String color, long thinkNanos) throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("BEGIN IMMEDIATE"); // Waits (busy timeout) until no one else writes
+            try {
+                try (PreparedStatement select = connection.prepareStatement(SELECT_AVATAR_SQL)) {
+                    select.setInt(1, userId);
+                    try (ResultSet rs = select.executeQuery()) {
+                        if (!rs.next()) {
+                            throw new IllegalStateException("No avatar for user " + userId);
+                        }
+                    }
+                }
+                think(thinkNanos);
+                try (PreparedStatement update = connection.prepareStatement(UPDATE_AVATAR_SQL);
+                     PreparedStatement change = connection.prepareStatement(INSERT_CHANGE_SQL)) {
+                    update.setString(1, color);
+                    update.setInt(2, userId);
+                    update.executeUpdate();
+                    change.setInt(1, userId);
+                    change.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+                    change.executeUpdate();
+                }
+                statement.execute("COMMIT");
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                statement.execute("ROLLBACK");
+                throw e;
+            }
+        }
+    }
+
+    private static void think(long nanos) {
+        if (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+        }
+    }
+
+    private static long sumVersions() throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SUM_VERSIONS_SQL);
+             ResultSet rs = preparedStatement.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void report(String control, int threads, long updates, long versionsAdded, long conflicts) {
+        System.out.printf("  %-10s threads=%-3d updates=%-8d mismatch=%-4d conflicts/update=%.3f%n",
+                control, threads, updates, updates - versionsAdded, updates == 0 ? 0.0 : (double) conflicts / updates);
+    }
+}
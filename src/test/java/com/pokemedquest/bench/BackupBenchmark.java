@@ -0,0 +1,126 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.backup.BackupManifest;
+import com.pokemedquest.backup.OnlineBackup;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.service.ProgressService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Measures what an online backup costs the writers, and how long backups and restores take.
+ *
+ * ProgressService.recordTestResult is timed three times against the same temp database:
+ * with no backup running, while a background thread takes full backups back to back, and
+ * while it takes incremental backups back to back. The backup thread copies --chunk-rows
+ * rows per step and pauses --pause-ms after each step. Afterwards the chain is verified
+ * and restored into a new file, and the restore time is printed.
+ *
+ * Options (all optional):
+ *   --users=N         patients to seed (default 2000)
+ *   --history=N       test results per seeded patient (default 50)
+ *   --chunk-rows=N    rows per backup step (default 5000)
+ *   --pause-ms=N      pause after each backup step (default 5)
+ *   --warmup=N, --iterations=N, --iteration-ms=N, --seed=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default backup-bench-results.json)
+ */
+public class BackupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "2000"));
+        int history = Integer.parseInt(options.getOrDefault("history", "50"));
+        int chunkRows = Integer.parseInt(options.getOrDefault("chunk-rows", String.valueOf(OnlineBackup.DEFAULT_CHUNK_ROWS)));
+        long pauseMillis = Long.parseLong(options.getOrDefault("pause-ms", String.valueOf(OnlineBackup.DEFAULT_PAUSE_MILLIS)));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        Path backupDir = Files.createTempDirectory("pokemedquest-backup-bench");
+        Map<String, String> meta = new LinkedHashMap<>();
+        try (BenchmarkDatabase database = BenchmarkDatabase.create()) {
+            System.out.println("Seeding " + users + " users into " + database.getFile() + " ...");
+            int firstUser = database.addUsers(users, history, seed);
+            ProgressService progressService = new ProgressService(new TestProgressDao());
+            OnlineBackup backup = new OnlineBackup(null, backupDir, chunkRows, pauseMillis);
+            SplittableRandom random = new SplittableRandom(seed);
+            BenchmarkRunner.Operation record = () ->
+                    progressService.recordTestResult(firstUser + random.nextInt(users), random.nextInt(53));
+
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("backup", "none");
+            runner.run("ProgressService.recordTestResult", params, record);
+
+            if (!backup.backupFull().isPresent()) { // The base the incrementals build on
+                throw new IllegalStateException("Initial full backup failed");
+            }
+            for (String kind : new String[] {"full", "incremental"}) {
+                AtomicBoolean stop = new AtomicBoolean();
+                AtomicLong backups = new AtomicLong();
+                AtomicLong backupNanos = new AtomicLong();
+                Thread backupThread = new Thread(() -> {
+                    while (!stop.get()) {
+                        long start = System.nanoTime();
+                        Optional<BackupManifest.Entry> entry = kind.equals("full") ? backup.backupFull() : backup.backupIncremental();
+                        if (entry.isPresent()) {
+                            backups.incrementAndGet();
+                            backupNanos.addAndGet(System.nanoTime() - start);
+                        }
+                    }
+                }, "backup-" + kind);
+                backupThread.setDaemon(true);
+                backupThread.start();
+                try {
+                    params.put("backup", kind);
+                    runner.run("ProgressService.recordTestResult", params, record);
+                } finally {
+                    stop.set(true);
+                    backupThread.join();
+                }
+                long meanMillis = backups.get() > 0 ? TimeUnit.NANOSECONDS.toMillis(backupNanos.get() / backups.get()) : -1;
+                System.out.println(backups.get() + " " + kind + " backups during the run, " + meanMillis + " ms each on average");
+                meta.put(kind + "Backups", String.valueOf(backups.get()));
+                meta.put(kind + "BackupMeanMillis", String.valueOf(meanMillis));
+            }
+
+            Path restored = backupDir.resolve("restored.db");
+            long start = System.nanoTime();
+            if (!backup.restore(restored)) {
+                throw new IllegalStateException("Restore failed");
+            }
+            long restoreMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            System.out.println("Verified and restored " + backup.getManifest().latestChain().size() + " backups in " + restoreMillis + " ms");
+            meta.put("restoreMillis", String.valueOf(restoreMillis));
+        } finally {
+            deleteRecursively(backupDir);
+        }
+
+        meta.put("users", String.valueOf(users));
+        meta.put("history", String.valueOf(history));
+        meta.put("chunkRows", String.valueOf(chunkRows));
+        meta.put("pauseMillis", String.valueOf(pauseMillis));
+        String out = options.getOrDefault("out", "backup-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
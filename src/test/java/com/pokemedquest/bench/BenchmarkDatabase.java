@@ -0,0 +1,142 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.DatabaseManager;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.dao.UserDao;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates a throw-away SQLite database, seeded with a deterministic data set,
+ * and points DatabaseManager at it for the duration of a benchmark run.
+ *
+ * Users are named "user0", "user1", ... with password "pw" + index, so benchmarks can
+ * pick valid credentials without reading them back. Every user gets an avatar.
+ * All rows are written through the DAO batch methods, one transaction per batch.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+
+    private static final int BATCH_SIZE = 1000; // Users per transaction
+
+    private final Path file;
+    private final String previousUrl;
+    private int userCount = 0;
+
+    private final UserDao userDao = new UserDao();
+    private final AvatarDao avatarDao = new AvatarDao();
+    private final TestProgressDao testProgressDao = new TestProgressDao();
+
+    private BenchmarkDatabase(Path file) {
+        this.file = file;
+        this.previousUrl = DatabaseManager.getDatabaseUrl();
+    }
+
+    /**
+     * Creates an empty database with the application schema and makes it the active database.
+     *
+     * @return The new benchmark database.
+     * @throws IOException if the temp file cannot be created.
+     * @throws SQLException if the schema cannot be applied.
+     */
+    public static BenchmarkDatabase create() throws IOException, SQLException {
+        Path file = Files.createTempFile("pokemedquest-bench-", ".db");
+        BenchmarkDatabase database = new BenchmarkDatabase(file);
+        DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + file.toAbsolutePath());
+        DatabaseManager.initializeSchema();
+        return database;
+    }
+
+    /**
+     * Adds users (each with an avatar) that all get the same number of test results.
+     *
+     * @param count Number of users to add.
+     * @param historyLength Number of test_progress rows per user.
+     * @param seed Seed for the score generator, so runs are reproducible.
+     * @return The ID of the first user added; the others follow consecutively.
+     * @throws SQLException if seeding fails.
+     */
+    public int addUsers(int count, int historyLength, long seed) throws SQLException {
+        Random random = new Random(seed);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        int firstIdOfCall = 0;
+        for (int done = 0; done < count; done += BATCH_SIZE) {
+            int batchSize = Math.min(BATCH_SIZE, count - done);
+            List<User> users = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                int index = userCount + done + i;
+                users.add(new User("user" + index, "pw" + index, "child"));
+            }
+            if (!userDao.createUsers(users)) {
+                throw new SQLException("Failed to seed users");
+            }
+            List<Avatar> avatars = new ArrayList<>(batchSize);
+            List<TestProgress> progress = new ArrayList<>();
+            for (User user : users) {
+                avatars.add(new Avatar(user.getId(), "Avatar" + user.getId(), "blue", "none", 1));
+                int score = 20 + random.nextInt(20);
+                for (int h = 0; h < historyLength; h++) {
+                    score = Math.max(0, Math.min(52, score + random.nextInt(5) - 2));
+                    progress.add(new TestProgress(user.getId(), start.plusDays(h), score));
+                }
+            }
+            if (!avatarDao.createAvatars(avatars) || !testProgressDao.createTestProgressBatch(progress)) {
+                throw new SQLException("Failed to seed avatars or test progress");
+            }
+            if (done == 0) {
+                firstIdOfCall = users.get(0).getId();
+            }
+        }
+        userCount += count;
+        return firstIdOfCall;
+    }
+
+    /**
+     * @return The total number of users seeded so far.
+     */
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * Adds a realistic synthetic population on top of the fixed-shape users,
+     * so benchmarks run against a database of production size and shape.
+     *
+     * @param count Number of synthetic patients.
+     * @param seed Generator seed.
+     * @return The number of test_progress rows generated.
+     * @throws SQLException if generation fails.
+     */
+    public long addSyntheticPopulation(int count, long seed) throws SQLException {
+        PopulationGenerator generator = new PopulationGenerator(seed, 3 * 365, LocalDate.of(2025, 4, 1));
+        generator.generate(0, count);
+        return generator.getProgressRows();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Restores the previous database URL and deletes the temp file.
+     */
+    @Override
+    public void close() throws IOException {
+        DatabaseManager.setDatabaseUrl(previousUrl);
+        Files.deleteIfExists(file);
+        // WAL side files, left behind if a connection was not closed cleanly
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + "-wal"));
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + "-shm"));
+    }
+}
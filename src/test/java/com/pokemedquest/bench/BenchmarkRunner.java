@@ -0,0 +1,295 @@
+package com.pokemedquest.bench;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small benchmark harness used by the benchmark mains in this package.
+ *
+ * Each benchmark is run for a number of warmup iterations (discarded) and then
+ * measurement iterations of a fixed duration. For every benchmark it reports
+ * throughput (ops/s), average latency (ns/op) and the allocation rate of the
+ * benchmark thread (bytes/op and MB/s, read from the JVM's per-thread allocation
+ * counter, the same source the JMH "gc" profiler uses).
+ *
+ * Results can be written as JSON so two runs can be diffed or plotted.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * One operation under test. Implementations should do exactly one unit of work
+     * per call and return something derived from it, so the JIT cannot drop the call.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * The measured result of one benchmark.
+     */
+    public static class Result {
+        final String name;
+        final Map<String, String> params;
+        final long operations;
+        final double seconds;
+        final double allocatedBytes;
+
+        Result(String name, Map<String, String> params, long operations, double seconds, double allocatedBytes) {
+            this.name = name;
+            this.params = params;
+            this.operations = operations;
+            this.seconds = seconds;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public double opsPerSecond() {
+            return operations / seconds;
+        }
+
+        public double nanosPerOp() {
+            return seconds * 1e9 / operations;
+        }
+
+        public double bytesPerOp() {
+            return allocatedBytes / operations;
+        }
+
+        public double allocMegabytesPerSecond() {
+            return allocatedBytes / seconds / (1024 * 1024);
+        }
+    }
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationMillis;
+    private final List<Result> results = new ArrayList<>();
+    private final PrintStream report;
+
+    // Every operation's return value ends up here, so the JIT cannot treat the calls as dead code
+    private volatile Object blackhole;
+
+    // null when the JVM does not expose per-thread allocation counters
+    private final com.sun.management.ThreadMXBean allocationBean;
+
+    /**
+     * @param warmupIterations Iterations run (and discarded) before measuring.
+     * @param measurementIterations Iterations that are measured.
+     * @param iterationMillis Duration of each iteration.
+     */
+    public BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationMillis = iterationMillis;
+        // Captured now, so benchmarks may silence System.out (the services print on success)
+        this.report = System.out;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            this.allocationBean = (com.sun.management.ThreadMXBean) bean;
+            this.allocationBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            this.allocationBean = null;
+        }
+    }
+
+    /**
+     * Runs one benchmark and records its result.
+     *
+     * @param name The benchmark name, e.g. "UserDao.findUserByUsername".
+     * @param params Parameters of this run (database size, history length, ...), reported as-is.
+     * @param operation The operation to measure.
+     * @return The measured result.
+     * @throws Exception if the operation fails.
+     */
+    public Result run(String name, Map<String, String> params, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            iterate(operation, new long[2]);
+        }
+
+        long totalOps = 0;
+        long totalNanos = 0;
+        long totalAllocated = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] counters = new long[2]; // [operations, nanos]
+            long allocatedBefore = allocatedBytes();
+            iterate(operation, counters);
+            totalAllocated += allocatedBytes() - allocatedBefore;
+            totalOps += counters[0];
+            totalNanos += counters[1];
+        }
+
+        Result result = new Result(name, new LinkedHashMap<>(params), totalOps, totalNanos / 1e9,
+                allocationBean != null ? totalAllocated : Double.NaN);
+        results.add(result);
+        report.printf("%-45s %-30s %,14.1f ops/s %,12.0f ns/op %,12.0f B/op %,9.1f MB/s%n",
+                name, params, result.opsPerSecond(), result.nanosPerOp(),
+                result.bytesPerOp(), result.allocMegabytesPerSecond());
+        return result;
+    }
+
+    /**
+     * Runs one benchmark on several threads at once and records its combined throughput,
+     * e.g. to see whether concurrent writers scale. Every thread calls the operation in a
+     * loop for each iteration. ns/op is wall time divided by the operations of all threads;
+     * allocation is not measured (reported as null).
+     *
+     * @param name The benchmark name.
+     * @param params Parameters of this run, reported as-is.
+     * @param threads The number of threads calling the operation.
+     * @param operation The operation to measure; must be thread-safe.
+     * @return The measured result.
+     * @throws Exception if the operation fails on any thread.
+     */
+    public Result runConcurrent(String name, Map<String, String> params, int threads, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            iterateConcurrent(operation, threads, new long[2]);
+        }
+
+        long totalOps = 0;
+        long totalNanos = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] counters = new long[2]; // [operations of all threads, wall nanos]
+            iterateConcurrent(operation, threads, counters);
+            totalOps += counters[0];
+            totalNanos += counters[1];
+        }
+
+        Result result = new Result(name, new LinkedHashMap<>(params), totalOps, totalNanos / 1e9, Double.NaN);
+        results.add(result);
+        report.printf("%-45s %-30s %,14.1f ops/s %,12.0f ns/op  (%d threads)%n",
+                name, params, result.opsPerSecond(), result.nanosPerOp(), threads);
+        return result;
+    }
+
+    private void iterateConcurrent(Operation operation, int threads, long[] counters) throws Exception {
+        CountDownLatch go = new CountDownLatch(1);
+        LongAdder ops = new LongAdder();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        long[] deadline = new long[1];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                Object last = null;
+                long done = 0;
+                try {
+                    go.await();
+                    do {
+                        last = operation.run();
+                        done++;
+                    } while (System.nanoTime() < deadline[0] && failure.get() == null);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+                ops.add(done);
+                blackhole = last;
+            }, "bench-worker-" + t);
+            workers[t].start();
+        }
+        long start = System.nanoTime();
+        deadline[0] = start + iterationMillis * 1_000_000L;
+        go.countDown(); // Publishes deadline[0] to the workers
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        counters[0] = ops.sum();
+        counters[1] = System.nanoTime() - start;
+    }
+
+    private void iterate(Operation operation, long[] counters) throws Exception {
+        Object last = null;
+        long start = System.nanoTime();
+        long deadline = start + iterationMillis * 1_000_000L;
+        long ops = 0;
+        long now;
+        do {
+            last = operation.run();
+            ops++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        counters[0] = ops;
+        counters[1] = now - start;
+        blackhole = last;
+    }
+
+    private long allocatedBytes() {
+        return allocationBean != null ? allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    /**
+     * @return All results recorded so far, in run order.
+     */
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * Writes all results recorded so far as a JSON document.
+     *
+     * @param file The file to write.
+     * @param meta Extra top-level fields describing the run (database size, git revision, ...).
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeJson(Path file, Map<String, String> meta) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"timestamp\": ").append(quote(Instant.now().toString())).append(",\n");
+        json.append("  \"javaVersion\": ").append(quote(System.getProperty("java.version"))).append(",\n");
+        json.append("  \"warmupIterations\": ").append(warmupIterations).append(",\n");
+        json.append("  \"measurementIterations\": ").append(measurementIterations).append(",\n");
+        json.append("  \"iterationMillis\": ").append(iterationMillis).append(",\n");
+        json.append("  \"meta\": ").append(toJson(meta)).append(",\n");
+        json.append("  \"results\": [\n");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            json.append("    {\"benchmark\": ").append(quote(r.name))
+                .append(", \"params\": ").append(toJson(r.params))
+                .append(", \"operations\": ").append(r.operations)
+                .append(", \"opsPerSecond\": ").append(number(r.opsPerSecond()))
+                .append(", \"nanosPerOp\": ").append(number(r.nanosPerOp()))
+                .append(", \"allocBytesPerOp\": ").append(number(r.bytesPerOp()))
+                .append(", \"allocMegabytesPerSecond\": ").append(number(r.allocMegabytesPerSecond()))
+                .append('}').append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  ]\n}\n");
+        Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String toJson(Map<String, String> map) {
+        StringBuilder json = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (!first) {
+                json.append(", ");
+            }
+            json.append(quote(entry.getKey())).append(": ").append(quote(entry.getValue()));
+            first = false;
+        }
+        return json.append('}').toString();
+    }
+
+    private static String number(double value) {
+        // JSON has no NaN; report unsupported measurements as null
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
@@ -0,0 +1,142 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.dao.UserDao;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.service.AuthService;
+import com.pokemedquest.service.LoginRateLimiter;
+import com.pokemedquest.service.AvatarService;
+import com.pokemedquest.service.ProgressService;
+import com.pokemedquest.service.SessionRegistry;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmarks for the DAO and service hot paths, run against a seeded temp database.
+ *
+ * Options (all optional):
+ *   --users=N            users in the base data set (default 10000)
+ *   --history=10,100,... history lengths to test findProgressByUserId/getLatestProgressForUser with
+ *   --synthetic=N        extra realistic patients from PopulationGenerator (default 0)
+ *   --warmup=N           warmup iterations per benchmark (default 2)
+ *   --iterations=N       measured iterations per benchmark (default 5)
+ *   --iteration-ms=N     length of one iteration in ms (default 1000)
+ *   --seed=N             data generator seed (default 42)
+ *   --out=FILE           where to write the JSON results (default bench-results.json)
+ *
+ * Run with: java -cp "target/test-classes:target/classes:lib/sqlite-jdbc-XYZ.jar" com.pokemedquest.bench.DaoBenchmarks --users=50000
+ */
+public class DaoBenchmarks {
+
+    private static final int USERS_PER_HISTORY_LENGTH = 50;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "10000"));
+        String historyOption = options.getOrDefault("history", "10,100,1000");
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int synthetic = Integer.parseInt(options.getOrDefault("synthetic", "0"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        List<Integer> historyLengths = new ArrayList<>();
+        for (String length : historyOption.split(",")) {
+            historyLengths.add(Integer.parseInt(length.trim()));
+        }
+
+        // The services print a line on every success; keep that out of the measurements
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        try (BenchmarkDatabase database = BenchmarkDatabase.create()) {
+            console.println("Seeding " + users + " users into " + database.getFile() + " ...");
+            database.addUsers(users, 10, seed);
+            Map<Integer, Integer> firstUserByHistory = new LinkedHashMap<>();
+            for (int length : historyLengths) {
+                firstUserByHistory.put(length, database.addUsers(USERS_PER_HISTORY_LENGTH, length, seed + length));
+            }
+            if (synthetic > 0) {
+                console.println("Adding " + synthetic + " synthetic patients ...");
+                database.addSyntheticPopulation(synthetic, seed);
+            }
+
+            UserDao userDao = new UserDao();
+            AvatarDao avatarDao = new AvatarDao();
+            TestProgressDao testProgressDao = new TestProgressDao();
+            SessionRegistry sessionRegistry = new SessionRegistry(SessionRegistry.DEFAULT_TTL_MILLIS, false);
+            AuthService authService = new AuthService(userDao, avatarDao, sessionRegistry, null,
+                    LoginRateLimiter.unlimited()); // Measure the login itself, not the throttling
+            AvatarService avatarService = new AvatarService(avatarDao);
+            ProgressService progressService = new ProgressService(testProgressDao);
+
+            SplittableRandom random = new SplittableRandom(seed);
+            Map<String, String> base = new LinkedHashMap<>();
+            base.put("users", String.valueOf(database.getUserCount()));
+
+            runner.run("UserDao.findUserByUsername", base,
+                    () -> userDao.findUserByUsername("user" + random.nextInt(users)));
+
+            runner.run("AuthService.loginUser", base, () -> {
+                int index = random.nextInt(users);
+                return authService.loginUser("user" + index, "pw" + index);
+            });
+
+            runner.run("AvatarService.levelUpAvatar", base,
+                    () -> avatarService.levelUpAvatar(1 + random.nextInt(users)));
+
+            runner.run("TestProgressDao.createTestProgress", base,
+                    () -> testProgressDao.createTestProgress(
+                            new TestProgress(1 + random.nextInt(users), LocalDateTime.now(), random.nextInt(53))));
+
+            for (Map.Entry<Integer, Integer> entry : firstUserByHistory.entrySet()) {
+                Map<String, String> params = new LinkedHashMap<>(base);
+                params.put("history", String.valueOf(entry.getKey()));
+                int firstUser = entry.getValue();
+                runner.run("TestProgressDao.findProgressByUserId", params,
+                        () -> testProgressDao.findProgressByUserId(firstUser + random.nextInt(USERS_PER_HISTORY_LENGTH)));
+                runner.run("ProgressService.getLatestProgressForUser", params,
+                        () -> progressService.getLatestProgressForUser(firstUser + random.nextInt(USERS_PER_HISTORY_LENGTH)));
+            }
+
+            sessionRegistry.shutdown();
+        } finally {
+            System.setOut(console);
+        }
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("users", String.valueOf(users));
+        meta.put("history", historyOption);
+        meta.put("synthetic", String.valueOf(synthetic));
+        meta.put("seed", String.valueOf(seed));
+        String out = options.getOrDefault("out", "bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    /**
+     * Parses "--key=value" arguments into a map.
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else {
+                throw new IllegalArgumentException("Unrecognized argument: " + arg + " (expected --key=value)");
+            }
+        }
+        return options;
+    }
+}
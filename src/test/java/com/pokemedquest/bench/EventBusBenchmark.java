@@ -0,0 +1,84 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.events.DomainEvent;
+import com.pokemedquest.events.EventBus;
+import com.pokemedquest.events.EventSubscriber;
+import com.pokemedquest.events.ProgressRecorded;
+import com.pokemedquest.model.TestProgress;
+
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares reacting to domain events synchronously (the caller runs every reaction itself,
+ * as a listener would) with publishing them on the EventBus.
+ *
+ * Each of the --subscribers reactions simulates a batched database write: a fixed cost per
+ * call (--call-cost-us, e.g. one transaction) plus a small cost per event (--event-cost-ns).
+ * Synchronously that fixed cost is paid for every event on the caller's thread; on the bus
+ * it is paid once per batch on the subscriber's thread, and the caller only pays for publish().
+ *
+ * Options (all optional):
+ *   --subscribers=N    number of reactions (default 3)
+ *   --call-cost-us=N   simulated cost per call (default 20)
+ *   --event-cost-ns=N  simulated cost per event (default 200)
+ *   --warmup=N, --iterations=N, --iteration-ms=N  as for DaoBenchmarks
+ *   --out=FILE         where to write the JSON results (default eventbus-bench-results.json)
+ */
+public class EventBusBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        int subscribers = Integer.parseInt(options.getOrDefault("subscribers", "3"));
+        long callCostNanos = Long.parseLong(options.getOrDefault("call-cost-us", "20")) * 1000;
+        long eventCostNanos = Long.parseLong(options.getOrDefault("event-cost-ns", "200"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("subscribers", String.valueOf(subscribers));
+        params.put("callCostUs", String.valueOf(callCostNanos / 1000));
+
+        EventSubscriber reaction = batch -> busyWait(callCostNanos + eventCostNanos * batch.size());
+        TestProgress progress = new TestProgress(1, 1, LocalDateTime.now(), 30);
+
+        runner.run("synchronous reactions", params, () -> {
+            List<DomainEvent> single = Collections.singletonList(new ProgressRecorded(progress));
+            for (int i = 0; i < subscribers; i++) {
+                reaction.onEvents(single);
+            }
+            return single;
+        });
+
+        EventBus bus = new EventBus();
+        for (int i = 0; i < subscribers; i++) {
+            bus.subscribe("bench" + i, reaction);
+        }
+        bus.start();
+        runner.run("EventBus.publish", params, () -> bus.publish(new ProgressRecorded(progress)));
+        bus.awaitDrained(10_000);
+        bus.shutdown();
+
+        Map<String, String> meta = new LinkedHashMap<>(params);
+        meta.put("eventCostNs", String.valueOf(eventCostNanos));
+        String out = options.getOrDefault("out", "eventbus-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    /**
+     * Burns CPU for the given time, like a short database call would block the thread.
+     */
+    private static void busyWait(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.DatabaseManager;
+import com.pokemedquest.dao.IsolatedDatabase;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.dao.UserDao;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.User;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares two ways of giving DAO tests a database. Each operation is one simulated test
+ * class: get a clean database, then register --users users with an avatar and --tests
+ * recorded scores each, reading every one back, the way a DAO test would.
+ *
+ *   sharedFile     one database file for all classes, emptied before each class; classes
+ *                  have to run one after another
+ *   isolatedMemory every class creates its own in-memory database (IsolatedDatabase) and
+ *                  drops it afterwards, run on 1 and on --threads threads
+ *
+ * ops/s is test classes per second; the ratio of the runs is the speedup a test suite
+ * would see.
+ *
+ * Options (all optional):
+ *   --users=N         users per test class (default 20)
+ *   --tests=N         recorded scores per user (default 5)
+ *   --threads=N,N,... threads for the isolated runs (default 1,2,4,8)
+ *   --warmup=N, --iterations=N, --iteration-ms=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default isolated-db-bench-results.json)
+ */
+public class IsolatedDatabaseBenchmark {
+
+    private static final String LIST_TABLES_SQL = "SELECT name FROM sqlite_master WHERE type = 'table' AND name NOT LIKE 'sqlite_%'";
+
+    private static final AtomicLong USERNAMES = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "20"));
+        int tests = Integer.parseInt(options.getOrDefault("tests", "5"));
+        String[] threadCounts = options.getOrDefault("threads", "1,2,4,8").split(",");
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("users", String.valueOf(users));
+        params.put("tests", String.valueOf(tests));
+
+        Path file = Files.createTempFile("pokemedquest-shared-", ".db");
+        try {
+            String sharedUrl = "jdbc:sqlite:" + file.toAbsolutePath();
+            DatabaseManager.initializeSchema(sharedUrl);
+            params.put("database", "sharedFile");
+            params.put("threads", "1");
+            runner.run("testClass", params, () -> {
+                clear(sharedUrl);
+                return runTestClass(sharedUrl, users, tests);
+            });
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(Paths.get(file + "-wal"));
+            Files.deleteIfExists(Paths.get(file + "-shm"));
+        }
+
+        params.put("database", "isolatedMemory");
+        for (String threadCount : threadCounts) {
+            int threads = Integer.parseInt(threadCount.trim());
+            params.put("threads", String.valueOf(threads));
+            runner.runConcurrent("testClass", params, threads, () -> {
+                try (IsolatedDatabase database = IsolatedDatabase.create("IsolatedDatabaseBenchmark")) {
+                    return runTestClass(database.getUrl(), users, tests);
+                }
+            });
+        }
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("processors", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        String out = options.getOrDefault("out", "isolated-db-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    /**
+     * The body of one simulated test class.
+     * @return The number of rows read back, so the work cannot be optimized away.
+     */
+    private static int runTestClass(String url, int users, int tests) throws SQLException {
+        UserDao userDao = new UserDao(url);
+        AvatarDao avatarDao = new AvatarDao(url);
+        TestProgressDao testProgressDao = new TestProgressDao(url);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        int rows = 0;
+        for (int i = 0; i < users; i++) {
+            User user = new User("test" + USERNAMES.incrementAndGet(), "pw", "child");
+            if (!userDao.createUser(user)
+                    || !avatarDao.createAvatar(new Avatar(user.getId(), "Avatar" + i, "blue", "none", 1))) {
+                throw new SQLException("Failed to create test user");
+            }
+            List<TestProgress> progress = new ArrayList<>(tests);
+            for (int t = 0; t < tests; t++) {
+                progress.add(new TestProgress(user.getId(), start.plusDays(t), 20 + t % 30));
+            }
+            if (!testProgressDao.createTestProgressBatch(progress)) {
+                throw new SQLException("Failed to record test progress");
+            }
+            rows += userDao.findUserByUsername(user.getUsername()).isPresent() ? 1 : 0;
+            rows += avatarDao.findAvatarByUserId(user.getId()).isPresent() ? 1 : 0;
+            rows += testProgressDao.findProgressByUserId(user.getId()).size();
+        }
+        if (rows != users * (2 + tests)) {
+            throw new SQLException("Expected " + users * (2 + tests) + " rows, read " + rows);
+        }
+        return rows;
+    }
+
+    /**
+     * Empties every table, as a test class sharing a database file has to before it starts.
+     */
+    private static void clear(String url) throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            List<String> tables = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery(LIST_TABLES_SQL)) {
+                while (rs.next()) {
+                    tables.add(rs.getString(1));
+                }
+            }
+            connection.setAutoCommit(false);
+            try {
+                for (String table : tables) {
+                    statement.executeUpdate("DELETE FROM \"" + table + "\"");
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+}
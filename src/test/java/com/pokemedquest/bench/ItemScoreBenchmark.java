@@ -0,0 +1,233 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.dao.DatabaseManager;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.model.CmasItem;
+import com.pokemedquest.model.CmasItemScores;
+import com.pokemedquest.model.CmasItemTrend;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.service.ProgressService;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Compares the bit-packed cmas_items column with a normalized layout of one row per item
+ * and test, for storage size and for reading one patient's item trends.
+ *
+ * Every seeded test is scored on all 14 items. The normalized table (bench_cmas_item,
+ * only created in the benchmark database) holds the same scores. Sizes are the growth of
+ * the vacuumed database file. The trend read is ProgressService.getItemTrends for the
+ * packed column, and the equivalent join and aggregation for the normalized table.
+ *
+ * Options (all optional):
+ *   --users=N         patients to seed (default 2000)
+ *   --history=N       item-scored tests per patient (default 100)
+ *   --warmup=N, --iterations=N, --iteration-ms=N, --seed=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default item-score-bench-results.json)
+ */
+public class ItemScoreBenchmark {
+
+    private static final String CREATE_ITEM_TABLE_SQL = "CREATE TABLE bench_cmas_item (progress_id INTEGER NOT NULL, "
+            + "item INTEGER NOT NULL, score INTEGER NOT NULL, PRIMARY KEY (progress_id, item)) WITHOUT ROWID";
+    private static final String INSERT_ITEM_SQL = "INSERT INTO bench_cmas_item (progress_id, item, score) VALUES (?, ?, ?)";
+    private static final String SELECT_PACKED_SQL = "SELECT progress_id, cmas_items FROM test_progress WHERE cmas_items IS NOT NULL";
+    private static final String SELECT_ITEM_TRENDS_SQL = "SELECT i.item, i.score FROM test_progress p "
+            + "JOIN bench_cmas_item i ON i.progress_id = p.progress_id WHERE p.user_id = ? ORDER BY p.test_timestamp";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "2000"));
+        int history = Integer.parseInt(options.getOrDefault("history", "100"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        try (BenchmarkDatabase database = BenchmarkDatabase.create()) {
+            System.out.println("Seeding " + users + " users with " + history + " item-scored tests each into " + database.getFile() + " ...");
+            int firstUser = database.addUsers(users, 0, seed);
+            long baseBytes = vacuumedSize();
+            seedItemScores(firstUser, users, history, seed);
+            long packedBytes = vacuumedSize();
+            copyToItemTable();
+            long normalizedBytes = vacuumedSize() - packedBytes;
+            clearPackedColumn();
+            long rowsOnlyBytes = vacuumedSize() - normalizedBytes;
+            packedBytes -= rowsOnlyBytes;
+            System.out.printf("Test rows without items: %,d bytes; packed column: %,d bytes; normalized table: %,d bytes%n",
+                    rowsOnlyBytes - baseBytes, packedBytes, normalizedBytes);
+            meta.put("testRowBytes", String.valueOf(rowsOnlyBytes - baseBytes));
+            meta.put("packedColumnBytes", String.valueOf(packedBytes));
+            meta.put("normalizedTableBytes", String.valueOf(normalizedBytes));
+
+            // The size run cleared the column; put the packed values back for the read benchmark
+            restorePackedColumn();
+            ProgressService progressService = new ProgressService(new TestProgressDao());
+            SplittableRandom random = new SplittableRandom(seed);
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("history", String.valueOf(history));
+            params.put("layout", "packed");
+            runner.run("itemTrends", params, () -> progressService.getItemTrends(firstUser + random.nextInt(users)));
+            params.put("layout", "normalized");
+            runner.run("itemTrends", params, () -> normalizedTrends(firstUser + random.nextInt(users)));
+        }
+
+        meta.put("users", String.valueOf(users));
+        meta.put("history", String.valueOf(history));
+        String out = options.getOrDefault("out", "item-score-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    /**
+     * Adds item-scored tests; each item drifts a little from test to test.
+     */
+    private static void seedItemScores(int firstUser, int users, int history, long seed) throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed);
+        TestProgressDao testProgressDao = new TestProgressDao();
+        CmasItem[] items = CmasItem.values();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        int[] scores = new int[items.length];
+        for (int user = firstUser; user < firstUser + users; user++) {
+            for (CmasItem item : items) {
+                scores[item.ordinal()] = random.nextInt(item.getMaxScore() + 1);
+            }
+            List<TestProgress> tests = new ArrayList<>(history);
+            for (int h = 0; h < history; h++) {
+                for (CmasItem item : items) {
+                    int i = item.ordinal();
+                    scores[i] = Math.max(0, Math.min(item.getMaxScore(), scores[i] + random.nextInt(3) - 1));
+                }
+                CmasItemScores itemScores = CmasItemScores.of(scores);
+                TestProgress test = new TestProgress(user, start.plusDays(h), itemScores.total());
+                test.setItemScores(itemScores);
+                tests.add(test);
+            }
+            if (!testProgressDao.createTestProgressBatch(tests)) {
+                throw new SQLException("Failed to seed item scores");
+            }
+        }
+    }
+
+    private static void copyToItemTable() throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_ITEM_TABLE_SQL);
+            connection.setAutoCommit(false);
+            int[] scores = new int[CmasItem.values().length];
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_ITEM_SQL);
+                 ResultSet rs = statement.executeQuery(SELECT_PACKED_SQL)) {
+                while (rs.next()) {
+                    CmasItemScores.decode(rs.getLong("cmas_items"), scores);
+                    for (int i = 0; i < scores.length; i++) {
+                        insert.setInt(1, rs.getInt("progress_id"));
+                        insert.setInt(2, i);
+                        insert.setInt(3, scores[i]);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+            }
+            connection.commit();
+        }
+    }
+
+    private static void clearPackedColumn() throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE test_progress SET cmas_items = NULL");
+        }
+    }
+
+    /**
+     * Packs the normalized rows back into cmas_items, item by item.
+     */
+    private static void restorePackedColumn() throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            int[] scores = new int[CmasItem.values().length];
+            try (PreparedStatement update = connection.prepareStatement("UPDATE test_progress SET cmas_items = ? WHERE progress_id = ?");
+                 ResultSet rs = statement.executeQuery("SELECT progress_id, item, score FROM bench_cmas_item ORDER BY progress_id, item")) {
+                int progressId = -1;
+                while (rs.next()) {
+                    if (rs.getInt("progress_id") != progressId && progressId != -1) {
+                        update.setLong(1, CmasItemScores.of(scores).toPacked());
+                        update.setInt(2, progressId);
+                        update.addBatch();
+                    }
+                    progressId = rs.getInt("progress_id");
+                    scores[rs.getInt("item")] = rs.getInt("score");
+                }
+                if (progressId != -1) {
+                    update.setLong(1, CmasItemScores.of(scores).toPacked());
+                    update.setInt(2, progressId);
+                    update.addBatch();
+                }
+                update.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    /**
+     * The normalized counterpart of ProgressService.getItemTrends.
+     */
+    private static List<CmasItemTrend> normalizedTrends(int userId) throws SQLException {
+        CmasItem[] items = CmasItem.values();
+        int[] count = new int[items.length];
+        int[] first = new int[items.length];
+        int[] best = new int[items.length];
+        int[] latest = new int[items.length];
+        try (Connection connection = DatabaseManager.getConnection();
+             PreparedStatement select = connection.prepareStatement(SELECT_ITEM_TRENDS_SQL)) {
+            select.setInt(1, userId);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    int i = rs.getInt("item");
+                    int score = rs.getInt("score");
+                    if (count[i]++ == 0) {
+                        first[i] = score;
+                        best[i] = score;
+                    }
+                    best[i] = Math.max(best[i], score);
+                    latest[i] = score;
+                }
+            }
+        }
+        List<CmasItemTrend> trends = new ArrayList<>();
+        for (int i = 0; i < items.length; i++) {
+            if (count[i] > 0) {
+                trends.add(new CmasItemTrend(items[i], count[i], first[i], best[i], latest[i]));
+            }
+        }
+        return trends;
+    }
+
+    private static long vacuumedSize() throws SQLException {
+        try (Connection connection = DatabaseManager.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("VACUUM");
+            long pages;
+            try (ResultSet rs = statement.executeQuery("PRAGMA page_count")) {
+                pages = rs.getLong(1);
+            }
+            try (ResultSet rs = statement.executeQuery("PRAGMA page_size")) {
+                return pages * rs.getLong(1);
+            }
+        }
+    }
+}
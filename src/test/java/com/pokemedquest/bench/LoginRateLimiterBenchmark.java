@@ -0,0 +1,84 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.service.LoginRateLimiter;
+
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures what the login rate limit check (LoginRateLimiter.tryAcquire, done first in
+ * AuthService.loginUser) costs per attempt, from several threads at once:
+ *
+ *   oneUsername    every thread guesses at the same account; after the first few attempts
+ *                  all are refused, which only reads the bucket
+ *   manyUsernames  attempts spread over --usernames accounts with the default limits,
+ *                  a mix of allowed and refused attempts and bucket creation
+ *   allAllowed     the same spread with limits never reached, so every attempt updates
+ *                  both its username's bucket and the global one (the most contended case)
+ *
+ * No database is involved. The limiter's counters are printed after each run.
+ *
+ * Options (all optional):
+ *   --threads=N,N,... threads (default 1,2,4,8)
+ *   --usernames=N     accounts for the spread scenarios (default 10000)
+ *   --warmup=N, --iterations=N, --iteration-ms=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default ratelimit-bench-results.json)
+ */
+public class LoginRateLimiterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        String[] threadCounts = options.getOrDefault("threads", "1,2,4,8").split(",");
+        int usernameCount = Integer.parseInt(options.getOrDefault("usernames", "10000"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        String[] usernames = new String[usernameCount];
+        for (int i = 0; i < usernameCount; i++) {
+            usernames[i] = "user" + i;
+        }
+
+        for (String threadCount : threadCounts) {
+            int threads = Integer.parseInt(threadCount.trim());
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("threads", String.valueOf(threads));
+
+            LoginRateLimiter oneUsername = new LoginRateLimiter();
+            params.put("scenario", "oneUsername");
+            runner.runConcurrent("LoginRateLimiter.tryAcquire", params, threads,
+                    () -> oneUsername.tryAcquire("user0") ? 1 : 1);
+            report("oneUsername", threads, oneUsername);
+
+            LoginRateLimiter manyUsernames = new LoginRateLimiter();
+            params.put("scenario", "manyUsernames");
+            params.put("usernames", String.valueOf(usernameCount));
+            runner.runConcurrent("LoginRateLimiter.tryAcquire", params, threads,
+                    () -> manyUsernames.tryAcquire(usernames[ThreadLocalRandom.current().nextInt(usernameCount)]) ? 1 : 1);
+            report("manyUsernames", threads, manyUsernames);
+
+            LoginRateLimiter allAllowed = new LoginRateLimiter(Integer.MAX_VALUE, 1, Integer.MAX_VALUE, 1,
+                    LoginRateLimiter.DEFAULT_MAX_TRACKED_USERNAMES);
+            params.put("scenario", "allAllowed");
+            runner.runConcurrent("LoginRateLimiter.tryAcquire", params, threads,
+                    () -> allAllowed.tryAcquire(usernames[ThreadLocalRandom.current().nextInt(usernameCount)]) ? 1 : 1);
+            report("allAllowed", threads, allAllowed);
+        }
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("usernames", String.valueOf(usernameCount));
+        meta.put("processors", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        String out = options.getOrDefault("out", "ratelimit-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    private static void report(String scenario, int threads, LoginRateLimiter limiter) {
+        System.out.printf("  %-14s threads=%-3d allowed=%,d rejected(username)=%,d rejected(global)=%,d untracked=%,d tracked=%,d%n",
+                scenario, threads, limiter.getAllowedCount(), limiter.getRejectedByUsernameCount(),
+                limiter.getRejectedGloballyCount(), limiter.getUntrackedCount(), limiter.getTrackedUsernameCount());
+    }
+}
@@ -0,0 +1,229 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.DatabaseManager;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.dao.UserDao;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.User;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates a synthetic patient population for scale testing.
+ * No real patient data is involved: every user, avatar and CMAS score is made up.
+ *
+ * Generation is deterministic: the same seed and options always produce the same
+ * database contents, because each user draws from its own Random seeded from
+ * (seed, user index). Everything is written through the DAO batch methods, one
+ * transaction per batch, so a few million test_progress rows take minutes.
+ *
+ * Options (all optional):
+ *   --db=FILE            database file to fill (default data/synthetic.db); created if missing
+ *   --users=N            number of child users (default 1000)
+ *   --years=N            maximum length of a patient's history in years (default 3)
+ *   --seed=N             generator seed (default 42)
+ *   --end=YYYY-MM-DD     date of the most recent possible test (default 2025-04-01)
+ *
+ * Run with: java -cp "target/test-classes:target/classes:lib/sqlite-jdbc-XYZ.jar" com.pokemedquest.bench.PopulationGenerator --users=10000
+ */
+public class PopulationGenerator {
+
+    /**
+     * The overall shape of a patient's CMAS scores over time.
+     */
+    public enum Trajectory {
+        IMPROVING, // Low scores at diagnosis, recovering under treatment
+        FLARING,   // Mostly stable, with occasional flares that drop the score and recover
+        NOISY      // No clear trend, large test-to-test variation
+    }
+
+    public static final int MAX_CMAS_SCORE = 52;
+
+    private static final int USER_BATCH_SIZE = 1000;
+    private static final int PROGRESS_BATCH_SIZE = 20_000;
+
+    private static final String[] COLORS = {"blue", "red", "green", "yellow", "purple", "orange"};
+    private static final String[] ACCESSORIES = {"none", "hat", "scarf", "glasses", "cape", "crown"};
+
+    private final long seed;
+    private final int maxHistoryDays;
+    private final LocalDate endDate;
+
+    private final UserDao userDao = new UserDao();
+    private final AvatarDao avatarDao = new AvatarDao();
+    private final TestProgressDao testProgressDao = new TestProgressDao();
+
+    private long progressRows = 0;
+
+    /**
+     * @param seed The generator seed.
+     * @param maxHistoryDays The longest history any patient can have, in days.
+     * @param endDate The last day on which a test can be taken.
+     */
+    public PopulationGenerator(long seed, int maxHistoryDays, LocalDate endDate) {
+        this.seed = seed;
+        this.maxHistoryDays = maxHistoryDays;
+        this.endDate = endDate;
+    }
+
+    /**
+     * Generates users (with avatars and test histories) into the active database.
+     * Users are named "synth" + index, with password "pw" + index.
+     *
+     * @param firstIndex Index of the first user; lets several runs append to one database.
+     * @param count Number of users to generate.
+     * @return The generated users, with their IDs set.
+     * @throws SQLException if any batch fails to be written.
+     */
+    public List<User> generate(int firstIndex, int count) throws SQLException {
+        List<User> generated = new ArrayList<>(count);
+        List<TestProgress> pendingProgress = new ArrayList<>(PROGRESS_BATCH_SIZE);
+        for (int start = 0; start < count; start += USER_BATCH_SIZE) {
+            int batchSize = Math.min(USER_BATCH_SIZE, count - start);
+
+            List<User> users = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                int index = firstIndex + start + i;
+                users.add(new User("synth" + index, "pw" + index, "child"));
+            }
+            if (!userDao.createUsers(users)) {
+                throw new SQLException("Failed to write user batch starting at index " + (firstIndex + start));
+            }
+
+            List<Avatar> avatars = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                Random random = randomFor(firstIndex + start + i, 1);
+                avatars.add(new Avatar(users.get(i).getId(), "Synth" + (firstIndex + start + i),
+                        COLORS[random.nextInt(COLORS.length)], ACCESSORIES[random.nextInt(ACCESSORIES.length)],
+                        1 + random.nextInt(10)));
+            }
+            if (!avatarDao.createAvatars(avatars)) {
+                throw new SQLException("Failed to write avatar batch starting at index " + (firstIndex + start));
+            }
+
+            for (int i = 0; i < batchSize; i++) {
+                generateHistory(firstIndex + start + i, users.get(i).getId(), pendingProgress);
+            }
+            generated.addAll(users);
+        }
+        flushProgress(pendingProgress);
+        return generated;
+    }
+
+    /**
+     * @return The number of test_progress rows written so far.
+     */
+    public long getProgressRows() {
+        return progressRows;
+    }
+
+    /**
+     * Picks the trajectory for a user. Exposed so reports can group by it.
+     *
+     * @param index The user's index.
+     * @return The trajectory that user's history follows.
+     */
+    public Trajectory trajectoryFor(int index) {
+        int roll = randomFor(index, 2).nextInt(100);
+        if (roll < 40) {
+            return Trajectory.IMPROVING;
+        } else if (roll < 75) {
+            return Trajectory.FLARING;
+        }
+        return Trajectory.NOISY;
+    }
+
+    /**
+     * Generates one patient's test history and appends it to the pending batch.
+     */
+    private void generateHistory(int index, int userId, List<TestProgress> pending) throws SQLException {
+        Random random = randomFor(index, 3);
+        Trajectory trajectory = trajectoryFor(index);
+        int historyDays = 30 + random.nextInt(Math.max(1, maxHistoryDays - 30));
+        int cadenceDays = 1 + random.nextInt(7);          // Daily to weekly testing
+        boolean hasGaps = random.nextInt(100) < 30;       // Some patients stop testing for weeks
+        double start = 10 + random.nextInt(20);            // IMPROVING: score at diagnosis
+        double target = 40 + random.nextInt(MAX_CMAS_SCORE - 39);
+        double baseline = 25 + random.nextInt(25);         // FLARING / NOISY: typical score
+
+        double flareDepth = 0;
+        LocalDate day = endDate.minusDays(historyDays);
+        while (!day.isAfter(endDate)) {
+            double fraction = 1.0 - (endDate.toEpochDay() - day.toEpochDay()) / (double) historyDays;
+            double score;
+            switch (trajectory) {
+                case IMPROVING:
+                    // Logistic recovery curve from start to target
+                    score = start + (target - start) / (1 + Math.exp(-10 * (fraction - 0.4)))
+                            + random.nextGaussian() * 2;
+                    break;
+                case FLARING:
+                    if (flareDepth <= 0.5 && random.nextInt(100) < 2) {
+                        flareDepth = 8 + random.nextInt(13); // A flare drops the score 8-20 points
+                    }
+                    score = baseline - flareDepth + random.nextGaussian() * 2;
+                    flareDepth *= 0.9; // ...and recovers over the following tests
+                    break;
+                default:
+                    score = baseline + random.nextGaussian() * 6;
+                    break;
+            }
+            LocalDateTime timestamp = day.atTime(15 + random.nextInt(5), random.nextInt(60));
+            int cmasScore = (int) Math.round(Math.max(0, Math.min(MAX_CMAS_SCORE, score)));
+            pending.add(new TestProgress(userId, timestamp, cmasScore));
+            if (pending.size() >= PROGRESS_BATCH_SIZE) {
+                flushProgress(pending);
+            }
+
+            int step = Math.max(1, cadenceDays + random.nextInt(3) - 1); // Jitter the cadence a little
+            if (hasGaps && random.nextInt(100) < 3) {
+                step += 14 + random.nextInt(77); // A gap of two weeks to three months
+            }
+            day = day.plusDays(step);
+        }
+    }
+
+    private void flushProgress(List<TestProgress> pending) throws SQLException {
+        if (!testProgressDao.createTestProgressBatch(pending)) {
+            throw new SQLException("Failed to write test progress batch");
+        }
+        progressRows += pending.size();
+        pending.clear();
+    }
+
+    /**
+     * Every (user, purpose) pair gets its own Random, so changing how one aspect is
+     * generated never shifts the random sequence of another.
+     */
+    private Random randomFor(int index, int purpose) {
+        long mixed = seed * 0x9E3779B97F4A7C15L + index * 0xBF58476D1CE4E5B9L + purpose;
+        return new Random(mixed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        String db = options.getOrDefault("db", "data/synthetic.db");
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int years = Integer.parseInt(options.getOrDefault("years", "3"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        LocalDate end = LocalDate.parse(options.getOrDefault("end", "2025-04-01"));
+
+        DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + db);
+        DatabaseManager.initializeSchema();
+
+        PopulationGenerator generator = new PopulationGenerator(seed, years * 365, end);
+        long startNanos = System.nanoTime();
+        generator.generate(0, users);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("Generated %,d users and %,d test results into %s in %.1f s (%,.0f rows/s)%n",
+                users, generator.getProgressRows(), db, seconds, generator.getProgressRows() / seconds);
+    }
+}
@@ -0,0 +1,99 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.reminder.ReminderScheduler;
+
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures ReminderScheduler with large numbers of scheduled patients, on a simulated clock
+ * (no database; patients are scheduled directly with a last test spread over the past
+ * cadence, so their reminders come due evenly over the next one).
+ *
+ *   patientTested  moves one random patient's reminder after a new test
+ *   minute         one simulated minute: the patients testing in that minute (every patient
+ *                  tests once per --test-days on average) and deliverDue for that minute
+ *
+ * Both should cost the same per operation whatever the number of patients; a minute's cost
+ * follows the reminders sent in it (printed per run), not the patients scheduled.
+ *
+ * Options (all optional):
+ *   --patients=N,N,... scheduled patients (default 100000,1000000)
+ *   --cadence-days=N   days from a test to the next reminder (default 7)
+ *   --test-days=N      days between a patient's tests on average (default 9, so some are late)
+ *   --warmup=N, --iterations=N, --iteration-ms=N, --seed=N  as for DaoBenchmarks
+ *   --out=FILE         where to write the JSON results (default reminder-bench-results.json)
+ */
+public class ReminderSchedulerBenchmark {
+
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        String[] patientCounts = options.getOrDefault("patients", "100000,1000000").split(",");
+        long cadenceMillis = TimeUnit.DAYS.toMillis(Long.parseLong(options.getOrDefault("cadence-days", "7")));
+        long testMinutes = TimeUnit.DAYS.toMinutes(Long.parseLong(options.getOrDefault("test-days", "9")));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        for (String patientCount : patientCounts) {
+            int patients = Integer.parseInt(patientCount.trim());
+            LongAdder sent = new LongAdder();
+            ReminderScheduler scheduler = new ReminderScheduler(null, null, reminders -> sent.add(reminders.size()),
+                    cadenceMillis, ReminderScheduler.DEFAULT_REPEAT_MILLIS, ReminderScheduler.DEFAULT_BATCH_SIZE);
+            Random random = new Random(seed);
+            LocalDateTime now = LocalDateTime.now();
+            long cadenceMinutes = TimeUnit.MILLISECONDS.toMinutes(cadenceMillis);
+
+            long start = System.nanoTime();
+            for (int userId = 1; userId <= patients; userId++) {
+                scheduler.schedulePatient(userId, now.minusMinutes((long) (random.nextDouble() * cadenceMinutes)));
+            }
+            long[] clock = {System.currentTimeMillis()};
+            scheduler.deliverDue(clock[0]); // Places the new entries
+            System.out.printf("Scheduled %,d patients in %,d ms%n", patients, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("patients", String.valueOf(patients));
+            LocalDateTime[] simulatedNow = {now};
+            runner.run("ReminderScheduler.patientTested", params, () -> {
+                scheduler.patientTested(1 + random.nextInt(patients), simulatedNow[0]);
+                return 1;
+            });
+
+            // Tests per simulated minute, so that each patient tests every testMinutes on average
+            double testsPerMinute = (double) patients / testMinutes;
+            double[] owed = {0};
+            long sentBefore = sent.sum();
+            long[] minutes = {0};
+            runner.run("ReminderScheduler.minute", params, () -> {
+                clock[0] += MINUTE_MILLIS;
+                simulatedNow[0] = simulatedNow[0].plusMinutes(1);
+                owed[0] += testsPerMinute;
+                for (; owed[0] >= 1; owed[0]--) {
+                    scheduler.patientTested(1 + random.nextInt(patients), simulatedNow[0]);
+                }
+                minutes[0]++;
+                return scheduler.deliverDue(clock[0]);
+            });
+            System.out.printf("  patients=%,d simulated %,d minutes (%.1f days): %,.1f reminders/minute, %,d scheduled%n",
+                    patients, minutes[0], minutes[0] / 1440.0, (double) (sent.sum() - sentBefore) / Math.max(1, minutes[0]),
+                    scheduler.getScheduledCount());
+        }
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("cadenceDays", String.valueOf(TimeUnit.MILLISECONDS.toDays(cadenceMillis)));
+        meta.put("testDays", String.valueOf(TimeUnit.MINUTES.toDays(testMinutes)));
+        String out = options.getOrDefault("out", "reminder-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+}
@@ -0,0 +1,110 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.cli.TableRenderer;
+import com.pokemedquest.model.TestProgress;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Renders a long progress history the way the CLI's history view does, comparing the old
+ * per-row printf with TableRenderer. One operation renders all --rows rows.
+ *
+ * The printf variant writes through a PrintStream set up like System.out (128-byte buffer,
+ * flushed on every line) and formats each timestamp with a DateTimeFormatter. Both variants
+ * write to the same target: a temp file by default, or e.g. --target=/dev/null to leave
+ * out the disk, or a named pipe.
+ *
+ * Options (all optional):
+ *   --rows=N          rows per rendering (default 100000)
+ *   --page-rows=N     TableRenderer page size (default TableRenderer.DEFAULT_PAGE_ROWS)
+ *   --target=FILE     where the tables are written (default: a temp file, deleted afterwards)
+ *   --warmup=N, --iterations=N, --iteration-ms=N, --seed=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default render-bench-results.json)
+ */
+public class ReportRenderBenchmark {
+
+    private static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        int rows = Integer.parseInt(options.getOrDefault("rows", "100000"));
+        int pageRows = Integer.parseInt(options.getOrDefault("page-rows", String.valueOf(TableRenderer.DEFAULT_PAGE_ROWS)));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        // A few tests a day, most recent first, as the history view receives them
+        List<TestProgress> history = new ArrayList<>(rows);
+        SplittableRandom random = new SplittableRandom(seed);
+        LocalDateTime time = LocalDateTime.of(2025, 6, 1, 18, 0);
+        for (int i = 0; i < rows; i++) {
+            history.add(new TestProgress(rows - i, 1, time, random.nextInt(53)));
+            time = time.minusMinutes(240 + random.nextInt(240));
+        }
+
+        boolean tempTarget = !options.containsKey("target");
+        Path target = tempTarget ? Files.createTempFile("pokemedquest-render-", ".txt") : Paths.get(options.get("target"));
+        try {
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("rows", String.valueOf(rows));
+            params.put("renderer", "printf");
+            runner.run("renderHistory", params, () -> renderWithPrintf(history, target));
+            params.put("renderer", "TableRenderer");
+            runner.run("renderHistory", params, () -> renderWithTableRenderer(history, target, pageRows));
+        } finally {
+            if (tempTarget) {
+                Files.deleteIfExists(target);
+            }
+        }
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("rows", String.valueOf(rows));
+        meta.put("pageRows", String.valueOf(pageRows));
+        meta.put("target", tempTarget ? "temp file" : target.toString());
+        String out = options.getOrDefault("out", "render-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    private static int renderWithPrintf(List<TestProgress> history, Path target) throws Exception {
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(target.toFile()), 128), true)) {
+            out.println("Date & Time        | Score");
+            out.println("-------------------|-------");
+            for (TestProgress progress : history) {
+                out.printf("%-19s| %d%n", progress.getTestTimestamp().format(DTF), progress.getCmasScore());
+            }
+            out.println("---------------------------");
+        }
+        return history.size();
+    }
+
+    private static int renderWithTableRenderer(List<TestProgress> history, Path target, int pageRows) throws Exception {
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(target.toFile()), Charset.defaultCharset())) {
+            TableRenderer renderer = new TableRenderer(writer, pageRows);
+            renderer.line("Date & Time        | Score");
+            renderer.line("-------------------|-------");
+            for (TestProgress progress : history) {
+                renderer.dateTime(progress.getTestTimestamp()).column(19).number(progress.getCmasScore()).endRow();
+            }
+            renderer.line("---------------------------");
+            renderer.flush();
+        }
+        return history.size();
+    }
+}
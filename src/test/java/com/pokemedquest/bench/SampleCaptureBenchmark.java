@@ -0,0 +1,177 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.capture.CaptureSession;
+import com.pokemedquest.capture.SampleStreamReader;
+import com.pokemedquest.capture.SessionCapture;
+import com.pokemedquest.dao.ExerciseSessionDao;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.model.CmasItem;
+import com.pokemedquest.model.ExerciseSession;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.service.ProgressService;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures exercise sample capture: how fast samples can be recorded, whether a sustained
+ * sample rate is kept without losses, how small the stored sessions are and how fast they
+ * replay.
+ *
+ * 1. CaptureSession.record flat out, on one session and on --sessions sessions at once
+ *    (one thread each), with the drain thread encoding in the background.
+ * 2. A paced run: --sessions threads each record --rate samples per second for --seconds,
+ *    then finish their session, which stores it with a recorded test result. Samples lost
+ *    to a full buffer, bytes per sample, finish time and replay speed are printed.
+ *
+ * Options (all optional):
+ *   --sessions=N      concurrent sessions (default 8)
+ *   --rate=N          samples per second per session in the paced run (default 5000)
+ *   --seconds=N       length of the paced run (default 10)
+ *   --warmup=N, --iterations=N, --iteration-ms=N, --seed=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default capture-bench-results.json)
+ */
+public class SampleCaptureBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        int sessions = Integer.parseInt(options.getOrDefault("sessions", "8"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "5000"));
+        int seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        try (BenchmarkDatabase database = BenchmarkDatabase.create()) {
+            int firstUser = database.addUsers(sessions, 0, seed);
+            ExerciseSessionDao exerciseSessionDao = new ExerciseSessionDao();
+            SessionCapture capture = new SessionCapture(exerciseSessionDao);
+            ProgressService progressService = new ProgressService(new TestProgressDao());
+            try {
+                CaptureSession single = capture.start(firstUser);
+                long[] counter = new long[1];
+                Map<String, String> params = new LinkedHashMap<>();
+                params.put("sessions", "1");
+                runner.run("CaptureSession.record", params, () -> single.record(CmasItem.ARM_RAISE_DURATION, (int) counter[0]++));
+                System.out.println("Dropped on 1 session: " + single.getDroppedSamples());
+                meta.put("droppedFlatOutOneSession", String.valueOf(single.getDroppedSamples()));
+                capture.discard(single);
+
+                List<CaptureSession> perThread = new ArrayList<>();
+                ThreadLocal<CaptureSession> session = ThreadLocal.withInitial(() -> {
+                    CaptureSession started = capture.start(firstUser);
+                    synchronized (perThread) {
+                        perThread.add(started);
+                    }
+                    return started;
+                });
+                params.put("sessions", String.valueOf(sessions));
+                runner.runConcurrent("CaptureSession.record", params, sessions,
+                        () -> session.get().record(CmasItem.ARM_RAISE_DURATION, (int) System.nanoTime()));
+                long dropped = 0;
+                for (CaptureSession started : perThread) {
+                    dropped += started.getDroppedSamples();
+                    capture.discard(started);
+                }
+                System.out.println("Dropped on " + sessions + " sessions: " + dropped);
+                meta.put("droppedFlatOutConcurrent", String.valueOf(dropped));
+
+                pacedRun(capture, progressService, firstUser, sessions, rate, seconds, meta);
+            } finally {
+                capture.shutdown();
+            }
+        }
+
+        meta.put("sessions", String.valueOf(sessions));
+        meta.put("rate", String.valueOf(rate));
+        meta.put("seconds", String.valueOf(seconds));
+        String out = options.getOrDefault("out", "capture-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    private static void pacedRun(SessionCapture capture, ProgressService progressService, int firstUser,
+                                 int sessions, int rate, int seconds, Map<String, String> meta) throws Exception {
+        System.out.println("Paced run: " + sessions + " sessions x " + rate + " samples/s for " + seconds + " s ...");
+        List<ExerciseSession> stored = new ArrayList<>();
+        AtomicLong finishNanos = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int s = 0; s < sessions; s++) {
+            int userId = firstUser + s;
+            Thread thread = new Thread(() -> {
+                CaptureSession session = capture.start(userId);
+                long start = System.nanoTime();
+                long end = start + TimeUnit.SECONDS.toNanos(seconds);
+                long recorded = 0;
+                int repetitions = 0;
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    long due = (now - start) * rate / 1_000_000_000L;
+                    for (; recorded < due; recorded++) {
+                        // A hold time sample per tick, a repetition count every 50th
+                        if (recorded % 50 == 0) {
+                            session.record(CmasItem.SIT_UPS, ++repetitions);
+                        } else {
+                            session.record(CmasItem.ARM_RAISE_DURATION, (int) ((now - start) / 1_000_000));
+                        }
+                    }
+                    LockSupport.parkNanos(500_000);
+                }
+                Optional<TestProgress> progress = progressService.recordTestResult(userId, 30);
+                long finishStart = System.nanoTime();
+                Optional<ExerciseSession> saved = progress.flatMap(p -> capture.finish(session, p));
+                finishNanos.addAndGet(System.nanoTime() - finishStart);
+                saved.ifPresent(result -> {
+                    synchronized (stored) {
+                        stored.add(result);
+                    }
+                });
+            }, "paced-session-" + s);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long samples = 0;
+        long dropped = 0;
+        long bytes = 0;
+        long replayed = 0;
+        long replayStart = System.nanoTime();
+        for (ExerciseSession session : stored) {
+            samples += session.getSampleCount();
+            dropped += session.getDroppedSamples();
+            bytes += session.getEncodedBytes();
+            Optional<SampleStreamReader> reader = capture.openSamples(session.getSessionId());
+            if (reader.isPresent()) {
+                try (SampleStreamReader samplesReader = reader.get()) {
+                    while (samplesReader.next()) {
+                        replayed++;
+                    }
+                }
+            }
+        }
+        double replaySeconds = (System.nanoTime() - replayStart) / 1e9;
+        double bytesPerSample = samples > 0 ? (double) bytes / samples : 0;
+        long meanFinishMillis = stored.isEmpty() ? -1 : TimeUnit.NANOSECONDS.toMillis(finishNanos.get() / stored.size());
+        System.out.printf("Stored %d sessions: %,d samples, %,d dropped, %.2f bytes/sample, finish %d ms on average%n",
+                stored.size(), samples, dropped, bytesPerSample, meanFinishMillis);
+        System.out.printf("Replayed %,d samples at %,.0f samples/s%n", replayed, replayed / replaySeconds);
+        meta.put("pacedSamples", String.valueOf(samples));
+        meta.put("pacedDropped", String.valueOf(dropped));
+        meta.put("bytesPerSample", String.format("%.3f", bytesPerSample));
+        meta.put("finishMeanMillis", String.valueOf(meanFinishMillis));
+        meta.put("replaySamplesPerSecond", String.format("%.0f", replayed / replaySeconds));
+    }
+}
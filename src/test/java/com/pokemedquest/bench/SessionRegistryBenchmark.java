@@ -0,0 +1,76 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.Session;
+import com.pokemedquest.model.User;
+import com.pokemedquest.service.SessionRegistry;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmarks the SessionRegistry at 100k live sessions.
+ * Measures session creation, concurrent token lookups and a full expiry sweep.
+ *
+ * Run with: java -cp target/test-classes:target/classes com.pokemedquest.bench.SessionRegistryBenchmark [sessions] [threads]
+ */
+public class SessionRegistryBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long ttlMillis = 60_000;
+
+        // Drive expiry ourselves so the numbers are not disturbed by the ticker thread
+        SessionRegistry registry = new SessionRegistry(ttlMillis, false);
+        String[] tokens = new String[sessionCount];
+
+        // 1. Create sessions
+        long start = System.nanoTime();
+        for (int i = 0; i < sessionCount; i++) {
+            User user = new User(i + 1, "child" + i, "x", "child");
+            Avatar avatar = new Avatar(i + 1, i + 1, "Pika" + i, "blue", "none", 1);
+            tokens[i] = registry.createSession(user, avatar).getToken();
+        }
+        long createNanos = System.nanoTime() - start;
+        System.out.printf("create:  %,d sessions in %,d ms (%,.0f ns/op)%n",
+                sessionCount, createNanos / 1_000_000, (double) createNanos / sessionCount);
+
+        // 2. Concurrent lookups against the full registry
+        int lookupsPerThread = 1_000_000;
+        LongAdder hits = new LongAdder();
+        Thread[] workers = new Thread[threads];
+        start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int found = 0;
+                for (int i = 0; i < lookupsPerThread; i++) {
+                    if (registry.getSession(tokens[random.nextInt(tokens.length)]).isPresent()) {
+                        found++;
+                    }
+                }
+                hits.add(found);
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long lookupNanos = System.nanoTime() - start;
+        long totalLookups = (long) threads * lookupsPerThread;
+        System.out.printf("lookup:  %,d lookups on %d threads in %,d ms (%,.0f lookups/s, %,d hits)%n",
+                totalLookups, threads, lookupNanos / 1_000_000,
+                totalLookups / (lookupNanos / 1e9), hits.sum());
+
+        // 3. Expire everything in one go by jumping past the TTL
+        start = System.nanoTime();
+        int expired = registry.expireSessions(System.currentTimeMillis() + 10 * ttlMillis);
+        long expireNanos = System.nanoTime() - start;
+        System.out.printf("expire:  %,d sessions in %,d ms, %,d left%n",
+                expired, expireNanos / 1_000_000, registry.activeSessionCount());
+
+        Session probe = registry.createSession(new User(0, "probe", "x", "admin"), null);
+        System.out.println("registry still usable: " + registry.getSession(probe.getToken()).isPresent());
+    }
+}
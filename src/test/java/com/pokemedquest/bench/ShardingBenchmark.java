@@ -0,0 +1,88 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.User;
+import com.pokemedquest.shard.ShardedStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * Measures write throughput of the ShardedStore as shards are added.
+ *
+ * For every shard count, a fresh set of shard files is seeded with --users users and then
+ * --threads writer threads record test results for random users as fast as they can. With
+ * one shard every commit waits for the single database lock; with N shards up to N commits
+ * proceed at once, so throughput should grow almost linearly until the disk or the CPU
+ * (or the number of threads) is the limit. The fan-out patient list is timed as well.
+ *
+ * Options (all optional):
+ *   --shards=LIST     shard counts to compare (default 1,2,4,8)
+ *   --threads=N       concurrent writers (default 8)
+ *   --users=N         users spread over the shards (default 2000)
+ *   --warmup=N, --iterations=N, --iteration-ms=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default sharding-bench-results.json)
+ */
+public class ShardingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        int users = Integer.parseInt(options.getOrDefault("users", "2000"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "1")),
+                Integer.parseInt(options.getOrDefault("iterations", "3")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "2000")));
+
+        for (String shardOption : options.getOrDefault("shards", "1,2,4,8").split(",")) {
+            int shards = Integer.parseInt(shardOption.trim());
+            Path directory = Files.createTempDirectory("pokemedquest-shards-");
+            try (ShardedStore store = ShardedStore.open(directory, shards)) {
+                List<User> seed = new ArrayList<>(users);
+                for (int i = 0; i < users; i++) {
+                    seed.add(new User("user" + i, "pw" + i, "child"));
+                }
+                if (!store.createUsers(seed)) {
+                    throw new IllegalStateException("Seeding " + shards + " shards failed");
+                }
+                int[] userIds = seed.stream().mapToInt(User::getId).toArray();
+
+                Map<String, String> params = new LinkedHashMap<>();
+                params.put("shards", String.valueOf(shards));
+                params.put("threads", String.valueOf(threads));
+                runner.runConcurrent("ShardedStore.createTestProgress", params, threads, () -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    TestProgress progress = new TestProgress(userIds[random.nextInt(userIds.length)],
+                            LocalDateTime.now(), random.nextInt(53));
+                    return store.createTestProgress(progress);
+                });
+                runner.run("ShardedStore.findPatients", params, store::findPatients);
+            } finally {
+                deleteRecursively(directory);
+            }
+        }
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("users", String.valueOf(users));
+        meta.put("threads", String.valueOf(threads));
+        String out = options.getOrDefault("out", "sharding-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
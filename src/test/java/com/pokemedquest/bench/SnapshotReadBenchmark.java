@@ -0,0 +1,117 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.dao.ReadSnapshot;
+import com.pokemedquest.dao.SnapshotReader;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.model.CohortStats;
+import com.pokemedquest.model.PatientSummary;
+import com.pokemedquest.service.ProgressService;
+
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures whether admin dashboard reads slow down children recording scores, and checks
+ * that every dashboard is internally consistent while scores are being written.
+ *
+ * ProgressService.recordTestResult is timed twice against the same temp database: once on
+ * its own and once while a background thread builds dashboards back to back through a
+ * SnapshotReader, keeping each snapshot open for --hold-ms. In WAL mode the two runs should
+ * be close. Within each snapshot the per-patient test counts must add up to the cohort
+ * total; the number of snapshots where they did not is printed (it should be 0).
+ *
+ * Options (all optional):
+ *   --users=N         patients to seed and record results for (default 1000)
+ *   --history=N       test results per seeded patient (default 20)
+ *   --hold-ms=N       how long each dashboard snapshot stays open (default 50)
+ *   --warmup=N, --iterations=N, --iteration-ms=N, --seed=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default snapshot-bench-results.json)
+ */
+public class SnapshotReadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int history = Integer.parseInt(options.getOrDefault("history", "20"));
+        long holdMillis = Long.parseLong(options.getOrDefault("hold-ms", "50"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        try (BenchmarkDatabase database = BenchmarkDatabase.create();
+             SnapshotReader snapshotReader = new SnapshotReader()) {
+            System.out.println("Seeding " + users + " users into " + database.getFile() + " ...");
+            int firstUser = database.addUsers(users, history, seed);
+            ProgressService progressService = new ProgressService(new TestProgressDao());
+            SplittableRandom random = new SplittableRandom(seed);
+
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("readers", "0");
+            runner.run("ProgressService.recordTestResult", params, () ->
+                    progressService.recordTestResult(firstUser + random.nextInt(users), random.nextInt(53)));
+
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicLong snapshots = new AtomicLong();
+            AtomicLong mismatches = new AtomicLong();
+            Thread reader = new Thread(() -> {
+                while (!stop.get()) {
+                    Optional<ReadSnapshot> snapshotOptional = snapshotReader.openSnapshot();
+                    if (!snapshotOptional.isPresent()) {
+                        mismatches.incrementAndGet();
+                        continue;
+                    }
+                    try (ReadSnapshot snapshot = snapshotOptional.get()) {
+                        Optional<List<PatientSummary>> patients = snapshot.findPatientSummaries();
+                        sleep(holdMillis); // Writers commit meanwhile; the snapshot must not see them
+                        Optional<CohortStats> stats = snapshot.findCohortStats();
+                        long tests = 0;
+                        for (PatientSummary patient : patients.orElse(List.of())) {
+                            tests += patient.getTests();
+                        }
+                        if (!patients.isPresent() || !stats.isPresent() || stats.get().getTests() != tests) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                    snapshots.incrementAndGet();
+                }
+            }, "dashboard-reader");
+            reader.setDaemon(true);
+            reader.start();
+            try {
+                params.put("readers", "1");
+                params.put("holdMs", String.valueOf(holdMillis));
+                runner.run("ProgressService.recordTestResult", params, () ->
+                        progressService.recordTestResult(firstUser + random.nextInt(users), random.nextInt(53)));
+            } finally {
+                stop.set(true);
+                reader.join();
+            }
+            System.out.println(snapshots.get() + " dashboard snapshots, " + mismatches.get() + " inconsistent");
+
+            Map<String, String> meta = new LinkedHashMap<>();
+            meta.put("users", String.valueOf(users));
+            meta.put("history", String.valueOf(history));
+            meta.put("snapshots", String.valueOf(snapshots.get()));
+            meta.put("inconsistentSnapshots", String.valueOf(mismatches.get()));
+            String out = options.getOrDefault("out", "snapshot-bench-results.json");
+            runner.writeJson(Paths.get(out), meta);
+            System.out.println("Results written to " + out);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.pokemedquest.bench;
+
+import com.pokemedquest.cli.TableRenderer;
+import com.pokemedquest.cli.TrendChart;
+import com.pokemedquest.model.ProgressHistory;
+import com.pokemedquest.model.ProgressRollup;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.TrendSeries;
+
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Downsamples and draws CMAS histories of increasing length, the way the CLI's progress
+ * chart does (TrendSeries.from, then TrendChart.render), to show the cost grows linearly
+ * with the history and not with the chart. The histories are built in memory, so only the
+ * charting is measured; one operation charts one history.
+ *
+ * Options (all optional):
+ *   --sizes=N,N,...   history lengths (default 1000,10000,100000,1000000)
+ *   --rollups=N       weekly rollups before the raw results (default 0)
+ *   --width=N         chart columns, also the number of points kept (default TrendChart.DEFAULT_WIDTH)
+ *   --warmup=N, --iterations=N, --iteration-ms=N, --seed=N  as for DaoBenchmarks
+ *   --out=FILE        where to write the JSON results (default chart-bench-results.json)
+ */
+public class TrendChartBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = DaoBenchmarks.parseOptions(args);
+        String[] sizes = options.getOrDefault("sizes", "1000,10000,100000,1000000").split(",");
+        int rollups = Integer.parseInt(options.getOrDefault("rollups", "0"));
+        int width = Integer.parseInt(options.getOrDefault("width", String.valueOf(TrendChart.DEFAULT_WIDTH)));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        BenchmarkRunner runner = new BenchmarkRunner(
+                Integer.parseInt(options.getOrDefault("warmup", "2")),
+                Integer.parseInt(options.getOrDefault("iterations", "5")),
+                Long.parseLong(options.getOrDefault("iteration-ms", "1000")));
+
+        TrendChart chart = new TrendChart(width, TrendChart.DEFAULT_HEIGHT);
+        TableRenderer renderer = new TableRenderer(Writer.nullWriter(), TableRenderer.DEFAULT_PAGE_ROWS);
+        for (String size : sizes) {
+            int tests = Integer.parseInt(size.trim());
+            ProgressHistory history = buildHistory(tests, rollups, new SplittableRandom(seed));
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("tests", String.valueOf(tests));
+            params.put("rollups", String.valueOf(rollups));
+            params.put("width", String.valueOf(width));
+            runner.run("chartHistory", params, () -> {
+                TrendSeries series = TrendSeries.from(history, chart.getWidth());
+                chart.render(series, renderer);
+                renderer.flush();
+                return 1;
+            });
+        }
+
+        // One chart on the console, to see what was measured
+        int sample = Integer.parseInt(sizes[0].trim());
+        TableRenderer console = TableRenderer.forConsole();
+        chart.render(TrendSeries.from(buildHistory(sample, rollups, new SplittableRandom(seed)), chart.getWidth()), console);
+        console.flush();
+
+        Map<String, String> meta = new LinkedHashMap<>();
+        meta.put("sizes", String.join(",", sizes));
+        meta.put("rollups", String.valueOf(rollups));
+        meta.put("width", String.valueOf(width));
+        String out = options.getOrDefault("out", "chart-bench-results.json");
+        runner.writeJson(Paths.get(out), meta);
+        System.out.println("Results written to " + out);
+    }
+
+    /**
+     * A score that rises and falls in a few slow waves, with noise and the odd bad day, a few
+     * tests a day after the weekly rollups; both lists most recent first, as getFullHistory
+     * returns them.
+     */
+    private static ProgressHistory buildHistory(int tests, int rollups, SplittableRandom random) {
+        LocalDateTime time = LocalDateTime.of(2020, 1, 6, 0, 0);
+        List<ProgressRollup> rollupList = new ArrayList<>(rollups);
+        for (int i = 0; i < rollups; i++) {
+            int low = random.nextInt(30);
+            int high = low + random.nextInt(53 - low);
+            rollupList.add(new ProgressRollup(1, ProgressRollup.Granularity.WEEK, time, 10, low, high,
+                    10L * (low + high) / 2, high, time.plusDays(6)));
+            time = time.plusWeeks(1);
+        }
+        List<TestProgress> recent = new ArrayList<>(tests);
+        for (int i = 0; i < tests; i++) {
+            double level = 30 + 15 * Math.sin(6 * Math.PI * i / tests) + random.nextDouble(-4, 4);
+            int score = random.nextInt(50) == 0 ? random.nextInt(15) : (int) Math.round(Math.max(0, Math.min(52, level)));
+            recent.add(new TestProgress(i + 1, 1, time, score));
+            time = time.plusMinutes(240 + random.nextInt(240));
+        }
+        Collections.reverse(rollupList);
+        Collections.reverse(recent);
+        return new ProgressHistory(recent, rollupList);
+    }
+}
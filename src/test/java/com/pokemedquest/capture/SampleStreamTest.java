@@ -0,0 +1,80 @@
+package com.pokemedquest.capture;
+
+import com.pokemedquest.Check;
+import com.pokemedquest.model.CmasItem;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks that SampleStreamReader replays exactly what SampleStreamWriter was given: random
+ * sessions from empty to --samples samples (default 200,000, enough to cross many buffer
+ * flushes), with interleaved items, offsets that occasionally go backwards and values from
+ * hold times in milliseconds to negative readings. A blob cut short must end in an
+ * EOFException rather than look like a complete session.
+ */
+public class SampleStreamTest {
+
+    private static final int ITEMS = CmasItem.values().length;
+
+    public static void main(String[] args) throws IOException {
+        int samples = args.length > 0 ? Integer.parseInt(args[0].replace("--samples=", "")) : 200_000;
+        Check check = new Check("SampleStreamTest");
+        Random random = new Random(42);
+        for (int count : new int[] {0, 1, 2, 1_000, 9_999, samples}) {
+            session(check, random, count);
+        }
+
+        SampleStreamWriter writer = new SampleStreamWriter();
+        for (int i = 0; i < 5_000; i++) {
+            writer.write(i * 1_000L, random.nextInt(ITEMS), random.nextInt(60_000));
+        }
+        byte[] blob = writer.finish();
+        check.that(Arrays.equals(blob, writer.finish()), "finish() twice changed the blob");
+        byte[] truncated = Arrays.copyOf(blob, blob.length / 2);
+        boolean endOfStream = false;
+        try (SampleStreamReader reader = new SampleStreamReader(truncated)) {
+            while (reader.next()) {
+                // Reads until the blob runs out
+            }
+        } catch (EOFException e) {
+            endOfStream = true;
+        }
+        check.that(endOfStream, "blob cut in half read as a complete session");
+        check.finish();
+    }
+
+    private static void session(Check check, Random random, int count) throws IOException {
+        long[] offsets = new long[count];
+        int[] items = new int[count];
+        int[] values = new int[count];
+        SampleStreamWriter writer = new SampleStreamWriter();
+        long offset = 0;
+        for (int i = 0; i < count; i++) {
+            offset += random.nextInt(50) == 0 ? -random.nextInt(10_000) : random.nextInt(20_000);
+            offsets[i] = offset;
+            items[i] = random.nextInt(ITEMS);
+            values[i] = random.nextInt(10) == 0 ? random.nextInt() : random.nextInt(120_000) - 100;
+            writer.write(offsets[i], items[i], values[i]);
+        }
+        check.equal((long) count, writer.getSampleCount(), count + " samples: sample count");
+        byte[] blob = writer.finish();
+
+        int read = 0;
+        int mismatch = -1;
+        try (SampleStreamReader reader = new SampleStreamReader(blob)) {
+            while (reader.next()) {
+                if (read >= count || reader.getOffsetMicros() != offsets[read]
+                        || reader.getItem().ordinal() != items[read] || reader.getValue() != values[read]) {
+                    mismatch = mismatch < 0 ? read : mismatch;
+                }
+                read++;
+            }
+            check.that(!reader.next(), count + " samples: next() after the end");
+        }
+        check.equal(count, read, count + " samples: samples read back");
+        check.that(mismatch < 0, count + " samples: sample " + mismatch + " read back differently");
+    }
+}
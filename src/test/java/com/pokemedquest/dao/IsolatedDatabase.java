@@ -0,0 +1,63 @@
+package com.pokemedquest.dao;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A private in-memory database with the application schema, e.g. one per test class, so
+ * test classes can run in parallel without sharing (or cleaning up) a database file.
+ *
+ *   try (IsolatedDatabase database = IsolatedDatabase.create("UserDaoTest")) {
+ *       UserDao userDao = new UserDao(database.getUrl());
+ *       ...
+ *   }
+ *
+ * The database exists until close(). It is not made the current database: hand its URL
+ * to the DAOs under test (every DAO that keeps its own data has a URL constructor), or
+ * call DatabaseManager.setDatabaseUrl in code that runs alone.
+ */
+public final class IsolatedDatabase implements AutoCloseable {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final String url;
+
+    private IsolatedDatabase(String url) {
+        this.url = url;
+    }
+
+    /**
+     * Creates a new, empty database with the application schema.
+     *
+     * @param label Part of the database name, e.g. the test class, to tell databases apart
+     *              when debugging; the name is made unique whatever the label.
+     * @return The new database.
+     * @throws SQLException if the schema cannot be applied.
+     */
+    public static IsolatedDatabase create(String label) throws SQLException {
+        String name = label.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + SEQUENCE.incrementAndGet() + "-" + ProcessHandle.current().pid();
+        String url = DatabaseManager.MEMORY_PREFIX + name;
+        try {
+            DatabaseManager.initializeSchema(url); // Also opens the connection that keeps it alive
+        } catch (SQLException e) {
+            DatabaseManager.closeInMemoryDatabase(url);
+            throw e;
+        }
+        return new IsolatedDatabase(url);
+    }
+
+    /**
+     * @return The database's URL ("memory:NAME"), for DAO constructors and DatabaseManager.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Drops the database.
+     */
+    @Override
+    public void close() {
+        DatabaseManager.closeInMemoryDatabase(url);
+    }
+}
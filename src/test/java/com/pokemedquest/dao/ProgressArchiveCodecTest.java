@@ -0,0 +1,132 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.Check;
+import com.pokemedquest.model.CmasItem;
+import com.pokemedquest.model.CmasItemScores;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.util.VarInt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Checks that archive blobs decode to the rows they were encoded from: random buckets of
+ * 0 to 400 rows, with and without item scores, with IDs and timestamps that go backwards
+ * now and then (rows of one bucket are time-ordered, not ID-ordered). Version 1 blobs,
+ * written before item scores were archived, must still decode (without item scores), and
+ * an unknown version must be refused rather than misread. No database is used.
+ */
+public class ProgressArchiveCodecTest {
+
+    private static final int USER_ID = 77;
+
+    public static void main(String[] args) throws IOException {
+        int buckets = args.length > 0 ? Integer.parseInt(args[0].replace("--buckets=", "")) : 2_000;
+        Check check = new Check("ProgressArchiveCodecTest");
+        Random random = new Random(42);
+        for (int i = 0; i < buckets; i++) {
+            List<TestProgress> rows = bucket(random, random.nextInt(i % 10 == 0 ? 400 : 40));
+            List<TestProgress> decoded = ProgressArchiveCodec.decode(USER_ID, ProgressArchiveCodec.encode(rows));
+            String mismatch = firstMismatch(rows, decoded, true);
+            check.that(mismatch == null, "bucket " + i + " of " + rows.size() + " rows: " + mismatch);
+        }
+
+        List<TestProgress> rows = bucket(random, 30);
+        List<TestProgress> decoded = ProgressArchiveCodec.decode(USER_ID, encodeVersion1(rows));
+        check.equal(null, firstMismatch(rows, decoded, false), "version 1 blob");
+        int withItems = 0;
+        for (TestProgress row : decoded) {
+            withItems += row.getItemScores() != null ? 1 : 0;
+        }
+        check.equal(0, withItems, "rows of a version 1 blob with item scores");
+
+        boolean refused = false;
+        try {
+            ProgressArchiveCodec.decode(USER_ID, deflate(3));
+        } catch (IOException e) {
+            refused = true;
+        }
+        check.that(refused, "unknown format version decoded");
+        check.finish();
+    }
+
+    private static List<TestProgress> bucket(Random random, int count) {
+        List<TestProgress> rows = new ArrayList<>(count);
+        LocalDateTime time = LocalDateTime.of(2020, 1, 1, 8, 0).plusDays(random.nextInt(1000));
+        int id = 1 + random.nextInt(1_000_000);
+        for (int i = 0; i < count; i++) {
+            time = time.plusSeconds(random.nextInt(3 * 86_400)).withNano(random.nextInt(1000) * 1_000_000);
+            id += random.nextInt(10) == 0 ? -random.nextInt(500) : 1 + random.nextInt(20); // Back-dated entries
+            TestProgress row = new TestProgress(Math.max(1, id), USER_ID, time, random.nextInt(53));
+            if (random.nextBoolean()) {
+                int[] scores = new int[CmasItem.values().length];
+                for (CmasItem item : CmasItem.values()) {
+                    scores[item.ordinal()] = random.nextInt(5) == 0 ? CmasItemScores.NOT_SCORED : random.nextInt(item.getMaxScore() + 1);
+                }
+                row.setItemScores(CmasItemScores.of(scores));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * @return What differs first, or null if the rows are the same.
+     */
+    private static String firstMismatch(List<TestProgress> expected, List<TestProgress> actual, boolean withItems) {
+        if (expected.size() != actual.size()) {
+            return actual.size() + " rows decoded";
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            TestProgress e = expected.get(i);
+            TestProgress a = actual.get(i);
+            long packed = e.getItemScores() != null ? e.getItemScores().toPacked() : 0; // Nothing scored is stored as no scores
+            long decodedPacked = a.getItemScores() != null ? a.getItemScores().toPacked() : 0;
+            if (e.getProgressId() != a.getProgressId() || a.getUserId() != USER_ID || !e.getTestTimestamp().equals(a.getTestTimestamp())
+                    || e.getCmasScore() != a.getCmasScore() || (withItems && packed != decodedPacked)) {
+                return "row " + i + " (ID " + e.getProgressId() + ", " + e.getTestTimestamp() + ", " + e.getCmasScore()
+                        + ", items " + packed + ") decoded as (ID " + a.getProgressId() + ", " + a.getTestTimestamp()
+                        + ", " + a.getCmasScore() + ", items " + decodedPacked + ")";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes rows the way version 1 did: no item scores.
+     */
+    private static byte[] encodeVersion1(List<TestProgress> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(bytes)) {
+            VarInt.writeUnsigned(out, 1);
+            VarInt.writeUnsigned(out, rows.size());
+            long previousId = 0;
+            long previousMillis = 0;
+            for (TestProgress row : rows) {
+                long millis = row.getTestTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+                VarInt.writeSigned(out, row.getProgressId() - previousId);
+                VarInt.writeSigned(out, millis - previousMillis);
+                VarInt.writeUnsigned(out, row.getCmasScore());
+                previousId = row.getProgressId();
+                previousMillis = millis;
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(int version) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(bytes)) {
+            VarInt.writeUnsigned(out, version);
+            VarInt.writeUnsigned(out, 0);
+        }
+        return bytes.toByteArray();
+    }
+}
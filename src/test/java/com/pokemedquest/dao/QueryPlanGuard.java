@@ -0,0 +1,323 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks the query plan of every DAO statement, so a changed query or a dropped index is
+ * caught before it reaches production.
+ *
+ * Every "static final String ..._SQL" constant of the DAO classes (and ReadSnapshot) is found
+ * by reflection (new statements are checked without registering them) and run through EXPLAIN QUERY
+ * PLAN, parameters bound to NULL, against a populated and ANALYZEd database. A statement
+ * fails if its plan scans a whole table ("SCAN users", also via an index) or sorts in a
+ * temp B-tree, unless that step is on the allow-list (query-plan-allowlist.txt). Scans of
+ * an alias ("SCAN u") count as scans of the aliased table.
+ *
+ *   QueryPlanGuard [--db=URL] [--users=N] [--history=N] [--allow=FILE] [--classes=a.B,c.D]
+ *
+ * Without --db a private in-memory database is seeded with --users users (default 2000),
+ * each with an avatar and --history results (default 20); it also gets the shard directory
+ * table. A --db database must have every table the checked classes use. --classes checks further
+ * classes on top of the DAOs. Prints every plan step it rejects (and allow-list entries
+ * that no longer match anything) and exits with status 1 if there are any.
+ */
+public class QueryPlanGuard {
+
+    private static final String ALLOWLIST_RESOURCE = "/query-plan-allowlist.txt";
+    private static final String ALLOWLIST_FILE = "src/test/resources/query-plan-allowlist.txt";
+
+    private static final String LIST_TABLES_SQL = "SELECT name FROM sqlite_master WHERE type = 'table'";
+    private static final String ANALYZE_SQL = "ANALYZE";
+
+    // The classes whose statements are checked by default
+    private static final Class<?>[] DAO_CLASSES = {
+            UserDao.class, AvatarDao.class, TestProgressDao.class, AchievementDao.class, StreakDao.class,
+            RetentionDao.class, ExerciseSessionDao.class, ShardDirectoryDao.class, SyncDao.class, ReadSnapshot.class
+    };
+    // "FROM users u", "JOIN avatars AS a": EXPLAIN names the alias, so scans are mapped back to the table
+    private static final Pattern TABLE_ALIAS = Pattern.compile("\\b(?:FROM|JOIN)\\s+(\\w+)\\s+(?:AS\\s+)?(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    private final String url;
+    private final Map<String, Set<String>> allowed; // Statement -> allowed plan steps
+    private final Set<String> allowedUsed = new HashSet<>();
+
+    /**
+     * @param url The database to explain against, ideally populated and ANALYZEd.
+     * @param allowed Plan steps accepted per statement ("Class.CONSTANT").
+     */
+    public QueryPlanGuard(String url, Map<String, Set<String>> allowed) {
+        this.url = url;
+        this.allowed = allowed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        List<Class<?>> classes = new ArrayList<>(List.of(DAO_CLASSES));
+        if (options.containsKey("classes")) {
+            for (String name : options.get("classes").split(",")) {
+                classes.add(Class.forName(name.trim()));
+            }
+        }
+        Map<String, Set<String>> allowed = readAllowList(options.get("allow"));
+
+        List<String> problems;
+        if (options.containsKey("db")) {
+            problems = new QueryPlanGuard(options.get("db"), allowed).check(classes);
+        } else {
+            try (IsolatedDatabase database = IsolatedDatabase.create("QueryPlanGuard")) {
+                DatabaseManager.initializeDirectorySchema(database.getUrl()); // So ShardDirectoryDao can be explained too
+                populate(database.getUrl(), Integer.parseInt(options.getOrDefault("users", "2000")),
+                        Integer.parseInt(options.getOrDefault("history", "20")));
+                problems = new QueryPlanGuard(database.getUrl(), allowed).check(classes);
+            }
+        }
+
+        for (String problem : problems) {
+            System.err.println(problem);
+        }
+        if (!problems.isEmpty()) {
+            System.exit(1);
+        }
+        System.out.println("All query plans OK.");
+    }
+
+    /**
+     * Explains every statement constant of the given classes.
+     *
+     * @param classes The classes to take "..._SQL" constants from.
+     * @return One line per rejected plan step or unused allow-list entry; empty if all is well.
+     * @throws SQLException if a statement cannot be explained, e.g. because it no longer
+     *                      matches the schema.
+     */
+    public List<String> check(List<Class<?>> classes) throws SQLException {
+        Map<String, String> statements = new LinkedHashMap<>();
+        for (Class<?> type : classes) {
+            statements.putAll(statementsOf(type));
+        }
+        List<String> problems = new ArrayList<>();
+        try (Connection connection = DatabaseManager.getConnection(url)) {
+            Set<String> tables = tables(connection);
+            for (Map.Entry<String, String> statement : statements.entrySet()) {
+                Map<String, String> aliases = aliasesOf(statement.getValue(), tables);
+                for (String step : explain(connection, statement.getValue())) {
+                    String rejected = rejectedStep(step, tables, aliases);
+                    if (rejected == null) {
+                        continue;
+                    }
+                    String key = statement.getKey() + " | " + rejected;
+                    if (allowed.getOrDefault(statement.getKey(), Set.of()).contains(rejected)) {
+                        allowedUsed.add(key);
+                    } else {
+                        problems.add(statement.getKey() + ": " + step + "    (" + statement.getValue() + ")");
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : allowed.entrySet()) {
+            if (!statements.containsKey(entry.getKey())) {
+                continue; // A class that was not checked this time
+            }
+            for (String step : entry.getValue()) {
+                if (!allowedUsed.contains(entry.getKey() + " | " + step)) {
+                    problems.add(entry.getKey() + ": allow-list entry '" + step + "' no longer matches; remove it");
+                }
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * @return The "static final String ..._SQL" constants of a class, by "Class.CONSTANT".
+     */
+    static Map<String, String> statementsOf(Class<?> type) {
+        Map<String, String> statements = new LinkedHashMap<>();
+        for (Field field : type.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)
+                    && field.getType() == String.class && field.getName().endsWith("_SQL")) {
+                try {
+                    field.setAccessible(true);
+                    statements.put(type.getSimpleName() + "." + field.getName(), (String) field.get(null));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot read " + type.getName() + "." + field.getName(), e);
+                }
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * @return The table aliases a statement declares, alias -> table.
+     */
+    private static Map<String, String> aliasesOf(String sql, Set<String> tables) {
+        Map<String, String> aliases = new HashMap<>();
+        Matcher matcher = TABLE_ALIAS.matcher(sql);
+        while (matcher.find()) {
+            if (tables.contains(matcher.group(1))) {
+                aliases.put(matcher.group(2), matcher.group(1)); // Keywords after a table name never show up as a scanned alias
+            }
+        }
+        return aliases;
+    }
+
+    /**
+     * Normalizes a plan step that needs allowing: "SCAN <table>" for a full scan of a table
+     * (with or without an index, by name or alias), the step itself for a temp B-tree, null
+     * for anything else. Scans of subqueries and constant rows are not table scans.
+     */
+    private static String rejectedStep(String step, Set<String> tables, Map<String, String> aliases) {
+        if (step.contains("TEMP B-TREE")) {
+            return step;
+        }
+        if (step.startsWith("SCAN ")) {
+            String rest = step.substring("SCAN ".length());
+            if (rest.startsWith("TABLE ")) {
+                rest = rest.substring("TABLE ".length()); // Older SQLite versions
+            }
+            int end = rest.indexOf(' ');
+            String table = end < 0 ? rest : rest.substring(0, end);
+            table = aliases.getOrDefault(table, table);
+            return tables.contains(table) ? "SCAN " + table : null;
+        }
+        return null;
+    }
+
+    private static List<String> explain(Connection connection, String sql) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setNull(i, Types.NULL);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    plan.add(rs.getString("detail"));
+                }
+            }
+        }
+        return plan;
+    }
+
+    private static Set<String> tables(Connection connection) throws SQLException {
+        Set<String> tables = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LIST_TABLES_SQL)) {
+            while (rs.next()) {
+                tables.add(rs.getString(1));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Seeds users, avatars and results through the DAOs, then ANALYZEs, so the planner sees
+     * realistic table sizes rather than empty tables.
+     */
+    private static void populate(String url, int users, int history) throws SQLException {
+        UserDao userDao = new UserDao(url);
+        AvatarDao avatarDao = new AvatarDao(url);
+        TestProgressDao testProgressDao = new TestProgressDao(url);
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        for (int done = 0; done < users; done += 1000) {
+            List<User> batch = new ArrayList<>();
+            for (int i = done; i < Math.min(users, done + 1000); i++) {
+                batch.add(new User("user" + i, "pw" + i, i % 50 == 0 ? "admin" : "child"));
+            }
+            if (!userDao.createUsers(batch)) {
+                throw new SQLException("Failed to seed users");
+            }
+            List<Avatar> avatars = new ArrayList<>();
+            List<TestProgress> progress = new ArrayList<>();
+            for (User user : batch) {
+                avatars.add(new Avatar(user.getId(), "Avatar" + user.getId(), "blue", "none", 1));
+                for (int h = 0; h < history; h++) {
+                    progress.add(new TestProgress(user.getId(), start.plusDays(7L * h), random.nextInt(53)));
+                }
+            }
+            if (!avatarDao.createAvatars(avatars) || !testProgressDao.createTestProgressBatch(progress)) {
+                throw new SQLException("Failed to seed avatars or test progress");
+            }
+        }
+        try (Connection connection = DatabaseManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute(ANALYZE_SQL);
+        }
+    }
+
+    /**
+     * Reads the allow-list: "Class.CONSTANT | plan step | reason" per line, '#' comments.
+     *
+     * @param file A file to read, or null for query-plan-allowlist.txt on the classpath
+     *             (or in the source tree).
+     */
+    static Map<String, Set<String>> readAllowList(String file) throws IOException {
+        String text;
+        if (file != null) {
+            text = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+        } else {
+            try (InputStream in = QueryPlanGuard.class.getResourceAsStream(ALLOWLIST_RESOURCE)) {
+                if (in != null) {
+                    text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                } else {
+                    Path fallback = Paths.get(ALLOWLIST_FILE);
+                    text = Files.exists(fallback) ? new String(Files.readAllBytes(fallback), StandardCharsets.UTF_8) : "";
+                }
+            }
+        }
+        Map<String, Set<String>> allowed = new HashMap<>();
+        for (String line : text.split("\\R")) {
+            int comment = line.indexOf('#');
+            String entry = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            String[] parts = entry.split("\\|");
+            if (parts.length < 2) {
+                System.err.println("Ignoring malformed allow-list line: " + line);
+                continue;
+            }
+            allowed.computeIfAbsent(parts[0].trim(), key -> new HashSet<>()).add(parts[1].trim());
+        }
+        return allowed;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                int eq = arg.indexOf('=');
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+}
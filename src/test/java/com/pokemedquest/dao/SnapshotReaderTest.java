@@ -0,0 +1,153 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.Check;
+import com.pokemedquest.model.CohortStats;
+import com.pokemedquest.model.PatientSummary;
+import com.pokemedquest.model.TestProgress;
+import com.pokemedquest.model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Checks that an open ReadSnapshot neither delays writers nor sees their commits: while one
+ * snapshot is held open, another thread records --writes results (default 200), each of which
+ * must commit within --max-write-ms (default 1,000, well under what waiting for a lock would
+ * take). The snapshot must still report the counts it started with, and the next snapshot
+ * must see every write.
+ *
+ * Uses a temp database file, since WAL (which the snapshots rely on) does not apply to
+ * in-memory databases:
+ *
+ *   java -cp "target/test-classes:target/classes:lib/sqlite-jdbc-XYZ.jar" com.pokemedquest.dao.SnapshotReaderTest
+ */
+public class SnapshotReaderTest {
+
+    private static final int PATIENTS = 50;
+
+    public static void main(String[] args) throws Exception {
+        int writes = 200;
+        long maxWriteMillis = 1_000;
+        for (String arg : args) {
+            if (arg.startsWith("--writes=")) {
+                writes = Integer.parseInt(arg.substring("--writes=".length()));
+            } else if (arg.startsWith("--max-write-ms=")) {
+                maxWriteMillis = Long.parseLong(arg.substring("--max-write-ms=".length()));
+            }
+        }
+        Check check = new Check("SnapshotReaderTest");
+        Path directory = Files.createTempDirectory("pokemedquest-snapshot-test");
+        try {
+            String url = "jdbc:sqlite:" + directory.resolve("snapshot-test.db").toAbsolutePath();
+            DatabaseManager.initializeSchema(url);
+            List<Integer> patients = seed(url);
+            try (SnapshotReader reader = new SnapshotReader(url)) {
+                writersNotDelayed(check, reader, url, patients, writes, maxWriteMillis);
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+        check.finish();
+    }
+
+    private static void writersNotDelayed(Check check, SnapshotReader reader, String url, List<Integer> patients,
+                                          int writes, long maxWriteMillis) throws InterruptedException {
+        TestProgressDao testProgressDao = new TestProgressDao(url);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong slowestNanos = new AtomicLong();
+        int writesToMake = writes;
+
+        Optional<ReadSnapshot> opened = reader.openSnapshot();
+        check.that(opened.isPresent(), "snapshot opened");
+        if (!opened.isPresent()) {
+            return;
+        }
+        try (ReadSnapshot snapshot = opened.get()) {
+            long before = totalTests(snapshot);
+            check.equal((long) PATIENTS, before, "tests seen when the snapshot opened");
+
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < writesToMake; i++) {
+                    long start = System.nanoTime();
+                    TestProgress progress = new TestProgress(patients.get(i % patients.size()), LocalDateTime.now(), i % 53);
+                    if (!testProgressDao.createTestProgress(progress)) {
+                        failed.incrementAndGet();
+                    }
+                    slowestNanos.accumulateAndGet(System.nanoTime() - start, Math::max);
+                }
+                done.countDown();
+            }, "snapshot-test-writer");
+            writer.start();
+
+            // The snapshot stays open until the writer is done (or clearly stuck)
+            boolean finished = done.await(writesToMake * maxWriteMillis + 5_000, TimeUnit.MILLISECONDS);
+            check.that(finished, "writer finished while the snapshot was open");
+            check.equal(0, failed.get(), "writes that failed while the snapshot was open");
+            long slowestMillis = TimeUnit.NANOSECONDS.toMillis(slowestNanos.get());
+            check.that(slowestMillis <= maxWriteMillis, "slowest write took " + slowestMillis + " ms (limit " + maxWriteMillis + ")");
+
+            check.equal(before, totalTests(snapshot), "patient summaries changed inside the snapshot");
+            Optional<CohortStats> stats = snapshot.findCohortStats();
+            check.that(stats.isPresent() && stats.get().getTests() == before, "cohort totals changed inside the snapshot");
+            writer.join();
+        }
+
+        Optional<ReadSnapshot> next = reader.openSnapshot();
+        check.that(next.isPresent(), "second snapshot opened");
+        if (next.isPresent()) {
+            try (ReadSnapshot snapshot = next.get()) {
+                check.equal((long) PATIENTS + writes - failed.get(), totalTests(snapshot), "tests seen by the next snapshot");
+            }
+        }
+    }
+
+    private static List<Integer> seed(String url) {
+        UserDao userDao = new UserDao(url);
+        TestProgressDao testProgressDao = new TestProgressDao(url);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < PATIENTS; i++) {
+            users.add(new User("snapshot-patient-" + i, "hash", "child"));
+        }
+        if (!userDao.createUsers(users)) {
+            throw new IllegalStateException("Could not seed users");
+        }
+        List<Integer> ids = new ArrayList<>();
+        List<TestProgress> history = new ArrayList<>();
+        for (User user : users) {
+            ids.add(user.getId());
+            history.add(new TestProgress(user.getId(), LocalDateTime.now().minusDays(1), 30));
+        }
+        if (!testProgressDao.createTestProgressBatch(history)) {
+            throw new IllegalStateException("Could not seed test results");
+        }
+        return ids;
+    }
+
+    private static long totalTests(ReadSnapshot snapshot) {
+        long tests = 0;
+        for (PatientSummary patient : snapshot.findPatientSummaries().orElseThrow()) {
+            tests += patient.getTests();
+        }
+        return tests;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
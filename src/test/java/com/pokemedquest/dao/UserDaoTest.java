@@ -0,0 +1,103 @@
+package com.pokemedquest.dao;
+
+import com.pokemedquest.Check;
+import com.pokemedquest.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Checks UserDao against a private in-memory database (IsolatedDatabase): created users get
+ * their IDs and read back by username and ID, usernames stay unique (a batch with a taken
+ * name saves nothing), patients are listed by username, and updateUserIfVersion only saves
+ * over the version it was read with.
+ *
+ *   java -cp "target/test-classes:target/classes:lib/sqlite-jdbc-XYZ.jar" com.pokemedquest.dao.UserDaoTest
+ */
+public class UserDaoTest {
+
+    public static void main(String[] args) throws Exception {
+        Check check = new Check("UserDaoTest");
+        try (IsolatedDatabase database = IsolatedDatabase.create("UserDaoTest")) {
+            UserDao userDao = new UserDao(database.getUrl());
+            createAndFind(check, userDao);
+            batches(check, userDao);
+            versionedUpdates(check, userDao);
+        }
+        check.finish();
+    }
+
+    private static void createAndFind(Check check, UserDao userDao) {
+        User alice = new User("alice", "hash-a", "child");
+        check.that(userDao.createUser(alice), "createUser");
+        check.that(alice.getId() > 0, "no ID set on the created user");
+
+        Optional<User> byName = userDao.findUserByUsername("alice");
+        check.that(byName.isPresent(), "user not found by username");
+        Optional<User> byId = userDao.findUserById(alice.getId());
+        check.that(byId.isPresent(), "user not found by ID");
+        if (byName.isPresent() && byId.isPresent()) {
+            check.equal(alice.getId(), byName.get().getId(), "ID found by username");
+            check.equal("hash-a", byName.get().getPasswordHash(), "password hash");
+            check.equal("child", byId.get().getRole(), "role");
+            check.equal(0, byId.get().getVersion(), "version of a new user");
+        }
+
+        check.that(!userDao.createUser(new User("alice", "other", "admin")), "second user named alice created");
+        check.that(!userDao.findUserByUsername("nobody").isPresent(), "unknown username found");
+        check.that(!userDao.findUserById(alice.getId() + 1000).isPresent(), "unknown ID found");
+    }
+
+    private static void batches(Check check, UserDao userDao) {
+        List<User> batch = new ArrayList<>();
+        for (String name : new String[] {"dora", "carl", "eve", "bob"}) {
+            batch.add(new User(name, "hash", "child"));
+        }
+        batch.add(new User("admin1", "hash", "admin"));
+        check.that(userDao.createUsers(batch), "createUsers");
+        for (int i = 1; i < batch.size(); i++) {
+            check.equal(batch.get(i - 1).getId() + 1, batch.get(i).getId(), "batch IDs are consecutive");
+        }
+        for (User user : batch) {
+            Optional<User> found = userDao.findUserById(user.getId());
+            check.that(found.isPresent() && found.get().getUsername().equals(user.getUsername()),
+                    user.getUsername() + " not found under the ID the batch gave it");
+        }
+
+        List<User> clash = Arrays.asList(new User("frank", "hash", "child"), new User("bob", "hash", "child"));
+        check.that(!userDao.createUsers(clash), "batch with a taken username saved");
+        check.that(!userDao.findUserByUsername("frank").isPresent(), "rest of a failed batch saved");
+        check.that(userDao.createUsers(new ArrayList<>()), "empty batch");
+
+        List<String> patients = new ArrayList<>();
+        for (User user : userDao.findUsersByRole("child")) {
+            patients.add(user.getUsername());
+        }
+        check.equal(Arrays.asList("alice", "bob", "carl", "dora", "eve"), patients, "patients by username");
+        check.equal(1, userDao.findUsersByRole("admin").size(), "admins");
+    }
+
+    private static void versionedUpdates(Check check, UserDao userDao) {
+        User first = userDao.findUserByUsername("carl").orElseThrow(IllegalStateException::new);
+        User second = userDao.findUserByUsername("carl").orElseThrow(IllegalStateException::new);
+
+        first.setPasswordHash("new-hash");
+        check.equal(UpdateResult.UPDATED, userDao.updateUserIfVersion(first), "update at the current version");
+        check.equal(1, first.getVersion(), "version after the update");
+        second.setRole("admin");
+        check.equal(UpdateResult.STALE, userDao.updateUserIfVersion(second), "update over a changed row");
+
+        User saved = userDao.findUserById(first.getId()).orElseThrow(IllegalStateException::new);
+        check.equal("new-hash", saved.getPasswordHash(), "password hash after the update");
+        check.equal("child", saved.getRole(), "role changed by the stale update");
+        check.equal(1, saved.getVersion(), "version read back");
+
+        User missing = new User(saved.getId() + 1000, "ghost", "hash", "child");
+        check.equal(UpdateResult.STALE, userDao.updateUserIfVersion(missing), "update of a user that does not exist");
+        User renamed = userDao.findUserByUsername("dora").orElseThrow(IllegalStateException::new);
+        renamed.setUsername("alice");
+        check.equal(UpdateResult.FAILED, userDao.updateUserIfVersion(renamed), "rename to a taken username");
+    }
+}
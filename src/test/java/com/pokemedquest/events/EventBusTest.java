@@ -0,0 +1,141 @@
+package com.pokemedquest.events;
+
+import com.pokemedquest.Check;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress check for EventBus: --publishers threads (default 4) each publish --events events
+ * (default 500,000) into a small ring, so publishers keep running into the back-pressure
+ * path, while a fast and a deliberately slow subscriber consume them. Every subscriber
+ * must see every event exactly once, each publisher's events in the order they were
+ * published, and never a batch larger than MAX_BATCH_SIZE. Also checks that a subscriber
+ * that throws only loses its own batch, and the constructor and subscribe() rules.
+ */
+public class EventBusTest {
+
+    private static final int CAPACITY = 1024;
+
+    /**
+     * An event that knows who published it and in which order.
+     */
+    private static final class Numbered extends DomainEvent {
+        final int publisher;
+        final int number;
+
+        Numbered(int publisher, int number) {
+            super(publisher);
+            this.publisher = publisher;
+            this.number = number;
+        }
+    }
+
+    /**
+     * Checks the order of what it receives, per publisher.
+     */
+    private static final class OrderCheckingSubscriber implements EventSubscriber {
+        private final int[] nextNumber;
+        private final long pauseEveryBatches;
+        private long received = 0;
+        private long batches = 0;
+        private long outOfOrder = 0;
+        private int largestBatch = 0;
+
+        OrderCheckingSubscriber(int publishers, long pauseEveryBatches) {
+            this.nextNumber = new int[publishers];
+            this.pauseEveryBatches = pauseEveryBatches;
+        }
+
+        @Override
+        public void onEvents(List<DomainEvent> batch) {
+            largestBatch = Math.max(largestBatch, batch.size());
+            for (DomainEvent event : batch) {
+                Numbered numbered = (Numbered) event;
+                if (numbered.number != nextNumber[numbered.publisher]) {
+                    outOfOrder++;
+                }
+                nextNumber[numbered.publisher] = numbered.number + 1;
+                received++;
+            }
+            if (pauseEveryBatches > 0 && ++batches % pauseEveryBatches == 0) {
+                Thread.yield(); // Falls behind now and then, so the ring fills up
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int publishers = 4;
+        int events = 500_000;
+        for (String arg : args) {
+            if (arg.startsWith("--publishers=")) {
+                publishers = Integer.parseInt(arg.substring("--publishers=".length()));
+            } else if (arg.startsWith("--events=")) {
+                events = Integer.parseInt(arg.substring("--events=".length()));
+            }
+        }
+        Check check = new Check("EventBusTest");
+        stress(check, publishers, events);
+        failingSubscriber(check);
+
+        check.fails(IllegalArgumentException.class, () -> new EventBus(1000), "capacity that is not a power of two");
+        check.fails(IllegalArgumentException.class, () -> new EventBus(0), "capacity 0");
+        EventBus started = new EventBus(16);
+        started.start();
+        check.fails(IllegalStateException.class, () -> started.subscribe("late", batch -> { }), "subscribe() after start()");
+        started.shutdown();
+        check.finish();
+    }
+
+    private static void stress(Check check, int publishers, int events) throws InterruptedException {
+        EventBus bus = new EventBus(CAPACITY);
+        OrderCheckingSubscriber fast = new OrderCheckingSubscriber(publishers, 0);
+        OrderCheckingSubscriber slow = new OrderCheckingSubscriber(publishers, 2);
+        bus.subscribe("fast", fast);
+        bus.subscribe("slow", slow);
+        bus.start();
+
+        Thread[] threads = new Thread[publishers];
+        for (int p = 0; p < publishers; p++) {
+            int publisher = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < events; i++) {
+                    bus.publish(new Numbered(publisher, i));
+                }
+            }, "publisher-" + p);
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        check.that(bus.awaitDrained(60_000), "subscribers did not catch up within 60 s");
+        bus.shutdown();
+
+        long expected = (long) publishers * events;
+        for (OrderCheckingSubscriber subscriber : new OrderCheckingSubscriber[] {fast, slow}) {
+            String name = subscriber == fast ? "fast" : "slow";
+            check.equal(expected, subscriber.received, name + " subscriber: events received");
+            check.equal(0L, subscriber.outOfOrder, name + " subscriber: events out of publication order");
+            check.that(subscriber.largestBatch <= EventBus.MAX_BATCH_SIZE, name + " subscriber: batch of " + subscriber.largestBatch);
+            for (int p = 0; p < publishers; p++) {
+                check.equal(events, subscriber.nextNumber[p], name + " subscriber: events of publisher " + p);
+            }
+        }
+    }
+
+    private static void failingSubscriber(Check check) {
+        EventBus bus = new EventBus(16);
+        AtomicInteger healthy = new AtomicInteger();
+        bus.subscribe("failing", batch -> {
+            throw new IllegalStateException("expected by EventBusTest");
+        });
+        bus.subscribe("healthy", batch -> healthy.addAndGet(batch.size()));
+        bus.start();
+        for (int i = 0; i < 100; i++) {
+            bus.publish(new Numbered(0, i));
+        }
+        check.that(bus.awaitDrained(10_000), "a throwing subscriber stalled the bus");
+        bus.shutdown();
+        check.equal(100, healthy.get(), "events seen next to a throwing subscriber");
+    }
+}
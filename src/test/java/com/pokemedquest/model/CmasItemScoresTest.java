@@ -0,0 +1,97 @@
+package com.pokemedquest.model;
+
+import com.pokemedquest.Check;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks the bit packing of CmasItemScores: random score sheets (every item scored, none,
+ * or a mix) survive toPacked/fromPacked, get() and decode() agree, total() and isComplete()
+ * match the sheet, and the packed value stays within the 39 bits the column is sized for.
+ * Each item's bits must not leak into its neighbors, so every item is also set alone to
+ * its maximum. Out-of-range scores are rejected.
+ */
+public class CmasItemScoresTest {
+
+    private static final CmasItem[] ITEMS = CmasItem.values();
+
+    public static void main(String[] args) {
+        int sheets = args.length > 0 ? Integer.parseInt(args[0].replace("--sheets=", "")) : 100_000;
+        Check check = new Check("CmasItemScoresTest");
+        Random random = new Random(42);
+        int[] decoded = new int[ITEMS.length];
+        int mismatches = 0;
+        String firstMismatch = null;
+        for (int i = 0; i < sheets; i++) {
+            int[] sheet = sheet(random, i % 3);
+            CmasItemScores scores = CmasItemScores.of(sheet);
+            CmasItemScores restored = CmasItemScores.fromPacked(scores.toPacked());
+            CmasItemScores.decode(scores.toPacked(), decoded);
+            boolean same = restored.equals(scores) && Arrays.equals(sheet, decoded)
+                    && scores.toPacked() >>> 39 == 0 && scores.total() == total(sheet) && scores.isComplete() == complete(sheet);
+            for (CmasItem item : ITEMS) {
+                same &= restored.get(item) == sheet[item.ordinal()];
+            }
+            if (!same && mismatches++ == 0) {
+                firstMismatch = Arrays.toString(sheet) + " read back as " + restored;
+            }
+        }
+        check.equal(0, mismatches, "score sheets that did not survive packing, first " + firstMismatch);
+
+        for (CmasItem item : ITEMS) {
+            int[] alone = new int[ITEMS.length];
+            Arrays.fill(alone, CmasItemScores.NOT_SCORED);
+            alone[item.ordinal()] = item.getMaxScore();
+            CmasItemScores.decode(CmasItemScores.of(alone).toPacked(), decoded);
+            check.that(Arrays.equals(alone, decoded), item + " alone at its maximum read back as " + Arrays.toString(decoded));
+        }
+
+        int[] none = new int[ITEMS.length];
+        Arrays.fill(none, CmasItemScores.NOT_SCORED);
+        check.equal(0L, CmasItemScores.of(none).toPacked(), "packed value with nothing scored");
+        int[] maximum = new int[ITEMS.length];
+        for (CmasItem item : ITEMS) {
+            maximum[item.ordinal()] = item.getMaxScore();
+        }
+        check.equal(52, CmasItemScores.of(maximum).total(), "total of a perfect sheet");
+
+        int[] tooHigh = maximum.clone();
+        tooHigh[CmasItem.STOOL_STEP.ordinal()]++;
+        check.fails(IllegalArgumentException.class, () -> CmasItemScores.of(tooHigh), "score above the item's maximum");
+        int[] negative = maximum.clone();
+        negative[0] = -2;
+        check.fails(IllegalArgumentException.class, () -> CmasItemScores.of(negative), "negative score");
+        check.fails(IllegalArgumentException.class, () -> CmasItemScores.of(new int[13]), "13 scores");
+        check.finish();
+    }
+
+    /**
+     * @param kind 0: every item scored, 1: nothing scored, 2: a mix.
+     */
+    private static int[] sheet(Random random, int kind) {
+        int[] sheet = new int[ITEMS.length];
+        for (CmasItem item : ITEMS) {
+            boolean scored = kind == 0 || (kind == 2 && random.nextBoolean());
+            sheet[item.ordinal()] = scored ? random.nextInt(item.getMaxScore() + 1) : CmasItemScores.NOT_SCORED;
+        }
+        return sheet;
+    }
+
+    private static int total(int[] sheet) {
+        int total = 0;
+        for (int score : sheet) {
+            total += Math.max(0, score);
+        }
+        return total;
+    }
+
+    private static boolean complete(int[] sheet) {
+        for (int score : sheet) {
+            if (score == CmasItemScores.NOT_SCORED) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
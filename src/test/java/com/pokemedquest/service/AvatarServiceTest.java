@@ -0,0 +1,102 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.Check;
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.IsolatedDatabase;
+import com.pokemedquest.dao.UserDao;
+import com.pokemedquest.events.AvatarUpdated;
+import com.pokemedquest.events.DomainEvent;
+import com.pokemedquest.events.EventBus;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.Session;
+import com.pokemedquest.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Checks AvatarService against a private in-memory database (IsolatedDatabase): default
+ * avatars, customizations saved from a stale screen that merge with the newer change
+ * instead of overwriting it, level-ups that add to the saved level, and an AvatarUpdated
+ * event with the saved version for every change, which keeps the avatar cached in the
+ * user's session current.
+ *
+ *   java -cp "target/test-classes:target/classes:lib/sqlite-jdbc-XYZ.jar" com.pokemedquest.service.AvatarServiceTest
+ */
+public class AvatarServiceTest {
+
+    public static void main(String[] args) throws Exception {
+        Check check = new Check("AvatarServiceTest");
+        try (IsolatedDatabase database = IsolatedDatabase.create("AvatarServiceTest")) {
+            UserDao userDao = new UserDao(database.getUrl());
+            AvatarDao avatarDao = new AvatarDao(database.getUrl());
+            EventBus eventBus = new EventBus(64);
+            List<Avatar> published = new ArrayList<>();
+            eventBus.subscribe("avatar-test", batch -> {
+                for (DomainEvent event : batch) {
+                    if (event instanceof AvatarUpdated) {
+                        synchronized (published) {
+                            published.add(((AvatarUpdated) event).getAvatar());
+                        }
+                    }
+                }
+            });
+            SessionRegistry sessionRegistry = new SessionRegistry(SessionRegistry.DEFAULT_TTL_MILLIS, false);
+            eventBus.subscribe("sessions", sessionRegistry);
+            eventBus.start();
+            AvatarService avatarService = new AvatarService(avatarDao, eventBus);
+
+            User user = new User("pikachu-fan", "hash", "child");
+            check.that(userDao.createUser(user), "createUser");
+            Session session = sessionRegistry.createSession(user, null); // Logged in before the avatar exists
+            Optional<Avatar> created = avatarService.createDefaultAvatar(user, "Sparky");
+            check.that(created.isPresent(), "createDefaultAvatar");
+            Avatar shown = avatarService.getAvatarForUser(user.getId()).orElseThrow(IllegalStateException::new);
+            check.equal("Sparky", shown.getAvatarName(), "name");
+            check.equal("blue", shown.getColor(), "default color");
+            check.equal("none", shown.getAccessory(), "default accessory");
+            check.equal(1, shown.getLevel(), "default level");
+
+            // Another client changes the color while this one has the edit screen open
+            check.that(avatarService.updateAvatarCustomization(user.getId(), "Sparky", "red", "none"), "color change");
+            check.that(avatarService.updateAvatarCustomization(shown, "Zappy", shown.getColor(), "hat"), "rename from a stale screen");
+            check.equal(1L, avatarService.getVersionConflicts(), "version conflicts");
+            Avatar merged = avatarService.getAvatarForUser(user.getId()).orElseThrow(IllegalStateException::new);
+            check.equal("Zappy", merged.getAvatarName(), "name after the merge");
+            check.equal("red", merged.getColor(), "color overwritten by the stale screen");
+            check.equal("hat", merged.getAccessory(), "accessory after the merge");
+            check.equal("blue", shown.getColor(), "shown avatar modified");
+            check.equal(2, merged.getVersion(), "version after two changes");
+
+            check.that(avatarService.levelUpAvatar(user.getId()), "levelUpAvatar");
+            check.that(avatarService.levelUpAvatar(user.getId()), "second levelUpAvatar");
+            Avatar leveled = avatarService.getAvatarForUser(user.getId()).orElseThrow(IllegalStateException::new);
+            check.equal(3, leveled.getLevel(), "level after two level-ups");
+            check.equal("Zappy", leveled.getAvatarName(), "name after leveling up");
+
+            check.that(!avatarService.levelUpAvatar(user.getId() + 1000), "level-up without an avatar");
+            check.that(!avatarService.updateAvatarCustomization(user.getId() + 1000, "x", "red", "none"), "customization without an avatar");
+
+            check.that(eventBus.awaitDrained(5_000), "events not delivered");
+            eventBus.shutdown();
+            List<Integer> versions = new ArrayList<>();
+            synchronized (published) {
+                for (Avatar avatar : published) {
+                    versions.add(avatar.getVersion());
+                }
+            }
+            check.equal(List.of(0, 1, 2, 3, 4), versions, "versions published, one event per saved change");
+
+            Avatar cached = session.getAvatar();
+            check.that(cached != null, "session avatar not set from the events");
+            if (cached != null) {
+                check.equal(4, cached.getVersion(), "version of the session avatar");
+                check.equal(3, cached.getLevel(), "level of the session avatar");
+                check.equal("Zappy", cached.getAvatarName(), "name of the session avatar");
+            }
+            check.that(!session.updateAvatar(created.get()), "session avatar replaced by an older version");
+        }
+        check.finish();
+    }
+}
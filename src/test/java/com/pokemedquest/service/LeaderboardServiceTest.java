@@ -0,0 +1,67 @@
+package com.pokemedquest.service;
+
+import com.pokemedquest.Check;
+import com.pokemedquest.dao.AvatarDao;
+import com.pokemedquest.dao.TestProgressDao;
+import com.pokemedquest.model.Avatar;
+import com.pokemedquest.model.TestProgress;
+
+import java.time.LocalDateTime;
+
+/**
+ * Checks that LeaderboardService ends up at the newest avatar version whatever order the
+ * AvatarUpdated events arrive in (AvatarService and the achievement flusher publish from
+ * different threads), and that ranks follow levels and test counts. No database is used:
+ * the boards are fed through the event methods only.
+ */
+public class LeaderboardServiceTest {
+
+    public static void main(String[] args) {
+        Check check = new Check("LeaderboardServiceTest");
+
+        LeaderboardService boards = newService();
+        boards.onAvatarChanged(avatar(1, 3, 0));
+        boards.onAvatarChanged(avatar(1, 5, 2)); // Reward published by the flusher first...
+        boards.onAvatarChanged(avatar(1, 4, 1)); // ...then the older level-up
+        check.equal(5, level(boards, 1), "older version applied after a newer one");
+        boards.onAvatarChanged(avatar(1, 5, 2));
+        check.equal(1, boards.size(), "repeated version added a second entry");
+        boards.onAvatarChanged(avatar(1, 7, 3));
+        check.equal(7, level(boards, 1), "newer version ignored");
+
+        boards.onAvatarChanged(avatar(2, 9, 0));
+        boards.onAvatarChanged(avatar(3, 2, 0));
+        check.equal(3, boards.size(), "avatars on the board");
+        check.equal(1, boards.getEntryForUser(LeaderboardService.Board.LEVEL, 2).get().getRank(), "rank of the highest level");
+        check.equal(3, boards.getEntryForUser(LeaderboardService.Board.LEVEL, 3).get().getRank(), "rank of the lowest level");
+
+        for (int i = 0; i < 4; i++) {
+            boards.onProgressRecorded(new TestProgress(i, 3, LocalDateTime.of(2024, 1, 1 + i, 9, 0), 20));
+        }
+        boards.onProgressRecorded(new TestProgress(9, 4, LocalDateTime.of(2024, 1, 1, 9, 0), 20)); // No avatar yet
+        check.equal(4, boards.getEntryForUser(LeaderboardService.Board.TESTS_COMPLETED, 3).get().getScore(), "tests counted");
+        check.equal(1, boards.getEntryForUser(LeaderboardService.Board.TESTS_COMPLETED, 3).get().getRank(), "rank by tests");
+        check.that(!boards.getEntryForUser(LeaderboardService.Board.LEVEL, 4).isPresent(), "user without avatar on the board");
+        boards.onAvatarChanged(avatar(4, 1, 0));
+        check.equal(1, boards.getEntryForUser(LeaderboardService.Board.TESTS_COMPLETED, 4).get().getScore(),
+                "test recorded before the avatar existed");
+
+        check.fails(IllegalStateException.class, boards::load, "load() after events");
+        check.finish();
+    }
+
+    private static LeaderboardService newService() {
+        // The DAOs are only used by load(), which this check never gets to run
+        return new LeaderboardService(new AvatarDao("jdbc:sqlite::memory:"), new TestProgressDao("jdbc:sqlite::memory:"));
+    }
+
+    private static Avatar avatar(int userId, int level, int version) {
+        Avatar avatar = new Avatar(userId, userId, "Avatar" + userId, "blue", "none", level);
+        avatar.setVersion(version);
+        return avatar;
+    }
+
+    private static int level(LeaderboardService boards, int userId) {
+        return boards.getEntryForUser(LeaderboardService.Board.LEVEL, userId).get().getScore();
+    }
+}
@@ -0,0 +1,87 @@
+package com.pokemedquest.util;
+
+import com.pokemedquest.Check;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Cross-checks IndexableSkipList against a TreeSet: --ops random adds and removes (default
+ * 200,000) over a key range small enough that duplicates and misses are frequent. After
+ * every operation the return value and size must match; every 1,000 operations the whole
+ * list is compared position by position (get, rankOf, range), and absent keys must rank -1.
+ */
+public class IndexableSkipListTest {
+
+    private static final int KEYS = 5_000;
+
+    public static void main(String[] args) {
+        int ops = args.length > 0 ? Integer.parseInt(args[0].replace("--ops=", "")) : 200_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1].replace("--seed=", "")) : 42;
+        Check check = new Check("IndexableSkipListTest");
+        Random random = new Random(seed);
+        IndexableSkipList<Integer> list = new IndexableSkipList<>(Comparator.naturalOrder());
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int op = 0; op < ops; op++) {
+            int key = random.nextInt(KEYS);
+            // Grow for the first half, then shrink, so both long and nearly empty lists are covered
+            boolean add = random.nextInt(100) < (op < ops / 2 ? 65 : 35);
+            if (add) {
+                check.equal(expected.add(key), list.add(key), "op " + op + ": add(" + key + ")");
+            } else {
+                check.equal(expected.remove(key), list.remove(key), "op " + op + ": remove(" + key + ")");
+            }
+            check.equal(expected.size(), list.size(), "op " + op + ": size");
+            if (op % 1_000 == 0) {
+                compare(check, list, expected, random, "op " + op);
+            }
+        }
+        compare(check, list, expected, random, "end");
+        while (!expected.isEmpty()) {
+            check.that(list.remove(expected.pollFirst()), "draining: remove failed");
+        }
+        check.equal(0, list.size(), "size after removing everything");
+        check.equal(-1, list.rankOf(0), "rank in an empty list");
+        check.fails(IndexOutOfBoundsException.class, () -> list.get(0), "get(0) on an empty list");
+        check.finish();
+    }
+
+    private static void compare(Check check, IndexableSkipList<Integer> list, TreeSet<Integer> expected,
+                                Random random, String label) {
+        List<Integer> values = new ArrayList<>(expected);
+        int wrongGet = -1;
+        int wrongRank = -1;
+        for (int i = 0; i < values.size(); i++) {
+            if (!values.get(i).equals(list.get(i))) {
+                wrongGet = i;
+            }
+            if (list.rankOf(values.get(i)) != i) {
+                wrongRank = i;
+            }
+        }
+        check.that(wrongGet < 0, label + ": get(" + wrongGet + ")");
+        check.that(wrongRank < 0, label + ": rankOf the element at " + wrongRank);
+        check.equal(values, list.range(0, values.size() + 1), label + ": range over everything");
+
+        int from = values.isEmpty() ? 0 : random.nextInt(values.size());
+        int count = random.nextInt(50);
+        check.equal(values.subList(from, Math.min(values.size(), from + count)), list.range(from, count),
+                label + ": range(" + from + ", " + count + ")");
+        check.equal(new ArrayList<Integer>(), list.range(values.size(), 10), label + ": range past the end");
+
+        int absent = KEYS + random.nextInt(KEYS);
+        for (int key = 0; key < KEYS; key += 97) {
+            if (!expected.contains(key)) {
+                absent = key;
+                break;
+            }
+        }
+        check.equal(-1, list.rankOf(absent), label + ": rankOf(" + absent + "), which is absent");
+        int size = values.size();
+        check.fails(IndexOutOfBoundsException.class, () -> list.get(size), label + ": get(size)");
+    }
+}
@@ -0,0 +1,62 @@
+package com.pokemedquest.util;
+
+import com.pokemedquest.Check;
+
+/**
+ * Checks LttbDownsampler for every point count up to --max (default 5,000; the CLI chart's 60 points failed at 61, 64, 120, ...) at the
+ * thresholds the app and benchmarks use: never more points kept than asked for, the first
+ * and last point always kept, x strictly ascending, every point kept when there are few
+ * enough, and each band containing its point.
+ */
+public class LttbDownsamplerTest {
+
+    private static final int[] THRESHOLDS = {3, 4, 5, 10, 60, 72, 100, 1000};
+
+    public static void main(String[] args) {
+        int max = args.length > 0 ? Integer.parseInt(args[0].replace("--max=", "")) : 5_000;
+        Check check = new Check("LttbDownsamplerTest");
+        for (int threshold : THRESHOLDS) {
+            for (int count = 0; count <= max; count++) {
+                sweep(check, threshold, count);
+            }
+        }
+        check.fails(IllegalStateException.class, () -> new LttbDownsampler(5, 3).finish(), "finish() before all points");
+        check.fails(IllegalStateException.class, () -> {
+            LttbDownsampler lttb = new LttbDownsampler(1, 3);
+            lttb.add(0, 0);
+            lttb.add(1, 1);
+        }, "more points than announced");
+        check.fails(IllegalArgumentException.class, () -> new LttbDownsampler(10, 2), "threshold below 3");
+        check.finish();
+    }
+
+    private static void sweep(Check check, int threshold, int count) {
+        String label = "count=" + count + " threshold=" + threshold;
+        LttbDownsampler lttb = new LttbDownsampler(count, threshold);
+        try {
+            for (int i = 0; i < count; i++) {
+                double y = (i * 7919) % 53; // Jagged, so every bucket has a clear pick
+                lttb.add(i, y, y - 1, y + 1);
+            }
+            int kept = lttb.finish();
+            check.that(kept == Math.min(count, threshold), label + ": kept " + kept);
+            if (kept > 0) {
+                check.that(lttb.getX(0) == 0 && lttb.getX(kept - 1) == count - 1, label + ": first or last point dropped");
+            }
+            int disorder = -1;
+            int outsideBand = -1;
+            for (int i = 0; i < kept; i++) {
+                if (i > 0 && lttb.getX(i) <= lttb.getX(i - 1)) {
+                    disorder = i;
+                }
+                if (lttb.getY(i) < lttb.getLow(i) || lttb.getY(i) > lttb.getHigh(i)) {
+                    outsideBand = i;
+                }
+            }
+            check.that(disorder < 0, label + ": x not ascending at " + disorder);
+            check.that(outsideBand < 0, label + ": band misses point " + outsideBand);
+        } catch (RuntimeException e) {
+            check.that(false, label + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.pokemedquest.util;
+
+import com.pokemedquest.Check;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks both timing wheels against the deadlines they were given, on a simulated clock
+ * that advances in random steps (from less than a tick to several turns of the wheel):
+ * - every timeout that is not cancelled expires exactly once;
+ * - never before its deadline, and at the first advance() that has completed its tick;
+ * - cancelled timeouts never expire.
+ * The hierarchical wheel also gets deadlines beyond its span, moves (reschedule) before
+ * and after expiry, and timeouts rescheduled from inside the expiry callback, the way
+ * ReminderScheduler uses it.
+ */
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+    private static final long TICK = 10;
+
+    public static void main(String[] args) {
+        int timeouts = args.length > 0 ? Integer.parseInt(args[0].replace("--timeouts=", "")) : 20_000;
+        Check check = new Check("TimingWheelTest");
+        timingWheel(check, new Random(42), timeouts);
+        hierarchicalTimingWheel(check, new Random(43), timeouts);
+        check.fails(IllegalArgumentException.class, () -> new TimingWheel<>(0, 8, START), "TimingWheel tick of 0");
+        check.fails(IllegalArgumentException.class, () -> new HierarchicalTimingWheel<>(TICK, 11, START), "11 levels");
+        HierarchicalTimingWheel<String> other = new HierarchicalTimingWheel<>(TICK, 2, START);
+        HierarchicalTimingWheel.Timeout<String> foreign = other.schedule("x", START);
+        check.fails(IllegalArgumentException.class,
+                () -> new HierarchicalTimingWheel<String>(TICK, 2, START).reschedule(foreign, START), "reschedule on another wheel");
+        check.finish();
+    }
+
+    /**
+     * @return The time by which advance() must have expired a timeout: the end of its
+     * deadline's tick, or of the tick it was scheduled in if the deadline had already passed.
+     */
+    private static long dueBy(long deadline, long scheduledAt) {
+        long tick = Math.max(0, Math.floorDiv(Math.max(deadline, scheduledAt) - START, TICK));
+        return START + (tick + 1) * TICK;
+    }
+
+    private static void timingWheel(Check check, Random random, int count) {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 64, START); // 640 ms per turn
+        long now = START;
+        long[] deadlines = new long[count];
+        long[] scheduledAt = new long[count];
+        boolean[] cancelled = new boolean[count];
+        int[] expired = new int[count];
+        boolean[] late = new boolean[count];
+        List<TimingWheel.Timeout<Integer>> handles = new ArrayList<>();
+        int scheduled = 0;
+        List<String> errors = new ArrayList<>();
+        long latest = START;
+
+        while (scheduled < count || now < latest + TICK) {
+            // Schedule a few, some in the past and some several turns ahead
+            for (int i = 0; i < 20 && scheduled < count; i++, scheduled++) {
+                deadlines[scheduled] = now - 50 + random.nextInt(3_000);
+                scheduledAt[scheduled] = now;
+                latest = Math.max(latest, deadlines[scheduled]);
+                handles.add(wheel.schedule(scheduled, deadlines[scheduled]));
+            }
+            if (scheduled > 0 && random.nextInt(4) == 0) {
+                int victim = random.nextInt(scheduled);
+                if (expired[victim] == 0) {
+                    handles.get(victim).cancel();
+                    cancelled[victim] = true;
+                }
+            }
+            now += 1 + random.nextInt(random.nextInt(10) == 0 ? 2_000 : 25);
+            long at = now;
+            wheel.advance(now, id -> {
+                expired[id]++;
+                if (deadlines[id] > at) {
+                    errors.add(id + " expired at " + at + ", before its deadline " + deadlines[id]);
+                }
+            });
+            collectLate(deadlines, scheduledAt, cancelled, expired, late, scheduled, now, errors);
+        }
+        report(check, deadlines, cancelled, expired, errors, "TimingWheel");
+    }
+
+    private static void hierarchicalTimingWheel(Check check, Random random, int count) {
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(TICK, 3, START); // Spans 64^3 ticks
+        int span = 64 * 64 * 64 * (int) TICK;
+        long now = START;
+        long[] deadlines = new long[count];
+        long[] scheduledAt = new long[count];
+        boolean[] cancelled = new boolean[count];
+        boolean[] repeated = new boolean[count];
+        int[] expired = new int[count];
+        boolean[] late = new boolean[count];
+        Map<Integer, HierarchicalTimingWheel.Timeout<Integer>> handles = new HashMap<>();
+        int scheduled = 0;
+        List<String> errors = new ArrayList<>();
+        long[] latest = {START}; // Also moved from the callback
+
+        while (scheduled < count || now < latest[0] + TICK) {
+            for (int i = 0; i < 20 && scheduled < count; i++, scheduled++) {
+                // Mostly near, some one or two levels up, some past the wheel's span
+                int kind = random.nextInt(20);
+                long delay = kind < 10 ? random.nextInt(640) : kind < 15 ? random.nextInt(64 * 640)
+                        : kind < 18 ? random.nextInt(span) : span + random.nextInt(span);
+                deadlines[scheduled] = now - 20 + delay;
+                scheduledAt[scheduled] = now;
+                latest[0] = Math.max(latest[0], deadlines[scheduled]);
+                handles.put(scheduled, wheel.schedule(scheduled, deadlines[scheduled]));
+            }
+            if (scheduled > 0) {
+                int target = random.nextInt(scheduled);
+                HierarchicalTimingWheel.Timeout<Integer> timeout = handles.get(target);
+                int action = random.nextInt(8);
+                if (action == 0 && !cancelled[target]) {
+                    // Moves one; if it already expired it becomes due again
+                    deadlines[target] = now + random.nextInt(2_000);
+                    scheduledAt[target] = now;
+                    late[target] = false;
+                    latest[0] = Math.max(latest[0], deadlines[target]);
+                    expired[target] = 0;
+                    wheel.reschedule(timeout, deadlines[target]);
+                } else if (action == 1 && expired[target] == 0) {
+                    timeout.cancel();
+                    cancelled[target] = true;
+                }
+            }
+            now += 1 + random.nextInt(random.nextInt(10) == 0 ? 20_000 : 25);
+            long at = now;
+            wheel.advance(now, timeout -> {
+                int id = timeout.getItem();
+                expired[id]++;
+                if (deadlines[id] > at) {
+                    errors.add(id + " expired at " + at + ", before its deadline " + deadlines[id]);
+                }
+                if (id % 50 == 0 && !repeated[id] && !cancelled[id]) {
+                    // Repeats once from inside the callback, like the next reminder of a patient
+                    repeated[id] = true;
+                    deadlines[id] = at + 500;
+                    scheduledAt[id] = at;
+                    late[id] = false;
+                    latest[0] = Math.max(latest[0], deadlines[id]);
+                    expired[id] = 0;
+                    wheel.reschedule(timeout, deadlines[id]);
+                }
+            });
+            collectLate(deadlines, scheduledAt, cancelled, expired, late, scheduled, now, errors);
+        }
+        int repeats = 0;
+        for (boolean r : repeated) {
+            repeats += r ? 1 : 0;
+        }
+        check.that(repeats > 0, "HierarchicalTimingWheel: nothing was rescheduled from the callback");
+        report(check, deadlines, cancelled, expired, errors, "HierarchicalTimingWheel");
+    }
+
+    /**
+     * Records timeouts whose tick has passed without them expiring, once each.
+     */
+    private static void collectLate(long[] deadlines, long[] scheduledAt, boolean[] cancelled, int[] expired,
+                                    boolean[] late, int scheduled, long now, List<String> errors) {
+        for (int id = 0; id < scheduled; id++) {
+            if (!cancelled[id] && !late[id] && expired[id] == 0 && dueBy(deadlines[id], scheduledAt[id]) <= now) {
+                errors.add(id + " (deadline " + deadlines[id] + ") had not expired at " + now);
+                late[id] = true;
+            }
+        }
+    }
+
+    private static void report(Check check, long[] deadlines, boolean[] cancelled, int[] expired,
+                               List<String> errors, String wheel) {
+        for (String error : errors.subList(0, Math.min(errors.size(), 10))) {
+            check.that(false, wheel + ": " + error);
+        }
+        int missing = 0;
+        int twice = 0;
+        int afterCancel = 0;
+        for (int id = 0; id < deadlines.length; id++) {
+            if (cancelled[id]) {
+                afterCancel += expired[id] > 0 ? 1 : 0;
+            } else if (expired[id] == 0) {
+                missing++;
+            } else if (expired[id] > 1) {
+                twice++;
+            }
+        }
+        check.equal(0, errors.size(), wheel + ": timeouts expired early or late");
+        check.equal(0, missing, wheel + ": timeouts that never expired");
+        check.equal(0, twice, wheel + ": timeouts that expired more than once");
+        check.equal(0, afterCancel, wheel + ": cancelled timeouts that expired");
+    }
+}
@@ -0,0 +1,99 @@
+package com.pokemedquest.util;
+
+import com.pokemedquest.Check;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks TokenBucket on a simulated clock: a full burst and not one token more, one token
+ * back per refill interval, never more than the capacity after a long pause, and the same
+ * behavior when System.nanoTime() wraps around. Then --threads threads (default 8) race for
+ * the tokens of one bucket at a fixed time, which must hand out exactly the capacity.
+ */
+public class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0].replace("--threads=", "")) : 8;
+        Check check = new Check("TokenBucketTest");
+        for (long start : new long[] {0, 123_456_789L, Long.MAX_VALUE - 3 * SECOND, Long.MIN_VALUE + 5}) {
+            sequential(check, start);
+        }
+        for (int round = 0; round < 50; round++) {
+            concurrent(check, threads, 1 + round * 7);
+        }
+        check.fails(IllegalArgumentException.class, () -> new TokenBucket(0, SECOND, 0), "capacity 0");
+        check.fails(IllegalArgumentException.class, () -> new TokenBucket(5, 0, 0), "refill interval 0");
+        check.finish();
+    }
+
+    private static void sequential(Check check, long start) {
+        String label = "start " + start + ": ";
+        TokenBucket bucket = new TokenBucket(5, SECOND, start);
+        check.that(bucket.isFull(start), label + "new bucket not full");
+        check.equal(0L, bucket.nanosUntilAvailable(start), label + "wait on a full bucket");
+        for (int i = 0; i < 5; i++) {
+            check.that(bucket.tryAcquire(start), label + "burst token " + i + " refused");
+        }
+        check.that(!bucket.tryAcquire(start), label + "sixth token in the burst handed out");
+        check.that(!bucket.isFull(start), label + "empty bucket reported full");
+        check.equal(SECOND, bucket.nanosUntilAvailable(start), label + "wait on an empty bucket");
+
+        long now = start + SECOND - 1;
+        check.that(!bucket.tryAcquire(now), label + "token handed out before its refill interval");
+        check.equal(1L, bucket.nanosUntilAvailable(now), label + "wait 1 ns before the refill");
+        now = start + SECOND;
+        check.that(bucket.tryAcquire(now), label + "refilled token refused");
+        check.that(!bucket.tryAcquire(now), label + "second token after one refill interval");
+
+        // A long pause refills the bucket, but never beyond its capacity
+        now += 60 * SECOND;
+        check.that(bucket.isFull(now), label + "not full after a pause");
+        int taken = 0;
+        while (bucket.tryAcquire(now)) {
+            taken++;
+        }
+        check.equal(5, taken, label + "tokens after a pause");
+
+        // Half-used: 2 taken, 1 refilled -> 4 available
+        now += 10 * SECOND;
+        bucket.tryAcquire(now);
+        bucket.tryAcquire(now);
+        now += SECOND;
+        taken = 0;
+        while (bucket.tryAcquire(now)) {
+            taken++;
+        }
+        check.equal(4, taken, label + "tokens after taking 2 and waiting one interval");
+    }
+
+    private static void concurrent(Check check, int threads, int capacity) throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(capacity, SECOND, 0);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] racers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            racers[t] = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < capacity; i++) {
+                    if (bucket.tryAcquire(0)) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            racers[t].start();
+        }
+        go.countDown();
+        for (Thread racer : racers) {
+            racer.join();
+        }
+        check.equal(capacity, granted.get(), threads + " threads racing for " + capacity + " tokens");
+    }
+}
@@ -0,0 +1,87 @@
+package com.pokemedquest.util;
+
+import com.pokemedquest.Check;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that VarInt values read back as written, through both the stream and the buffer
+ * writers (which must produce the same bytes), for the edge values of every encoded length
+ * and --values random values (default 100,000) of random magnitude. Also checks the encoded
+ * lengths the codecs rely on, and that a truncated value is an EOFException.
+ */
+public class VarIntTest {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0].replace("--values=", "")) : 100_000;
+        Check check = new Check("VarIntTest");
+
+        // Where the encoded length changes, for both the plain and the zigzag encoding
+        List<Long> edges = new ArrayList<>(Arrays.asList(0L, -1L, Long.MAX_VALUE, Long.MIN_VALUE));
+        for (int bits = 6; bits <= 63; bits += 7) {
+            for (long limit : new long[] {1L << bits, 1L << (bits + 1)}) {
+                edges.addAll(Arrays.asList(limit - 1, limit, -(limit - 1), -limit));
+            }
+        }
+        for (long value : edges) {
+            roundTrip(check, value);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            roundTrip(check, random.nextLong() >> random.nextInt(64));
+        }
+
+        check.equal(1, unsignedLength(127), "bytes for 127");
+        check.equal(2, unsignedLength(128), "bytes for 128");
+        check.equal(VarInt.MAX_BYTES, unsignedLength(-1), "bytes for -1 unsigned");
+        check.equal(1, signedLength(-64), "bytes for -64 signed");
+        check.equal(2, signedLength(64), "bytes for 64 signed");
+        check.equal(VarInt.MAX_BYTES, signedLength(Long.MIN_VALUE), "bytes for Long.MIN_VALUE signed");
+
+        byte[] truncated = new byte[VarInt.MAX_BYTES];
+        int length = VarInt.putUnsigned(truncated, 0, 1L << 40);
+        boolean endOfStream = false;
+        try {
+            VarInt.readUnsigned(new ByteArrayInputStream(truncated, 0, length - 1));
+        } catch (EOFException e) {
+            endOfStream = true;
+        }
+        check.that(endOfStream, "truncated varint read without an EOFException");
+        check.finish();
+    }
+
+    private static void roundTrip(Check check, long value) throws IOException {
+        ByteArrayOutputStream unsigned = new ByteArrayOutputStream();
+        ByteArrayOutputStream signed = new ByteArrayOutputStream();
+        VarInt.writeUnsigned(unsigned, value);
+        VarInt.writeSigned(signed, value);
+        byte[] buffer = new byte[2 * VarInt.MAX_BYTES];
+        int unsignedEnd = VarInt.putUnsigned(buffer, 0, value);
+        int signedEnd = VarInt.putSigned(buffer, unsignedEnd, value);
+
+        check.that(Arrays.equals(unsigned.toByteArray(), Arrays.copyOfRange(buffer, 0, unsignedEnd)),
+                value + ": putUnsigned and writeUnsigned differ");
+        check.that(Arrays.equals(signed.toByteArray(), Arrays.copyOfRange(buffer, unsignedEnd, signedEnd)),
+                value + ": putSigned and writeSigned differ");
+        ByteArrayInputStream in = new ByteArrayInputStream(buffer, 0, signedEnd);
+        long readUnsigned = VarInt.readUnsigned(in);
+        long readSigned = VarInt.readSigned(in);
+        check.that(readUnsigned == value && readSigned == value,
+                value + ": read back as " + readUnsigned + " (unsigned) and " + readSigned + " (signed)");
+    }
+
+    private static int unsignedLength(long value) {
+        return VarInt.putUnsigned(new byte[VarInt.MAX_BYTES], 0, value);
+    }
+
+    private static int signedLength(long value) {
+        return VarInt.putSigned(new byte[VarInt.MAX_BYTES], 0, value);
+    }
+}